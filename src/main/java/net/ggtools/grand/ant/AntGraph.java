@@ -28,8 +28,11 @@
 
 package net.ggtools.grand.ant;
 
+import net.ggtools.grand.graph.GraphBuilder;
 import net.ggtools.grand.graph.GraphElementFactory;
 import net.ggtools.grand.graph.GraphImpl;
+import net.ggtools.grand.graph.Link;
+import net.ggtools.grand.graph.LinkKind;
 import net.ggtools.grand.graph.Node;
 
 import org.apache.tools.ant.Project;
@@ -57,7 +60,20 @@ public class AntGraph extends GraphImpl {
      *            the graph's project.
      */
     public AntGraph(final Project project) {
-        super(project.getName());
+        this(project, false);
+    }
+
+    /**
+     * Creates a new graph choosing the way links will be stored.
+     *
+     * @param project
+     *            the graph's project.
+     * @param compact
+     *            <code>true</code> to use a compact link storage.
+     * @see GraphImpl#GraphImpl(String, boolean)
+     */
+    public AntGraph(final Project project, final boolean compact) {
+        super(project.getName(), compact);
         this.project = project;
     }
 
@@ -71,11 +87,8 @@ public class AntGraph extends GraphImpl {
      */
     public final AntTaskLink createTaskLink(final String linkName,
             final Node startNode, final Node endNode, final String taskName) {
-        final AntTaskLink link = getFactoryInternal().createTaskLink(linkName,
-                startNode, endNode, taskName);
-        startNode.addLink(link);
-        endNode.addBackLink(link);
-        return link;
+        return (AntTaskLink) createLink(getTaskLinkKind(taskName), linkName,
+                startNode, endNode);
     }
 
     /**
@@ -89,11 +102,44 @@ public class AntGraph extends GraphImpl {
      */
     public final SubantTaskLink createSubantTaskLink(final String linkName,
             final Node startNode, final Node endNode, final String taskName) {
-        final SubantTaskLink link = getFactoryInternal().createSubantTaskLink(linkName,
-                startNode, endNode, taskName);
-        startNode.addLink(link);
-        endNode.addBackLink(link);
-        return link;
+        return (SubantTaskLink) createLink(getSubantTaskLinkKind(taskName), linkName,
+                startNode, endNode);
+    }
+
+    /**
+     * Returns the kind of the links representing a call by a task like
+     * <code>ant</code>, to be used with a {@link GraphBuilder}.
+     *
+     * @param taskName
+     *            the name of the calling task.
+     * @return LinkKind
+     */
+    public final LinkKind getTaskLinkKind(final String taskName) {
+        return new LinkKind() {
+            public Link createLink(final String linkName, final Node startNode,
+                    final Node endNode) {
+                return getFactoryInternal().createTaskLink(linkName, startNode,
+                        endNode, taskName);
+            }
+        };
+    }
+
+    /**
+     * Returns the kind of the links representing a call by a
+     * <code>subant</code> task, to be used with a {@link GraphBuilder}.
+     *
+     * @param taskName
+     *            the name of the calling task.
+     * @return LinkKind
+     */
+    public final LinkKind getSubantTaskLinkKind(final String taskName) {
+        return new LinkKind() {
+            public Link createLink(final String linkName, final Node startNode,
+                    final Node endNode) {
+                return getFactoryInternal().createSubantTaskLink(linkName,
+                        startNode, endNode, taskName);
+            }
+        };
     }
 
     /**
@@ -55,10 +55,10 @@ class AntGraphElementFactory implements GraphElementFactory {
     /**
      * Method createNode.
      * @param nodeName String
-     * @return Node
+     * @return AntTargetNode
      * @see net.ggtools.grand.graph.GraphElementFactory#createNode(java.lang.String)
      */
-    public Node createNode(final String nodeName) {
+    public AntTargetNode createNode(final String nodeName) {
         return new AntTargetNode(nodeName, graph);
     }
 
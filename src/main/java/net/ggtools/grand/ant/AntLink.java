@@ -66,4 +66,22 @@ public class AntLink extends LinkImpl {
         visitor.visitLink(this);
     }
 
+    /**
+     * Creates a copy of the link between other nodes, for instance the nodes
+     * of a graph view. The copy is not added to its nodes and its attributes
+     * are not copied.
+     *
+     * @param graph
+     *            the graph owning the copy.
+     * @param startNode
+     *            start node of the copy.
+     * @param endNode
+     *            end node of the copy.
+     * @return a new link.
+     */
+    public AntLink copy(final Graph graph, final Node startNode,
+            final Node endNode) {
+        return new AntLink(getName(), graph, startNode, endNode);
+    }
+
 }
@@ -30,17 +30,28 @@ package net.ggtools.grand.ant;
 import java.io.File;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import net.ggtools.grand.ant.taskhelpers.SubAntHelper;
 import net.ggtools.grand.ant.taskhelpers.TaskDefHelper;
-import net.ggtools.grand.exceptions.DuplicateElementException;
 import net.ggtools.grand.exceptions.GrandException;
 import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphBuilder;
 import net.ggtools.grand.graph.GraphProducer;
 import net.ggtools.grand.graph.Node;
 import net.ggtools.grand.log.LoggerManager;
@@ -49,6 +60,7 @@ import org.apache.commons.logging.Log;
 import org.apache.tools.ant.AntTypeDefinition;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.ComponentHelper;
+import org.apache.tools.ant.Location;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectHelper;
 import org.apache.tools.ant.Target;
@@ -293,6 +305,11 @@ public class AntProject implements GraphProducer {
      */
     private final Project antProject;
 
+    /**
+     * Field compactGraph.
+     */
+    private boolean compactGraph = false;
+
     /**
      * Field targetConditionHelper.
      */
@@ -305,11 +322,22 @@ public class AntProject implements GraphProducer {
     private final TargetTasksExplorer targetExplorer =
             new TargetTasksExplorer(this);
 
+    /**
+     * Files read while creating the graph besides the build files.
+     */
+    private final Set<File> extraInputFiles =
+            Collections.synchronizedSet(new LinkedHashSet<File>());
+
     /**
      * Field taskLinkFinder.
      */
     private LinkFinderVisitor taskLinkFinder;
 
+    /**
+     * Field threads.
+     */
+    private int threads = 1;
+
     /**
      * Creates a new project from an Ant build file.
      *
@@ -417,6 +445,100 @@ public class AntProject implements GraphProducer {
         return antProject;
     }
 
+    /**
+     * Returns the build files read to create the project, that is the main
+     * build file and the files it imports.
+     *
+     * @return the build files.
+     */
+    public final Set<File> getBuildFiles() {
+        final Set<File> files = new LinkedHashSet<File>();
+        final String antFile = antProject.getProperty("ant.file");
+        if (antFile != null) {
+            files.add(new File(antFile));
+        }
+        for (final Target target : antProject.getTargets().values()) {
+            final Location location = target.getLocation();
+            if ((location != null) && (location.getFileName() != null)) {
+                files.add(new File(location.getFileName()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns all the files the graph depends on: the build files, the
+     * property files loaded outside of the targets and the external build
+     * files read to find their default target. The latter are only known
+     * once the graph has been created.
+     *
+     * @return the input files.
+     */
+    public final Set<File> getInputFiles() {
+        final Set<File> files = getBuildFiles();
+        final Target implicitTarget = antProject.getTargets().get("");
+        if (implicitTarget != null) {
+            for (final Task task : implicitTarget.getTasks()) {
+                final Map<String, Object> attributes =
+                        task.getRuntimeConfigurableWrapper().getAttributeMap();
+                Object fileName = null;
+                if ("property".equals(task.getTaskName())) {
+                    fileName = attributes.get("file");
+                } else if ("loadproperties".equals(task.getTaskName())) {
+                    fileName = attributes.get("srcfile");
+                }
+                if (fileName != null) {
+                    files.add(antProject.resolveFile(
+                            antProject.replaceProperties(fileName.toString())));
+                }
+            }
+        }
+        synchronized (extraInputFiles) {
+            files.addAll(extraInputFiles);
+        }
+        return files;
+    }
+
+    /**
+     * Records a file read while creating the graph.
+     *
+     * @param file
+     *            the file.
+     * @see #getInputFiles()
+     */
+    final void addInputFile(final File file) {
+        extraInputFiles.add(file);
+    }
+
+    /**
+     * Sets whether the graphs created by {@link #getGraph()} should use a
+     * compact link storage. Compact graphs are lighter on memory which
+     * matters with very large build files.
+     *
+     * @param compact
+     *            <code>true</code> to create compact graphs.
+     * @see AntGraph#AntGraph(Project, boolean)
+     */
+    public final void setCompactGraph(final boolean compact) {
+        compactGraph = compact;
+    }
+
+    /**
+     * Sets the number of threads used by {@link #getGraph()} to look for the
+     * links created by tasks like <code>antcall</code>. The resulting graph
+     * does not depend on the number of threads.
+     *
+     * @param count
+     *            the number of threads, 1 to do everything in the calling
+     *            thread.
+     */
+    public final void setThreads(final int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Invalid thread count " + count);
+        }
+        threads = count;
+    }
+
     /**
      * Convert an Ant project to a Grand Graph.
      *
@@ -443,18 +565,26 @@ public class AntProject implements GraphProducer {
     public final Graph getGraph() throws GrandException {
         LOG.debug("Triggering AntProject");
 
-        final AntGraph graph = new AntGraph(antProject);
+        final AntGraph graph = new AntGraph(antProject, compactGraph);
+        final GraphBuilder builder = new GraphBuilder(graph);
+        final Collection<Target> targets = antProject.getTargets().values();
         final Map<String, String> targetMap = new HashMap<String, String>();
 
-        // First pass, create the nodes.
-        for (final Target target : antProject.getTargets().values()) {
+        // First pass, create the nodes and record the dependencies.
+        int dependencyCount = 0;
+        for (final Target target : targets) {
+            for (final Enumeration<String> e = target.getDependencies(); e.hasMoreElements();) {
+                e.nextElement();
+                dependencyCount++;
+            }
+        }
+        builder.ensureCapacity(targets.size(), dependencyCount);
+        for (final Target target : targets) {
             if (target.getName().isEmpty()) {
                 continue;
             }
 
             final String targetName = target.getName();
-            final AntTargetNode node =
-                    (AntTargetNode) graph.createNode(targetName);
 
             // Prefixed nodes have the same location as non-prefixed; skip them.
             String location = target.getLocation().toString();
@@ -465,14 +595,16 @@ public class AntProject implements GraphProducer {
 
             // Mark nodes with a description as MAIN.
             final String targetDescription = target.getDescription();
-            if (targetDescription != null && !targetDescription.isEmpty()) {
-                node.setAttributes(Node.ATTR_MAIN_NODE);
-                node.setDescription(targetDescription);
-            }
+            final boolean isMain = targetDescription != null && !targetDescription.isEmpty();
+            final AntTargetNode node = (AntTargetNode) builder.addNode(targetName,
+                    isMain ? Node.ATTR_MAIN_NODE : Node.ATTR_NONE,
+                    isMain ? targetDescription : null);
 
             node.setIfCondition(targetConditionHelper.getIfCondition(target));
             node.setUnlessCondition(targetConditionHelper.getUnlessCondition(target));
             targetExplorer.exploreTarget(node, target);
+
+            builder.addLinks(targetName, Collections.list(target.getDependencies()), null);
         }
 
         // Sets the start node if needed.
@@ -485,27 +617,29 @@ public class AntProject implements GraphProducer {
             }
         }
 
-        // Second pass, create the links
-        for (final Target target : antProject.getTargets().values()) {
+        // Creates the dependency links in one go.
+        builder.build();
+
+        // Second pass, create the task links.
+        final List<Target> linkingTargets = new ArrayList<Target>(targets.size());
+        for (final Target target : targets) {
             if (target.getName().isEmpty()) {
                 continue;
             }
 
             final String startNodeName = target.getName();
-            final AntTargetNode startNode =
-                    (AntTargetNode) graph.getNode(startNodeName);
             if (!targetMap.containsValue(startNodeName)) {
-                startNode.setAttributes(Node.ATTR_PREFIXED_NODE);
-            }
-
-            for (String dependency : Collections.list(target.getDependencies())) {
-                createLink(graph, null, startNode, dependency);
+                graph.getNode(startNodeName).setAttributes(Node.ATTR_PREFIXED_NODE);
             }
+            linkingTargets.add(target);
+        }
 
+        if ((threads > 1) && (linkingTargets.size() > 1)) {
+            findTaskLinksConcurrently(graph, linkingTargets);
+        } else {
             taskLinkFinder.setGraph(graph);
-            taskLinkFinder.setStartNode(startNode);
-            for (final Task element : target.getTasks()) {
-                taskLinkFinder.visit(element.getRuntimeConfigurableWrapper());
+            for (final Target target : linkingTargets) {
+                findTaskLinks(taskLinkFinder, graph, target);
             }
         }
 
@@ -513,34 +647,90 @@ public class AntProject implements GraphProducer {
     }
 
     /**
-     * Creates a new link. The end node will be created if needed with the
-     * MISSING_NODE attribute set.
+     * Looks for the links created by the tasks of a target.
      *
+     * @param finder
+     *            the visitor creating the links.
      * @param graph
-     *            owning graph
-     * @param linkName
-     *            name of the created link, can be <code>null</code>.
-     * @param startNode
-     *            start node of the link.
-     * @param endNodeName
-     *            name of the end node.
-     * @return a new link.
-     * @throws DuplicateElementException
-     *             if there is already a node name <code>endNodeName</code> in
-     *             the graph.
+     *            the graph.
+     * @param target
+     *            the target.
+     * @throws GrandException
+     *             if the tasks cannot be processed.
      */
-    private AntLink createLink(final Graph graph, final String linkName, final Node startNode,
-            final String endNodeName) throws DuplicateElementException {
-        Node endNode = graph.getNode(endNodeName);
-
-        if (endNode == null) {
-            LOG.warn("Target " + startNode + " has dependency to non existent target "
-                    + endNodeName + ", creating a dummy node");
-            endNode = graph.createNode(endNodeName);
-            endNode.setAttributes(Node.ATTR_MISSING_NODE);
+    private void findTaskLinks(final LinkFinderVisitor finder, final AntGraph graph,
+            final Target target) throws GrandException {
+        finder.setStartNode((AntTargetNode) graph.getNode(target.getName()));
+        for (final Task element : target.getTasks()) {
+            finder.visit(element.getRuntimeConfigurableWrapper());
         }
+    }
 
-        LOG.debug("Creating link from " + startNode + " to " + endNodeName);
-        return (AntLink) graph.createLink(linkName, startNode, endNode);
+    /**
+     * Looks for the links created by tasks using several threads. Each
+     * target is a construction unit of the graph so the result is the same
+     * as with a single thread.
+     *
+     * @param graph
+     *            the graph.
+     * @param targets
+     *            the targets to process.
+     * @throws GrandException
+     *             if the tasks cannot be processed.
+     * @see AntGraph#startConcurrentConstruction()
+     */
+    private void findTaskLinksConcurrently(final AntGraph graph,
+            final List<Target> targets) throws GrandException {
+        LOG.debug("Looking for task links using " + threads + " threads");
+        final ThreadLocal<LinkFinderVisitor> finders = new ThreadLocal<LinkFinderVisitor>() {
+            @Override
+            protected LinkFinderVisitor initialValue() {
+                final LinkFinderVisitor finder = new LinkFinderVisitor(AntProject.this);
+                finder.setGraph(graph);
+                return finder;
+            }
+        };
+
+        graph.startConcurrentConstruction();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Object>> results = new ArrayList<Future<Object>>(targets.size());
+            for (int i = 0; i < targets.size(); i++) {
+                final int ordinal = i;
+                final Target target = targets.get(i);
+                results.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws GrandException {
+                        graph.beginConstructionUnit(ordinal);
+                        try {
+                            findTaskLinks(finders.get(), graph, target);
+                        } finally {
+                            graph.endConstructionUnit();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Object> result : results) {
+                result.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrandException("Interrupted while looking for task links", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof GrandException) {
+                throw (GrandException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GrandException("Cannot look for task links", cause);
+        } finally {
+            executor.shutdownNow();
+            graph.seal();
+        }
     }
 }
@@ -163,6 +163,26 @@ public class AntTargetNode extends NodeImpl {
         visitor.visitNode(this);
     }
 
+    /**
+     * Creates a copy of the node belonging to another graph, for instance a
+     * graph view. The copy is not added to the graph and neither its links
+     * nor its attributes are copied.
+     *
+     * @param graph
+     *            the graph owning the copy.
+     * @return a new node.
+     */
+    public final AntTargetNode copy(final Graph graph) {
+        final AntTargetNode copy = new AntTargetNode(getName(), graph);
+        copy.setDescription(getDescription());
+        copy.setSource(getSource());
+        copy.richSource = richSource;
+        copy.buildFile = buildFile;
+        copy.ifCondition = ifCondition;
+        copy.unlessCondition = unlessCondition;
+        return copy;
+    }
+
     /**
      * Returns this node build file or <code>null</code> if the build file is
      * the <em>current</em> project.
@@ -126,6 +126,33 @@ public class AntTaskLink extends AntLink {
         propertyFileList.add(fileName);
     }
 
+    /**
+     * Method copy.
+     * @param graph Graph
+     * @param startNode Node
+     * @param endNode Node
+     * @return AntTaskLink
+     * @see net.ggtools.grand.ant.AntLink#copy(Graph, Node, Node)
+     */
+    @Override
+    public AntTaskLink copy(final Graph graph, final Node startNode,
+            final Node endNode) {
+        final AntTaskLink copy =
+                new AntTaskLink(getName(), graph, startNode, endNode, taskName);
+        copyParametersTo(copy);
+        return copy;
+    }
+
+    /**
+     * Copies the parameters and property files of the link to another one.
+     *
+     * @param copy the link to copy to.
+     */
+    protected final void copyParametersTo(final AntTaskLink copy) {
+        copy.parameterMap.putAll(parameterMap);
+        copy.propertyFileList.addAll(propertyFileList);
+    }
+
     /**
      * Returns a readonly version of the parameter map.
      *
@@ -0,0 +1,376 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2004, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.ant;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.Link;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.log.LoggerManager;
+
+import org.apache.commons.logging.Log;
+import org.apache.tools.ant.Project;
+
+/**
+ * A graph producer loading graphs written by a {@link BinaryGraphWriter}.
+ * The file is loaded in memory when the producer is created and only its
+ * header is read. The nodes and links are read on {@link #getGraph()} and the
+ * strings are decoded the first time they are used. The file is not kept
+ * open or mapped so it can be rewritten while the producer is in use.
+ *
+ * @author Christophe Labouisse
+ */
+public class BinaryGraphProducer implements GraphProducer {
+    /**
+     * Field log.
+     */
+    private static final Log LOG = LoggerManager.getLog(BinaryGraphProducer.class);
+
+    /**
+     * Field buffer.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Field file.
+     */
+    private final File file;
+
+    /**
+     * Decoded strings, <code>null</code> until first used.
+     */
+    private final String[] strings;
+
+    /**
+     * Offset of the string data.
+     */
+    private final int stringDataOffset;
+
+    /**
+     * Offset of the string offsets.
+     */
+    private final int stringOffsetsOffset;
+
+    /**
+     * Field compactGraph.
+     */
+    private boolean compactGraph = false;
+
+    /**
+     * Field project.
+     */
+    private Project project;
+
+    /**
+     * Creates a producer for a binary graph file.
+     *
+     * @param file
+     *            the file to read.
+     * @throws GrandException
+     *             if the file cannot be read or is not a binary graph of a
+     *             supported version.
+     */
+    public BinaryGraphProducer(final File file) throws GrandException {
+        this.file = file;
+        try {
+            final FileInputStream stream = new FileInputStream(file);
+            try {
+                final FileChannel channel = stream.getChannel();
+                buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Unexpected end of file");
+                    }
+                }
+            } finally {
+                stream.close();
+            }
+        } catch (final IOException e) {
+            throw new GrandException("Cannot read binary graph " + file, e);
+        }
+
+        if ((buffer.capacity() < BinaryGraphWriter.HEADER_SIZE)
+                || (buffer.getInt(0) != BinaryGraphWriter.MAGIC)) {
+            throw new GrandException(file + " is not a binary graph");
+        }
+        final int version = buffer.getInt(4);
+        if (version != BinaryGraphWriter.VERSION) {
+            throw new GrandException("Unsupported binary graph version " + version
+                    + " in " + file);
+        }
+        strings = new String[header(9)];
+        stringOffsetsOffset = header(14);
+        stringDataOffset = header(15);
+    }
+
+    /**
+     * Tells if the graph has been created with the same key and if the build
+     * files used to create it are unchanged.
+     *
+     * @param cacheKey
+     *            the expected key.
+     * @return <code>true</code> if the graph is up to date.
+     */
+    public final boolean isUpToDate(final String cacheKey) {
+        try {
+            if (!cacheKey.equals(getString(header(3)))) {
+                LOG.debug("Cache key changed for " + file);
+                return false;
+            }
+            final int inputCount = header(6);
+            int offset = header(10);
+            for (int i = 0; i < inputCount; i++) {
+                final File input = new File(getString(buffer.getInt(offset)));
+                final long length = buffer.getLong(offset + 4);
+                final long lastModified = buffer.getLong(offset + 12);
+                if ((input.exists() ? input.length() : BinaryGraphWriter.NONE) != length
+                        || (input.lastModified() != lastModified)) {
+                    LOG.debug(input + " changed since " + file + " was written");
+                    return false;
+                }
+                offset += BinaryGraphWriter.INPUT_RECORD_SIZE;
+            }
+            return true;
+        } catch (final RuntimeException e) {
+            LOG.warn("Corrupted binary graph " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Sets whether the graphs created by {@link #getGraph()} should use a
+     * compact link storage.
+     *
+     * @param compact
+     *            <code>true</code> to create compact graphs.
+     * @see AntProject#setCompactGraph(boolean)
+     */
+    public final void setCompactGraph(final boolean compact) {
+        compactGraph = compact;
+    }
+
+    /**
+     * Sets the Ant project the graphs will be attached to. When not set, an
+     * empty project named after the cached one is created for each graph.
+     *
+     * @param project
+     *            the project.
+     */
+    public final void setProject(final Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Tells if the rich source of the nodes has been written.
+     *
+     * @return <code>true</code> if the nodes have a rich source.
+     */
+    public final boolean hasRichSource() {
+        return (header(2) & BinaryGraphWriter.FLAG_RICH_SOURCE) != 0;
+    }
+
+    /**
+     * Creates a new graph from the file.
+     *
+     * @return a new graph.
+     * @throws GrandException
+     *             if the file is corrupted.
+     * @see net.ggtools.grand.graph.GraphProducer#getGraph()
+     */
+    public final Graph getGraph() throws GrandException {
+        try {
+            return readGraph();
+        } catch (final IndexOutOfBoundsException e) {
+            throw new GrandException("Corrupted binary graph " + file, e);
+        } catch (final BufferUnderflowException e) {
+            throw new GrandException("Corrupted binary graph " + file, e);
+        }
+    }
+
+    /**
+     * Reads the graph.
+     *
+     * @return a new graph.
+     * @throws GrandException
+     *             if the graph cannot be created.
+     */
+    private Graph readGraph() throws GrandException {
+        Project graphProject = project;
+        if (graphProject == null) {
+            graphProject = new Project();
+            graphProject.setName(getString(header(4)));
+        }
+        final AntGraph graph = new AntGraph(graphProject, compactGraph);
+        final int extraOffset = header(13);
+
+        final int nodeCount = header(7);
+        final AntTargetNode[] nodes = new AntTargetNode[nodeCount];
+        int offset = header(11);
+        for (int i = 0; i < nodeCount; i++) {
+            final AntTargetNode node =
+                    (AntTargetNode) graph.createNode(getString(buffer.getInt(offset)));
+            final String description = getString(buffer.getInt(offset + 4));
+            if (description != null) {
+                node.setDescription(description);
+            }
+            final String source = getString(buffer.getInt(offset + 8));
+            if (source != null) {
+                node.setSource(source);
+            }
+            node.setAttributes(buffer.getInt(offset + 12));
+            node.setBuildFile(getString(buffer.getInt(offset + 16)));
+            node.setIfCondition(getString(buffer.getInt(offset + 20)));
+            node.setUnlessCondition(getString(buffer.getInt(offset + 24)));
+            final int richSourceOffset = buffer.getInt(offset + 28);
+            if (richSourceOffset != BinaryGraphWriter.NONE) {
+                int position = extraOffset + richSourceOffset;
+                final AntTargetNode.SourceElement[] richSource =
+                        new AntTargetNode.SourceElement[buffer.getInt(position)];
+                for (int j = 0; j < richSource.length; j++) {
+                    richSource[j] = new AntTargetNode.SourceElement(
+                            getString(buffer.getInt(position + 4)),
+                            buffer.getInt(position + 8));
+                    position += 8;
+                }
+                node.setRichSource(richSource);
+            }
+            nodes[i] = node;
+            offset += BinaryGraphWriter.NODE_RECORD_SIZE;
+        }
+
+        final int linkCount = header(8);
+        offset = header(12);
+        for (int i = 0; i < linkCount; i++) {
+            final Node startNode = nodes[buffer.getInt(offset)];
+            final Node endNode = nodes[buffer.getInt(offset + 4)];
+            final String linkName = getString(buffer.getInt(offset + 8));
+            final int attributes = buffer.getInt(offset + 12);
+            final int kind = buffer.getInt(offset + 16);
+            final String taskName = getString(buffer.getInt(offset + 20));
+            final Link link;
+            if (kind == BinaryGraphWriter.KIND_PLAIN) {
+                link = graph.createLink(linkName, startNode, endNode);
+            } else {
+                final AntTaskLink taskLink;
+                if (kind == BinaryGraphWriter.KIND_SUBANT) {
+                    taskLink = graph.createSubantTaskLink(linkName, startNode, endNode,
+                            taskName);
+                } else {
+                    taskLink = graph.createTaskLink(linkName, startNode, endNode,
+                            taskName);
+                }
+                readTaskLinkData(taskLink, extraOffset + buffer.getInt(offset + 24));
+                link = taskLink;
+            }
+            link.setAttributes(attributes);
+            offset += BinaryGraphWriter.LINK_RECORD_SIZE;
+        }
+
+        final int startNode = header(5);
+        if (startNode != BinaryGraphWriter.NONE) {
+            graph.setStartNode(nodes[startNode]);
+        }
+        return graph;
+    }
+
+    /**
+     * Reads the parameters, property files and directories of a task link.
+     *
+     * @param link
+     *            the link.
+     * @param offset
+     *            offset of the data.
+     */
+    private void readTaskLinkData(final AntTaskLink link, final int offset) {
+        int position = offset;
+        final int parameterCount = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < parameterCount; i++) {
+            link.setParameter(getString(buffer.getInt(position)),
+                    getString(buffer.getInt(position + 4)));
+            position += 8;
+        }
+        final int propertyFileCount = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < propertyFileCount; i++) {
+            link.addPropertyFile(getString(buffer.getInt(position)));
+            position += 4;
+        }
+        final int directoryCount = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < directoryCount; i++) {
+            ((SubantTaskLink) link).addDirectory(getString(buffer.getInt(position)));
+            position += 4;
+        }
+    }
+
+    /**
+     * Returns a field of the header.
+     *
+     * @param field
+     *            the index of the field.
+     * @return the value.
+     */
+    private int header(final int field) {
+        return buffer.getInt(field * 4);
+    }
+
+    /**
+     * Returns a string from the string table, decoding it if needed.
+     *
+     * @param index
+     *            the index of the string.
+     * @return the string or <code>null</code> for {@link BinaryGraphWriter#NONE}.
+     */
+    private synchronized String getString(final int index) {
+        if (index == BinaryGraphWriter.NONE) {
+            return null;
+        }
+        String result = strings[index];
+        if (result == null) {
+            final int offset = stringDataOffset
+                    + buffer.getInt(stringOffsetsOffset + 4 * index);
+            final byte[] bytes = new byte[buffer.getInt(offset)];
+            final ByteBuffer data = buffer.duplicate();
+            data.position(offset + 4);
+            data.get(bytes);
+            result = new String(bytes, BinaryGraphWriter.UTF8);
+            strings[index] = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,443 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2004, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.ant;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.GraphWriter;
+import net.ggtools.grand.graph.Link;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.log.LoggerManager;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Writes an Ant graph in a binary format which can be loaded back by a
+ * {@link BinaryGraphProducer} without parsing the build files again.
+ * <p>
+ * The file starts with a fixed size header holding the offsets of the
+ * sections: the input files, fixed size node and link records, a section
+ * for variable length data (task parameters, rich source...) and a string
+ * table. Every string is stored once and referenced by its index so the
+ * file can be loaded with a single read and the strings decoded on demand.
+ * </p>
+ * <p>
+ * The file also records a cache key given by the caller and the size and
+ * modification time of the build files used to create the graph, so that
+ * the producer can tell whether it is still up to date.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public class BinaryGraphWriter implements GraphWriter {
+    /**
+     * Magic number starting the file, "GRND".
+     */
+    static final int MAGIC = 0x47524E44;
+
+    /**
+     * Version of the format.
+     * (value is {@value #VERSION})
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Flag set when the rich source of the nodes has been written.
+     */
+    static final int FLAG_RICH_SOURCE = 1;
+
+    /**
+     * Size of the header.
+     * (value is {@value #HEADER_SIZE})
+     */
+    static final int HEADER_SIZE = 16 * 4;
+
+    /**
+     * Size of an input file record.
+     * (value is {@value #INPUT_RECORD_SIZE})
+     */
+    static final int INPUT_RECORD_SIZE = 4 + 8 + 8;
+
+    /**
+     * Size of a node record.
+     * (value is {@value #NODE_RECORD_SIZE})
+     */
+    static final int NODE_RECORD_SIZE = 8 * 4;
+
+    /**
+     * Size of a link record.
+     * (value is {@value #LINK_RECORD_SIZE})
+     */
+    static final int LINK_RECORD_SIZE = 7 * 4;
+
+    /**
+     * Kind of the links created by {@link Graph#createLink(String, Node, Node)}.
+     */
+    static final int KIND_PLAIN = 0;
+
+    /**
+     * Kind of the {@link AntTaskLink}s.
+     */
+    static final int KIND_TASK = 1;
+
+    /**
+     * Kind of the {@link SubantTaskLink}s.
+     */
+    static final int KIND_SUBANT = 2;
+
+    /**
+     * Index used for <code>null</code> strings and missing elements.
+     */
+    static final int NONE = -1;
+
+    /**
+     * Charset used to store the strings.
+     */
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Field log.
+     */
+    private static final Log LOG = LoggerManager.getLog(BinaryGraphWriter.class);
+
+    /**
+     * Field cacheKey.
+     */
+    private final String cacheKey;
+
+    /**
+     * Field graphProducer.
+     */
+    private GraphProducer graphProducer;
+
+    /**
+     * Field inputFiles.
+     */
+    private final Collection<File> inputFiles;
+
+    /**
+     * Field richSource.
+     */
+    private boolean richSource = false;
+
+    /**
+     * Index of each string in the string table.
+     */
+    private final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+
+    /**
+     * Field strings.
+     */
+    private final List<String> strings = new ArrayList<String>();
+
+    /**
+     * Creates a new writer.
+     *
+     * @param cacheKey
+     *            a key describing how the graph has been created, for
+     *            instance a digest of the properties passed to the project.
+     * @param inputFiles
+     *            the build files read to create the graph. The build files
+     *            of the external targets are added automatically.
+     */
+    public BinaryGraphWriter(final String cacheKey, final Collection<File> inputFiles) {
+        this.cacheKey = cacheKey;
+        this.inputFiles = inputFiles;
+    }
+
+    /**
+     * Sets whether the rich source of the nodes should be written. Defaults
+     * to <code>false</code>.
+     *
+     * @param write
+     *            <code>true</code> to write the rich source.
+     */
+    public final void setRichSource(final boolean write) {
+        richSource = write;
+    }
+
+    /**
+     * Method setProducer.
+     * @param producer GraphProducer
+     * @see net.ggtools.grand.graph.GraphConsumer#setProducer(net.ggtools.grand.graph.GraphProducer)
+     */
+    public final void setProducer(final GraphProducer producer) {
+        graphProducer = producer;
+    }
+
+    /**
+     * The graph name is always written, this method does nothing.
+     * @param show boolean
+     * @see net.ggtools.grand.graph.GraphWriter#setShowGraphName(boolean)
+     */
+    public final void setShowGraphName(final boolean show) {
+    }
+
+    /**
+     * Method write.
+     * @param output File
+     * @throws IOException if the file cannot be written
+     * @throws GrandException if an error occurs in getGraph()
+     * @see net.ggtools.grand.graph.GraphWriter#write(java.io.File)
+     */
+    public final void write(final File output) throws IOException, GrandException {
+        LOG.info("Writing binary graph to " + output);
+        final FileOutputStream oStream = new FileOutputStream(output);
+        try {
+            write(oStream);
+            oStream.flush();
+        } finally {
+            oStream.close();
+        }
+    }
+
+    /**
+     * Method write.
+     * @param stream OutputStream
+     * @throws GrandException if an error occurs in getGraph() or while
+     *             writing
+     * @see net.ggtools.grand.graph.GraphWriter#write(java.io.OutputStream)
+     */
+    public final void write(final OutputStream stream) throws GrandException {
+        final Graph graph = graphProducer.getGraph();
+        strings.clear();
+        stringIndexes.clear();
+        try {
+            writeGraph(graph, new DataOutputStream(stream));
+        } catch (final IOException e) {
+            throw new GrandException("Cannot write binary graph", e);
+        }
+    }
+
+    /**
+     * Writes the graph.
+     *
+     * @param graph
+     *            the graph.
+     * @param out
+     *            the stream.
+     * @throws IOException
+     *             if the stream cannot be written.
+     */
+    private void writeGraph(final Graph graph, final DataOutputStream out)
+            throws IOException {
+        final ByteArrayOutputStream extraBytes = new ByteArrayOutputStream();
+        final DataOutputStream extra = new DataOutputStream(extraBytes);
+
+        // Nodes.
+        final Map<Node, Integer> nodeIndexes = new IdentityHashMap<Node, Integer>();
+        final Set<String> files = new LinkedHashSet<String>();
+        for (final File file : inputFiles) {
+            files.add(file.getAbsolutePath());
+        }
+        final ByteArrayOutputStream nodeBytes = new ByteArrayOutputStream();
+        final DataOutputStream nodes = new DataOutputStream(nodeBytes);
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            nodeIndexes.put(node, nodeIndexes.size());
+            nodes.writeInt(intern(node.getName()));
+            nodes.writeInt(intern(node.getDescription()));
+            nodes.writeInt(intern(node.getSource()));
+            nodes.writeInt(node.getAttributes());
+            if (node instanceof AntTargetNode) {
+                final AntTargetNode antNode = (AntTargetNode) node;
+                if (antNode.getBuildFile() != null) {
+                    files.add(antNode.getBuildFile());
+                }
+                nodes.writeInt(intern(antNode.getBuildFile()));
+                nodes.writeInt(intern(antNode.getIfCondition()));
+                nodes.writeInt(intern(antNode.getUnlessCondition()));
+                final AntTargetNode.SourceElement[] source = antNode.getRichSource();
+                if (richSource && (source != null)) {
+                    nodes.writeInt(extra.size());
+                    extra.writeInt(source.length);
+                    for (final AntTargetNode.SourceElement element : source) {
+                        extra.writeInt(intern(element.getText()));
+                        extra.writeInt(element.getStyle());
+                    }
+                } else {
+                    nodes.writeInt(NONE);
+                }
+            } else {
+                nodes.writeInt(NONE);
+                nodes.writeInt(NONE);
+                nodes.writeInt(NONE);
+                nodes.writeInt(NONE);
+            }
+        }
+
+        // Links, in creation order.
+        final ByteArrayOutputStream linkBytes = new ByteArrayOutputStream();
+        final DataOutputStream links = new DataOutputStream(linkBytes);
+        int linkCount = 0;
+        for (final Link link : graph.getLinksWithAttributes(Link.ATTR_NONE)) {
+            final Integer start = nodeIndexes.get(link.getStartNode());
+            final Integer end = nodeIndexes.get(link.getEndNode());
+            if ((start == null) || (end == null)) {
+                continue;
+            }
+            linkCount++;
+            links.writeInt(start);
+            links.writeInt(end);
+            links.writeInt(intern(link.getName()));
+            links.writeInt(link.getAttributes());
+            if (link instanceof AntTaskLink) {
+                final AntTaskLink taskLink = (AntTaskLink) link;
+                links.writeInt((link instanceof SubantTaskLink) ? KIND_SUBANT : KIND_TASK);
+                links.writeInt(intern(taskLink.getTaskName()));
+                links.writeInt(extra.size());
+                final Map<String, String> parameters = taskLink.getParameterMap();
+                extra.writeInt(parameters.size());
+                for (final Map.Entry<String, String> entry : parameters.entrySet()) {
+                    extra.writeInt(intern(entry.getKey()));
+                    extra.writeInt(intern(entry.getValue()));
+                }
+                final String[] propertyFiles = taskLink.getPropertyFiles();
+                extra.writeInt(propertyFiles.length);
+                for (final String propertyFile : propertyFiles) {
+                    extra.writeInt(intern(propertyFile));
+                }
+                if (link instanceof SubantTaskLink) {
+                    final Collection<String> directories =
+                            ((SubantTaskLink) link).getDirectories();
+                    extra.writeInt(directories.size());
+                    for (final String directory : directories) {
+                        extra.writeInt(intern(directory));
+                    }
+                } else {
+                    extra.writeInt(0);
+                }
+            } else {
+                links.writeInt(KIND_PLAIN);
+                links.writeInt(NONE);
+                links.writeInt(NONE);
+            }
+        }
+
+        // Input files.
+        final ByteArrayOutputStream inputBytes = new ByteArrayOutputStream();
+        final DataOutputStream inputs = new DataOutputStream(inputBytes);
+        for (final String path : files) {
+            final File file = new File(path);
+            inputs.writeInt(intern(path));
+            inputs.writeLong(file.exists() ? file.length() : NONE);
+            inputs.writeLong(file.lastModified());
+        }
+
+        final int keyIndex = intern(cacheKey);
+        final int nameIndex = intern(graph.getName());
+        final Integer startNode =
+                (graph.getStartNode() == null) ? null : nodeIndexes.get(graph.getStartNode());
+
+        // String table.
+        final ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        final DataOutputStream stringData = new DataOutputStream(stringBytes);
+        final int[] stringOffsets = new int[strings.size()];
+        for (int i = 0; i < stringOffsets.length; i++) {
+            stringOffsets[i] = stringData.size();
+            final byte[] bytes = strings.get(i).getBytes(UTF8);
+            stringData.writeInt(bytes.length);
+            stringData.write(bytes);
+        }
+
+        final int inputsOffset = HEADER_SIZE;
+        final int nodesOffset = inputsOffset + inputs.size();
+        final int linksOffset = nodesOffset + nodes.size();
+        final int extraOffset = linksOffset + links.size();
+        final int stringOffsetsOffset = extraOffset + extra.size();
+        final int stringDataOffset = stringOffsetsOffset + 4 * stringOffsets.length;
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(richSource ? FLAG_RICH_SOURCE : 0);
+        out.writeInt(keyIndex);
+        out.writeInt(nameIndex);
+        out.writeInt((startNode == null) ? NONE : startNode);
+        out.writeInt(files.size());
+        out.writeInt(nodeIndexes.size());
+        out.writeInt(linkCount);
+        out.writeInt(stringOffsets.length);
+        out.writeInt(inputsOffset);
+        out.writeInt(nodesOffset);
+        out.writeInt(linksOffset);
+        out.writeInt(extraOffset);
+        out.writeInt(stringOffsetsOffset);
+        out.writeInt(stringDataOffset);
+        inputBytes.writeTo(out);
+        nodeBytes.writeTo(out);
+        linkBytes.writeTo(out);
+        extraBytes.writeTo(out);
+        for (final int offset : stringOffsets) {
+            out.writeInt(offset);
+        }
+        stringBytes.writeTo(out);
+        out.flush();
+        LOG.debug("Wrote " + nodeIndexes.size() + " nodes, " + linkCount + " links and "
+                + stringOffsets.length + " strings");
+    }
+
+    /**
+     * Returns the index of a string in the string table, adding it if
+     * needed.
+     *
+     * @param string
+     *            the string, can be <code>null</code>.
+     * @return the index or {@link #NONE} for <code>null</code>.
+     */
+    private int intern(final String string) {
+        if (string == null) {
+            return NONE;
+        }
+        Integer index = stringIndexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.add(string);
+            stringIndexes.put(string, index);
+        }
+        return index;
+    }
+}
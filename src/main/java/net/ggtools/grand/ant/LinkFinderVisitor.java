@@ -40,6 +40,7 @@ import net.ggtools.grand.ant.taskhelpers.SubAntHelper;
 import net.ggtools.grand.exceptions.DuplicateElementException;
 import net.ggtools.grand.exceptions.GrandException;
 import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.graph.SymbolTable;
 import net.ggtools.grand.log.LoggerManager;
 
 import org.apache.commons.logging.Log;
@@ -133,6 +134,18 @@ public class LinkFinderVisitor extends ReflectTaskVisitorBase {
      */
     private static final String PROPERTY_ELEMENT = "property";
 
+    /**
+     * Default targets of the external build files, by build file path.
+     */
+    private final Map<String, String> defaultTargets = new HashMap<String, String>();
+
+    /**
+     * Nodes created for targets of external build files. The key holds the
+     * symbols of the target name and of the build file path.
+     */
+    private final Map<Long, AntTargetNode> externalNodes =
+            new HashMap<Long, AntTargetNode>();
+
     /**
      * Field graph.
      */
@@ -435,6 +448,8 @@ public class LinkFinderVisitor extends ReflectTaskVisitorBase {
      */
     public final void setGraph(final AntGraph graph) {
         this.graph = graph;
+        defaultTargets.clear();
+        externalNodes.clear();
     }
 
     /**
@@ -525,59 +540,111 @@ public class LinkFinderVisitor extends ReflectTaskVisitorBase {
 
         final boolean isSameBuildFile = projectFile.equals(targetBuildFile);
 
-        String endNodeName;
-
         String targetName = antProject.replaceProperties(target);
 
-        AntTargetNode endNode;
         if (isSameBuildFile) {
-            endNodeName = (targetName == null) ? antProject.getDefaultTarget() : targetName;
-            endNode = (AntTargetNode) graph.getNode(endNodeName);
-        } else {
-            if (targetName == null) {
-                try {
-                    // TODO caching.
-                    LOG.debug("Reading project file " + targetBuildFile);
-                    final AntProject tmpProj = new AntProject(targetBuildFile);
-                    targetName = tmpProj.getAntProject().getDefaultTarget();
-                } catch (final GrandException e) {
-                    LOG.info("Caught exception trying to read " + targetBuildFile
-                            + " using default target name", e);
-                    targetName = "'default'";
-                }
-
+            final String endNodeName =
+                    (targetName == null) ? antProject.getDefaultTarget() : targetName;
+            final AntTargetNode endNode = (AntTargetNode) graph.getNode(endNodeName);
+            if (endNode != null) {
+                return endNode;
+            }
+            // Other visitors may be creating the same node when the graph is
+            // built concurrently.
+            graph.awaitConstructionTurn();
+            synchronized (graph) {
+                final AntTargetNode missingNode = (AntTargetNode) graph.getNode(endNodeName);
+                return (missingNode == null) ? createMissingNode(endNodeName) : missingNode;
             }
+        }
 
-            // Find out the "right" node avoiding conflicts.
-            // FIXME the current algorithm seems really bad, check if a cache is worth implementing.
-            int index = 1;
-            boolean conflict = false;
-            endNodeName = "[" + targetName + "]";
-            do {
-                conflict = false;
-                endNode = (AntTargetNode) graph.getNode(endNodeName);
-                if ((endNode != null)
-                        && !targetBuildFile.getAbsolutePath().equals(endNode.getBuildFile())) {
-                    LOG.error("Conflict on build file " + targetBuildFile + " vs "
-                            + endNode.getBuildFile());
-                    conflict = true;
-                    index++;
-                    endNodeName = "[" + targetName + " (" + index + ")]";
-                }
-            } while (conflict);
+        final SymbolTable symbols = graph.getSymbols();
+        final String buildFilePath =
+                symbols.canonical(targetBuildFile.getAbsolutePath());
+        if (targetName == null) {
+            targetName = getDefaultTarget(targetBuildFile, buildFilePath);
         }
 
-        // Creates an new node if none found.
+        final Long key = Long.valueOf(((long) symbols.intern(targetName) << Integer.SIZE)
+                | symbols.intern(buildFilePath));
+        AntTargetNode endNode = externalNodes.get(key);
+
         if (endNode == null) {
-            LOG.info("Target " + startNode + " has dependency to non existent target "
-                    + endNodeName + ", creating a dummy node");
-            endNode = (AntTargetNode) graph.createNode(endNodeName);
-            endNode.setAttributes(Node.ATTR_MISSING_NODE);
-        }
+            graph.awaitConstructionTurn();
+            synchronized (graph) {
+                // Find out the "right" node avoiding conflicts.
+                int index = 1;
+                boolean conflict = false;
+                String endNodeName = "[" + targetName + "]";
+                do {
+                    conflict = false;
+                    endNode = (AntTargetNode) graph.getNode(endNodeName);
+                    if ((endNode != null)
+                            && !buildFilePath.equals(endNode.getBuildFile())) {
+                        LOG.error("Conflict on build file " + targetBuildFile + " vs "
+                                + endNode.getBuildFile());
+                        conflict = true;
+                        index++;
+                        endNodeName = "[" + targetName + " (" + index + ")]";
+                    }
+                } while (conflict);
 
-        if (!isSameBuildFile) {
-            endNode.setBuildFile(targetBuildFile.getAbsolutePath());
+                if (endNode == null) {
+                    endNode = createMissingNode(endNodeName);
+                }
+                endNode.setBuildFile(buildFilePath);
+            }
+            externalNodes.put(key, endNode);
         }
         return endNode;
     }
+
+    /**
+     * Creates a node for a target not found in the graph.
+     *
+     * @param endNodeName
+     *            name of the node.
+     * @return the new node.
+     * @throws DuplicateElementException
+     *             if there is already a node with the same name.
+     */
+    private AntTargetNode createMissingNode(final String endNodeName)
+            throws DuplicateElementException {
+        LOG.info("Target " + startNode + " has dependency to non existent target "
+                + endNodeName + ", creating a dummy node");
+        final AntTargetNode endNode = (AntTargetNode) graph.createNode(endNodeName);
+        endNode.setAttributes(Node.ATTR_MISSING_NODE);
+        return endNode;
+    }
+
+    /**
+     * Returns the default target of an external build file. The build files
+     * are only read once and are recorded as inputs of the project.
+     *
+     * @param buildFile
+     *            the build file.
+     * @param buildFilePath
+     *            the absolute path of the build file.
+     * @return the default target name.
+     */
+    private String getDefaultTarget(final File buildFile, final String buildFilePath) {
+        String targetName = defaultTargets.get(buildFilePath);
+        if (targetName == null) {
+            project.addInputFile(buildFile);
+            try {
+                LOG.debug("Reading project file " + buildFile);
+                final AntProject tmpProj = new AntProject(buildFile);
+                targetName = tmpProj.getAntProject().getDefaultTarget();
+                for (final File file : tmpProj.getBuildFiles()) {
+                    project.addInputFile(file);
+                }
+            } catch (final GrandException e) {
+                LOG.info("Caught exception trying to read " + buildFile
+                        + " using default target name", e);
+                targetName = "'default'";
+            }
+            defaultTargets.put(buildFilePath, targetName);
+        }
+        return targetName;
+    }
 }
@@ -82,6 +82,24 @@ public class SubantTaskLink extends AntTaskLink {
         directories.add(newDir);
     }
 
+    /**
+     * Method copy.
+     * @param graph Graph
+     * @param startNode Node
+     * @param endNode Node
+     * @return SubantTaskLink
+     * @see net.ggtools.grand.ant.AntLink#copy(Graph, Node, Node)
+     */
+    @Override
+    public final SubantTaskLink copy(final Graph graph, final Node startNode,
+            final Node endNode) {
+        final SubantTaskLink copy = new SubantTaskLink(getName(), graph,
+                startNode, endNode, getTaskName());
+        copyParametersTo(copy);
+        copy.directories.addAll(directories);
+        return copy;
+    }
+
     /**
      * Gets the list of directories to apply the generic Ant file onto.
      *
@@ -0,0 +1,179 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2004, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ggtools.grand.ant;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.Node;
+
+/**
+ * Execution times of targets, as recorded by a {@link TimingListener}.
+ * Timings are stored in a plain text file holding one target per line: the
+ * time in milliseconds, a space and the target name. Empty lines and lines
+ * starting with <code>#</code> are ignored.
+ *
+ * @author Christophe Labouisse
+ */
+public class TargetTimings {
+    /**
+     * Field durations.
+     */
+    private final Map<String, Long> durations = new TreeMap<String, Long>();
+
+    /**
+     * Records the execution time of a target. When a target is recorded more
+     * than once the longest time is kept.
+     *
+     * @param target
+     *            the target name.
+     * @param millis
+     *            the execution time in milliseconds.
+     */
+    public final void record(final String target, final long millis) {
+        final Long previous = durations.get(target);
+        if ((previous == null) || (previous < millis)) {
+            durations.put(target, millis);
+        }
+    }
+
+    /**
+     * Sets the execution time of a target, replacing any recorded one.
+     *
+     * @param target
+     *            the target name.
+     * @param millis
+     *            the execution time in milliseconds.
+     */
+    public final void set(final String target, final long millis) {
+        durations.put(target, millis);
+    }
+
+    /**
+     * Returns the recorded time of a target.
+     *
+     * @param target
+     *            the target name.
+     * @return the time in milliseconds or -1 if the target was not recorded.
+     */
+    public final long getDuration(final String target) {
+        final Long duration = durations.get(target);
+        return (duration == null) ? -1 : duration;
+    }
+
+    /**
+     * Returns all the recorded times.
+     *
+     * @return an unmodifiable map from target names to milliseconds.
+     */
+    public final Map<String, Long> getDurations() {
+        return Collections.unmodifiableMap(durations);
+    }
+
+    /**
+     * Adds timings read from a file. Malformed lines are ignored.
+     *
+     * @param file
+     *            the timing file.
+     * @throws IOException
+     *             if the file cannot be read.
+     */
+    public final void load(final File file) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                final int space = line.indexOf(' ');
+                if (line.startsWith("#") || (space < 0)) {
+                    continue;
+                }
+                try {
+                    record(line.substring(space + 1).trim(),
+                            Long.parseLong(line.substring(0, space)));
+                } catch (final NumberFormatException e) {
+                    continue;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Writes the timings to a file.
+     *
+     * @param file
+     *            the timing file.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public final void store(final File file) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            for (final Map.Entry<String, Long> entry : durations.entrySet()) {
+                writer.write(entry.getValue() + " " + entry.getKey() + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Returns the recorded times of the nodes of a graph. The graph itself is
+     * left untouched so it may be frozen or shared.
+     *
+     * @param graph
+     *            the graph.
+     * @return the duration of the nodes having a recorded time.
+     */
+    public final Map<Node, Long> getDurations(final Graph graph) {
+        final Map<Node, Long> result = new HashMap<Node, Long>();
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            final Long duration = durations.get(node.getName());
+            if (duration != null) {
+                result.put(node, duration);
+            }
+        }
+        return result;
+    }
+}
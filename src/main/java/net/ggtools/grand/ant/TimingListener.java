@@ -0,0 +1,194 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2004, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ggtools.grand.ant;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.ggtools.grand.log.LoggerManager;
+
+import org.apache.commons.logging.Log;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Target;
+
+/**
+ * A build listener recording the execution time of the targets into a
+ * {@link TargetTimings} file. The listener can be used from the command
+ * line:
+ *
+ * <pre>
+ * ant -listener net.ggtools.grand.ant.TimingListener -Dgrand.timings.file=timings.txt
+ * </pre>
+ *
+ * When the build finishes the timings are merged into the file: targets run
+ * by this build get their new time, the other ones are kept.
+ *
+ * @author Christophe Labouisse
+ */
+public class TimingListener implements BuildListener {
+    /**
+     * Property holding the timing file name.
+     * (value is {@value #TIMINGS_FILE_PROPERTY})
+     */
+    public static final String TIMINGS_FILE_PROPERTY = "grand.timings.file";
+
+    /**
+     * Default timing file name, relative to the project base directory.
+     * (value is {@value #DEFAULT_TIMINGS_FILE})
+     */
+    public static final String DEFAULT_TIMINGS_FILE = "grand-timings.txt";
+
+    /**
+     * Field log.
+     */
+    private static final Log LOG = LoggerManager.getLog(TimingListener.class);
+
+    /**
+     * Field file.
+     */
+    private File file;
+
+    /**
+     * Start times of the running targets.
+     */
+    private final Map<Target, Long> starts = new HashMap<Target, Long>();
+
+    /**
+     * Field timings.
+     */
+    private final TargetTimings timings = new TargetTimings();
+
+    /**
+     * Creates a listener writing to the file named by the
+     * {@value #TIMINGS_FILE_PROPERTY} property or to
+     * {@value #DEFAULT_TIMINGS_FILE} in the project base directory.
+     */
+    public TimingListener() {
+        this(null);
+    }
+
+    /**
+     * Creates a listener writing to a specific file.
+     *
+     * @param file
+     *            the timing file.
+     */
+    public TimingListener(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the timings recorded so far.
+     *
+     * @return the timings.
+     */
+    public final TargetTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Method buildStarted.
+     * @param event BuildEvent
+     * @see org.apache.tools.ant.BuildListener#buildStarted(org.apache.tools.ant.BuildEvent)
+     */
+    public void buildStarted(final BuildEvent event) {
+    }
+
+    /**
+     * Merges the recorded timings into the timing file.
+     * @param event BuildEvent
+     * @see org.apache.tools.ant.BuildListener#buildFinished(org.apache.tools.ant.BuildEvent)
+     */
+    public synchronized void buildFinished(final BuildEvent event) {
+        if (file == null) {
+            final String name = event.getProject().getProperty(TIMINGS_FILE_PROPERTY);
+            file = event.getProject().resolveFile(
+                    (name == null) ? DEFAULT_TIMINGS_FILE : name);
+        }
+        final TargetTimings merged = new TargetTimings();
+        try {
+            if (file.exists()) {
+                merged.load(file);
+            }
+            for (final Map.Entry<String, Long> entry : timings.getDurations().entrySet()) {
+                merged.set(entry.getKey(), entry.getValue());
+            }
+            merged.store(file);
+        } catch (final IOException e) {
+            LOG.error("Cannot write timings to " + file, e);
+        }
+    }
+
+    /**
+     * Method targetStarted.
+     * @param event BuildEvent
+     * @see org.apache.tools.ant.BuildListener#targetStarted(org.apache.tools.ant.BuildEvent)
+     */
+    public synchronized void targetStarted(final BuildEvent event) {
+        starts.put(event.getTarget(), System.currentTimeMillis());
+    }
+
+    /**
+     * Method targetFinished.
+     * @param event BuildEvent
+     * @see org.apache.tools.ant.BuildListener#targetFinished(org.apache.tools.ant.BuildEvent)
+     */
+    public synchronized void targetFinished(final BuildEvent event) {
+        final Long start = starts.remove(event.getTarget());
+        if (start != null) {
+            timings.record(event.getTarget().getName(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Method taskStarted.
+     * @param event BuildEvent
+     * @see org.apache.tools.ant.BuildListener#taskStarted(org.apache.tools.ant.BuildEvent)
+     */
+    public void taskStarted(final BuildEvent event) {
+    }
+
+    /**
+     * Method taskFinished.
+     * @param event BuildEvent
+     * @see org.apache.tools.ant.BuildListener#taskFinished(org.apache.tools.ant.BuildEvent)
+     */
+    public void taskFinished(final BuildEvent event) {
+    }
+
+    /**
+     * Method messageLogged.
+     * @param event BuildEvent
+     * @see org.apache.tools.ant.BuildListener#messageLogged(org.apache.tools.ant.BuildEvent)
+     */
+    public void messageLogged(final BuildEvent event) {
+    }
+}
@@ -34,7 +34,9 @@ import java.util.Iterator;
 import org.apache.commons.logging.Log;
 
 import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.FilteredGraphView;
 import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphImpl;
 import net.ggtools.grand.graph.GraphProducer;
 import net.ggtools.grand.graph.Node;
 import net.ggtools.grand.log.LoggerManager;
@@ -64,6 +66,11 @@ public abstract class AbstractGraphFilter implements GraphFilter {
      */
     protected final String name;
 
+    /**
+     * Field resultCache.
+     */
+    private FilterResultCache resultCache = null;
+
     /**
      * Creates an anonymous filter.
      *
@@ -82,25 +89,50 @@ public abstract class AbstractGraphFilter implements GraphFilter {
     }
 
     /**
-     * Method getGraph.
+     * Returns the producer's graph restricted to the nodes returned by
+     * {@link #getFilteredNodes()}. For {@link GraphImpl}s and
+     * {@link FilteredGraphView}s, a new view is returned and the producer's
+     * graph is left untouched: chaining filters only intersects the view
+     * masks. Other graph implementations are filtered in place by removing
+     * the filtered out nodes. The filtered nodes of views are looked up in
+     * the {@link #setResultCache(FilterResultCache) result cache} if the
+     * filter has a {@link #getCacheKey() cache key}. The returned graph is
+     * then given to {@link #markFilteredGraph(Graph)}.
+     *
      * @return Graph
      * @throws GrandException if an error occurs in getNodes()/getFilteredNodes()
      * @see net.ggtools.grand.graph.GraphProducer#getGraph()
      */
     public final Graph getGraph() throws GrandException {
         LOG.debug("Triggering AbstractGraphFilter");
-        final Graph graph = getProducersGraph();
+        Graph graph = getProducersGraph();
 
         if (graph != null) {
-            final Collection<Node> nodeList = getFilteredNodes();
-
-            for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
-                final Node node = iter.next();
+            final boolean viewable = (graph instanceof FilteredGraphView)
+                    || (graph instanceof GraphImpl);
+            final FilterResultCache cache = viewable ? resultCache : null;
+            final String filterKey = (cache != null) ? getCacheKey() : null;
+            final String resultKey = (filterKey != null)
+                    ? cache.getKey(graph, filterKey) : null;
+            final Collection<Node> nodeList = (resultKey == null)
+                    ? getFilteredNodes()
+                    : cache.getFilteredNodes(this, graph, resultKey);
+
+            if (viewable) {
+                graph = FilteredGraphView.restrict(graph, nodeList);
+                if (resultKey != null) {
+                    cache.registerFilteredGraph(resultKey, graph);
+                }
+            } else {
+                for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+                    final Node node = iter.next();
 
-                if (!nodeList.contains(node)) {
-                    iter.remove();
+                    if (!nodeList.contains(node)) {
+                        iter.remove();
+                    }
                 }
             }
+            markFilteredGraph(graph);
         }
 
         // The graph had been filtered so it must not be used
@@ -129,6 +161,60 @@ public abstract class AbstractGraphFilter implements GraphFilter {
         return name;
     }
 
+    /**
+     * Sets the cache used for the filtered nodes. Filters are not cached by
+     * default.
+     *
+     * @param cache the cache, <code>null</code> to always run the filter.
+     */
+    public final void setResultCache(final FilterResultCache cache) {
+        resultCache = cache;
+    }
+
+    /**
+     * Returns a string identifying the filter and its parameters. Two
+     * filters with the same key should keep the same nodes of a graph.
+     * The default implementation returns <code>null</code>, meaning the
+     * filtered nodes cannot be cached. Filters overriding
+     * {@link #markFilteredGraph(Graph)} should keep it that way since the
+     * attributes are not cached.
+     *
+     * @return the cache key or <code>null</code>.
+     */
+    protected String getCacheKey() {
+        return null;
+    }
+
+    /**
+     * Creates a cache key from the filter class and some parameters.
+     *
+     * @param parameters the parameters of the filter.
+     * @return the cache key.
+     */
+    protected final String createCacheKey(final Object... parameters) {
+        final StringBuilder key = new StringBuilder(getClass().getName());
+        for (final Object parameter : parameters) {
+            final String value = String.valueOf(parameter);
+            key.append(' ').append(value.length()).append(':').append(value);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Sets attributes on the graph returned by the filter, after the
+     * filtering. The producer's graph may be frozen or shared with other
+     * filters so the attributes must only be set on the returned graph, which
+     * belongs to the filter when it is a {@link FilteredGraphView}. The
+     * default implementation does nothing.
+     *
+     * @param graph
+     *            the filtered graph.
+     * @throws GrandException
+     *             if the graph cannot be marked.
+     */
+    protected void markFilteredGraph(final Graph graph) throws GrandException {
+    }
+
     /**
      * Get the nodes from the graph that pass the filter. This method should not
      * alter the input graph. The returned collection may be read only and
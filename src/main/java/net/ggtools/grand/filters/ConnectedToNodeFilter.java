@@ -31,6 +31,8 @@
 
 package net.ggtools.grand.filters;
 
+import java.util.Collection;
+
 import net.ggtools.grand.graph.ConnectedNodesFinder;
 import net.ggtools.grand.graph.LinkFinder;
 
@@ -57,6 +59,14 @@ public class ConnectedToNodeFilter extends GraphWalkFilter
         super(nodeName);
     }
 
+    /**
+     * Creates a new filter walking from several nodes.
+     * @param nodeNames nodes to start from.
+     */
+    public ConnectedToNodeFilter(final Collection<String> nodeNames) {
+        super(nodeNames);
+    }
+
     /**
      * Method getLinkFinder.
      * @return LinkFinder
@@ -0,0 +1,105 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import java.util.Collection;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.graph.StronglyConnectedComponents;
+
+/**
+ * A filter keeping only the nodes part of a dependency cycle. The kept nodes
+ * and the links between them are marked with the
+ * {@link Node#ATTR_CYCLIC_NODE} and
+ * {@link net.ggtools.grand.graph.Link#ATTR_CYCLIC_LINK} attributes in the
+ * filtered graph, the producer's graph is left untouched.
+ *
+ * @author Christophe Labouisse
+ * @see StronglyConnectedComponents
+ */
+public class CycleFilter extends AbstractGraphFilter implements GraphFilter {
+
+    /**
+     * Field includeWeakLinks.
+     */
+    private final boolean includeWeakLinks;
+
+    /**
+     * Components of the last filtered graph, until the result is marked.
+     */
+    private StronglyConnectedComponents components;
+
+    /**
+     * Creates a new filter following all the links, including weak ones.
+     */
+    public CycleFilter() {
+        this(true);
+    }
+
+    /**
+     * Creates a new filter.
+     *
+     * @param includeWeakLinks
+     *            <code>true</code> to find cycles going through weak links.
+     */
+    public CycleFilter(final boolean includeWeakLinks) {
+        this.includeWeakLinks = includeWeakLinks;
+    }
+
+    /**
+     * Method getFilteredNodes.
+     * @return Collection&lt;Node&gt;
+     * @throws GrandException if an error occurs in getProducersGraph()
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getFilteredNodes()
+     */
+    @Override
+    protected final Collection<Node> getFilteredNodes() throws GrandException {
+        final Graph graph = getProducersGraph();
+        components = new StronglyConnectedComponents(graph, includeWeakLinks);
+        return components.getCyclicNodes();
+    }
+
+    /**
+     * Method markFilteredGraph.
+     * @param graph Graph
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#markFilteredGraph(net.ggtools.grand.graph.Graph)
+     */
+    @Override
+    protected final void markFilteredGraph(final Graph graph) {
+        if (components != null) {
+            components.markCycles(graph);
+            components = null;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import java.util.Collection;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.exceptions.NonExistentNodeException;
+import net.ggtools.grand.graph.DominatorTree;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.Node;
+
+/**
+ * A filter based on the {@link DominatorTree} of a graph. When a node is
+ * given, the filter keeps the nodes every path from the root to that node
+ * goes through. Otherwise it keeps all the nodes reachable from the root.
+ * In both cases the nodes dominating other kept nodes are marked with the
+ * {@link Node#ATTR_DOMINATOR_NODE} attribute in the filtered graph, the
+ * producer's graph is left untouched.
+ *
+ * @author Christophe Labouisse
+ */
+public class DominatorFilter extends AbstractGraphFilter implements GraphFilter {
+
+    /**
+     * Field includeWeakLinks.
+     */
+    private final boolean includeWeakLinks;
+
+    /**
+     * Field nodeName.
+     */
+    private final String nodeName;
+
+    /**
+     * Field rootName.
+     */
+    private final String rootName;
+
+    /**
+     * Tree of the last filtered graph, until the result is marked.
+     */
+    private DominatorTree tree;
+
+    /**
+     * Node whose dominators are marked, <code>null</code> to mark all the
+     * dominators.
+     */
+    private Node markedNode;
+
+    /**
+     * Creates a new filter following regular links only.
+     *
+     * @param rootName
+     *            name of the root node, <code>null</code> for the graph's
+     *            start node.
+     * @param nodeName
+     *            name of the node to keep the dominators of,
+     *            <code>null</code> to keep the whole tree.
+     */
+    public DominatorFilter(final String rootName, final String nodeName) {
+        this(rootName, nodeName, false);
+    }
+
+    /**
+     * Creates a new filter.
+     *
+     * @param rootName
+     *            name of the root node, <code>null</code> for the graph's
+     *            start node.
+     * @param nodeName
+     *            name of the node to keep the dominators of,
+     *            <code>null</code> to keep the whole tree.
+     * @param includeWeakLinks
+     *            <code>true</code> to follow weak links.
+     */
+    public DominatorFilter(final String rootName, final String nodeName,
+            final boolean includeWeakLinks) {
+        super("Dominators");
+        this.rootName = rootName;
+        this.nodeName = nodeName;
+        this.includeWeakLinks = includeWeakLinks;
+    }
+
+    /**
+     * Method getFilteredNodes.
+     * @return Collection&lt;Node&gt;
+     * @throws GrandException if an error occurs in getProducersGraph() or if
+     *             a node does not exist
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getFilteredNodes()
+     */
+    @Override
+    protected final Collection<Node> getFilteredNodes() throws GrandException {
+        final Graph graph = getProducersGraph();
+        final Node root;
+        if (rootName == null) {
+            root = graph.getStartNode();
+            if (root == null) {
+                throw new NonExistentNodeException("Graph " + graph.getName()
+                        + " has no start node");
+            }
+        } else {
+            root = getNode(graph, rootName);
+        }
+
+        tree = new DominatorTree(graph, root, includeWeakLinks);
+        if (nodeName == null) {
+            markedNode = null;
+            return tree.getReachableNodes();
+        }
+
+        markedNode = getNode(graph, nodeName);
+        return tree.getDominators(markedNode);
+    }
+
+    /**
+     * Method markFilteredGraph.
+     * @param graph Graph
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#markFilteredGraph(net.ggtools.grand.graph.Graph)
+     */
+    @Override
+    protected final void markFilteredGraph(final Graph graph) {
+        if (tree != null) {
+            if (markedNode == null) {
+                tree.markAllDominators(graph);
+            } else {
+                tree.markDominators(markedNode, graph);
+            }
+            tree = null;
+            markedNode = null;
+        }
+    }
+
+    /**
+     * Returns a named node.
+     *
+     * @param graph the graph.
+     * @param name the node name.
+     * @return the node.
+     * @throws NonExistentNodeException if the node does not exist.
+     */
+    private static Node getNode(final Graph graph, final String name)
+            throws NonExistentNodeException {
+        final Node node = graph.getNode(name);
+        if (node == null) {
+            throw new NonExistentNodeException("Node " + name + " does not exist");
+        }
+        return node;
+    }
+}
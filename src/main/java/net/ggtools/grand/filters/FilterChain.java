@@ -28,6 +28,7 @@
 
 package net.ggtools.grand.filters;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -39,6 +40,16 @@ import net.ggtools.grand.graph.GraphProducer;
 /**
  * A <i>metafilter</i> made by chaining together several filters. The behaviour
  * of an empty chain is to behave like an identity filter.
+ * <p>
+ * By default, consecutive {@link NodePredicateFilter}s are run as a single
+ * {@link FusedFilter} walking the graph once. Other filters, like the ones
+ * walking the graph from a node, still see the graph filtered by all the
+ * filters before them.
+ * </p>
+ * <p>
+ * The filters are only connected to each other when the graph is
+ * requested, so the chain can be changed until then.
+ * </p>
  *
  * @author Christophe Labouisse
  */
@@ -51,9 +62,14 @@ public class FilterChain implements GraphFilter {
                 new LinkedList<GraphFilter>();
 
     /**
-     * Field lastFilter.
+     * Field fused.
      */
-    private GraphProducer lastFilter = null;
+    private boolean fused = true;
+
+    /**
+     * Field resultCache.
+     */
+    private FilterResultCache resultCache = null;
 
     /**
      * Field name.
@@ -88,19 +104,7 @@ public class FilterChain implements GraphFilter {
      * @param newFilter GraphFilter
      */
     public final void addFilterFirst(final GraphFilter newFilter) {
-        if (filterList.isEmpty()) {
-            lastFilter = newFilter;
-        } else {
-            final GraphFilter oldFirstFilter = filterList.getFirst();
-            oldFirstFilter.setProducer(newFilter);
-        }
-
         filterList.addFirst(newFilter);
-
-        if (producer != null) {
-            newFilter.setProducer(producer);
-        }
-
     }
 
     /**
@@ -110,8 +114,6 @@ public class FilterChain implements GraphFilter {
      */
     public final void addFilterLast(final GraphFilter newFilter) {
         filterList.addLast(newFilter);
-        newFilter.setProducer(lastFilter);
-        lastFilter = newFilter;
     }
 
     /**
@@ -120,7 +122,6 @@ public class FilterChain implements GraphFilter {
      */
     public final void clearFilters() {
         filterList.clear();
-        lastFilter = producer;
     }
 
     /**
@@ -141,15 +142,46 @@ public class FilterChain implements GraphFilter {
     public final Graph getGraph() throws GrandException {
         final Graph filteredGraph;
 
-        if (lastFilter == null) {
+        final GraphProducer last = wireFilters();
+        if (last == null) {
             filteredGraph = null;
         } else {
-            filteredGraph = lastFilter.getGraph();
+            filteredGraph = last.getGraph();
         }
 
         return filteredGraph;
     }
 
+    /**
+     * Tells if consecutive {@link NodePredicateFilter}s are run in a single
+     * pass.
+     *
+     * @return <code>true</code> if the filters are fused.
+     */
+    public final boolean isFused() {
+        return fused;
+    }
+
+    /**
+     * Sets whether consecutive {@link NodePredicateFilter}s are run in a
+     * single pass. Defaults to <code>true</code>.
+     *
+     * @param fused <code>false</code> to run each filter separately.
+     */
+    public final void setFused(final boolean fused) {
+        this.fused = fused;
+    }
+
+    /**
+     * Sets the cache used for the nodes kept by the filters of the chain,
+     * including the fused ones. Filters are not cached by default.
+     *
+     * @param cache the cache, <code>null</code> to always run the filters.
+     */
+    public final void setResultCache(final FilterResultCache cache) {
+        resultCache = cache;
+    }
+
     /**
      * Method getName.
      * @return String
@@ -166,12 +198,55 @@ public class FilterChain implements GraphFilter {
      */
     public final void setProducer(final GraphProducer newProducer) {
         producer = newProducer;
-        if (filterList.isEmpty()) {
-            lastFilter = newProducer;
-        } else {
-            final GraphFilter firstFilter = filterList.getFirst();
-            firstFilter.setProducer(producer);
+    }
+
+    /**
+     * Wires the filters, replacing runs of {@link NodePredicateFilter}s by
+     * {@link FusedFilter}s in fused mode.
+     *
+     * @return the last producer of the chain.
+     */
+    private GraphProducer wireFilters() {
+        GraphProducer current = producer;
+        final List<NodePredicateFilter> group =
+                new ArrayList<NodePredicateFilter>();
+        for (final GraphFilter filter : filterList) {
+            if (filter instanceof AbstractGraphFilter) {
+                ((AbstractGraphFilter) filter).setResultCache(resultCache);
+            }
+            if (fused && (filter instanceof NodePredicateFilter)) {
+                group.add((NodePredicateFilter) filter);
+            } else {
+                current = fuse(group, current);
+                group.clear();
+                filter.setProducer(current);
+                current = filter;
+            }
         }
+        return fuse(group, current);
     }
 
+    /**
+     * Creates a producer applying a run of filters.
+     *
+     * @param group the filters.
+     * @param groupProducer the producer of the run.
+     * @return the last producer.
+     */
+    private GraphProducer fuse(final List<NodePredicateFilter> group,
+            final GraphProducer groupProducer) {
+        if (group.isEmpty()) {
+            return groupProducer;
+        }
+        final GraphFilter result;
+        if (group.size() == 1) {
+            result = group.get(0);
+        } else {
+            final FusedFilter fusedFilter = new FusedFilter(group);
+            fusedFilter.setResultCache(resultCache);
+            result = fusedFilter;
+        }
+        result.setProducer(groupProducer);
+        return result;
+    }
 }
@@ -0,0 +1,443 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.exceptions.NonExistentNodeException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.Node;
+
+/**
+ * Reorders a list of filters so that they run faster while giving the very
+ * same graph. Only the following rewrites are done:
+ * <ul>
+ * <li>an {@link IsolatedNodeFilter} directly followed by another one is
+ * dropped, the filter being idempotent;</li>
+ * <li>an {@link IsolatedNodeFilter} followed by a {@link GraphWalkFilter},
+ * with only node removal or isolated node filters in between, is dropped:
+ * an isolated node cannot be reached by a walk. A cheap check is kept in
+ * its place so that a walk starting from a node it would have removed still
+ * fails the same way;</li>
+ * <li>in a run of consecutive filters removing nodes regardless of the
+ * links ({@link NodeRemoverFilter}, {@link MissingNodeFilter} and
+ * {@link PrefixedNodeFilter}), the filters removing the more nodes of the
+ * graph come first. Those filters commute.</li>
+ * </ul>
+ * Any other filter is left where it is and nothing is moved across it.
+ *
+ * @author Christophe Labouisse
+ */
+public class FilterPlanner {
+
+    /**
+     * A filter passing its producer's graph unchanged after inspecting it.
+     *
+     * @author Christophe Labouisse
+     */
+    private abstract static class InspectingFilter implements GraphFilter {
+        /**
+         * Field name.
+         */
+        private final String name;
+
+        /**
+         * Field producer.
+         */
+        private GraphProducer producer;
+
+        /**
+         * Creates a new filter.
+         * @param name String
+         */
+        protected InspectingFilter(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Method getGraph.
+         * @return Graph
+         * @throws GrandException if the producer or the inspection fails
+         * @see net.ggtools.grand.graph.GraphProducer#getGraph()
+         */
+        public final Graph getGraph() throws GrandException {
+            final Graph graph = producer.getGraph();
+            inspect(graph);
+            return graph;
+        }
+
+        /**
+         * Method setProducer.
+         * @param producer GraphProducer
+         * @see net.ggtools.grand.graph.GraphConsumer#setProducer(GraphProducer)
+         */
+        public final void setProducer(final GraphProducer producer) {
+            this.producer = producer;
+        }
+
+        /**
+         * Method getName.
+         * @return String
+         * @see net.ggtools.grand.filters.GraphFilter#getName()
+         */
+        public final String getName() {
+            return name;
+        }
+
+        /**
+         * Inspects the graph.
+         * @param graph the producer's graph.
+         * @throws GrandException if the graph is not valid
+         */
+        protected abstract void inspect(Graph graph) throws GrandException;
+    }
+
+    /**
+     * Replaces the isolated node filters dropped in front of a walk. The
+     * start nodes isolated where a dropped filter stood are recorded and the
+     * walk fails if it starts from one of them, like it would have done if
+     * the isolated node filters had been run.
+     *
+     * @author Christophe Labouisse
+     */
+    private static final class StartNodeCheck {
+        /**
+         * Field startNodeNames.
+         */
+        private final List<String> startNodeNames;
+
+        /**
+         * Field isolatedNodeNames.
+         */
+        private final Set<String> isolatedNodeNames = new HashSet<String>();
+
+        /**
+         * Creates a new check.
+         * @param walk the walk filter.
+         */
+        private StartNodeCheck(final GraphWalkFilter walk) {
+            startNodeNames = walk.getStartNodeNames();
+        }
+
+        /**
+         * Returns a filter recording the isolated start nodes.
+         * @return GraphFilter
+         */
+        private GraphFilter newRecorder() {
+            return new InspectingFilter("Isolated start node recorder") {
+                @Override
+                protected void inspect(final Graph graph) {
+                    for (final String nodeName : startNodeNames) {
+                        final Node node = graph.getNode(nodeName);
+                        if ((node != null) && node.getLinks().isEmpty()
+                                && node.getBackLinks().isEmpty()) {
+                            isolatedNodeNames.add(nodeName);
+                        }
+                    }
+                }
+            };
+        }
+
+        /**
+         * Returns a filter checking the start nodes before the walk.
+         * @return GraphFilter
+         */
+        private GraphFilter newChecker() {
+            return new InspectingFilter("Isolated start node check") {
+                @Override
+                protected void inspect(final Graph graph)
+                        throws NonExistentNodeException {
+                    try {
+                        for (final String nodeName : startNodeNames) {
+                            if ((graph.getNode(nodeName) == null)
+                                    || isolatedNodeNames.contains(nodeName)) {
+                                throw new NonExistentNodeException("Node "
+                                        + nodeName + " does not exist");
+                            }
+                        }
+                    } finally {
+                        isolatedNodeNames.clear();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Field filters.
+     */
+    private final List<GraphFilter> filters = new ArrayList<GraphFilter>();
+
+    /**
+     * Field labels.
+     */
+    private final Map<GraphFilter, String> labels =
+            new IdentityHashMap<GraphFilter, String>();
+
+    /**
+     * Field notes.
+     */
+    private final List<String> notes = new ArrayList<String>();
+
+    /**
+     * Adds a filter at the end of the list.
+     *
+     * @param filter the filter.
+     * @param label the name of the filter in the notes.
+     */
+    public final void addFilter(final GraphFilter filter, final String label) {
+        filters.add(filter);
+        labels.put(filter, label);
+    }
+
+    /**
+     * Returns the name of a filter as used in the notes.
+     *
+     * @param filter a filter added to the planner or returned by
+     *            {@link #plan(Graph)}.
+     * @return the label of the filter.
+     */
+    public final String getLabel(final GraphFilter filter) {
+        final String label = labels.get(filter);
+        return (label == null) ? filter.getName() : label;
+    }
+
+    /**
+     * Returns the notes explaining the last plan.
+     *
+     * @return an unmodifiable list of notes.
+     */
+    public final List<String> getNotes() {
+        return Collections.unmodifiableList(notes);
+    }
+
+    /**
+     * Plans the filters for a graph. The graph is only used to estimate how
+     * many nodes each filter removes.
+     *
+     * @param graph the graph to be filtered.
+     * @return the filters to run, in order.
+     */
+    public final List<GraphFilter> plan(final Graph graph) {
+        notes.clear();
+        return orderRemovers(absorbIsolatedNodeFilters(
+                dropRepeatedIsolatedNodeFilters(filters)), graph);
+    }
+
+    /**
+     * Drops the isolated node filters directly following another one.
+     *
+     * @param input the filters.
+     * @return the remaining filters.
+     */
+    private List<GraphFilter> dropRepeatedIsolatedNodeFilters(
+            final List<GraphFilter> input) {
+        final List<GraphFilter> result = new ArrayList<GraphFilter>(input.size());
+        GraphFilter previous = null;
+        for (final GraphFilter filter : input) {
+            if ((filter instanceof IsolatedNodeFilter)
+                    && (previous instanceof IsolatedNodeFilter)) {
+                notes.add("Dropped " + getLabel(filter) + ": same as "
+                        + getLabel(previous));
+            } else {
+                result.add(filter);
+                previous = filter;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops the isolated node filters followed by a walk.
+     *
+     * @param input the filters.
+     * @return the filters with the isolated node filters replaced by checks.
+     */
+    private List<GraphFilter> absorbIsolatedNodeFilters(
+            final List<GraphFilter> input) {
+        final List<GraphFilter> result = new ArrayList<GraphFilter>(input.size());
+        final Map<GraphFilter, StartNodeCheck> checks =
+                new IdentityHashMap<GraphFilter, StartNodeCheck>();
+        for (int i = 0; i < input.size(); i++) {
+            final GraphFilter filter = input.get(i);
+            final GraphWalkFilter walk = (filter instanceof IsolatedNodeFilter)
+                    ? findWalk(input, i + 1) : null;
+            if (walk != null) {
+                StartNodeCheck check = checks.get(walk);
+                if (check == null) {
+                    check = new StartNodeCheck(walk);
+                    checks.put(walk, check);
+                }
+                result.add(check.newRecorder());
+                notes.add("Dropped " + getLabel(filter)
+                        + ": the nodes walked by " + getLabel(walk)
+                        + " are not isolated");
+            } else {
+                final StartNodeCheck check = checks.get(filter);
+                if (check != null) {
+                    result.add(check.newChecker());
+                }
+                result.add(filter);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the walk an isolated node filter can be dropped in front of.
+     *
+     * @param input the filters.
+     * @param start the index of the filter following the isolated node
+     *            filter.
+     * @return the walk or <code>null</code> if there is none.
+     */
+    private static GraphWalkFilter findWalk(final List<GraphFilter> input,
+            final int start) {
+        for (int i = start; i < input.size(); i++) {
+            final GraphFilter filter = input.get(i);
+            if (filter instanceof GraphWalkFilter) {
+                return (GraphWalkFilter) filter;
+            }
+            if (!(filter instanceof IsolatedNodeFilter)
+                    && (getRemovedNodeCount(filter, null) < 0)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Orders the runs of node removal filters, the ones removing the more
+     * nodes first.
+     *
+     * @param input the filters.
+     * @param graph the graph to be filtered.
+     * @return the ordered filters.
+     */
+    private List<GraphFilter> orderRemovers(final List<GraphFilter> input,
+            final Graph graph) {
+        final List<GraphFilter> result = new ArrayList<GraphFilter>(input);
+        final Map<GraphFilter, Integer> counts =
+                new IdentityHashMap<GraphFilter, Integer>();
+        for (final GraphFilter filter : result) {
+            counts.put(filter, getRemovedNodeCount(filter, graph));
+        }
+        final Comparator<GraphFilter> comparator = new Comparator<GraphFilter>() {
+            public int compare(final GraphFilter o1, final GraphFilter o2) {
+                return counts.get(o2).compareTo(counts.get(o1));
+            }
+        };
+
+        int runStart = 0;
+        while (runStart < result.size()) {
+            int runEnd = runStart;
+            while ((runEnd < result.size())
+                    && (counts.get(result.get(runEnd)) >= 0)) {
+                runEnd++;
+            }
+            if (runEnd - runStart > 1) {
+                final List<GraphFilter> run = result.subList(runStart, runEnd);
+                final List<GraphFilter> ordered = new ArrayList<GraphFilter>(run);
+                Collections.sort(ordered, comparator);
+                if (!ordered.equals(run)) {
+                    final StringBuilder note = new StringBuilder("Reordered");
+                    for (final GraphFilter filter : ordered) {
+                        note.append(' ').append(getLabel(filter)).append(" (")
+                                .append(counts.get(filter)).append(" nodes)");
+                    }
+                    notes.add(note.toString());
+                    for (int i = 0; i < ordered.size(); i++) {
+                        run.set(i, ordered.get(i));
+                    }
+                }
+            }
+            runStart = runEnd + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the number of nodes a filter removes regardless of the
+     * links.
+     *
+     * @param filter the filter.
+     * @param graph the graph to be filtered, <code>null</code> to only know
+     *            if the filter removes nodes regardless of the links.
+     * @return the number of removed nodes or -1 if the filter is not a node
+     *         removal filter.
+     */
+    private static int getRemovedNodeCount(final GraphFilter filter,
+            final Graph graph) {
+        final int count;
+        if (filter instanceof NodeRemoverFilter) {
+            int found = 0;
+            if (graph != null) {
+                for (final String nodeName
+                        : ((NodeRemoverFilter) filter).getNodesToRemove()) {
+                    if (graph.getNode(nodeName) != null) {
+                        found++;
+                    }
+                }
+            }
+            count = found;
+        } else if (filter instanceof MissingNodeFilter) {
+            count = getAttributeCount(graph, Node.ATTR_MISSING_NODE);
+        } else if (filter instanceof PrefixedNodeFilter) {
+            count = getAttributeCount(graph, Node.ATTR_PREFIXED_NODE);
+        } else {
+            count = -1;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the nodes having some attributes.
+     *
+     * @param graph the graph, may be <code>null</code>.
+     * @param attributeMask the attributes.
+     * @return the number of nodes.
+     */
+    private static int getAttributeCount(final Graph graph,
+            final int attributeMask) {
+        return (graph == null) ? 0
+                : graph.getNodesWithAttributes(attributeMask).size();
+    }
+}
@@ -0,0 +1,419 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.logging.Log;
+
+import net.ggtools.grand.ant.AntTargetNode;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.FilteredGraphView;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphImpl;
+import net.ggtools.grand.graph.Link;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.log.LoggerManager;
+
+/**
+ * A cache of the nodes kept by filters, allowing to filter the same build
+ * file several times, for instance from several <code>grand</code> tasks,
+ * without walking the graph again. Filters only use a cache when given one
+ * with {@link AbstractGraphFilter#setResultCache(FilterResultCache)} or
+ * {@link FilterChain#setResultCache(FilterResultCache)}.
+ * <p>
+ * The results are indexed by a version of the filtered graph and by the
+ * {@link AbstractGraphFilter#getCacheKey() cache key} of the filter. The
+ * version of a graph coming out of a cached filter is derived from the
+ * version of its input, the version of any other graph is a digest of its
+ * nodes, links, attributes and build files. The digest of a frozen graph is
+ * computed once, the one of a graph which can still change is computed
+ * again on each use: graphs should be frozen before being filtered with a
+ * cache. The least recently used results are dropped
+ * when the cache grows bigger than its maximum size.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public class FilterResultCache {
+
+    /**
+     * Field LOG.
+     */
+    private static final Log LOG = LoggerManager.getLog(FilterResultCache.class);
+
+    /**
+     * Estimated size of an entry without the key and the node set.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * Field SHARED_CACHE.
+     */
+    private static final FilterResultCache SHARED_CACHE =
+            new FilterResultCache(Runtime.getRuntime().maxMemory() / 64);
+
+    /**
+     * Field entries.
+     */
+    private final LinkedHashMap<String, BitSet> entries =
+            new LinkedHashMap<String, BitSet>(16, 0.75f, true);
+
+    /**
+     * Field versions.
+     */
+    private final Map<Graph, String> versions = new WeakHashMap<Graph, String>();
+
+    /**
+     * Field maxSize.
+     */
+    private long maxSize;
+
+    /**
+     * Field size.
+     */
+    private long size = 0;
+
+    /**
+     * Field hitCount.
+     */
+    private int hitCount = 0;
+
+    /**
+     * Field missCount.
+     */
+    private int missCount = 0;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize
+     *            the maximum estimated size of the cache in bytes.
+     */
+    public FilterResultCache(final long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cache shared by default by all the filters. Its maximum
+     * size is a 64th of the maximum memory of the JVM.
+     *
+     * @return the shared cache.
+     */
+    public static FilterResultCache getSharedCache() {
+        return SHARED_CACHE;
+    }
+
+    /**
+     * Returns the nodes kept by a filter, using the cached result when
+     * possible.
+     *
+     * @param filter
+     *            the filter.
+     * @param graph
+     *            the producer's graph of the filter.
+     * @param key
+     *            the key returned by {@link #getKey(Graph, String)}.
+     * @return the nodes kept by the filter.
+     * @throws GrandException
+     *             if the filter fails.
+     */
+    final Collection<Node> getFilteredNodes(final AbstractGraphFilter filter,
+            final Graph graph, final String key) throws GrandException {
+        BitSet bits = get(key);
+        final Collection<Node> result;
+        if (bits == null) {
+            result = filter.getFilteredNodes();
+            bits = new BitSet(graph.getNodeIndexBound());
+            for (final Node node : result) {
+                final int nodeIndex = graph.getNodeIndex(node);
+                if (nodeIndex >= 0) {
+                    bits.set(nodeIndex);
+                }
+            }
+            put(key, bits);
+        } else {
+            final List<Node> nodes = new ArrayList<Node>(bits.cardinality());
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                final Node node = graph.getNodeByIndex(i);
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+            result = nodes;
+        }
+        return result;
+    }
+
+    /**
+     * Records the version of a graph returned by a filter.
+     *
+     * @param key
+     *            the key of the filter result.
+     * @param output
+     *            the filtered graph.
+     */
+    final synchronized void registerFilteredGraph(final String key,
+            final Graph output) {
+        versions.put(output, digest(key));
+    }
+
+    /**
+     * Returns the key of the result of a filter on a graph.
+     *
+     * @param graph
+     *            the producer's graph of the filter.
+     * @param filterKey
+     *            the cache key of the filter.
+     * @return the key.
+     */
+    final String getKey(final Graph graph, final String filterKey) {
+        return getVersion(graph) + '\n' + filterKey;
+    }
+
+    /**
+     * Returns the version of a graph. The version of the graphs which cannot
+     * change, filtered views and frozen graphs, is only computed once.
+     *
+     * @param graph
+     *            the graph.
+     * @return the version of the graph.
+     */
+    final synchronized String getVersion(final Graph graph) {
+        String version = versions.get(graph);
+        if (version == null) {
+            version = computeVersion(graph);
+            if ((graph instanceof FilteredGraphView)
+                    || ((graph instanceof GraphImpl) && ((GraphImpl) graph).isFrozen())) {
+                versions.put(graph, version);
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Drops all the cached results.
+     */
+    public final synchronized void clear() {
+        entries.clear();
+        versions.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the number of times a cached result has been used.
+     *
+     * @return the number of hits.
+     */
+    public final synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of times a filter had to be run.
+     *
+     * @return the number of misses.
+     */
+    public final synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the estimated size of the cached results.
+     *
+     * @return the size in bytes.
+     */
+    public final synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Sets the maximum estimated size of the cache. The least recently used
+     * results are dropped at once if the cache is bigger.
+     *
+     * @param maxSize
+     *            the size in bytes, 0 to disable the cache.
+     */
+    public final synchronized void setMaxSize(final long maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    /**
+     * Gets a cached result.
+     *
+     * @param key
+     *            the key of the result.
+     * @return the nodes or <code>null</code> if not cached.
+     */
+    private synchronized BitSet get(final String key) {
+        final BitSet bits = entries.get(key);
+        if (bits == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return bits;
+    }
+
+    /**
+     * Caches a result.
+     *
+     * @param key
+     *            the key of the result.
+     * @param bits
+     *            the nodes.
+     */
+    private synchronized void put(final String key, final BitSet bits) {
+        final BitSet previous = entries.put(key, bits);
+        if (previous != null) {
+            size -= getEntrySize(key, previous);
+        }
+        size += getEntrySize(key, bits);
+        evict();
+    }
+
+    /**
+     * Drops the least recently used results until the cache fits its
+     * maximum size.
+     */
+    private void evict() {
+        final Iterator<Map.Entry<String, BitSet>> iter = entries.entrySet().iterator();
+        while ((size > maxSize) && iter.hasNext()) {
+            final Map.Entry<String, BitSet> entry = iter.next();
+            size -= getEntrySize(entry.getKey(), entry.getValue());
+            iter.remove();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Dropped cached filter result " + entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Estimates the memory used by an entry.
+     *
+     * @param key
+     *            the key.
+     * @param bits
+     *            the nodes.
+     * @return the size in bytes.
+     */
+    private static long getEntrySize(final String key, final BitSet bits) {
+        return ENTRY_OVERHEAD + (2L * key.length()) + (bits.size() / 8);
+    }
+
+    /**
+     * Computes a digest of the content of a graph.
+     *
+     * @param graph
+     *            the graph.
+     * @return the digest.
+     */
+    private static String computeVersion(final Graph graph) {
+        final MessageDigest digest = getDigest();
+        final StringBuilder content = new StringBuilder();
+        final Node startNode = graph.getStartNode();
+        content.append((startNode == null) ? -1 : graph.getNodeIndex(startNode));
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            content.append('\n').append(graph.getNodeIndex(node)).append(' ')
+                    .append(node.getAttributes()).append(' ')
+                    .append(node.getName());
+            final Node baseNode = FilteredGraphView.unwrap(node);
+            if (baseNode instanceof AntTargetNode) {
+                content.append(' ').append(((AntTargetNode) baseNode).getBuildFile());
+            }
+            for (final Link link : node.getLinks()) {
+                content.append('\n').append(graph.getNodeIndex(link.getEndNode()))
+                        .append(' ').append(link.getAttributes());
+            }
+            update(digest, content);
+            content.setLength(0);
+        }
+        update(digest, content);
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
+    /**
+     * Computes the digest of a string.
+     *
+     * @param value
+     *            the string.
+     * @return the hexadecimal digest.
+     */
+    private static String digest(final String value) {
+        final MessageDigest digest = getDigest();
+        update(digest, value);
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
+    /**
+     * Adds some characters to a digest.
+     *
+     * @param digest
+     *            the digest.
+     * @param value
+     *            the characters.
+     */
+    private static void update(final MessageDigest digest,
+            final CharSequence value) {
+        try {
+            digest.update(value.toString().getBytes("UTF-8"));
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException("Cannot compute graph version: " + e);
+        }
+    }
+
+    /**
+     * Creates the digest used for the versions.
+     *
+     * @return a new digest.
+     */
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot compute graph version: " + e);
+        }
+    }
+}
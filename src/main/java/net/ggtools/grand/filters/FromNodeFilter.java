@@ -31,8 +31,13 @@
 
 package net.ggtools.grand.filters;
 
+import java.util.Collection;
+
 import net.ggtools.grand.graph.ForwardLinkFinder;
 import net.ggtools.grand.graph.LinkFinder;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.graph.NodeSet;
+import net.ggtools.grand.graph.ReachabilityIndex;
 
 
 /**
@@ -57,6 +62,14 @@ public class FromNodeFilter extends GraphWalkFilter implements GraphFilter {
         super(nodeName);
     }
 
+    /**
+     * Creates a new filter walking from several nodes.
+     * @param nodeNames nodes to start from.
+     */
+    public FromNodeFilter(final Collection<String> nodeNames) {
+        super(nodeNames);
+    }
+
     /**
      * Method getLinkFinder.
      * @return LinkFinder
@@ -66,4 +79,16 @@ public class FromNodeFilter extends GraphWalkFilter implements GraphFilter {
     public final LinkFinder getLinkFinder() {
         return linkFinder;
     }
+
+    /**
+     * Returns the descendants of the node from the index.
+     * @param index the reachability index.
+     * @param node the start node.
+     * @return NodeSet
+     * @see net.ggtools.grand.filters.GraphWalkFilter#getReachableNodes(ReachabilityIndex, Node)
+     */
+    @Override
+    protected final NodeSet getReachableNodes(final ReachabilityIndex index, final Node node) {
+        return index.getDescendants(node);
+    }
 }
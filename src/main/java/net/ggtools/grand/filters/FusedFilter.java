@@ -0,0 +1,182 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.Node;
+
+/**
+ * Applies a sequence of {@link NodePredicateFilter}s without creating the
+ * intermediate graphs. The result is the same as chaining the filters. Each
+ * filter is evaluated once per node into a bitset, so the filters looking at
+ * the neighbours of a node find the result of the preceding filters in
+ * constant time rather than evaluating them again.
+ *
+ * @author Christophe Labouisse
+ */
+public class FusedFilter extends AbstractGraphFilter implements GraphFilter {
+
+    /**
+     * Field filters.
+     */
+    private final List<NodePredicateFilter> filters;
+
+    /**
+     * Creates a new filter.
+     *
+     * @param filters
+     *            the filters to apply, in order.
+     */
+    public FusedFilter(final List<NodePredicateFilter> filters) {
+        super("Fused " + getNames(filters));
+        this.filters = new ArrayList<NodePredicateFilter>(filters);
+    }
+
+    /**
+     * Method getFilteredNodes.
+     * @return Collection&lt;Node&gt;
+     * @throws GrandException if an error occurs in getProducersGraph()
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getFilteredNodes()
+     */
+    @Override
+    protected final Collection<Node> getFilteredNodes() throws GrandException {
+        final Graph graph = getProducersGraph();
+        BitSet accepted = new BitSet(graph.getNodeIndexBound());
+        accepted.set(0, graph.getNodeIndexBound());
+        NodePredicate predicate = NodePredicate.ALL;
+        for (final NodePredicateFilter filter : filters) {
+            final NodePredicate current = filter.getPredicate(predicate);
+            final BitSet next = new BitSet(graph.getNodeIndexBound());
+            for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+                final Node node = iter.next();
+                final int index = graph.getNodeIndex(node);
+                if (accepted.get(index) && current.accept(node)) {
+                    next.set(index);
+                }
+            }
+            accepted = next;
+            predicate = new BitSetPredicate(graph, next);
+        }
+
+        final Set<Node> result = new LinkedHashSet<Node>();
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            if (accepted.get(graph.getNodeIndex(node))) {
+                result.add(node);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method getCacheKey.
+     * @return String
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getCacheKey()
+     */
+    @Override
+    protected final String getCacheKey() {
+        final List<String> keys = new ArrayList<String>(filters.size());
+        for (final NodePredicateFilter filter : filters) {
+            final String key = (filter instanceof AbstractGraphFilter)
+                    ? ((AbstractGraphFilter) filter).getCacheKey() : null;
+            if (key == null) {
+                return null;
+            }
+            keys.add(key);
+        }
+        return createCacheKey(keys.toArray());
+    }
+
+    /**
+     * Returns the names of the fused filters.
+     *
+     * @param filters the filters.
+     * @return the names.
+     */
+    private static String getNames(final List<NodePredicateFilter> filters) {
+        final List<String> names = new ArrayList<String>(filters.size());
+        for (final NodePredicateFilter filter : filters) {
+            names.add(filter.getName());
+        }
+        return names.toString();
+    }
+
+    /**
+     * Accepts the nodes whose index is set in a bitset.
+     *
+     * @author Christophe Labouisse
+     */
+    private static final class BitSetPredicate implements NodePredicate {
+        /**
+         * Field graph.
+         */
+        private final Graph graph;
+
+        /**
+         * Field accepted.
+         */
+        private final BitSet accepted;
+
+        /**
+         * Creates a new predicate.
+         *
+         * @param graph
+         *            the graph of the nodes.
+         * @param accepted
+         *            the indexes of the accepted nodes.
+         */
+        private BitSetPredicate(final Graph graph, final BitSet accepted) {
+            this.graph = graph;
+            this.accepted = accepted;
+        }
+
+        /**
+         * Method accept.
+         * @param node Node
+         * @return boolean
+         * @see net.ggtools.grand.filters.NodePredicate#accept(net.ggtools.grand.graph.Node)
+         */
+        public boolean accept(final Node node) {
+            final int index = graph.getNodeIndex(node);
+            return (index >= 0) && accepted.get(index);
+        }
+    }
+}
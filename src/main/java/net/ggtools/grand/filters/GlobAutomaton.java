@@ -0,0 +1,365 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of glob patterns compiled into a single automaton, matching a string
+ * against all the patterns in one pass. In the patterns, <code>*</code>
+ * matches any sequence of characters and <code>?</code> any single
+ * character, the other characters match themselves. A pattern has to match
+ * the whole string.
+ * <p>
+ * The patterns are turned into a nondeterministic automaton whose
+ * deterministic states are built lazily, when the strings being matched
+ * reach them. For patterns without wildcards the deterministic automaton is
+ * a trie of the patterns and for patterns like <code>*text*</code> it is
+ * the Aho-Corasick automaton of the texts. The estimated size of the cached
+ * states is bounded, the cache being flushed when it grows too big.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public final class GlobAutomaton {
+
+    /**
+     * A state of the deterministic automaton.
+     *
+     * @author Christophe Labouisse
+     */
+    private static final class State {
+        /**
+         * Field nfaStates.
+         */
+        private final BitSet nfaStates;
+
+        /**
+         * Field flags.
+         */
+        private final int flags;
+
+        /**
+         * Transitions for the ASCII characters.
+         */
+        private final State[] asciiTransitions = new State[ASCII_SIZE];
+
+        /**
+         * Transitions for the other characters, created on first use.
+         */
+        private Map<Character, State> otherTransitions;
+
+        /**
+         * Creates a new state.
+         *
+         * @param nfaStates the states of the nondeterministic automaton.
+         * @param flags the flags of the matched patterns.
+         */
+        private State(final BitSet nfaStates, final int flags) {
+            this.nfaStates = nfaStates;
+            this.flags = flags;
+        }
+    }
+
+    /**
+     * Number of characters with a transition table.
+     */
+    private static final int ASCII_SIZE = 128;
+
+    /**
+     * Default maximum estimated size of the cached states in bytes.
+     */
+    public static final long DEFAULT_MAX_CACHE_SIZE = 1024 * 1024;
+
+    /**
+     * Estimated size of a state without its set of nondeterministic states:
+     * the objects headers and the ASCII transition table.
+     */
+    private static final int STATE_OVERHEAD = 64 + (8 * ASCII_SIZE);
+
+    /**
+     * Estimated size of a transition for a non ASCII character.
+     */
+    private static final int OTHER_TRANSITION_SIZE = 64;
+
+    /**
+     * Token for <code>*</code>.
+     */
+    private static final int ANY_SEQUENCE = -1;
+
+    /**
+     * Token for <code>?</code>.
+     */
+    private static final int ANY_CHAR = -2;
+
+    /**
+     * Token marking the end of a pattern.
+     */
+    private static final int END = -3;
+
+    /**
+     * The token of each nondeterministic state, a character or one of
+     * {@link #ANY_SEQUENCE}, {@link #ANY_CHAR} and {@link #END}.
+     */
+    private final int[] tokens;
+
+    /**
+     * The flags of the pattern of each final state.
+     */
+    private final int[] finalFlags;
+
+    /**
+     * Field states.
+     */
+    private final Map<BitSet, State> states = new HashMap<BitSet, State>();
+
+    /**
+     * Field startStates.
+     */
+    private final BitSet startStates;
+
+    /**
+     * Field deadState.
+     */
+    private final State deadState = new State(new BitSet(), 0);
+
+    /**
+     * Field startState.
+     */
+    private State startState;
+
+    /**
+     * Field maxCacheSize.
+     */
+    private final long maxCacheSize;
+
+    /**
+     * Estimated size of the cached states.
+     */
+    private long cacheSize = 0;
+
+    /**
+     * Compiles a list of patterns.
+     *
+     * @param patterns
+     *            the glob patterns.
+     * @param flags
+     *            for each pattern, the flags returned by
+     *            {@link #match(CharSequence)} when it matches.
+     */
+    public GlobAutomaton(final List<String> patterns, final List<Integer> flags) {
+        this(patterns, flags, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * Compiles a list of patterns with a given bound on the cached states.
+     *
+     * @param patterns
+     *            the glob patterns.
+     * @param flags
+     *            for each pattern, the flags returned by
+     *            {@link #match(CharSequence)} when it matches.
+     * @param maxCacheSize
+     *            the maximum estimated size of the cached states in bytes.
+     */
+    public GlobAutomaton(final List<String> patterns, final List<Integer> flags,
+            final long maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+        int size = 0;
+        for (final String pattern : patterns) {
+            size += pattern.length() + 1;
+        }
+        tokens = new int[size];
+        finalFlags = new int[size];
+        startStates = new BitSet(size);
+
+        int state = 0;
+        for (int i = 0; i < patterns.size(); i++) {
+            final String pattern = patterns.get(i);
+            startStates.set(state);
+            for (int j = 0; j < pattern.length(); j++) {
+                final char c = pattern.charAt(j);
+                if (c == '*') {
+                    tokens[state++] = ANY_SEQUENCE;
+                } else if (c == '?') {
+                    tokens[state++] = ANY_CHAR;
+                } else {
+                    tokens[state++] = c;
+                }
+            }
+            finalFlags[state] = flags.get(i);
+            tokens[state++] = END;
+        }
+        states.put(deadState.nfaStates, deadState);
+        startState = getState(closure(startStates));
+    }
+
+    /**
+     * Matches a string against all the patterns.
+     *
+     * @param text
+     *            the string to match.
+     * @return the union of the flags of the matching patterns, 0 if none
+     *         matches.
+     */
+    public synchronized int match(final CharSequence text) {
+        State state = startState;
+        for (int i = 0; (i < text.length()) && (state != deadState); i++) {
+            state = next(state, text.charAt(i));
+        }
+        return state.flags;
+    }
+
+    /**
+     * Follows the transition of a state for a character, building the
+     * target state if needed.
+     *
+     * @param state
+     *            the state.
+     * @param c
+     *            the character.
+     * @return the next state.
+     */
+    private State next(final State state, final char c) {
+        State result;
+        if (c < ASCII_SIZE) {
+            result = state.asciiTransitions[c];
+        } else {
+            result = (state.otherTransitions == null) ? null
+                    : state.otherTransitions.get(c);
+        }
+
+        if (result == null) {
+            final BitSet target = new BitSet(tokens.length);
+            final BitSet source = state.nfaStates;
+            for (int s = source.nextSetBit(0); s >= 0; s = source.nextSetBit(s + 1)) {
+                final int token = tokens[s];
+                if (token == ANY_SEQUENCE) {
+                    target.set(s);
+                } else if ((token == ANY_CHAR) || (token == c)) {
+                    target.set(s + 1);
+                }
+            }
+            result = getState(closure(target));
+            if (c < ASCII_SIZE) {
+                state.asciiTransitions[c] = result;
+            } else {
+                if (state.otherTransitions == null) {
+                    state.otherTransitions = new HashMap<Character, State>();
+                }
+                state.otherTransitions.put(c, result);
+                cacheSize += OTHER_TRANSITION_SIZE;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds to a set of states the states following a <code>*</code>, which
+     * can be reached without reading any character.
+     *
+     * @param nfaStates
+     *            the states, updated in place.
+     * @return the states.
+     */
+    private BitSet closure(final BitSet nfaStates) {
+        for (int s = nfaStates.nextSetBit(0); s >= 0; s = nfaStates.nextSetBit(s + 1)) {
+            if (tokens[s] == ANY_SEQUENCE) {
+                nfaStates.set(s + 1);
+            }
+        }
+        return nfaStates;
+    }
+
+    /**
+     * Returns the cached deterministic state for a set of nondeterministic
+     * states, creating it if needed.
+     *
+     * @param nfaStates
+     *            the nondeterministic states.
+     * @return the deterministic state.
+     */
+    private State getState(final BitSet nfaStates) {
+        State state = states.get(nfaStates);
+        if (state == null) {
+            final long stateSize = getStateSize(nfaStates);
+            if ((cacheSize > 0) && (cacheSize + stateSize > maxCacheSize)) {
+                flush();
+            }
+            int flags = 0;
+            for (int s = nfaStates.nextSetBit(0); s >= 0; s = nfaStates.nextSetBit(s + 1)) {
+                if (tokens[s] == END) {
+                    flags |= finalFlags[s];
+                }
+            }
+            state = new State(nfaStates, flags);
+            states.put(nfaStates, state);
+            cacheSize += stateSize;
+        }
+        return state;
+    }
+
+    /**
+     * Returns the estimated size of the cached states.
+     *
+     * @return the size in bytes.
+     */
+    public synchronized long getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Estimates the size of a deterministic state.
+     *
+     * @param nfaStates
+     *            the nondeterministic states of the state.
+     * @return the size in bytes.
+     */
+    private static long getStateSize(final BitSet nfaStates) {
+        return STATE_OVERHEAD + (nfaStates.size() / 8);
+    }
+
+    /**
+     * Drops the cached states and starts over from a new start state. A
+     * state being used remains valid, its new transitions leading to the new
+     * states.
+     */
+    private void flush() {
+        states.clear();
+        cacheSize = 0;
+        states.put(deadState.nfaStates, deadState);
+        startState = getState(closure((BitSet) startStates.clone()));
+    }
+}
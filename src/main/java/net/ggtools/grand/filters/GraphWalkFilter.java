@@ -31,7 +31,10 @@
 
 package net.ggtools.grand.filters;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import net.ggtools.grand.exceptions.GrandException;
 import net.ggtools.grand.exceptions.NonExistentNodeException;
@@ -39,10 +42,16 @@ import net.ggtools.grand.graph.Graph;
 import net.ggtools.grand.graph.GraphCrawler;
 import net.ggtools.grand.graph.LinkFinder;
 import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.graph.NodeSet;
+import net.ggtools.grand.graph.ReachabilityIndex;
 
 /**
  * An abstract class implementing generic filtering from a graph walk.
  * Derived class need to implemented the getLinkFinder method.
+ * The walk can start from several nodes at once and can be limited to the
+ * nodes at most {@link #setMaxDepth(int) maxDepth} links away from them.
+ * When a {@link ReachabilityIndex} of the producer's graph is available,
+ * unbounded walks are answered from it instead of crawling the graph.
  *
  * @author Christophe Labouisse
  */
@@ -50,16 +59,39 @@ public abstract class GraphWalkFilter extends AbstractGraphFilter
     implements GraphFilter {
 
     /**
-     * Field startNodeName.
+     * Field startNodeNames.
      */
-    private final String startNodeName;
+    private final List<String> startNodeNames;
+
+    /**
+     * Field maxDepth.
+     */
+    private int maxDepth = GraphCrawler.UNLIMITED_DEPTH;
+
+    /**
+     * Field parallelThreshold.
+     */
+    private int parallelThreshold = GraphCrawler.DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * Field reachabilityIndex.
+     */
+    private ReachabilityIndex reachabilityIndex;
 
     /**
      * Creates a new filter.
      * @param nodeName node to search from.
      */
     protected GraphWalkFilter(final String nodeName) {
-        startNodeName = nodeName;
+        startNodeNames = Collections.singletonList(nodeName);
+    }
+
+    /**
+     * Creates a new filter walking from several nodes.
+     * @param nodeNames nodes to search from.
+     */
+    protected GraphWalkFilter(final Collection<String> nodeNames) {
+        startNodeNames = new ArrayList<String>(nodeNames);
     }
 
     /**
@@ -71,15 +103,115 @@ public abstract class GraphWalkFilter extends AbstractGraphFilter
     @Override
     protected final Collection<Node> getFilteredNodes() throws GrandException {
         final Graph graph = getProducersGraph();
-        final Node fromNode = graph.getNode(startNodeName);
+        final List<Node> fromNodes = new ArrayList<Node>(startNodeNames.size());
+        for (final String startNodeName : startNodeNames) {
+            final Node fromNode = graph.getNode(startNodeName);
 
-        if (fromNode == null) {
-            throw new NonExistentNodeException("Node " + startNodeName + " does not exist");
+            if (fromNode == null) {
+                throw new NonExistentNodeException("Node " + startNodeName + " does not exist");
+            }
+            fromNodes.add(fromNode);
+        }
+
+        if ((reachabilityIndex != null) && (reachabilityIndex.getGraph() == graph)
+                && (maxDepth == GraphCrawler.UNLIMITED_DEPTH)) {
+            final Collection<Node> indexed = getIndexedNodes(fromNodes);
+            if (indexed != null) {
+                return indexed;
+            }
         }
 
         final GraphCrawler crawler = new GraphCrawler(graph, getLinkFinder());
+        crawler.setParallelThreshold(parallelThreshold);
+
+        return crawler.crawl(fromNodes, maxDepth);
+    }
 
-        return crawler.crawl(fromNode);
+    /**
+     * Method getCacheKey.
+     * @return String
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getCacheKey()
+     */
+    @Override
+    protected final String getCacheKey() {
+        final List<Object> parameters = new ArrayList<Object>(startNodeNames.size() + 1);
+        parameters.add(maxDepth);
+        parameters.addAll(startNodeNames);
+        return createCacheKey(parameters.toArray());
+    }
+
+    /**
+     * Looks up the walked nodes in the reachability index.
+     *
+     * @param fromNodes the start nodes.
+     * @return the walked nodes or <code>null</code> if the index cannot
+     *         answer.
+     */
+    private Collection<Node> getIndexedNodes(final List<Node> fromNodes) {
+        NodeSet result = null;
+        for (final Node fromNode : fromNodes) {
+            final NodeSet reachable = getReachableNodes(reachabilityIndex, fromNode);
+            if (reachable == null) {
+                return null;
+            }
+            result = (result == null) ? reachable : result.or(reachable);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the nodes a walk from a node would yield using a reachability
+     * index. The default implementation returns <code>null</code> meaning
+     * the index cannot be used and the graph should be crawled.
+     *
+     * @param index the reachability index of the producer's graph.
+     * @param node the start node.
+     * @return the walked nodes including <code>node</code> or
+     *         <code>null</code>.
+     */
+    protected NodeSet getReachableNodes(final ReachabilityIndex index, final Node node) {
+        return null;
+    }
+
+    /**
+     * Returns the names of the nodes the walk starts from.
+     *
+     * @return an unmodifiable list of node names.
+     */
+    public final List<String> getStartNodeNames() {
+        return Collections.unmodifiableList(startNodeNames);
+    }
+
+    /**
+     * Sets a reachability index to use instead of walking the graph. The
+     * index is only used when it has been built on the producer's graph and
+     * the walk depth is not limited.
+     *
+     * @param index the index, <code>null</code> to always walk the graph.
+     */
+    public final void setReachabilityIndex(final ReachabilityIndex index) {
+        reachabilityIndex = index;
+    }
+
+    /**
+     * Limits the walk to the nodes at most <code>depth</code> links away from
+     * the start nodes. Defaults to {@link GraphCrawler#UNLIMITED_DEPTH}.
+     *
+     * @param depth the maximum number of links to follow.
+     */
+    public final void setMaxDepth(final int depth) {
+        maxDepth = depth;
+    }
+
+    /**
+     * Sets the minimal number of nodes for the graph to be walked by several
+     * threads.
+     *
+     * @param threshold the minimal number of nodes.
+     * @see GraphCrawler#setParallelThreshold(int)
+     */
+    public final void setParallelThreshold(final int threshold) {
+        parallelThreshold = threshold;
     }
 
     /**
@@ -38,6 +38,7 @@ import java.util.Set;
 
 import net.ggtools.grand.exceptions.GrandException;
 import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.Link;
 import net.ggtools.grand.graph.Node;
 
 /**
@@ -46,7 +47,7 @@ import net.ggtools.grand.graph.Node;
  * @author Christophe Labouisse
  */
 public class IsolatedNodeFilter extends AbstractGraphFilter
-    implements GraphFilter {
+    implements NodePredicateFilter {
 
     /**
      * Method getFilteredNodes.
@@ -70,4 +71,37 @@ public class IsolatedNodeFilter extends AbstractGraphFilter
         return result;
     }
 
+    /**
+     * Method getCacheKey.
+     * @return String
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getCacheKey()
+     */
+    @Override
+    protected final String getCacheKey() {
+        return createCacheKey();
+    }
+
+    /**
+     * Method getPredicate.
+     * @param previous NodePredicate
+     * @return NodePredicate
+     * @see net.ggtools.grand.filters.NodePredicateFilter#getPredicate(NodePredicate)
+     */
+    public final NodePredicate getPredicate(final NodePredicate previous) {
+        return new NodePredicate() {
+            public boolean accept(final Node node) {
+                for (final Link link : node.getLinks()) {
+                    if (previous.accept(link.getEndNode())) {
+                        return true;
+                    }
+                }
+                for (final Link link : node.getBackLinks()) {
+                    if (previous.accept(link.getStartNode())) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
 }
@@ -0,0 +1,372 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import net.ggtools.grand.ant.AntTargetNode;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.FilteredGraphView;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.Node;
+
+/**
+ * A filter keeping the nodes matching include patterns and not matching
+ * exclude patterns. All the nodes are included when there is no include
+ * pattern.
+ * <p>
+ * Patterns are globs, where <code>*</code> matches any sequence of
+ * characters and <code>?</code> any character, matching the whole node
+ * name. Patterns starting with {@value #REGEX_PREFIX} are regular
+ * expressions. Patterns starting with {@value #FILE_PREFIX} match the build
+ * file of the targets coming from another build file instead of the node
+ * name, for instance <code>file:*&#47;common/*.xml</code> or
+ * <code>file:regex:.*-legacy\.xml</code>.
+ * </p>
+ * <p>
+ * The globs are compiled into a single {@link GlobAutomaton} and the regular
+ * expressions into a single alternative so each node name is only read once
+ * whatever the number of patterns.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public class NodePatternFilter extends AbstractGraphFilter
+    implements NodePredicateFilter {
+
+    /**
+     * The patterns on a node property, the name or the build file.
+     *
+     * @author Christophe Labouisse
+     */
+    private static final class PropertyPatterns {
+        /**
+         * Field globs.
+         */
+        private final List<String> globs = new ArrayList<String>();
+
+        /**
+         * Field globFlags.
+         */
+        private final List<Integer> globFlags = new ArrayList<Integer>();
+
+        /**
+         * Field includeRegexes.
+         */
+        private final List<String> includeRegexes = new ArrayList<String>();
+
+        /**
+         * Field excludeRegexes.
+         */
+        private final List<String> excludeRegexes = new ArrayList<String>();
+
+        /**
+         * Field automaton.
+         */
+        private GlobAutomaton automaton;
+
+        /**
+         * Field includeRegex.
+         */
+        private Pattern includeRegex;
+
+        /**
+         * Field excludeRegex.
+         */
+        private Pattern excludeRegex;
+
+        /**
+         * Adds a pattern.
+         *
+         * @param pattern the pattern without the property prefix.
+         * @param flag {@link NodePatternFilter#INCLUDE} or
+         *            {@link NodePatternFilter#EXCLUDE}.
+         */
+        private void add(final String pattern, final int flag) {
+            if (pattern.startsWith(REGEX_PREFIX)) {
+                final String regex = pattern.substring(REGEX_PREFIX.length());
+                // Fails early on invalid expressions.
+                Pattern.compile(regex);
+                (flag == INCLUDE ? includeRegexes : excludeRegexes).add(regex);
+            } else {
+                globs.add(pattern);
+                globFlags.add(flag);
+            }
+        }
+
+        /**
+         * Compiles the patterns.
+         */
+        private void compile() {
+            if (!globs.isEmpty()) {
+                automaton = new GlobAutomaton(globs, globFlags);
+            }
+            includeRegex = compile(includeRegexes);
+            excludeRegex = compile(excludeRegexes);
+        }
+
+        /**
+         * Tells if there is any pattern.
+         *
+         * @return <code>true</code> if there is no pattern.
+         */
+        private boolean isEmpty() {
+            return globs.isEmpty() && includeRegexes.isEmpty()
+                    && excludeRegexes.isEmpty();
+        }
+
+        /**
+         * Matches a value against the patterns.
+         *
+         * @param value the value.
+         * @return the union of the flags of the matching patterns.
+         */
+        private int match(final String value) {
+            int flags = (automaton == null) ? 0 : automaton.match(value);
+            if (((flags & EXCLUDE) == 0) && (excludeRegex != null)
+                    && excludeRegex.matcher(value).matches()) {
+                flags |= EXCLUDE;
+            }
+            if (((flags & (INCLUDE | EXCLUDE)) == 0) && (includeRegex != null)
+                    && includeRegex.matcher(value).matches()) {
+                flags |= INCLUDE;
+            }
+            return flags;
+        }
+
+        /**
+         * Compiles regular expressions into a single one.
+         *
+         * @param regexes the regular expressions.
+         * @return the compiled expression or <code>null</code> if there is
+         *         none.
+         */
+        private static Pattern compile(final List<String> regexes) {
+            if (regexes.isEmpty()) {
+                return null;
+            }
+            final StringBuilder alternative = new StringBuilder();
+            for (final String regex : regexes) {
+                if (alternative.length() > 0) {
+                    alternative.append('|');
+                }
+                alternative.append("(?:").append(regex).append(')');
+            }
+            return Pattern.compile(alternative.toString());
+        }
+    }
+
+    /**
+     * Prefix of the patterns matching the build file of the nodes.
+     */
+    public static final String FILE_PREFIX = "file:";
+
+    /**
+     * Prefix of the regular expression patterns.
+     */
+    public static final String REGEX_PREFIX = "regex:";
+
+    /**
+     * Flag of the include patterns.
+     */
+    private static final int INCLUDE = 1;
+
+    /**
+     * Flag of the exclude patterns.
+     */
+    private static final int EXCLUDE = 2;
+
+    /**
+     * Field includes.
+     */
+    private final List<String> includes;
+
+    /**
+     * Field excludes.
+     */
+    private final List<String> excludes;
+
+    /**
+     * Field namePatterns.
+     */
+    private final PropertyPatterns namePatterns = new PropertyPatterns();
+
+    /**
+     * Field filePatterns.
+     */
+    private final PropertyPatterns filePatterns = new PropertyPatterns();
+
+    /**
+     * Creates a new filter.
+     *
+     * @param includes
+     *            the patterns of the nodes to keep, all the nodes are kept
+     *            if empty.
+     * @param excludes
+     *            the patterns of the nodes to remove.
+     * @throws java.util.regex.PatternSyntaxException
+     *             if a regular expression is not valid.
+     */
+    public NodePatternFilter(final Collection<String> includes,
+            final Collection<String> excludes) {
+        super("Node patterns");
+        this.includes = new ArrayList<String>(includes);
+        this.excludes = new ArrayList<String>(excludes);
+        for (final String pattern : includes) {
+            addPattern(pattern, INCLUDE);
+        }
+        for (final String pattern : excludes) {
+            addPattern(pattern, EXCLUDE);
+        }
+        namePatterns.compile();
+        filePatterns.compile();
+    }
+
+    /**
+     * Returns the include patterns.
+     *
+     * @return an unmodifiable list of patterns.
+     */
+    public final List<String> getIncludes() {
+        return Collections.unmodifiableList(includes);
+    }
+
+    /**
+     * Returns the exclude patterns.
+     *
+     * @return an unmodifiable list of patterns.
+     */
+    public final List<String> getExcludes() {
+        return Collections.unmodifiableList(excludes);
+    }
+
+    /**
+     * Tells if a node passes the filter.
+     *
+     * @param node the node.
+     * @return <code>true</code> if the node is kept.
+     */
+    public final boolean accept(final Node node) {
+        int flags = namePatterns.match(node.getName());
+        if (((flags & EXCLUDE) == 0) && !filePatterns.isEmpty()) {
+            final String buildFile = getBuildFile(node);
+            if (buildFile != null) {
+                flags |= filePatterns.match(buildFile);
+            }
+        }
+        return ((flags & EXCLUDE) == 0)
+                && (includes.isEmpty() || ((flags & INCLUDE) != 0));
+    }
+
+    /**
+     * Method getFilteredNodes.
+     * @return Collection&lt;Node&gt;
+     * @throws GrandException if an error occurs in getProducersGraph()
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getFilteredNodes()
+     */
+    @Override
+    protected final Collection<Node> getFilteredNodes() throws GrandException {
+        final Graph graph = getProducersGraph();
+        final Set<Node> result = new LinkedHashSet<Node>();
+
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+
+            if (accept(node)) {
+                result.add(node);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Method getCacheKey.
+     * @return String
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getCacheKey()
+     */
+    @Override
+    protected final String getCacheKey() {
+        final List<Object> parameters = new ArrayList<Object>();
+        parameters.add(includes.size());
+        parameters.addAll(includes);
+        parameters.addAll(excludes);
+        return createCacheKey(parameters.toArray());
+    }
+
+    /**
+     * Method getPredicate.
+     * @param previous NodePredicate
+     * @return NodePredicate
+     * @see net.ggtools.grand.filters.NodePredicateFilter#getPredicate(NodePredicate)
+     */
+    public final NodePredicate getPredicate(final NodePredicate previous) {
+        return new NodePredicate() {
+            public boolean accept(final Node node) {
+                return NodePatternFilter.this.accept(node);
+            }
+        };
+    }
+
+    /**
+     * Adds a pattern to the name or file patterns.
+     *
+     * @param pattern the pattern.
+     * @param flag {@link #INCLUDE} or {@link #EXCLUDE}.
+     */
+    private void addPattern(final String pattern, final int flag) {
+        if (pattern.startsWith(FILE_PREFIX)) {
+            filePatterns.add(pattern.substring(FILE_PREFIX.length()), flag);
+        } else {
+            namePatterns.add(pattern, flag);
+        }
+    }
+
+    /**
+     * Returns the build file of a target coming from another build file.
+     *
+     * @param node the node.
+     * @return the build file or <code>null</code>.
+     */
+    private static String getBuildFile(final Node node) {
+        final Node baseNode = FilteredGraphView.unwrap(node);
+        return (baseNode instanceof AntTargetNode)
+                ? ((AntTargetNode) baseNode).getBuildFile() : null;
+    }
+}
@@ -28,10 +28,12 @@
 package net.ggtools.grand.filters;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 import net.ggtools.grand.exceptions.GrandException;
 import net.ggtools.grand.graph.Graph;
@@ -45,7 +47,8 @@ import org.apache.commons.logging.Log;
  *
  * @author Christophe Labouisse
  */
-public class NodeRemoverFilter extends AbstractGraphFilter {
+public class NodeRemoverFilter extends AbstractGraphFilter
+    implements NodePredicateFilter {
     /**
      * Field log.
      */
@@ -66,6 +69,15 @@ public class NodeRemoverFilter extends AbstractGraphFilter {
         this.nodesToRemove = new HashSet<String>(nodesToRemove);
     }
 
+    /**
+     * Returns the names of the nodes removed by this filter.
+     *
+     * @return an unmodifiable set of node names.
+     */
+    public final Set<String> getNodesToRemove() {
+        return Collections.unmodifiableSet(nodesToRemove);
+    }
+
     /**
      * Method getFilteredNodes.
      * @return Collection&lt;Node&gt;
@@ -91,4 +103,27 @@ public class NodeRemoverFilter extends AbstractGraphFilter {
         return result;
     }
 
+    /**
+     * Method getCacheKey.
+     * @return String
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getCacheKey()
+     */
+    @Override
+    protected final String getCacheKey() {
+        return createCacheKey(new TreeSet<String>(nodesToRemove).toArray());
+    }
+
+    /**
+     * Method getPredicate.
+     * @param previous NodePredicate
+     * @return NodePredicate
+     * @see net.ggtools.grand.filters.NodePredicateFilter#getPredicate(NodePredicate)
+     */
+    public final NodePredicate getPredicate(final NodePredicate previous) {
+        return new NodePredicate() {
+            public boolean accept(final Node node) {
+                return !nodesToRemove.contains(node.getName());
+            }
+        };
+    }
 }
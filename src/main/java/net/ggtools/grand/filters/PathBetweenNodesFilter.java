@@ -0,0 +1,202 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.exceptions.NonExistentNodeException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.Link;
+import net.ggtools.grand.graph.Node;
+
+/**
+ * A filter keeping the nodes lying on a path from a node to another one,
+ * that is the nodes both reachable from the first node and leading to the
+ * second one. Optionally only the nodes on the shortest paths are kept.
+ *
+ * @author Christophe Labouisse
+ */
+public class PathBetweenNodesFilter extends AbstractGraphFilter
+    implements GraphFilter {
+
+    /**
+     * Field fromNodeName.
+     */
+    private final String fromNodeName;
+
+    /**
+     * Field toNodeName.
+     */
+    private final String toNodeName;
+
+    /**
+     * Field shortestOnly.
+     */
+    private final boolean shortestOnly;
+
+    /**
+     * Creates a new filter keeping all the paths.
+     *
+     * @param fromNodeName
+     *            name of the node the paths start from.
+     * @param toNodeName
+     *            name of the node the paths lead to.
+     */
+    public PathBetweenNodesFilter(final String fromNodeName,
+            final String toNodeName) {
+        this(fromNodeName, toNodeName, false);
+    }
+
+    /**
+     * Creates a new filter.
+     *
+     * @param fromNodeName
+     *            name of the node the paths start from.
+     * @param toNodeName
+     *            name of the node the paths lead to.
+     * @param shortestOnly
+     *            <code>true</code> to keep only the shortest paths.
+     */
+    public PathBetweenNodesFilter(final String fromNodeName,
+            final String toNodeName, final boolean shortestOnly) {
+        super("Path between nodes");
+        this.fromNodeName = fromNodeName;
+        this.toNodeName = toNodeName;
+        this.shortestOnly = shortestOnly;
+    }
+
+    /**
+     * Method getFilteredNodes.
+     * @return Collection&lt;Node&gt;
+     * @throws GrandException if an error occurs in getProducersGraph() or if
+     *             a node does not exist
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getFilteredNodes()
+     */
+    @Override
+    protected final Collection<Node> getFilteredNodes() throws GrandException {
+        final Graph graph = getProducersGraph();
+        final Node fromNode = getNode(graph, fromNodeName);
+        final Node toNode = getNode(graph, toNodeName);
+
+        final int bound = graph.getNodeIndexBound();
+        final int[] fromDistances = shortestOnly ? new int[bound] : null;
+        final int[] toDistances = shortestOnly ? new int[bound] : null;
+        final BitSet onPath = walk(graph, fromNode, true, fromDistances);
+        onPath.and(walk(graph, toNode, false, toDistances));
+
+        final List<Node> result = new ArrayList<Node>(onPath.cardinality());
+        if (onPath.isEmpty()) {
+            return result;
+        }
+        final int length = shortestOnly
+                ? fromDistances[graph.getNodeIndex(toNode)] : 0;
+        for (int i = onPath.nextSetBit(0); i >= 0; i = onPath.nextSetBit(i + 1)) {
+            if (!shortestOnly || (fromDistances[i] + toDistances[i] == length)) {
+                result.add(graph.getNodeByIndex(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method getCacheKey.
+     * @return String
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getCacheKey()
+     */
+    @Override
+    protected final String getCacheKey() {
+        return createCacheKey(fromNodeName, toNodeName, shortestOnly);
+    }
+
+    /**
+     * Walks the graph breadth first from a node.
+     *
+     * @param graph the graph.
+     * @param start the start node.
+     * @param forward <code>true</code> to follow the links, <code>false</code>
+     *            to follow them backward.
+     * @param distances if not <code>null</code>, receives the number of links
+     *            between the start node and each reached node.
+     * @return the indexes of the reached nodes.
+     */
+    private static BitSet walk(final Graph graph, final Node start,
+            final boolean forward, final int[] distances) {
+        final BitSet reached = new BitSet(graph.getNodeIndexBound());
+        final int[] queue = new int[graph.getNodeIndexBound()];
+        int head = 0;
+        int tail = 0;
+        final int startIndex = graph.getNodeIndex(start);
+        reached.set(startIndex);
+        queue[tail++] = startIndex;
+        if (distances != null) {
+            distances[startIndex] = 0;
+        }
+
+        while (head < tail) {
+            final int index = queue[head++];
+            final Node node = graph.getNodeByIndex(index);
+            for (final Link link : forward ? node.getLinks() : node.getBackLinks()) {
+                final int next = graph.getNodeIndex(forward ? link.getEndNode()
+                        : link.getStartNode());
+                if ((next >= 0) && !reached.get(next)) {
+                    reached.set(next);
+                    queue[tail++] = next;
+                    if (distances != null) {
+                        distances[next] = distances[index] + 1;
+                    }
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Returns a named node.
+     *
+     * @param graph the graph.
+     * @param name the node name.
+     * @return the node.
+     * @throws NonExistentNodeException if the node does not exist.
+     */
+    private static Node getNode(final Graph graph, final String name)
+            throws NonExistentNodeException {
+        final Node node = graph.getNode(name);
+        if (node == null) {
+            throw new NonExistentNodeException("Node " + name + " does not exist");
+        }
+        return node;
+    }
+}
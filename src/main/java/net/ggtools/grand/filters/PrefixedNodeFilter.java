@@ -32,12 +32,8 @@
 package net.ggtools.grand.filters;
 
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.Set;
 
 import net.ggtools.grand.exceptions.GrandException;
-import net.ggtools.grand.graph.Graph;
 import net.ggtools.grand.graph.Node;
 
 /**
@@ -47,7 +43,7 @@ import net.ggtools.grand.graph.Node;
  * @author Christophe Labouisse
  */
 public class PrefixedNodeFilter extends AbstractGraphFilter
-    implements GraphFilter {
+    implements NodePredicateFilter {
 
     /**
      * Method getFilteredNodes.
@@ -57,18 +53,30 @@ public class PrefixedNodeFilter extends AbstractGraphFilter
      */
     @Override
     protected final Collection<Node> getFilteredNodes() throws GrandException {
-        final Graph graph = getProducersGraph();
-        final Set<Node> result = new LinkedHashSet<Node>();
+        return getProducersGraph().getNodesWithoutAttributes(Node.ATTR_PREFIXED_NODE);
+    }
 
-        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
-            final Node node = iter.next();
+    /**
+     * Method getCacheKey.
+     * @return String
+     * @see net.ggtools.grand.filters.AbstractGraphFilter#getCacheKey()
+     */
+    @Override
+    protected final String getCacheKey() {
+        return createCacheKey();
+    }
 
-            if (!node.hasAttributes(Node.ATTR_PREFIXED_NODE)) {
-                result.add(node);
+    /**
+     * Method getPredicate.
+     * @param previous NodePredicate
+     * @return NodePredicate
+     * @see net.ggtools.grand.filters.NodePredicateFilter#getPredicate(NodePredicate)
+     */
+    public final NodePredicate getPredicate(final NodePredicate previous) {
+        return new NodePredicate() {
+            public boolean accept(final Node node) {
+                return !node.hasAttributes(Node.ATTR_PREFIXED_NODE);
             }
-        }
-
-        return result;
+        };
     }
-
 }
@@ -31,8 +31,13 @@
 
 package net.ggtools.grand.filters;
 
+import java.util.Collection;
+
 import net.ggtools.grand.graph.BackwardLinkFinder;
 import net.ggtools.grand.graph.LinkFinder;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.graph.NodeSet;
+import net.ggtools.grand.graph.ReachabilityIndex;
 
 /**
  * A graph filter returning all the nodes accessible from a specific node
@@ -56,6 +61,14 @@ public class ToNodeFilter extends GraphWalkFilter {
         super(nodeName);
     }
 
+    /**
+     * Creates a new filter walking from several nodes.
+     * @param nodeNames nodes to start from.
+     */
+    public ToNodeFilter(final Collection<String> nodeNames) {
+        super(nodeNames);
+    }
+
     /**
      * Method getLinkFinder.
      * @return LinkFinder
@@ -66,4 +79,15 @@ public class ToNodeFilter extends GraphWalkFilter {
         return linkFinder;
     }
 
+    /**
+     * Returns the ancestors of the node from the index.
+     * @param index the reachability index.
+     * @param node the start node.
+     * @return NodeSet
+     * @see net.ggtools.grand.filters.GraphWalkFilter#getReachableNodes(ReachabilityIndex, Node)
+     */
+    @Override
+    protected final NodeSet getReachableNodes(final ReachabilityIndex index, final Node node) {
+        return index.getAncestors(node);
+    }
 }
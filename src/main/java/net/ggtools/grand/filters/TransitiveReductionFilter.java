@@ -0,0 +1,134 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import java.util.List;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.FilteredGraphView;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphImpl;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.Link;
+import net.ggtools.grand.graph.TransitiveReduction;
+import net.ggtools.grand.log.LoggerManager;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * A filter removing the links implied by other paths, keeping all the nodes.
+ * Large graphs with less links are much faster to lay out. For
+ * {@link GraphImpl}s and {@link FilteredGraphView}s the links are hidden by
+ * a new view, other graph implementations are modified in place.
+ *
+ * @author Christophe Labouisse
+ * @see TransitiveReduction
+ */
+public class TransitiveReductionFilter implements GraphFilter {
+    /**
+     * Field log.
+     */
+    private static final Log LOG = LoggerManager.getLog(TransitiveReductionFilter.class);
+
+    /**
+     * Field includeWeakLinks.
+     */
+    private final boolean includeWeakLinks;
+
+    /**
+     * Field producer.
+     */
+    private GraphProducer producer;
+
+    /**
+     * Creates a new filter only reducing regular links.
+     */
+    public TransitiveReductionFilter() {
+        this(false);
+    }
+
+    /**
+     * Creates a new filter.
+     *
+     * @param includeWeakLinks
+     *            <code>true</code> to reduce weak links as well, otherwise
+     *            they are kept and do not imply other links.
+     */
+    public TransitiveReductionFilter(final boolean includeWeakLinks) {
+        this.includeWeakLinks = includeWeakLinks;
+    }
+
+    /**
+     * Method getGraph.
+     * @return Graph
+     * @throws GrandException if the producer cannot create the graph
+     * @see net.ggtools.grand.graph.GraphProducer#getGraph()
+     */
+    public final Graph getGraph() throws GrandException {
+        final Graph graph = producer.getGraph();
+        if (graph == null) {
+            return null;
+        }
+
+        final List<Link> redundantLinks =
+                new TransitiveReduction(graph, includeWeakLinks).getRedundantLinks();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Removing " + redundantLinks.size() + " redundant links");
+        }
+        if ((graph instanceof FilteredGraphView) || (graph instanceof GraphImpl)) {
+            return FilteredGraphView.hideLinks(graph, redundantLinks);
+        }
+        for (final Link link : redundantLinks) {
+            link.getStartNode().removeLink(link);
+            link.getEndNode().removeBackLink(link);
+        }
+        return graph;
+    }
+
+    /**
+     * Method getName.
+     * @return String
+     * @see net.ggtools.grand.filters.GraphFilter#getName()
+     */
+    public final String getName() {
+        return "Transitive reduction";
+    }
+
+    /**
+     * Method setProducer.
+     * @param producer GraphProducer
+     * @see net.ggtools.grand.graph.GraphConsumer#setProducer(net.ggtools.grand.graph.GraphProducer)
+     */
+    public final void setProducer(final GraphProducer producer) {
+        this.producer = producer;
+    }
+}
@@ -0,0 +1,173 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.BitSet;
+
+/**
+ * Keeps one {@link BitSet} per attribute bit telling which graph objects have
+ * the attribute set. The objects are identified by a dense index given by
+ * their owner graph. Attribute queries can then be made with word parallel
+ * bitset operations rather than by checking each object.
+ *
+ * @author Christophe Labouisse
+ */
+final class AttributeIndex {
+    /**
+     * Objects currently in the index.
+     */
+    private final BitSet live = new BitSet();
+
+    /**
+     * Field attributeBits, lazily populated.
+     */
+    private final BitSet[] attributeBits = new BitSet[Integer.SIZE];
+
+    /**
+     * Adds an object to the index.
+     *
+     * @param objectIndex
+     *            index of the object.
+     * @param attributes
+     *            current attributes of the object.
+     */
+    void add(final int objectIndex, final int attributes) {
+        live.set(objectIndex);
+        update(objectIndex, GraphObject.ATTR_NONE, attributes);
+    }
+
+    /**
+     * Removes an object from the index.
+     *
+     * @param objectIndex
+     *            index of the object.
+     * @param attributes
+     *            current attributes of the object.
+     */
+    void remove(final int objectIndex, final int attributes) {
+        update(objectIndex, attributes, GraphObject.ATTR_NONE);
+        live.clear(objectIndex);
+    }
+
+    /**
+     * Tells if an object is in the index.
+     *
+     * @param objectIndex
+     *            index of the object.
+     * @return <code>true</code> if the object has been added and not removed.
+     */
+    boolean contains(final int objectIndex) {
+        return live.get(objectIndex);
+    }
+
+    /**
+     * Returns the first object in the index whose index is greater or equal to
+     * <code>fromIndex</code>.
+     *
+     * @param fromIndex
+     *            the index to start from.
+     * @return the index of the object or -1 if there is none.
+     */
+    int nextMember(final int fromIndex) {
+        return live.nextSetBit(fromIndex);
+    }
+
+    /**
+     * Updates the index after a change in the attributes of an object. The
+     * call is ignored if the object is not in the index.
+     *
+     * @param objectIndex
+     *            index of the object.
+     * @param oldAttributes
+     *            attributes before the change.
+     * @param newAttributes
+     *            attributes after the change.
+     */
+    void update(final int objectIndex, final int oldAttributes,
+            final int newAttributes) {
+        if (!live.get(objectIndex)) {
+            return;
+        }
+        int changed = oldAttributes ^ newAttributes;
+        while (changed != 0) {
+            final int bit = Integer.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
+            if ((newAttributes & (1 << bit)) != 0) {
+                if (attributeBits[bit] == null) {
+                    attributeBits[bit] = new BitSet();
+                }
+                attributeBits[bit].set(objectIndex);
+            } else if (attributeBits[bit] != null) {
+                attributeBits[bit].clear(objectIndex);
+            }
+        }
+    }
+
+    /**
+     * Returns the objects having all the attributes of a mask.
+     *
+     * @param attributeMask
+     *            the attributes to look for.
+     * @return a new bitset of object indexes.
+     */
+    BitSet withAttributes(final int attributeMask) {
+        final BitSet result = (BitSet) live.clone();
+        int mask = attributeMask;
+        while (mask != 0) {
+            final int bit = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            if (attributeBits[bit] == null) {
+                result.clear();
+                break;
+            }
+            result.and(attributeBits[bit]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the objects having none of the attributes of a mask.
+     *
+     * @param attributeMask
+     *            the attributes to look for.
+     * @return a new bitset of object indexes.
+     */
+    BitSet withoutAttributes(final int attributeMask) {
+        final BitSet result = (BitSet) live.clone();
+        int mask = attributeMask;
+        while (mask != 0) {
+            final int bit = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            if (attributeBits[bit] != null) {
+                result.andNot(attributeBits[bit]);
+            }
+        }
+        return result;
+    }
+}
@@ -49,7 +49,12 @@ abstract class AttributeManager implements GraphObject {
      * @see net.ggtools.grand.graph.GraphObject#setAttributes(int)
      */
     public void setAttributes(final int attributeMask) {
+        checkWritable();
+        final int oldAttributes = attributes;
         attributes |= attributeMask;
+        if (attributes != oldAttributes) {
+            attributesChanged(oldAttributes, attributes);
+        }
     }
 
     /**
@@ -67,7 +72,12 @@ abstract class AttributeManager implements GraphObject {
      * @see net.ggtools.grand.graph.GraphObject#clearAttributes(int)
      */
     public void clearAttributes(final int attributeMask) {
+        checkWritable();
+        final int oldAttributes = attributes;
         attributes &= ~attributeMask;
+        if (attributes != oldAttributes) {
+            attributesChanged(oldAttributes, attributes);
+        }
     }
 
     /**
@@ -80,4 +90,24 @@ abstract class AttributeManager implements GraphObject {
         return (attributes & attributeMask) == attributeMask;
     }
 
+    /**
+     * Called before changing the attributes. The default implementation does
+     * nothing, subclasses may throw an exception to prevent the change.
+     */
+    protected void checkWritable() {
+    }
+
+    /**
+     * Called after the attributes have been changed. The default
+     * implementation does nothing.
+     *
+     * @param oldAttributes
+     *            attributes before the change.
+     * @param newAttributes
+     *            attributes after the change.
+     */
+    protected void attributesChanged(final int oldAttributes,
+            final int newAttributes) {
+    }
+
 }
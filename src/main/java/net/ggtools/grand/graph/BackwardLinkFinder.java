@@ -40,7 +40,7 @@ import java.util.Set;
  *
  * @author Christophe Labouisse
  */
-public class BackwardLinkFinder implements LinkFinder {
+public class BackwardLinkFinder implements StreamingLinkFinder {
 
     /**
      * Method getLinks.
@@ -49,15 +49,25 @@ public class BackwardLinkFinder implements LinkFinder {
      * @see net.ggtools.grand.graph.LinkFinder#getLinks(net.ggtools.grand.graph.Node)
      */
     public final Collection<Node> getLinks(final Node node) {
-        final Collection<Link> links = node.getBackLinks();
-
         final Set<Node> result = new LinkedHashSet<Node>();
-
-        for (Link link : links) {
-            result.add(link.getStartNode());
-        }
-
+        forEachNeighbour(node, new NodeCollector(result));
         return result;
     }
 
+    /**
+     * Method forEachNeighbour.
+     * @param node Node
+     * @param consumer NodeConsumer
+     * @return boolean
+     * @see net.ggtools.grand.graph.StreamingLinkFinder#forEachNeighbour(net.ggtools.grand.graph.Node, net.ggtools.grand.graph.NodeConsumer)
+     */
+    public final boolean forEachNeighbour(final Node node,
+            final NodeConsumer consumer) {
+        for (Link link : node.getBackLinks()) {
+            if (!consumer.accept(link.getStartNode())) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,719 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Link storage shared by all the nodes of a compact graph. Rather than having
+ * each node holding two hash sets of links, the store keeps the links in a
+ * single array and indexes them by start and end node using CSR (compressed
+ * sparse row) style <code>int</code> arrays. The per node link collections
+ * are lightweight views created on demand.
+ * <p>
+ * Links added after the last build of the CSR index go to a delta buffer:
+ * each node chains its newer links in insertion order and the views walk
+ * the CSR slice first and the chain afterwards. Adding a link is thus cheap
+ * whatever the number of reads in between, and only {@link #buildIndex()}
+ * pays for a full rebuild. Removed links are only marked as dead and skipped
+ * by the views until that rebuild.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+final class CompactLinkStore {
+    /**
+     * A view on the links starting from or ending to a specific node.
+     *
+     * @author Christophe Labouisse
+     */
+    private final class LinkView extends AbstractCollection<Link> {
+        /**
+         * Field forward.
+         */
+        private final boolean forward;
+
+        /**
+         * Field nodeIndex.
+         */
+        private final int nodeIndex;
+
+        /**
+         * Creates a new view.
+         *
+         * @param nodeIndex
+         *            index of the node.
+         * @param forward
+         *            <code>true</code> for the links starting from the node,
+         *            <code>false</code> for the links ending to it.
+         */
+        private LinkView(final int nodeIndex, final boolean forward) {
+            this.nodeIndex = nodeIndex;
+            this.forward = forward;
+        }
+
+        /**
+         * Method add.
+         * @param link Link
+         * @return boolean
+         * @see java.util.AbstractCollection#add(java.lang.Object)
+         */
+        @Override
+        public boolean add(final Link link) {
+            return addLink(link);
+        }
+
+        /**
+         * Method contains.
+         * @param obj Object
+         * @return boolean
+         * @see java.util.AbstractCollection#contains(java.lang.Object)
+         */
+        @Override
+        public boolean contains(final Object obj) {
+            if (!(obj instanceof Link)) {
+                return false;
+            }
+            final int slot = slotOf((Link) obj);
+            if (slot < 0) {
+                return false;
+            }
+            return (forward ? startIndexes[slot] : endIndexes[slot]) == nodeIndex;
+        }
+
+        /**
+         * Method iterator.
+         * @return Iterator&lt;Link&gt;
+         * @see java.util.AbstractCollection#iterator()
+         */
+        @Override
+        public Iterator<Link> iterator() {
+            return new LinkIterator(nodeIndex, forward);
+        }
+
+        /**
+         * Method remove.
+         * @param obj Object
+         * @return boolean
+         * @see java.util.AbstractCollection#remove(java.lang.Object)
+         */
+        @Override
+        public boolean remove(final Object obj) {
+            return contains(obj) && removeLink((Link) obj);
+        }
+
+        /**
+         * Method size.
+         * @return int
+         * @see java.util.AbstractCollection#size()
+         */
+        @Override
+        public int size() {
+            return forward ? outDegrees[nodeIndex] : inDegrees[nodeIndex];
+        }
+    }
+
+    /**
+     * Iterator on a CSR slice followed by the delta chain of a node. The
+     * iterator works on the arrays available at creation time and stops at
+     * the last link of the chain at that time, so neither adding links nor
+     * rebuilding the index disturbs it.
+     *
+     * @author Christophe Labouisse
+     */
+    private final class LinkIterator implements Iterator<Link> {
+        /**
+         * Next delta slot to look at, -1 when the chain is exhausted.
+         */
+        private int deltaSlot;
+
+        /**
+         * Field end.
+         */
+        private final int end;
+
+        /**
+         * Last delta slot known when the iterator was created.
+         */
+        private final int lastDeltaSlot;
+
+        /**
+         * Field lastLink.
+         */
+        private Link lastLink;
+
+        /**
+         * Field linkArray.
+         */
+        private final Link[] linkArray;
+
+        /**
+         * Field nextDeltaArray.
+         */
+        private final int[] nextDeltaArray;
+
+        /**
+         * Field nextLink.
+         */
+        private Link nextLink;
+
+        /**
+         * Field position.
+         */
+        private int position;
+
+        /**
+         * Field slotArray.
+         */
+        private final int[] slotArray;
+
+        /**
+         * Creates a new iterator.
+         *
+         * @param nodeIndex
+         *            index of the node.
+         * @param forward
+         *            direction of the links.
+         */
+        private LinkIterator(final int nodeIndex, final boolean forward) {
+            linkArray = links;
+            final int[] offsets = forward ? outOffsets : inOffsets;
+            slotArray = forward ? outSlots : inSlots;
+            if (nodeIndex < indexedNodeCount) {
+                position = offsets[nodeIndex];
+                end = offsets[nodeIndex + 1];
+            } else {
+                position = 0;
+                end = 0;
+            }
+            nextDeltaArray = forward ? nextOutDelta : nextInDelta;
+            deltaSlot = (forward ? outDeltaHeads : inDeltaHeads)[nodeIndex] - 1;
+            lastDeltaSlot = (forward ? outDeltaTails : inDeltaTails)[nodeIndex] - 1;
+            fetchNextLink();
+        }
+
+        /**
+         * Method hasNext.
+         * @return boolean
+         * @see java.util.Iterator#hasNext()
+         */
+        public boolean hasNext() {
+            return nextLink != null;
+        }
+
+        /**
+         * Method next.
+         * @return Link
+         * @see java.util.Iterator#next()
+         */
+        public Link next() {
+            if (nextLink == null) {
+                throw new NoSuchElementException();
+            }
+            lastLink = nextLink;
+            fetchNextLink();
+            return lastLink;
+        }
+
+        /**
+         * Method remove.
+         * @see java.util.Iterator#remove()
+         */
+        public void remove() {
+            if (lastLink == null) {
+                throw new IllegalStateException();
+            }
+            removeLink(lastLink);
+            lastLink = null;
+        }
+
+        /**
+         * Looks for the next live link, first in the CSR slice and then in
+         * the delta chain.
+         */
+        private void fetchNextLink() {
+            while (position < end) {
+                final Link link = linkArray[slotArray[position++]];
+                if (isLive(link)) {
+                    nextLink = link;
+                    return;
+                }
+            }
+            while (deltaSlot >= 0) {
+                final Link link = linkArray[deltaSlot];
+                deltaSlot = (deltaSlot == lastDeltaSlot) ? -1 : nextDeltaArray[deltaSlot] - 1;
+                if (isLive(link)) {
+                    nextLink = link;
+                    return;
+                }
+            }
+            nextLink = null;
+        }
+
+        /**
+         * Checks whether a link read from the iterator's arrays is still in
+         * the store.
+         *
+         * @param link
+         *            the link, possibly <code>null</code>.
+         * @return <code>true</code> if the link is still in the store.
+         */
+        private boolean isLive(final Link link) {
+            // Once the store has grown or been compacted, the arrays used by
+            // the iterator are not updated any more.
+            return (link != null) && ((linkArray == links) || (slotOf(link) >= 0));
+        }
+    }
+
+    /**
+     * Field INITIAL_CAPACITY.
+     * (value is {@value #INITIAL_CAPACITY})
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Field endIndexes.
+     */
+    private int[] endIndexes = new int[INITIAL_CAPACITY];
+
+    /**
+     * Slots of the links without the {@link LinkImpl} slot field, created on
+     * demand.
+     */
+    private Map<Link, Integer> foreignSlots;
+
+    /**
+     * Number of nodes covered by the CSR index.
+     */
+    private int indexedNodeCount = 0;
+
+    /**
+     * Number of slots covered by the CSR index, the following ones are in the
+     * delta buffer.
+     */
+    private int indexedSlotCount = 0;
+
+    /**
+     * First delta slot + 1 of the links ending to each node, 0 if none.
+     */
+    private int[] inDeltaHeads = new int[INITIAL_CAPACITY];
+
+    /**
+     * Last delta slot + 1 of the links ending to each node, 0 if none.
+     */
+    private int[] inDeltaTails = new int[INITIAL_CAPACITY];
+
+    /**
+     * Field inDegrees.
+     */
+    private int[] inDegrees = new int[INITIAL_CAPACITY];
+
+    /**
+     * Field inOffsets.
+     */
+    private int[] inOffsets;
+
+    /**
+     * Field inSlots.
+     */
+    private int[] inSlots;
+
+    /**
+     * Field links.
+     */
+    private Link[] links = new Link[INITIAL_CAPACITY];
+
+    /**
+     * Number of live links.
+     */
+    private int linkCount = 0;
+
+    /**
+     * Next delta slot + 1 of the links ending to the same node, per slot.
+     */
+    private int[] nextInDelta = new int[INITIAL_CAPACITY];
+
+    /**
+     * Next delta slot + 1 of the links starting from the same node, per slot.
+     */
+    private int[] nextOutDelta = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of nodes registered in the store.
+     */
+    private int nodeCount = 0;
+
+    /**
+     * First delta slot + 1 of the links starting from each node, 0 if none.
+     */
+    private int[] outDeltaHeads = new int[INITIAL_CAPACITY];
+
+    /**
+     * Last delta slot + 1 of the links starting from each node, 0 if none.
+     */
+    private int[] outDeltaTails = new int[INITIAL_CAPACITY];
+
+    /**
+     * Field outDegrees.
+     */
+    private int[] outDegrees = new int[INITIAL_CAPACITY];
+
+    /**
+     * Field outOffsets.
+     */
+    private int[] outOffsets;
+
+    /**
+     * Field outSlots.
+     */
+    private int[] outSlots;
+
+    /**
+     * Number of used slots in {@link #links}, including dead ones.
+     */
+    private int slotCount = 0;
+
+    /**
+     * Field startIndexes.
+     */
+    private int[] startIndexes = new int[INITIAL_CAPACITY];
+
+    /**
+     * Adds a link to the store. Adding a link already in the store is a no-op.
+     *
+     * @param link
+     *            the link to add.
+     * @return <code>true</code> if the link has been added.
+     */
+    boolean addLink(final Link link) {
+        if (slotOf(link) >= 0) {
+            return false;
+        }
+
+        final int startIndex = nodeIndexOf(link.getStartNode());
+        final int endIndex = nodeIndexOf(link.getEndNode());
+
+        if (slotCount == links.length) {
+            growSlots(slotCount * 2);
+        }
+
+        final int slot = slotCount++;
+        links[slot] = link;
+        startIndexes[slot] = startIndex;
+        endIndexes[slot] = endIndex;
+        setSlot(link, slot);
+        nextOutDelta[slot] = 0;
+        nextInDelta[slot] = 0;
+        if (outDeltaTails[startIndex] == 0) {
+            outDeltaHeads[startIndex] = slot + 1;
+        } else {
+            nextOutDelta[outDeltaTails[startIndex] - 1] = slot + 1;
+        }
+        outDeltaTails[startIndex] = slot + 1;
+        if (inDeltaTails[endIndex] == 0) {
+            inDeltaHeads[endIndex] = slot + 1;
+        } else {
+            nextInDelta[inDeltaTails[endIndex] - 1] = slot + 1;
+        }
+        inDeltaTails[endIndex] = slot + 1;
+        outDegrees[startIndex]++;
+        inDegrees[endIndex]++;
+        linkCount++;
+        return true;
+    }
+
+    /**
+     * Makes room for some more links.
+     *
+     * @param extraLinks
+     *            number of links to be added.
+     */
+    void ensureCapacity(final int extraLinks) {
+        final int capacity = slotCount + extraLinks;
+        if (capacity > links.length) {
+            growSlots(capacity);
+        }
+    }
+
+    /**
+     * Returns the links ending to a node.
+     *
+     * @param nodeIndex
+     *            index of the node.
+     * @return a view on the links.
+     */
+    Collection<Link> getBackLinks(final int nodeIndex) {
+        return new LinkView(nodeIndex, false);
+    }
+
+    /**
+     * Returns the number of links in the store.
+     *
+     * @return the number of links.
+     */
+    int getLinkCount() {
+        return linkCount;
+    }
+
+    /**
+     * Returns the links starting from a node.
+     *
+     * @param nodeIndex
+     *            index of the node.
+     * @return a view on the links.
+     */
+    Collection<Link> getLinks(final int nodeIndex) {
+        return new LinkView(nodeIndex, true);
+    }
+
+    /**
+     * Makes some room for a new node.
+     *
+     * @param nodeIndex
+     *            index of the new node.
+     */
+    void registerNode(final int nodeIndex) {
+        if (nodeIndex >= outDegrees.length) {
+            final int newCapacity = Math.max(nodeIndex + 1, outDegrees.length * 2);
+            outDegrees = copyOf(outDegrees, newCapacity);
+            inDegrees = copyOf(inDegrees, newCapacity);
+            outDeltaHeads = copyOf(outDeltaHeads, newCapacity);
+            outDeltaTails = copyOf(outDeltaTails, newCapacity);
+            inDeltaHeads = copyOf(inDeltaHeads, newCapacity);
+            inDeltaTails = copyOf(inDeltaTails, newCapacity);
+        }
+        if (nodeIndex >= nodeCount) {
+            nodeCount = nodeIndex + 1;
+        }
+    }
+
+    /**
+     * Removes a link from the store. The link is removed from both its start
+     * and end nodes.
+     *
+     * @param link
+     *            the link to remove.
+     * @return <code>true</code> if the link was in the store.
+     */
+    boolean removeLink(final Link link) {
+        final int slot = slotOf(link);
+        if (slot < 0) {
+            return false;
+        }
+        links[slot] = null;
+        if (link instanceof LinkImpl) {
+            ((LinkImpl) link).setStoreSlot(-1);
+        } else {
+            foreignSlots.remove(link);
+        }
+        outDegrees[startIndexes[slot]]--;
+        inDegrees[endIndexes[slot]]--;
+        linkCount--;
+        return true;
+    }
+
+    /**
+     * Merges the delta buffer into the CSR index and drops the dead slots.
+     * The links are sorted using a counting sort on the node indexes, which
+     * is stable, so the links keep their insertion order within each node.
+     * Reading the store never modifies it, so it can be read concurrently as
+     * long as it is not modified.
+     */
+    void buildIndex() {
+        if ((indexedSlotCount == slotCount) && (linkCount == slotCount)) {
+            return;
+        }
+
+        if (linkCount < slotCount) {
+            compactSlots();
+        }
+
+        outOffsets = new int[nodeCount + 1];
+        inOffsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            outOffsets[i + 1] = outOffsets[i] + outDegrees[i];
+            inOffsets[i + 1] = inOffsets[i] + inDegrees[i];
+        }
+
+        outSlots = new int[slotCount];
+        inSlots = new int[slotCount];
+        final int[] outFill = new int[nodeCount];
+        final int[] inFill = new int[nodeCount];
+        System.arraycopy(outOffsets, 0, outFill, 0, nodeCount);
+        System.arraycopy(inOffsets, 0, inFill, 0, nodeCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            outSlots[outFill[startIndexes[slot]]++] = slot;
+            inSlots[inFill[endIndexes[slot]]++] = slot;
+        }
+
+        indexedNodeCount = nodeCount;
+        indexedSlotCount = slotCount;
+        Arrays.fill(outDeltaHeads, 0);
+        Arrays.fill(outDeltaTails, 0);
+        Arrays.fill(inDeltaHeads, 0);
+        Arrays.fill(inDeltaTails, 0);
+    }
+
+    /**
+     * Drops the dead slots. New arrays are allocated so running iterators are
+     * not disturbed.
+     */
+    private void compactSlots() {
+        final int capacity = Math.max(INITIAL_CAPACITY, linkCount);
+        final Link[] newLinks = new Link[capacity];
+        final int[] newStartIndexes = new int[capacity];
+        final int[] newEndIndexes = new int[capacity];
+        if (foreignSlots != null) {
+            foreignSlots.clear();
+        }
+        int newSlot = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            final Link link = links[slot];
+            if (link != null) {
+                newLinks[newSlot] = link;
+                newStartIndexes[newSlot] = startIndexes[slot];
+                newEndIndexes[newSlot] = endIndexes[slot];
+                setSlot(link, newSlot);
+                newSlot++;
+            }
+        }
+        links = newLinks;
+        startIndexes = newStartIndexes;
+        endIndexes = newEndIndexes;
+        nextOutDelta = new int[capacity];
+        nextInDelta = new int[capacity];
+        slotCount = newSlot;
+    }
+
+    /**
+     * Reallocates the per slot arrays. New arrays are allocated so running
+     * iterators are not disturbed.
+     *
+     * @param capacity
+     *            the new capacity.
+     */
+    private void growSlots(final int capacity) {
+        links = copyOf(links, capacity);
+        startIndexes = copyOf(startIndexes, capacity);
+        endIndexes = copyOf(endIndexes, capacity);
+        nextOutDelta = copyOf(nextOutDelta, capacity);
+        nextInDelta = copyOf(nextInDelta, capacity);
+    }
+
+    /**
+     * Records the slot holding a link.
+     *
+     * @param link
+     *            the link.
+     * @param slot
+     *            its slot.
+     */
+    private void setSlot(final Link link, final int slot) {
+        if (link instanceof LinkImpl) {
+            ((LinkImpl) link).setStoreSlot(slot);
+        } else {
+            if (foreignSlots == null) {
+                foreignSlots = new IdentityHashMap<Link, Integer>();
+            }
+            foreignSlots.put(link, slot);
+        }
+    }
+
+    /**
+     * Returns the node index of a node.
+     *
+     * @param node
+     *            the node.
+     * @return the node index.
+     */
+    private int nodeIndexOf(final Node node) {
+        if (!(node instanceof NodeImpl) || (((NodeImpl) node).getIndex() < 0)) {
+            throw new IllegalArgumentException("Node " + node
+                    + " does not belong to a compact graph");
+        }
+        return ((NodeImpl) node).getIndex();
+    }
+
+    /**
+     * Finds the slot holding a link.
+     *
+     * @param link
+     *            the link to look for.
+     * @return the slot or -1 if the link is not in the store.
+     */
+    private int slotOf(final Link link) {
+        final int slot;
+        if (link instanceof LinkImpl) {
+            slot = ((LinkImpl) link).getStoreSlot();
+        } else {
+            final Integer foreignSlot = (foreignSlots == null) ? null : foreignSlots.get(link);
+            slot = (foreignSlot == null) ? -1 : foreignSlot.intValue();
+        }
+        if ((slot >= 0) && (slot < slotCount) && (links[slot] == link)) {
+            return slot;
+        }
+        return -1;
+    }
+
+    /**
+     * Copies an array into a new one with a different capacity.
+     *
+     * @param array
+     *            the source array.
+     * @param capacity
+     *            the new capacity.
+     * @return the new array.
+     */
+    private static int[] copyOf(final int[] array, final int capacity) {
+        final int[] result = new int[capacity];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, capacity));
+        return result;
+    }
+
+    /**
+     * Copies an array into a new one with a different capacity.
+     *
+     * @param array
+     *            the source array.
+     * @param capacity
+     *            the new capacity.
+     * @return the new array.
+     */
+    private static Link[] copyOf(final Link[] array, final int capacity) {
+        final Link[] result = new Link[capacity];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, capacity));
+        return result;
+    }
+}
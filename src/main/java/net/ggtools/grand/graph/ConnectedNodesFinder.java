@@ -40,7 +40,7 @@ import java.util.Set;
  *
  * @author Christophe Labouisse
  */
-public class ConnectedNodesFinder implements LinkFinder {
+public class ConnectedNodesFinder implements StreamingLinkFinder {
 
     /**
      * Method getLinks.
@@ -50,16 +50,30 @@ public class ConnectedNodesFinder implements LinkFinder {
      */
     public final Collection<Node> getLinks(final Node node) {
         final Set<Node> result = new LinkedHashSet<Node>();
+        forEachNeighbour(node, new NodeCollector(result));
+        return result;
+    }
 
+    /**
+     * Method forEachNeighbour.
+     * @param node Node
+     * @param consumer NodeConsumer
+     * @return boolean
+     * @see net.ggtools.grand.graph.StreamingLinkFinder#forEachNeighbour(net.ggtools.grand.graph.Node, net.ggtools.grand.graph.NodeConsumer)
+     */
+    public final boolean forEachNeighbour(final Node node,
+            final NodeConsumer consumer) {
         for (Link link : node.getBackLinks()) {
-            result.add(link.getStartNode());
+            if (!consumer.accept(link.getStartNode())) {
+                return false;
+            }
         }
 
         for (Link link : node.getLinks()) {
-            result.add(link.getEndNode());
+            if (!consumer.accept(link.getEndNode())) {
+                return false;
+            }
         }
-
-        return result;
+        return true;
     }
-
 }
@@ -0,0 +1,424 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the chain of dependencies bounding the wall time of a build when
+ * every node takes a known time to run and independent nodes run
+ * concurrently. For each node the analysis computes the earliest time it can
+ * finish and its <i>slack</i>: how much it could be delayed without delaying
+ * the whole build. Nodes with no slack are on a critical path.
+ * <p>
+ * Only regular dependencies are followed: the time spent in a target called
+ * by <code>antcall</code> is already part of the caller's duration. The
+ * analysis works on the {@link StronglyConnectedComponents condensation} of
+ * the graph and runs in time linear in the number of nodes and links. The
+ * nodes of a cycle are handled as a single node. Nodes without a duration
+ * take no time.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public final class CriticalPathAnalysis {
+    /**
+     * Field graph.
+     */
+    private final Graph graph;
+
+    /**
+     * Field components.
+     */
+    private final StronglyConnectedComponents components;
+
+    /**
+     * Field nodeDurations.
+     */
+    private final Map<Node, Long> nodeDurations;
+
+    /**
+     * The analysed components.
+     */
+    private final BitSet included;
+
+    /**
+     * Duration of each component.
+     */
+    private final long[] durations;
+
+    /**
+     * Earliest finish time of each component.
+     */
+    private final long[] finish;
+
+    /**
+     * Longest time from the start of each component to the end of the
+     * build.
+     */
+    private final long[] tail;
+
+    /**
+     * Field length.
+     */
+    private final long length;
+
+    /**
+     * Field criticalPath.
+     */
+    private final List<Node> criticalPath;
+
+    /**
+     * Savings computed so far.
+     */
+    private final Map<Node, Long> savings = new HashMap<Node, Long>();
+
+    /**
+     * Analyses the whole graph.
+     *
+     * @param graph
+     *            the graph.
+     * @param nodeDurations
+     *            the duration of the nodes.
+     */
+    public CriticalPathAnalysis(final Graph graph, final Map<Node, Long> nodeDurations) {
+        this(graph, nodeDurations, Collections.<Node>emptyList());
+    }
+
+    /**
+     * Analyses the build of some nodes.
+     *
+     * @param graph
+     *            the graph.
+     * @param nodeDurations
+     *            the duration of the nodes.
+     * @param targets
+     *            the nodes to build, all the graph if empty.
+     * @throws IllegalArgumentException
+     *             if a target is not in the graph.
+     */
+    public CriticalPathAnalysis(final Graph graph, final Map<Node, Long> nodeDurations,
+            final Collection<Node> targets) {
+        this.graph = graph;
+        this.nodeDurations = nodeDurations;
+        components = new StronglyConnectedComponents(graph, false);
+        final int count = components.getComponentCount();
+        included = new BitSet(count);
+        if (targets.isEmpty()) {
+            included.set(0, count);
+        } else {
+            for (final Node target : targets) {
+                included.set(components.getComponentIndex(target));
+            }
+            for (int c = included.length() - 1; c >= 0; c--) {
+                if (included.get(c)) {
+                    for (int i = components.getMemberStart(c); i < components.getMemberEnd(c); i++) {
+                        for (final Link link : graph.getNodeByIndex(components.getMember(i)).getLinks()) {
+                            final int dependency = getDependency(link);
+                            if (dependency >= 0) {
+                                included.set(dependency);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        durations = new long[count];
+        for (final Map.Entry<Node, Long> entry : nodeDurations.entrySet()) {
+            final int component = components.getComponentOf(entry.getKey());
+            if (component >= 0) {
+                durations[component] += entry.getValue();
+            }
+        }
+
+        finish = new long[count];
+        final Node[] chainNext = new Node[count];
+        length = computeFinish(-1, chainNext);
+        tail = new long[count];
+        computeTail();
+
+        final List<Node> path = new ArrayList<Node>();
+        int top = -1;
+        for (int c = included.nextSetBit(0); c >= 0; c = included.nextSetBit(c + 1)) {
+            if ((top < 0) || (finish[c] > finish[top])) {
+                top = c;
+            }
+        }
+        if (top >= 0) {
+            Node node = graph.getNodeByIndex(components.getMember(components.getMemberStart(top)));
+            while (node != null) {
+                path.add(node);
+                node = chainNext[components.getComponentOf(node)];
+            }
+            Collections.reverse(path);
+        }
+        criticalPath = Collections.unmodifiableList(path);
+    }
+
+    /**
+     * Returns the analysed graph.
+     *
+     * @return the graph.
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the length of the critical path, that is the shortest possible
+     * wall time of the build.
+     *
+     * @return the length of the critical path.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns a critical path, in execution order.
+     *
+     * @return the nodes of the critical path.
+     */
+    public List<Node> getCriticalPath() {
+        return criticalPath;
+    }
+
+    /**
+     * Returns the duration of a node.
+     *
+     * @param node
+     *            the node.
+     * @return the duration, 0 if unknown.
+     */
+    public long getDuration(final Node node) {
+        final Long duration = nodeDurations.get(node);
+        return (duration == null) ? 0 : duration;
+    }
+
+    /**
+     * Returns the earliest time a node can finish.
+     *
+     * @param node
+     *            the node.
+     * @return the earliest finish time or -1 if the node is not analysed.
+     */
+    public long getEarliestFinish(final Node node) {
+        final int component = components.getComponentOf(node);
+        return isIncluded(component) ? finish[component] : -1;
+    }
+
+    /**
+     * Returns how much a node can be delayed without delaying the build.
+     *
+     * @param node
+     *            the node.
+     * @return the slack or -1 if the node is not analysed.
+     */
+    public long getSlack(final Node node) {
+        final int component = components.getComponentOf(node);
+        if (!isIncluded(component)) {
+            return -1;
+        }
+        return length - finish[component] - tail[component] + durations[component];
+    }
+
+    /**
+     * Tells if a node is on a critical path.
+     *
+     * @param node
+     *            the node.
+     * @return <code>true</code> if the node has no slack.
+     */
+    public boolean isCritical(final Node node) {
+        return getSlack(node) == 0;
+    }
+
+    /**
+     * Returns how much the build would be shortened if a node took no time,
+     * for instance by running it in parallel with the rest of the build or by
+     * making it faster. The build length is computed again so this method
+     * runs in linear time.
+     *
+     * @param node
+     *            the node.
+     * @return the saving, 0 if the node is not critical.
+     */
+    public long getSaving(final Node node) {
+        final Long cached = savings.get(node);
+        if (cached != null) {
+            return cached;
+        }
+        long saving = 0;
+        final int component = components.getComponentOf(node);
+        if (isCritical(node) && (durations[component] > 0)) {
+            final long[] save = finish.clone();
+            saving = length - computeFinish(component, null);
+            System.arraycopy(save, 0, finish, 0, save.length);
+        }
+        savings.put(node, saving);
+        return saving;
+    }
+
+    /**
+     * Returns the nodes whose speed up would shorten the build, the ones
+     * giving the largest saving first.
+     *
+     * @return the nodes with a positive saving.
+     * @see #getSaving(Node)
+     */
+    public List<Node> getBottlenecks() {
+        final List<Node> result = new ArrayList<Node>();
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            if (isIncluded(components.getComponentOf(node)) && (getSaving(node) > 0)) {
+                result.add(node);
+            }
+        }
+        Collections.sort(result, new Comparator<Node>() {
+            public int compare(final Node n1, final Node n2) {
+                final long s1 = getSaving(n1);
+                final long s2 = getSaving(n2);
+                return (s1 > s2) ? -1 : ((s1 < s2) ? 1 : 0);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Sets the {@link Node#ATTR_CRITICAL_NODE} attribute on the nodes of the
+     * critical path and the {@link Link#ATTR_CRITICAL_LINK} attribute on the
+     * links between them.
+     */
+    public void markCriticalPath() {
+        Node previous = null;
+        for (final Node node : criticalPath) {
+            node.setAttributes(Node.ATTR_CRITICAL_NODE);
+            if (previous != null) {
+                for (final Link link : node.getLinks()) {
+                    if (link.getEndNode() == previous) {
+                        link.setAttributes(Link.ATTR_CRITICAL_LINK);
+                    }
+                }
+            }
+            previous = node;
+        }
+    }
+
+    /**
+     * Tells if a component is analysed.
+     *
+     * @param component
+     *            the component, may be -1.
+     * @return <code>true</code> if the component is analysed.
+     */
+    private boolean isIncluded(final int component) {
+        return (component >= 0) && included.get(component);
+    }
+
+    /**
+     * Returns the component a link leads to.
+     *
+     * @param link
+     *            the link.
+     * @return the component or -1 if the link is not a dependency.
+     */
+    private int getDependency(final Link link) {
+        if (!components.isFollowed(link)) {
+            return -1;
+        }
+        return components.getComponentOf(link.getEndNode());
+    }
+
+    /**
+     * Computes the earliest finish time of the components. As components
+     * only depend on lower numbered ones, an increasing pass is enough.
+     *
+     * @param ignored
+     *            a component to consider as taking no time, -1 for none.
+     * @param chainNext
+     *            if not <code>null</code>, receives the dependency determining
+     *            each component's start time.
+     * @return the length of the build.
+     */
+    private long computeFinish(final int ignored, final Node[] chainNext) {
+        long result = 0;
+        for (int c = included.nextSetBit(0); c >= 0; c = included.nextSetBit(c + 1)) {
+            long start = -1;
+            for (int i = components.getMemberStart(c); i < components.getMemberEnd(c); i++) {
+                for (final Link link : graph.getNodeByIndex(components.getMember(i)).getLinks()) {
+                    final int dependency = getDependency(link);
+                    if ((dependency >= 0) && (dependency != c) && (finish[dependency] > start)) {
+                        start = finish[dependency];
+                        if (chainNext != null) {
+                            chainNext[c] = link.getEndNode();
+                        }
+                    }
+                }
+            }
+            start = Math.max(start, 0);
+            finish[c] = start + ((c == ignored) ? 0 : durations[c]);
+            result = Math.max(result, finish[c]);
+        }
+        return result;
+    }
+
+    /**
+     * Computes for each component the longest time from its start to the end
+     * of the build, following the dependants in a decreasing pass.
+     */
+    private void computeTail() {
+        for (int c = included.length() - 1; c >= 0; c--) {
+            if (!included.get(c)) {
+                continue;
+            }
+            long after = 0;
+            for (int i = components.getMemberStart(c); i < components.getMemberEnd(c); i++) {
+                for (final Link link : graph.getNodeByIndex(components.getMember(i)).getBackLinks()) {
+                    if (!components.isFollowed(link)) {
+                        continue;
+                    }
+                    final int dependant = components.getComponentOf(link.getStartNode());
+                    if ((dependant != c) && isIncluded(dependant)) {
+                        after = Math.max(after, tail[dependant]);
+                    }
+                }
+            }
+            tail[c] = durations[c] + after;
+        }
+    }
+}
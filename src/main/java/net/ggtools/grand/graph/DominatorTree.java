@@ -0,0 +1,500 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Dominators of the nodes reachable from a root node. A node <code>d</code>
+ * dominates a node <code>n</code> when every path from the root to
+ * <code>n</code> goes through <code>d</code>: building the root always
+ * builds <code>d</code> before <code>n</code>. The immediate dominators form
+ * a tree rooted at the root node.
+ * <p>
+ * The tree is computed with the Lengauer-Tarjan algorithm using path
+ * compression, which runs in <i>O(E&nbsp;log&nbsp;V)</i> time. Once built,
+ * dominance between two nodes is checked in constant time.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public final class DominatorTree {
+    /**
+     * Field graph.
+     */
+    private final Graph graph;
+
+    /**
+     * Field root.
+     */
+    private final Node root;
+
+    /**
+     * Field includeWeakLinks.
+     */
+    private final boolean includeWeakLinks;
+
+    /**
+     * Depth first number of each node index, 0 for unreachable nodes.
+     */
+    private final int[] number;
+
+    /**
+     * Node index of each depth first number.
+     */
+    private final int[] vertex;
+
+    /**
+     * Immediate dominator of each depth first number.
+     */
+    private final int[] idom;
+
+    /**
+     * Preorder number in the dominator tree of each depth first number.
+     */
+    private final int[] treeStart;
+
+    /**
+     * Last preorder number of the subtree of each depth first number.
+     */
+    private final int[] treeEnd;
+
+    /**
+     * Number of reachable nodes.
+     */
+    private final int count;
+
+    /**
+     * Computes the dominator tree of a graph.
+     *
+     * @param graph
+     *            the graph.
+     * @param root
+     *            the root node, usually the graph's start node.
+     * @param includeWeakLinks
+     *            <code>true</code> to follow weak links.
+     * @throws IllegalArgumentException
+     *             if the root is not in the graph.
+     */
+    public DominatorTree(final Graph graph, final Node root, final boolean includeWeakLinks) {
+        final int rootIndex = graph.getNodeIndex(root);
+        if (rootIndex < 0) {
+            throw new IllegalArgumentException("Node " + root + " is not part of "
+                    + graph.getName());
+        }
+        this.graph = graph;
+        this.root = root;
+        this.includeWeakLinks = includeWeakLinks;
+        final int bound = graph.getNodeIndexBound();
+        number = new int[bound];
+        vertex = new int[bound + 1];
+        final int[] parent = new int[bound + 1];
+        count = numberNodes(rootIndex, parent);
+        idom = new int[count + 1];
+        computeDominators(parent);
+        treeStart = new int[count + 1];
+        treeEnd = new int[count + 1];
+        numberTree();
+    }
+
+    /**
+     * Returns the graph.
+     *
+     * @return the graph.
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the root of the tree.
+     *
+     * @return the root node.
+     */
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Tells if weak links are followed.
+     *
+     * @return <code>true</code> if weak links are followed.
+     */
+    public boolean isIncludingWeakLinks() {
+        return includeWeakLinks;
+    }
+
+    /**
+     * Tells if a node can be reached from the root.
+     *
+     * @param node
+     *            the node.
+     * @return <code>true</code> if the node is part of the tree.
+     */
+    public boolean isReachable(final Node node) {
+        return getNumber(node) > 0;
+    }
+
+    /**
+     * Returns the nodes reachable from the root.
+     *
+     * @return the nodes of the tree.
+     */
+    public NodeSet getReachableNodes() {
+        final BitSet result = new BitSet(number.length);
+        for (int i = 1; i <= count; i++) {
+            result.set(vertex[i]);
+        }
+        return new NodeSet(graph, result);
+    }
+
+    /**
+     * Returns the immediate dominator of a node, that is its parent in the
+     * tree.
+     *
+     * @param node
+     *            the node.
+     * @return the immediate dominator or <code>null</code> for the root and
+     *         the unreachable nodes.
+     */
+    public Node getImmediateDominator(final Node node) {
+        final int n = getNumber(node);
+        return (n > 1) ? graph.getNodeByIndex(vertex[idom[n]]) : null;
+    }
+
+    /**
+     * Tells if a node dominates another one. A node dominates itself.
+     *
+     * @param dominator
+     *            the dominating node.
+     * @param node
+     *            the dominated node.
+     * @return <code>true</code> if all the paths from the root to
+     *         <code>node</code> go through <code>dominator</code>.
+     */
+    public boolean dominates(final Node dominator, final Node node) {
+        final int d = getNumber(dominator);
+        final int n = getNumber(node);
+        return (d > 0) && (n > 0) && (treeStart[d] <= treeStart[n])
+                && (treeEnd[n] <= treeEnd[d]);
+    }
+
+    /**
+     * Returns the dominators of a node, from the root to the node itself.
+     *
+     * @param node
+     *            the node.
+     * @return the dominators, empty if the node is not reachable.
+     */
+    public List<Node> getDominators(final Node node) {
+        final List<Node> result = new ArrayList<Node>();
+        for (int n = getNumber(node); n > 0; n = idom[n]) {
+            result.add(graph.getNodeByIndex(vertex[n]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Returns the number of nodes dominated by a node, excluding itself.
+     * Speeding up a node dominating many others is more likely to speed up
+     * the build.
+     *
+     * @param node
+     *            the node.
+     * @return the number of strictly dominated nodes.
+     */
+    public int getDominatedCount(final Node node) {
+        final int n = getNumber(node);
+        return (n > 0) ? treeEnd[n] - treeStart[n] : 0;
+    }
+
+    /**
+     * Sets the {@link Node#ATTR_DOMINATOR_NODE} attribute on the dominators
+     * of a node, the node itself excluded.
+     *
+     * @param node
+     *            the node.
+     */
+    public void markDominators(final Node node) {
+        markDominators(node, graph);
+    }
+
+    /**
+     * Sets the {@link Node#ATTR_DOMINATOR_NODE} attribute on the nodes of
+     * another graph, typically a {@link FilteredGraphView} on the analysed
+     * graph, having the same names as the dominators of a node.
+     *
+     * @param node
+     *            the node of the analysed graph.
+     * @param target
+     *            the graph to mark.
+     * @see #markDominators(Node)
+     */
+    public void markDominators(final Node node, final Graph target) {
+        for (int n = idom[getNumber(node)]; n > 0; n = idom[n]) {
+            mark(target, n);
+        }
+    }
+
+    /**
+     * Sets the {@link Node#ATTR_DOMINATOR_NODE} attribute on every node
+     * dominating at least another node.
+     */
+    public void markAllDominators() {
+        markAllDominators(graph);
+    }
+
+    /**
+     * Sets the {@link Node#ATTR_DOMINATOR_NODE} attribute on the nodes of
+     * another graph having the same names as the nodes dominating at least
+     * another node.
+     *
+     * @param target
+     *            the graph to mark.
+     * @see #markAllDominators()
+     */
+    public void markAllDominators(final Graph target) {
+        for (int n = 1; n <= count; n++) {
+            if (treeEnd[n] > treeStart[n]) {
+                mark(target, n);
+            }
+        }
+    }
+
+    /**
+     * Marks the node of a graph having the same name as a numbered node, if
+     * any.
+     *
+     * @param target
+     *            the graph to mark.
+     * @param n
+     *            the depth first number of the node.
+     */
+    private void mark(final Graph target, final int n) {
+        Node node = graph.getNodeByIndex(vertex[n]);
+        if (target != graph) {
+            node = target.getNode(node.getName());
+        }
+        if (node != null) {
+            node.setAttributes(Node.ATTR_DOMINATOR_NODE);
+        }
+    }
+
+    /**
+     * Returns the depth first number of a node.
+     *
+     * @param node
+     *            the node.
+     * @return the number or 0 if the node is not reachable.
+     */
+    private int getNumber(final Node node) {
+        final int nodeIndex = graph.getNodeIndex(node);
+        return ((nodeIndex >= 0) && (nodeIndex < number.length)) ? number[nodeIndex] : 0;
+    }
+
+    /**
+     * Tells if a link is followed.
+     *
+     * @param link
+     *            the link.
+     * @return <code>true</code> if the link is followed.
+     */
+    private boolean isFollowed(final Link link) {
+        return includeWeakLinks || !link.hasAttributes(Link.ATTR_WEAK_LINK);
+    }
+
+    /**
+     * Numbers the nodes reachable from the root in depth first order.
+     *
+     * @param rootIndex
+     *            index of the root node.
+     * @param parent
+     *            receives the depth first parent of each number.
+     * @return the number of reachable nodes.
+     */
+    private int numberNodes(final int rootIndex, final int[] parent) {
+        final int[] stack = new int[number.length];
+        @SuppressWarnings("unchecked")
+        final Iterator<Link>[] iterators =
+                (Iterator<Link>[]) new Iterator<?>[number.length];
+        int n = 0;
+        int top = 0;
+        number[rootIndex] = ++n;
+        vertex[n] = rootIndex;
+        stack[0] = rootIndex;
+        iterators[0] = graph.getNodeByIndex(rootIndex).getLinks().iterator();
+        while (top >= 0) {
+            if (!iterators[top].hasNext()) {
+                iterators[top--] = null;
+                continue;
+            }
+            final Link link = iterators[top].next();
+            final int end = graph.getNodeIndex(link.getEndNode());
+            if ((end >= 0) && (number[end] == 0) && isFollowed(link)) {
+                number[end] = ++n;
+                vertex[n] = end;
+                parent[n] = number[stack[top]];
+                stack[++top] = end;
+                iterators[top] = link.getEndNode().getLinks().iterator();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Computes the immediate dominators.
+     *
+     * @param parent
+     *            the depth first parent of each number.
+     */
+    private void computeDominators(final int[] parent) {
+        final int[] semi = new int[count + 1];
+        final int[] ancestor = new int[count + 1];
+        final int[] label = new int[count + 1];
+        // Buckets are linked lists threaded through bucketNext.
+        final int[] bucketHead = new int[count + 1];
+        final int[] bucketNext = new int[count + 1];
+        for (int i = 1; i <= count; i++) {
+            semi[i] = i;
+            label[i] = i;
+        }
+        final int[] path = new int[count + 1];
+
+        for (int w = count; w > 1; w--) {
+            for (final Link link : graph.getNodeByIndex(vertex[w]).getBackLinks()) {
+                final int start = graph.getNodeIndex(link.getStartNode());
+                if ((start < 0) || (number[start] == 0) || !isFollowed(link)) {
+                    continue;
+                }
+                final int u = eval(number[start], ancestor, label, semi, path);
+                if (semi[u] < semi[w]) {
+                    semi[w] = semi[u];
+                }
+            }
+            bucketNext[w] = bucketHead[semi[w]];
+            bucketHead[semi[w]] = w;
+            ancestor[w] = parent[w];
+
+            final int p = parent[w];
+            for (int v = bucketHead[p]; v != 0; v = bucketNext[v]) {
+                final int u = eval(v, ancestor, label, semi, path);
+                idom[v] = (semi[u] < semi[v]) ? u : p;
+            }
+            bucketHead[p] = 0;
+        }
+
+        for (int w = 2; w <= count; w++) {
+            if (idom[w] != semi[w]) {
+                idom[w] = idom[idom[w]];
+            }
+        }
+        if (count > 0) {
+            idom[1] = 0;
+        }
+    }
+
+    /**
+     * Returns the node with the smallest semidominator on the forest path
+     * leading to a node, compressing the path on the way.
+     *
+     * @param v
+     *            the depth first number of the node.
+     * @param ancestor
+     *            the forest built so far.
+     * @param label
+     *            the best node of each compressed path.
+     * @param semi
+     *            the semidominators.
+     * @param path
+     *            a work array.
+     * @return the depth first number of the best node.
+     */
+    private static int eval(final int v, final int[] ancestor, final int[] label,
+            final int[] semi, final int[] path) {
+        if (ancestor[v] == 0) {
+            return v;
+        }
+        int length = 0;
+        for (int u = v; ancestor[ancestor[u]] != 0; u = ancestor[u]) {
+            path[length++] = u;
+        }
+        while (length > 0) {
+            final int u = path[--length];
+            final int a = ancestor[u];
+            if (semi[label[a]] < semi[label[u]]) {
+                label[u] = label[a];
+            }
+            ancestor[u] = ancestor[a];
+        }
+        return label[v];
+    }
+
+    /**
+     * Numbers the dominator tree in preorder so that dominance checks are
+     * interval checks.
+     */
+    private void numberTree() {
+        if (count == 0) {
+            return;
+        }
+        final int[] firstChild = new int[count + 1];
+        final int[] nextSibling = new int[count + 1];
+        for (int n = count; n > 1; n--) {
+            nextSibling[n] = firstChild[idom[n]];
+            firstChild[idom[n]] = n;
+        }
+        final int[] stack = new int[count + 1];
+        final int[] cursor = new int[count + 1];
+        Arrays.fill(cursor, -1);
+        int top = 0;
+        int order = 0;
+        stack[0] = 1;
+        while (top >= 0) {
+            final int n = stack[top];
+            if (cursor[n] < 0) {
+                treeStart[n] = order++;
+                cursor[n] = firstChild[n];
+            }
+            if (cursor[n] != 0) {
+                final int child = cursor[n];
+                cursor[n] = nextSibling[child];
+                stack[++top] = child;
+            } else {
+                treeEnd[n] = order - 1;
+                top--;
+            }
+        }
+    }
+}
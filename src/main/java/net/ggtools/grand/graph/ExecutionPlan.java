@@ -0,0 +1,201 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of an {@link ExecutionPlanner}: the planned nodes grouped by
+ * execution level. Level 0 holds the nodes to be run first.
+ *
+ * @author Christophe Labouisse
+ */
+public final class ExecutionPlan {
+    /**
+     * Field graph.
+     */
+    private final Graph graph;
+
+    /**
+     * Field targets.
+     */
+    private final List<Node> targets;
+
+    /**
+     * Field levels.
+     */
+    private final List<List<Node>> levels;
+
+    /**
+     * Level of each node index, -1 for nodes out of the plan.
+     */
+    private final int[] nodeLevels;
+
+    /**
+     * Field longestChain.
+     */
+    private final List<Node> longestChain;
+
+    /**
+     * Field cyclic.
+     */
+    private final boolean cyclic;
+
+    /**
+     * Creates a new plan.
+     *
+     * @param graph
+     *            the planned graph.
+     * @param targets
+     *            the planned targets, empty when planning the whole graph.
+     * @param levels
+     *            the nodes of each level.
+     * @param nodeLevels
+     *            the level of each node index.
+     * @param longestChain
+     *            a longest dependency chain in execution order.
+     * @param cyclic
+     *            <code>true</code> if some planned nodes are part of a
+     *            cycle.
+     */
+    ExecutionPlan(final Graph graph, final List<Node> targets,
+            final List<List<Node>> levels, final int[] nodeLevels,
+            final List<Node> longestChain, final boolean cyclic) {
+        this.graph = graph;
+        this.targets = Collections.unmodifiableList(targets);
+        for (int i = 0; i < levels.size(); i++) {
+            levels.set(i, Collections.unmodifiableList(levels.get(i)));
+        }
+        this.levels = Collections.unmodifiableList(levels);
+        this.nodeLevels = nodeLevels;
+        this.longestChain = Collections.unmodifiableList(longestChain);
+        this.cyclic = cyclic;
+    }
+
+    /**
+     * Returns the planned graph.
+     *
+     * @return the graph.
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the planned targets.
+     *
+     * @return the targets, an empty list if the whole graph was planned.
+     */
+    public List<Node> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Returns the nodes of each level, starting with the nodes to be run
+     * first. Nodes of a level keep the order of the graph.
+     *
+     * @return the levels.
+     */
+    public List<List<Node>> getLevels() {
+        return levels;
+    }
+
+    /**
+     * Returns the number of levels, which is also the length of the longest
+     * dependency chain.
+     *
+     * @return the number of levels.
+     */
+    public int getLevelCount() {
+        return levels.size();
+    }
+
+    /**
+     * Returns the size of the largest level, that is the maximum number of
+     * nodes run concurrently with a level by level execution.
+     *
+     * @return the width of the plan.
+     */
+    public int getWidth() {
+        int width = 0;
+        for (final List<Node> level : levels) {
+            width = Math.max(width, level.size());
+        }
+        return width;
+    }
+
+    /**
+     * Returns the number of planned nodes.
+     *
+     * @return the number of nodes.
+     */
+    public int getNodeCount() {
+        int count = 0;
+        for (final List<Node> level : levels) {
+            count += level.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the level of a node.
+     *
+     * @param node
+     *            the node.
+     * @return the level or -1 if the node is not part of the plan.
+     */
+    public int getLevel(final Node node) {
+        final int nodeIndex = graph.getNodeIndex(node);
+        if ((nodeIndex < 0) || (nodeIndex >= nodeLevels.length)) {
+            return -1;
+        }
+        return nodeLevels[nodeIndex];
+    }
+
+    /**
+     * Returns a longest dependency chain of the plan, in execution order.
+     * Running the plan cannot take less steps than this chain's length.
+     *
+     * @return the nodes of the chain.
+     */
+    public List<Node> getLongestChain() {
+        return longestChain;
+    }
+
+    /**
+     * Tells if some planned nodes are part of a dependency cycle. The nodes of
+     * a cycle are put on the same level so such a plan cannot be run as is.
+     *
+     * @return <code>true</code> if the plan contains cycles.
+     */
+    public boolean hasCycles() {
+        return cyclic;
+    }
+}
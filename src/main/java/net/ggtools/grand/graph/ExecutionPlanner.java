@@ -0,0 +1,237 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Computes the execution levels of a graph. A node's level is the length of
+ * the longest chain of dependencies below it: nodes without dependencies are
+ * on level 0, and every node is one level above its highest dependency. Nodes
+ * sharing a level do not depend on each other and can be run concurrently,
+ * for instance in an Ant <code>&lt;parallel&gt;</code> block, once the
+ * previous levels are done.
+ * <p>
+ * The planner works on the {@link StronglyConnectedComponents condensation}
+ * of the graph so it runs in linear time and does not fail on cycles: the
+ * nodes of a cycle share a single level and the plan reports it with
+ * {@link ExecutionPlan#hasCycles()}. By default only regular dependencies
+ * are honoured, weak links like the ones created by <code>antcall</code>
+ * can be taken into account with {@link #setIncludeWeakLinks(boolean)}.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public final class ExecutionPlanner {
+    /**
+     * Field graph.
+     */
+    private final Graph graph;
+
+    /**
+     * Field includeWeakLinks.
+     */
+    private boolean includeWeakLinks = false;
+
+    /**
+     * Components of the graph, computed on first use.
+     */
+    private StronglyConnectedComponents components;
+
+    /**
+     * Creates a new planner.
+     *
+     * @param graph
+     *            the graph to plan.
+     */
+    public ExecutionPlanner(final Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Sets whether weak links should be honoured like regular dependencies.
+     * Defaults to <code>false</code>.
+     *
+     * @param include
+     *            <code>true</code> to honour weak links.
+     */
+    public void setIncludeWeakLinks(final boolean include) {
+        if (include != includeWeakLinks) {
+            includeWeakLinks = include;
+            components = null;
+        }
+    }
+
+    /**
+     * Plans the execution of a node and its dependencies.
+     *
+     * @param target
+     *            the node to plan.
+     * @return the plan.
+     * @throws IllegalArgumentException
+     *             if the node is not in the graph.
+     */
+    public ExecutionPlan plan(final Node target) {
+        return plan(Collections.singletonList(target));
+    }
+
+    /**
+     * Plans the execution of several nodes and their dependencies.
+     *
+     * @param targets
+     *            the nodes to plan.
+     * @return the plan.
+     * @throws IllegalArgumentException
+     *             if a node is not in the graph.
+     */
+    public ExecutionPlan plan(final Collection<Node> targets) {
+        final StronglyConnectedComponents scc = getComponents();
+        final BitSet included = new BitSet(scc.getComponentCount());
+        for (final Node target : targets) {
+            included.set(scc.getComponentIndex(target));
+        }
+        // A component only depends on lower numbered ones so a single
+        // decreasing pass finds all the dependencies.
+        for (int c = included.length() - 1; c >= 0; c--) {
+            if (!included.get(c)) {
+                continue;
+            }
+            for (int i = scc.getMemberStart(c); i < scc.getMemberEnd(c); i++) {
+                for (final Link link : graph.getNodeByIndex(scc.getMember(i)).getLinks()) {
+                    if (scc.isFollowed(link)) {
+                        final int dependency = scc.getComponentOf(link.getEndNode());
+                        if (dependency >= 0) {
+                            included.set(dependency);
+                        }
+                    }
+                }
+            }
+        }
+        return createPlan(new ArrayList<Node>(targets), included);
+    }
+
+    /**
+     * Plans the execution of the whole graph.
+     *
+     * @return the plan.
+     */
+    public ExecutionPlan planAll() {
+        final StronglyConnectedComponents scc = getComponents();
+        final BitSet included = new BitSet(scc.getComponentCount());
+        included.set(0, scc.getComponentCount());
+        return createPlan(Collections.<Node>emptyList(), included);
+    }
+
+    /**
+     * Returns the components of the graph, computing them if needed.
+     *
+     * @return the components.
+     */
+    private StronglyConnectedComponents getComponents() {
+        if (components == null) {
+            components = new StronglyConnectedComponents(graph, includeWeakLinks);
+        }
+        return components;
+    }
+
+    /**
+     * Computes the levels of a set of components closed under dependency.
+     *
+     * @param targets
+     *            the planned targets.
+     * @param included
+     *            the components to plan.
+     * @return the plan.
+     */
+    private ExecutionPlan createPlan(final List<Node> targets, final BitSet included) {
+        final StronglyConnectedComponents scc = components;
+        final int[] levels = new int[scc.getComponentCount()];
+        final Node[] chainNext = new Node[scc.getComponentCount()];
+        boolean cyclic = false;
+        int topComponent = -1;
+
+        // Increasing order sees the dependencies before their dependants.
+        for (int c = included.nextSetBit(0); c >= 0; c = included.nextSetBit(c + 1)) {
+            cyclic |= scc.isCyclicComponent(c);
+            int level = 0;
+            for (int i = scc.getMemberStart(c); i < scc.getMemberEnd(c); i++) {
+                for (final Link link : graph.getNodeByIndex(scc.getMember(i)).getLinks()) {
+                    if (!scc.isFollowed(link)) {
+                        continue;
+                    }
+                    final int dependency = scc.getComponentOf(link.getEndNode());
+                    if ((dependency >= 0) && (dependency != c)
+                            && (levels[dependency] + 1 > level)) {
+                        level = levels[dependency] + 1;
+                        chainNext[c] = link.getEndNode();
+                    }
+                }
+            }
+            levels[c] = level;
+            if ((topComponent < 0) || (level > levels[topComponent])) {
+                topComponent = c;
+            }
+        }
+
+        final List<List<Node>> levelNodes = new ArrayList<List<Node>>();
+        final int[] nodeLevels = new int[graph.getNodeIndexBound()];
+        Arrays.fill(nodeLevels, -1);
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            final int component = scc.getComponentOf(node);
+            if ((component < 0) || !included.get(component)) {
+                continue;
+            }
+            final int level = levels[component];
+            while (levelNodes.size() <= level) {
+                levelNodes.add(new ArrayList<Node>());
+            }
+            levelNodes.get(level).add(node);
+            nodeLevels[graph.getNodeIndex(node)] = level;
+        }
+
+        final List<Node> chain = new ArrayList<Node>();
+        if (topComponent >= 0) {
+            Node node = graph.getNodeByIndex(scc.getMember(scc.getMemberStart(topComponent)));
+            while (node != null) {
+                chain.add(node);
+                node = chainNext[scc.getComponentOf(node)];
+            }
+            Collections.reverse(chain);
+        }
+
+        return new ExecutionPlan(graph, targets, levelNodes, nodeLevels, chain, cyclic);
+    }
+}
@@ -0,0 +1,1307 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import net.ggtools.grand.ant.AntLink;
+import net.ggtools.grand.ant.AntTargetNode;
+import net.ggtools.grand.ant.AntTaskLink;
+import net.ggtools.grand.ant.SubantTaskLink;
+import net.ggtools.grand.exceptions.DuplicateElementException;
+import net.ggtools.grand.graph.visit.LinkVisitor;
+import net.ggtools.grand.graph.visit.NodeVisitor;
+
+/**
+ * A read only view on a subset of the nodes of a {@link GraphImpl}. The view
+ * is defined by a bitmask of node indexes: the nodes out of the mask are
+ * skipped as well as the links starting from or ending to them. Nothing is
+ * copied nor removed from the underlying graph so any number of views can
+ * share the same graph. A view may also hide some links between visible
+ * nodes, see {@link #hideLinks(Graph, Collection)}.
+ * <p>
+ * The nodes and links returned by a view are wrappers around the ones of the
+ * underlying graph. The underlying nodes, with their specific types, are
+ * available through {@link #getBaseNode(Node)} or {@link #unwrap(Node)}.
+ * Wrappers are visited with the type of the underlying elements: Ant nodes
+ * and links are visited as copies linked to the view's elements and carrying
+ * the view's attributes. Attributes set on the wrappers only affect the view.
+ * </p>
+ * <p>
+ * Removing a node from the {@link #getNodes()} iterator only excludes it from
+ * the view. A view on a frozen graph can be read by several threads, the
+ * wrappers being created once whatever the thread asking for them, but the
+ * attributes should only be set by a single thread.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public final class FilteredGraphView implements Graph {
+    /**
+     * Links from or to a node restricted to the visible links.
+     *
+     * @author Christophe Labouisse
+     */
+    private final class ViewLinkCollection extends AbstractCollection<Link> {
+        /**
+         * Field forward.
+         */
+        private final boolean forward;
+
+        /**
+         * Field node.
+         */
+        private final Node node;
+
+        /**
+         * Creates a new collection.
+         *
+         * @param node
+         *            the underlying node.
+         * @param forward
+         *            <code>true</code> for the links starting from the node.
+         */
+        private ViewLinkCollection(final Node node, final boolean forward) {
+            this.node = node;
+            this.forward = forward;
+        }
+
+        /**
+         * Method iterator.
+         * @return Iterator&lt;Link&gt;
+         * @see java.util.AbstractCollection#iterator()
+         */
+        @Override
+        public Iterator<Link> iterator() {
+            final Iterator<Link> underlying =
+                    (forward ? node.getLinks() : node.getBackLinks()).iterator();
+            return new Iterator<Link>() {
+                private Link nextLink = findNext();
+
+                public boolean hasNext() {
+                    return nextLink != null;
+                }
+
+                public Link next() {
+                    if (nextLink == null) {
+                        throw new NoSuchElementException();
+                    }
+                    final Link result = wrapLink(nextLink);
+                    nextLink = findNext();
+                    return result;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+                }
+
+                private Link findNext() {
+                    while (underlying.hasNext()) {
+                        final Link link = underlying.next();
+                        if (isVisible(forward ? link.getEndNode() : link.getStartNode())
+                                && !isHidden(link)) {
+                            return link;
+                        }
+                    }
+                    return null;
+                }
+            };
+        }
+
+        /**
+         * Method size.
+         * @return int
+         * @see java.util.AbstractCollection#size()
+         */
+        @Override
+        public int size() {
+            int size = 0;
+            for (final Iterator<Link> iter = iterator(); iter.hasNext(); iter.next()) {
+                size++;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * A link of the view.
+     *
+     * @author Christophe Labouisse
+     */
+    private final class ViewLink implements Link {
+        /**
+         * Field attributes, only used when {@link #overridden} is set.
+         */
+        private int attributes;
+
+        /**
+         * Field base.
+         */
+        private final Link base;
+
+        /**
+         * Field overridden.
+         */
+        private boolean overridden = false;
+
+        /**
+         * Creates a new wrapper.
+         *
+         * @param base
+         *            the underlying link.
+         */
+        private ViewLink(final Link base) {
+            this.base = base;
+        }
+
+        /**
+         * Method accept.
+         * @param visitor LinkVisitor
+         * @see net.ggtools.grand.graph.Link#accept(net.ggtools.grand.graph.visit.LinkVisitor)
+         */
+        public void accept(final LinkVisitor visitor) {
+            base.accept(new TypedLinkDispatcher(this, visitor));
+        }
+
+        /**
+         * Method clearAttributes.
+         * @param attributeMask int
+         * @see net.ggtools.grand.graph.GraphObject#clearAttributes(int)
+         */
+        public void clearAttributes(final int attributeMask) {
+            overrideAttributes(getAttributes() & ~attributeMask);
+        }
+
+        /**
+         * Method equals.
+         * @param obj Object
+         * @return boolean
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            return (obj instanceof ViewLink) && (getGraph() == ((ViewLink) obj).getGraph())
+                    && base.equals(((ViewLink) obj).base);
+        }
+
+        /**
+         * Method getAttributes.
+         * @return int
+         * @see net.ggtools.grand.graph.GraphObject#getAttributes()
+         */
+        public int getAttributes() {
+            return overridden ? attributes : base.getAttributes();
+        }
+
+        /**
+         * Method getEndNode.
+         * @return Node
+         * @see net.ggtools.grand.graph.Link#getEndNode()
+         */
+        public Node getEndNode() {
+            return wrapNode(base.getEndNode());
+        }
+
+        /**
+         * Method getGraph.
+         * @return Graph
+         * @see net.ggtools.grand.graph.GraphObject#getGraph()
+         */
+        public Graph getGraph() {
+            return FilteredGraphView.this;
+        }
+
+        /**
+         * Method getName.
+         * @return String
+         * @see net.ggtools.grand.graph.GraphObject#getName()
+         */
+        public String getName() {
+            return base.getName();
+        }
+
+        /**
+         * Method getStartNode.
+         * @return Node
+         * @see net.ggtools.grand.graph.Link#getStartNode()
+         */
+        public Node getStartNode() {
+            return wrapNode(base.getStartNode());
+        }
+
+        /**
+         * Method hasAttributes.
+         * @param attributeMask int
+         * @return boolean
+         * @see net.ggtools.grand.graph.GraphObject#hasAttributes(int)
+         */
+        public boolean hasAttributes(final int attributeMask) {
+            return (getAttributes() & attributeMask) == attributeMask;
+        }
+
+        /**
+         * Method hashCode.
+         * @return int
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return base.hashCode();
+        }
+
+        /**
+         * Method setAttributes.
+         * @param attributeMask int
+         * @see net.ggtools.grand.graph.GraphObject#setAttributes(int)
+         */
+        public void setAttributes(final int attributeMask) {
+            overrideAttributes(getAttributes() | attributeMask);
+        }
+
+        /**
+         * Method toString.
+         * @return String
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return base.toString();
+        }
+
+        /**
+         * Sets the view specific attributes of the link.
+         *
+         * @param newAttributes
+         *            the new attributes.
+         */
+        private void overrideAttributes(final int newAttributes) {
+            if (!overridden) {
+                overridden = true;
+                overriddenLinks.add(this);
+            }
+            attributes = newAttributes;
+        }
+    }
+
+    /**
+     * Forwards the visit of an underlying link to a visitor with the link
+     * seen through the view. Links without a specific type are visited as
+     * the view's wrapper, Ant links as typed copies of the wrapper.
+     *
+     * @author Christophe Labouisse
+     */
+    private static final class TypedLinkDispatcher implements LinkVisitor {
+        /**
+         * Field viewLink.
+         */
+        private final Link viewLink;
+
+        /**
+         * Field visitor.
+         */
+        private final LinkVisitor visitor;
+
+        /**
+         * Creates a new dispatcher.
+         *
+         * @param viewLink
+         *            the link of the view.
+         * @param visitor
+         *            the actual visitor.
+         */
+        private TypedLinkDispatcher(final Link viewLink,
+                final LinkVisitor visitor) {
+            this.viewLink = viewLink;
+            this.visitor = visitor;
+        }
+
+        /**
+         * Method visitLink.
+         * @param link Link
+         * @see net.ggtools.grand.graph.visit.LinkVisitor#visitLink(net.ggtools.grand.graph.Link)
+         */
+        public void visitLink(final Link link) {
+            visitor.visitLink(viewLink);
+        }
+
+        /**
+         * Method visitLink.
+         * @param link AntLink
+         * @see net.ggtools.grand.graph.visit.LinkVisitor#visitLink(net.ggtools.grand.ant.AntLink)
+         */
+        public void visitLink(final AntLink link) {
+            visitCopy(link);
+        }
+
+        /**
+         * Method visitLink.
+         * @param link AntTaskLink
+         * @see net.ggtools.grand.graph.visit.LinkVisitor#visitLink(net.ggtools.grand.ant.AntTaskLink)
+         */
+        public void visitLink(final AntTaskLink link) {
+            visitCopy(link);
+        }
+
+        /**
+         * Method visitLink.
+         * @param link SubantTaskLink
+         * @see net.ggtools.grand.graph.visit.LinkVisitor#visitLink(net.ggtools.grand.ant.SubantTaskLink)
+         */
+        public void visitLink(final SubantTaskLink link) {
+            visitCopy(link);
+        }
+
+        /**
+         * Visits a copy of an underlying link with the nodes and attributes
+         * of the view.
+         *
+         * @param link
+         *            the underlying link.
+         */
+        private void visitCopy(final AntLink link) {
+            final AntLink copy = link.copy(viewLink.getGraph(),
+                    viewLink.getStartNode(), viewLink.getEndNode());
+            copy.clearAttributes(copy.getAttributes());
+            copy.setAttributes(viewLink.getAttributes());
+            copy.accept(visitor);
+        }
+    }
+
+    /**
+     * Forwards the visit of an underlying node to a visitor with the node
+     * seen through the view. Nodes without a specific type are visited as
+     * the view's wrapper, Ant nodes as typed copies of the wrapper.
+     *
+     * @author Christophe Labouisse
+     */
+    private static final class TypedNodeDispatcher implements NodeVisitor {
+        /**
+         * Field viewNode.
+         */
+        private final Node viewNode;
+
+        /**
+         * Field visitor.
+         */
+        private final NodeVisitor visitor;
+
+        /**
+         * Creates a new dispatcher.
+         *
+         * @param viewNode
+         *            the node of the view.
+         * @param visitor
+         *            the actual visitor.
+         */
+        private TypedNodeDispatcher(final Node viewNode,
+                final NodeVisitor visitor) {
+            this.viewNode = viewNode;
+            this.visitor = visitor;
+        }
+
+        /**
+         * Method visitNode.
+         * @param node Node
+         * @see net.ggtools.grand.graph.visit.NodeVisitor#visitNode(net.ggtools.grand.graph.Node)
+         */
+        public void visitNode(final Node node) {
+            visitor.visitNode(viewNode);
+        }
+
+        /**
+         * Visits a copy of the underlying node with the links and attributes
+         * of the view.
+         *
+         * @param node AntTargetNode
+         * @see net.ggtools.grand.graph.visit.NodeVisitor#visitNode(net.ggtools.grand.ant.AntTargetNode)
+         */
+        public void visitNode(final AntTargetNode node) {
+            final AntTargetNode copy = node.copy(viewNode.getGraph());
+            copy.setAttributes(viewNode.getAttributes());
+            for (final Link link : viewNode.getLinks()) {
+                copy.addLink(link);
+            }
+            for (final Link link : viewNode.getBackLinks()) {
+                copy.addBackLink(link);
+            }
+            visitor.visitNode(copy);
+        }
+    }
+
+    /**
+     * A node of the view.
+     *
+     * @author Christophe Labouisse
+     */
+    private final class ViewNode implements Node {
+        /**
+         * Field attributes, only used when {@link #overridden} is set.
+         */
+        private int attributes;
+
+        /**
+         * Field base.
+         */
+        private final Node base;
+
+        /**
+         * Field index.
+         */
+        private final int index;
+
+        /**
+         * Field overridden.
+         */
+        private boolean overridden = false;
+
+        /**
+         * Creates a new wrapper.
+         *
+         * @param base
+         *            the underlying node.
+         * @param index
+         *            the index of the node.
+         */
+        private ViewNode(final Node base, final int index) {
+            this.base = base;
+            this.index = index;
+        }
+
+        /**
+         * Method accept.
+         * @param visitor NodeVisitor
+         * @see net.ggtools.grand.graph.Node#accept(net.ggtools.grand.graph.visit.NodeVisitor)
+         */
+        public void accept(final NodeVisitor visitor) {
+            base.accept(new TypedNodeDispatcher(this, visitor));
+        }
+
+        /**
+         * Method addBackLink.
+         * @param link Link
+         * @see net.ggtools.grand.graph.Node#addBackLink(net.ggtools.grand.graph.Link)
+         */
+        public void addBackLink(final Link link) {
+            throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+        }
+
+        /**
+         * Method addLink.
+         * @param link Link
+         * @see net.ggtools.grand.graph.Node#addLink(net.ggtools.grand.graph.Link)
+         */
+        public void addLink(final Link link) {
+            throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+        }
+
+        /**
+         * Method clearAttributes.
+         * @param attributeMask int
+         * @see net.ggtools.grand.graph.GraphObject#clearAttributes(int)
+         */
+        public void clearAttributes(final int attributeMask) {
+            overrideAttributes(getAttributes() & ~attributeMask);
+        }
+
+        /**
+         * Two nodes are equal when they belong to the same graph and have the
+         * same name, as for {@link NodeImpl}.
+         *
+         * @param obj Object
+         * @return boolean
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            return (this == obj) || ((obj instanceof Node)
+                    && (getGraph() == ((Node) obj).getGraph())
+                    && getName().equals(((Node) obj).getName()));
+        }
+
+        /**
+         * Method getAttributes.
+         * @return int
+         * @see net.ggtools.grand.graph.GraphObject#getAttributes()
+         */
+        public int getAttributes() {
+            return overridden ? attributes : base.getAttributes();
+        }
+
+        /**
+         * Method getBackLinks.
+         * @return Collection&lt;Link&gt;
+         * @see net.ggtools.grand.graph.Node#getBackLinks()
+         */
+        public Collection<Link> getBackLinks() {
+            return new ViewLinkCollection(base, false);
+        }
+
+        /**
+         * Method getDescription.
+         * @return String
+         * @see net.ggtools.grand.graph.Node#getDescription()
+         */
+        public String getDescription() {
+            return base.getDescription();
+        }
+
+        /**
+         * Method getGraph.
+         * @return Graph
+         * @see net.ggtools.grand.graph.GraphObject#getGraph()
+         */
+        public Graph getGraph() {
+            return FilteredGraphView.this;
+        }
+
+        /**
+         * Method getLinks.
+         * @return Collection&lt;Link&gt;
+         * @see net.ggtools.grand.graph.Node#getLinks()
+         */
+        public Collection<Link> getLinks() {
+            return new ViewLinkCollection(base, true);
+        }
+
+        /**
+         * Method getName.
+         * @return String
+         * @see net.ggtools.grand.graph.GraphObject#getName()
+         */
+        public String getName() {
+            return base.getName();
+        }
+
+        /**
+         * Method getSource.
+         * @return String
+         * @see net.ggtools.grand.graph.Node#getSource()
+         */
+        public String getSource() {
+            return base.getSource();
+        }
+
+        /**
+         * Method hasAttributes.
+         * @param attributeMask int
+         * @return boolean
+         * @see net.ggtools.grand.graph.GraphObject#hasAttributes(int)
+         */
+        public boolean hasAttributes(final int attributeMask) {
+            return (getAttributes() & attributeMask) == attributeMask;
+        }
+
+        /**
+         * Method hashCode.
+         * @return int
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return getName().hashCode();
+        }
+
+        /**
+         * Method removeBackLink.
+         * @param link Link
+         * @see net.ggtools.grand.graph.Node#removeBackLink(net.ggtools.grand.graph.Link)
+         */
+        public void removeBackLink(final Link link) {
+            throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+        }
+
+        /**
+         * Method removeLink.
+         * @param link Link
+         * @see net.ggtools.grand.graph.Node#removeLink(net.ggtools.grand.graph.Link)
+         */
+        public void removeLink(final Link link) {
+            throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+        }
+
+        /**
+         * Method setAttributes.
+         * @param attributeMask int
+         * @see net.ggtools.grand.graph.GraphObject#setAttributes(int)
+         */
+        public void setAttributes(final int attributeMask) {
+            overrideAttributes(getAttributes() | attributeMask);
+        }
+
+        /**
+         * Method setDescription.
+         * @param description String
+         * @see net.ggtools.grand.graph.Node#setDescription(java.lang.String)
+         */
+        public void setDescription(final String description) {
+            throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+        }
+
+        /**
+         * Method toString.
+         * @return String
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return base.toString();
+        }
+
+        /**
+         * Sets the view specific attributes of the node.
+         *
+         * @param newAttributes
+         *            the new attributes.
+         */
+        private void overrideAttributes(final int newAttributes) {
+            overridden = true;
+            attributes = newAttributes;
+            overriddenNodes.set(index);
+        }
+    }
+
+    /**
+     * Field READ_ONLY_MESSAGE.
+     * (value is {@value #READ_ONLY_MESSAGE})
+     */
+    private static final String READ_ONLY_MESSAGE = "Graph views are read only";
+
+    /**
+     * Field base.
+     */
+    private final GraphImpl base;
+
+    /**
+     * Field linkWrappers, indexed by link index.
+     */
+    private ViewLink[] linkWrappers = new ViewLink[0];
+
+    /**
+     * Indexes of the hidden links.
+     */
+    private final BitSet hiddenLinks = new BitSet();
+
+    /**
+     * Indexes of the visible nodes.
+     */
+    private final BitSet mask;
+
+    /**
+     * Field nodeWrappers, indexed by node index.
+     */
+    private ViewNode[] nodeWrappers;
+
+    /**
+     * Links with view specific attributes.
+     */
+    private final List<ViewLink> overriddenLinks = new ArrayList<ViewLink>();
+
+    /**
+     * Indexes of the nodes with view specific attributes.
+     */
+    private final BitSet overriddenNodes = new BitSet();
+
+    /**
+     * Creates a view showing all the nodes of a graph.
+     *
+     * @param graph
+     *            the underlying graph.
+     */
+    public FilteredGraphView(final GraphImpl graph) {
+        this(graph, graph.getLiveNodes());
+    }
+
+    /**
+     * Creates a new view.
+     *
+     * @param graph
+     *            the underlying graph.
+     * @param mask
+     *            indexes of the visible nodes, the view takes ownership of
+     *            the bitset.
+     */
+    private FilteredGraphView(final GraphImpl graph, final BitSet mask) {
+        base = graph;
+        this.mask = mask;
+        nodeWrappers = new ViewNode[graph.getNodeIndexBound()];
+    }
+
+    /**
+     * Creates a view restricted to a collection of nodes. When
+     * <code>graph</code> is already a view, the new view is built directly on
+     * the underlying graph, keeping only the nodes visible in both views, and
+     * the view specific attributes are copied.
+     *
+     * @param graph
+     *            a {@link GraphImpl} or a {@link FilteredGraphView}.
+     * @param nodes
+     *            the nodes from <code>graph</code> to keep.
+     * @return a new view.
+     */
+    public static FilteredGraphView restrict(final Graph graph,
+            final Collection<Node> nodes) {
+        final BitSet newMask;
+        if ((nodes instanceof NodeSet) && (((NodeSet) nodes).getGraph() == graph)) {
+            newMask = ((NodeSet) nodes).toBitSet();
+        } else {
+            newMask = new BitSet(graph.getNodeIndexBound());
+            for (final Node node : nodes) {
+                final int nodeIndex = graph.getNodeIndex(node);
+                if (nodeIndex >= 0) {
+                    newMask.set(nodeIndex);
+                }
+            }
+        }
+
+        if (graph instanceof FilteredGraphView) {
+            final FilteredGraphView parent = (FilteredGraphView) graph;
+            newMask.and(parent.mask);
+            final FilteredGraphView result = new FilteredGraphView(parent.base, newMask);
+            result.hiddenLinks.or(parent.hiddenLinks);
+            result.copyAttributes(parent);
+            return result;
+        }
+
+        if (graph instanceof GraphImpl) {
+            return new FilteredGraphView((GraphImpl) graph, newMask);
+        }
+
+        throw new IllegalArgumentException("Cannot create a view on "
+                + graph.getClass().getName());
+    }
+
+    /**
+     * Creates a view showing the same nodes as a graph without some of its
+     * links. When <code>graph</code> is already a view, the links it hides
+     * stay hidden and the view specific attributes are copied.
+     *
+     * @param graph
+     *            a {@link GraphImpl} or a {@link FilteredGraphView}.
+     * @param links
+     *            the links from <code>graph</code> to hide.
+     * @return a new view.
+     */
+    public static FilteredGraphView hideLinks(final Graph graph,
+            final Collection<Link> links) {
+        final FilteredGraphView result;
+        if (graph instanceof FilteredGraphView) {
+            final FilteredGraphView parent = (FilteredGraphView) graph;
+            result = new FilteredGraphView(parent.base, (BitSet) parent.mask.clone());
+            result.hiddenLinks.or(parent.hiddenLinks);
+            result.copyAttributes(parent);
+        } else if (graph instanceof GraphImpl) {
+            result = new FilteredGraphView((GraphImpl) graph);
+        } else {
+            throw new IllegalArgumentException("Cannot create a view on "
+                    + graph.getClass().getName());
+        }
+
+        for (final Link link : links) {
+            final Link baseLink = (link instanceof ViewLink) ? ((ViewLink) link).base : link;
+            final int linkIndex = result.base.getLinkIndex(baseLink);
+            if (linkIndex >= 0) {
+                result.hiddenLinks.set(linkIndex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method createLink.
+     * @param linkName String
+     * @param startNode Node
+     * @param endNode Node
+     * @return Link
+     * @see net.ggtools.grand.graph.Graph#createLink(java.lang.String,
+     *      net.ggtools.grand.graph.Node, net.ggtools.grand.graph.Node)
+     */
+    public Link createLink(final String linkName, final Node startNode,
+            final Node endNode) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    /**
+     * Method createNode.
+     * @param nodeName String
+     * @return Node
+     * @see net.ggtools.grand.graph.Graph#createNode(java.lang.String)
+     */
+    public Node createNode(final String nodeName) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    /**
+     * Method createNode.
+     * @param subGraph SubGraph
+     * @param nodeName String
+     * @return Node
+     * @see net.ggtools.grand.graph.Graph#createNode(net.ggtools.grand.graph.SubGraph,
+     *      java.lang.String)
+     */
+    public Node createNode(final SubGraph subGraph, final String nodeName) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    /**
+     * Method createSubGraph.
+     * @param subGraphName String
+     * @return SubGraph
+     * @throws DuplicateElementException never, views are read only.
+     * @see net.ggtools.grand.graph.Graph#createSubGraph(java.lang.String)
+     */
+    public SubGraph createSubGraph(final String subGraphName)
+            throws DuplicateElementException {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    /**
+     * Returns the underlying graph.
+     *
+     * @return the graph the view is built on.
+     */
+    public GraphImpl getBaseGraph() {
+        return base;
+    }
+
+    /**
+     * Returns the underlying node of a node from the view.
+     *
+     * @param node
+     *            a node from the view.
+     * @return the node from the underlying graph.
+     */
+    public Node getBaseNode(final Node node) {
+        if (getNodeIndex(node) < 0) {
+            throw new IllegalArgumentException("Node " + node
+                    + " does not belong to the view");
+        }
+        return ((ViewNode) node).base;
+    }
+
+    /**
+     * Returns the node of the underlying graph for a node of any view, or the
+     * node itself when it does not come from a view.
+     *
+     * @param node
+     *            a node.
+     * @return the underlying node.
+     */
+    public static Node unwrap(final Node node) {
+        return (node instanceof ViewNode) ? ((ViewNode) node).base : node;
+    }
+
+    /**
+     * Method getLinksWithAttributes.
+     * @param attributeMask int
+     * @return Collection&lt;Link&gt;
+     * @see net.ggtools.grand.graph.Graph#getLinksWithAttributes(int)
+     */
+    public Collection<Link> getLinksWithAttributes(final int attributeMask) {
+        final List<Link> result = new ArrayList<Link>();
+        for (final Link link : base.getLinksWithAttributes(attributeMask)) {
+            if (isVisible(link)) {
+                final ViewLink wrapper = (ViewLink) wrapLink(link);
+                if (!wrapper.overridden) {
+                    result.add(wrapper);
+                }
+            }
+        }
+        for (final ViewLink wrapper : overriddenLinks) {
+            if (isVisible(wrapper.base) && wrapper.hasAttributes(attributeMask)) {
+                result.add(wrapper);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Method getName.
+     * @return String
+     * @see net.ggtools.grand.graph.Graph#getName()
+     */
+    public String getName() {
+        return base.getName();
+    }
+
+    /**
+     * Method getNode.
+     * @param nodeName String
+     * @return Node
+     * @see net.ggtools.grand.graph.NodeContainer#getNode(java.lang.String)
+     */
+    public Node getNode(final String nodeName) {
+        final Node node = base.getNode(nodeName);
+        return isVisible(node) ? wrapNode(node) : null;
+    }
+
+    /**
+     * Method getNodeByIndex.
+     * @param nodeIndex int
+     * @return Node
+     * @see net.ggtools.grand.graph.Graph#getNodeByIndex(int)
+     */
+    public Node getNodeByIndex(final int nodeIndex) {
+        return isVisible(nodeIndex) ? wrapNode(nodeIndex) : null;
+    }
+
+    /**
+     * Method getNodeIndex.
+     * @param node Node
+     * @return int
+     * @see net.ggtools.grand.graph.Graph#getNodeIndex(net.ggtools.grand.graph.Node)
+     */
+    public int getNodeIndex(final Node node) {
+        if ((node instanceof ViewNode) && (node.getGraph() == this)) {
+            return ((ViewNode) node).index;
+        }
+        return -1;
+    }
+
+    /**
+     * Method getNodeIndexBound.
+     * @return int
+     * @see net.ggtools.grand.graph.Graph#getNodeIndexBound()
+     */
+    public int getNodeIndexBound() {
+        return base.getNodeIndexBound();
+    }
+
+    /**
+     * Method getNodes.
+     * @return Iterator&lt;Node&gt;
+     * @see net.ggtools.grand.graph.NodeContainer#getNodes()
+     */
+    public Iterator<Node> getNodes() {
+        return new Iterator<Node>() {
+            private int lastIndex = -1;
+
+            private int nextIndex = findNext(0);
+
+            public boolean hasNext() {
+                return nextIndex >= 0;
+            }
+
+            public Node next() {
+                if (nextIndex < 0) {
+                    throw new NoSuchElementException();
+                }
+                lastIndex = nextIndex;
+                nextIndex = findNext(nextIndex + 1);
+                return wrapNode(lastIndex);
+            }
+
+            public void remove() {
+                if (lastIndex < 0) {
+                    throw new IllegalStateException();
+                }
+                mask.clear(lastIndex);
+                lastIndex = -1;
+            }
+
+            private int findNext(final int fromIndex) {
+                int i = mask.nextSetBit(fromIndex);
+                while ((i >= 0) && !base.isLiveNode(i)) {
+                    i = mask.nextSetBit(i + 1);
+                }
+                return i;
+            }
+        };
+    }
+
+    /**
+     * Method getNodesWithAttributes.
+     * @param attributeMask int
+     * @return NodeSet
+     * @see net.ggtools.grand.graph.Graph#getNodesWithAttributes(int)
+     */
+    public NodeSet getNodesWithAttributes(final int attributeMask) {
+        final BitSet result = base.getNodesWithAttributes(attributeMask).toBitSet();
+        result.and(mask);
+        applyOverriddenAttributes(result, attributeMask, true);
+        return new NodeSet(this, result);
+    }
+
+    /**
+     * Method getNodesWithoutAttributes.
+     * @param attributeMask int
+     * @return NodeSet
+     * @see net.ggtools.grand.graph.Graph#getNodesWithoutAttributes(int)
+     */
+    public NodeSet getNodesWithoutAttributes(final int attributeMask) {
+        final BitSet result = base.getNodesWithoutAttributes(attributeMask).toBitSet();
+        result.and(mask);
+        applyOverriddenAttributes(result, attributeMask, false);
+        return new NodeSet(this, result);
+    }
+
+    /**
+     * Returns the start node of the underlying graph if it is visible.
+     *
+     * @return the start node or <code>null</code>.
+     * @see net.ggtools.grand.graph.Graph#getStartNode()
+     */
+    public Node getStartNode() {
+        final Node startNode = base.getStartNode();
+        return isVisible(startNode) ? wrapNode(startNode) : null;
+    }
+
+    /**
+     * Method getSubGraph.
+     * @param subGraphName String
+     * @return SubGraph
+     * @see net.ggtools.grand.graph.Graph#getSubGraph(java.lang.String)
+     */
+    public SubGraph getSubGraph(final String subGraphName) {
+        return base.getSubGraph(subGraphName);
+    }
+
+    /**
+     * Method getSubgraphs.
+     * @return Iterator&lt;SubGraph&gt;
+     * @see net.ggtools.grand.graph.Graph#getSubgraphs()
+     */
+    public Iterator<SubGraph> getSubgraphs() {
+        return base.getSubgraphs();
+    }
+
+    /**
+     * Method hasNode.
+     * @param nodeName String
+     * @return boolean
+     * @see net.ggtools.grand.graph.NodeContainer#hasNode(java.lang.String)
+     */
+    public boolean hasNode(final String nodeName) {
+        return isVisible(base.getNode(nodeName));
+    }
+
+    /**
+     * Method hasSubGraph.
+     * @param subGraphName String
+     * @return boolean
+     * @see net.ggtools.grand.graph.Graph#hasSubGraph(java.lang.String)
+     */
+    public boolean hasSubGraph(final String subGraphName) {
+        return base.hasSubGraph(subGraphName);
+    }
+
+    /**
+     * Method setStartNode.
+     * @param node Node
+     * @see net.ggtools.grand.graph.Graph#setStartNode(net.ggtools.grand.graph.Node)
+     */
+    public void setStartNode(final Node node) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    /**
+     * Fixes the result of an attribute query for the nodes having view
+     * specific attributes.
+     *
+     * @param result
+     *            the result computed from the underlying graph.
+     * @param attributeMask
+     *            the queried attributes.
+     * @param with
+     *            <code>true</code> when looking for nodes having all the
+     *            attributes, <code>false</code> for nodes having none.
+     */
+    private void applyOverriddenAttributes(final BitSet result,
+            final int attributeMask, final boolean with) {
+        for (int i = overriddenNodes.nextSetBit(0); i >= 0; i = overriddenNodes
+                .nextSetBit(i + 1)) {
+            if (!mask.get(i) || !base.isLiveNode(i)) {
+                continue;
+            }
+            final int attributes = nodeWrappers[i].attributes;
+            if (with) {
+                result.set(i, (attributes & attributeMask) == attributeMask);
+            } else {
+                result.set(i, (attributes & attributeMask) == 0);
+            }
+        }
+    }
+
+    /**
+     * Copies the view specific attributes from another view on the same graph.
+     *
+     * @param other
+     *            the view to copy the attributes from.
+     */
+    private void copyAttributes(final FilteredGraphView other) {
+        for (int i = other.overriddenNodes.nextSetBit(0); i >= 0; i = other.overriddenNodes
+                .nextSetBit(i + 1)) {
+            ((ViewNode) wrapNode(i)).overrideAttributes(other.nodeWrappers[i].attributes);
+        }
+        for (final ViewLink link : other.overriddenLinks) {
+            ((ViewLink) wrapLink(link.base)).overrideAttributes(link.attributes);
+        }
+    }
+
+    /**
+     * Tells if a node of the underlying graph is visible in the view.
+     *
+     * @param nodeIndex
+     *            index of the node.
+     * @return <code>true</code> if the node is visible.
+     */
+    private boolean isVisible(final int nodeIndex) {
+        return (nodeIndex >= 0) && mask.get(nodeIndex) && base.isLiveNode(nodeIndex);
+    }
+
+    /**
+     * Tells if a link of the underlying graph is hidden by the view.
+     *
+     * @param link
+     *            the link.
+     * @return <code>true</code> if the link is hidden.
+     */
+    private boolean isHidden(final Link link) {
+        final int linkIndex = base.getLinkIndex(link);
+        return (linkIndex >= 0) && hiddenLinks.get(linkIndex);
+    }
+
+    /**
+     * Tells if a link of the underlying graph is visible in the view.
+     *
+     * @param link
+     *            the link.
+     * @return <code>true</code> if both ends of the link are visible and the
+     *         link is not hidden.
+     */
+    private boolean isVisible(final Link link) {
+        return isVisible(link.getStartNode()) && isVisible(link.getEndNode())
+                && !isHidden(link);
+    }
+
+    /**
+     * Tells if a node of the underlying graph is visible in the view.
+     *
+     * @param node
+     *            the node, may be <code>null</code>.
+     * @return <code>true</code> if the node is visible.
+     */
+    private boolean isVisible(final Node node) {
+        return (node != null) && isVisible(base.getNodeIndex(node));
+    }
+
+    /**
+     * Returns the wrapper for a link of the underlying graph.
+     *
+     * @param link
+     *            the link.
+     * @return the wrapper.
+     */
+    private Link wrapLink(final Link link) {
+        final int linkIndex = base.getLinkIndex(link);
+        if (linkIndex < 0) {
+            return new ViewLink(link);
+        }
+        final ViewLink[] wrappers = linkWrappers;
+        if ((linkIndex < wrappers.length) && (wrappers[linkIndex] != null)) {
+            return wrappers[linkIndex];
+        }
+        return createLinkWrapper(link, linkIndex);
+    }
+
+    /**
+     * Creates the wrapper for a link, unless another thread did it first.
+     * The fields set when creating a wrapper are final so the wrappers can
+     * be read without locking once created.
+     *
+     * @param link
+     *            the underlying link.
+     * @param linkIndex
+     *            the index of the link.
+     * @return the wrapper.
+     */
+    private synchronized Link createLinkWrapper(final Link link, final int linkIndex) {
+        if (linkIndex >= linkWrappers.length) {
+            final ViewLink[] newWrappers =
+                    new ViewLink[Math.max(linkIndex + 1, linkWrappers.length * 2)];
+            System.arraycopy(linkWrappers, 0, newWrappers, 0, linkWrappers.length);
+            linkWrappers = newWrappers;
+        }
+        if (linkWrappers[linkIndex] == null) {
+            linkWrappers[linkIndex] = new ViewLink(link);
+        }
+        return linkWrappers[linkIndex];
+    }
+
+    /**
+     * Returns the wrapper for a node of the underlying graph.
+     *
+     * @param nodeIndex
+     *            the index of the node.
+     * @return the wrapper.
+     */
+    private Node wrapNode(final int nodeIndex) {
+        final ViewNode[] wrappers = nodeWrappers;
+        if ((nodeIndex < wrappers.length) && (wrappers[nodeIndex] != null)) {
+            return wrappers[nodeIndex];
+        }
+        return createNodeWrapper(nodeIndex);
+    }
+
+    /**
+     * Creates the wrapper for a node, unless another thread did it first.
+     *
+     * @param nodeIndex
+     *            the index of the node.
+     * @return the wrapper.
+     */
+    private synchronized Node createNodeWrapper(final int nodeIndex) {
+        if (nodeIndex >= nodeWrappers.length) {
+            final ViewNode[] newWrappers = new ViewNode[base.getNodeIndexBound()];
+            System.arraycopy(nodeWrappers, 0, newWrappers, 0, nodeWrappers.length);
+            nodeWrappers = newWrappers;
+        }
+        if (nodeWrappers[nodeIndex] == null) {
+            nodeWrappers[nodeIndex] = new ViewNode(base.getNodeByIndex(nodeIndex), nodeIndex);
+        }
+        return nodeWrappers[nodeIndex];
+    }
+
+    /**
+     * Returns the wrapper for a node of the underlying graph.
+     *
+     * @param node
+     *            the node.
+     * @return the wrapper.
+     */
+    private Node wrapNode(final Node node) {
+        return wrapNode(base.getNodeIndex(node));
+    }
+}
@@ -40,7 +40,7 @@ import java.util.Set;
  *
  * @author Christophe Labouisse
  */
-public class ForwardLinkFinder implements LinkFinder {
+public class ForwardLinkFinder implements StreamingLinkFinder {
 
     /**
      * Method getLinks.
@@ -49,15 +49,25 @@ public class ForwardLinkFinder implements LinkFinder {
      * @see net.ggtools.grand.graph.LinkFinder#getLinks(net.ggtools.grand.graph.Node)
      */
     public final Collection<Node> getLinks(final Node node) {
-        final Collection<Link> links = node.getLinks();
-
         final Set<Node> result = new LinkedHashSet<Node>();
-
-        for (Link link : links) {
-            result.add(link.getEndNode());
-        }
-
+        forEachNeighbour(node, new NodeCollector(result));
         return result;
     }
 
+    /**
+     * Method forEachNeighbour.
+     * @param node Node
+     * @param consumer NodeConsumer
+     * @return boolean
+     * @see net.ggtools.grand.graph.StreamingLinkFinder#forEachNeighbour(net.ggtools.grand.graph.Node, net.ggtools.grand.graph.NodeConsumer)
+     */
+    public final boolean forEachNeighbour(final Node node,
+            final NodeConsumer consumer) {
+        for (Link link : node.getLinks()) {
+            if (!consumer.accept(link.getEndNode())) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -28,6 +28,7 @@
 
 package net.ggtools.grand.graph;
 
+import java.util.Collection;
 import java.util.Iterator;
 
 import net.ggtools.grand.exceptions.DuplicateElementException;
@@ -115,6 +116,70 @@ public interface Graph extends NodeContainer {
      */
     Node getStartNode();
 
+    /**
+     * Returns the nodes of the graph having all the attributes specified by
+     * the mask set. Only the nodes returned by {@link #getNodes()} are
+     * considered.
+     *
+     * @param attributeMask
+     *            a bit mask of attributes.
+     * @return a read only set of nodes.
+     */
+    NodeSet getNodesWithAttributes(final int attributeMask);
+
+    /**
+     * Returns the nodes of the graph having none of the attributes specified
+     * by the mask set. Only the nodes returned by {@link #getNodes()} are
+     * considered.
+     *
+     * @param attributeMask
+     *            a bit mask of attributes.
+     * @return a read only set of nodes.
+     */
+    NodeSet getNodesWithoutAttributes(final int attributeMask);
+
+    /**
+     * Returns the links created by the graph having all the attributes
+     * specified by the mask set. Links connected to a removed node are not
+     * returned.
+     *
+     * @param attributeMask
+     *            a bit mask of attributes.
+     * @return a read only collection of links.
+     */
+    Collection<Link> getLinksWithAttributes(final int attributeMask);
+
+    /**
+     * Returns the index of a node in the graph. Node indexes are small
+     * positive integers allowing to use arrays or bitsets to store per node
+     * data. The index of a node does not change during the life of the graph.
+     *
+     * @param node
+     *            the node.
+     * @return the index of the node or -1 if the node does not belong to the
+     *         graph.
+     */
+    int getNodeIndex(final Node node);
+
+    /**
+     * Returns a node from its index.
+     *
+     * @param nodeIndex
+     *            a node index lower than {@link #getNodeIndexBound()}.
+     * @return the node or <code>null</code> if there is no such node in the
+     *         graph.
+     * @see #getNodeIndex(Node)
+     */
+    Node getNodeByIndex(final int nodeIndex);
+
+    /**
+     * Returns an upper bound of the node indexes.
+     *
+     * @return a value greater than any node index.
+     * @see #getNodeIndex(Node)
+     */
+    int getNodeIndexBound();
+
     /**
      * Find a subgraph from its name.
      *
@@ -0,0 +1,401 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import net.ggtools.grand.exceptions.DuplicateElementException;
+import net.ggtools.grand.log.LoggerManager;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Builds a graph from batches of nodes and links. Nodes are created right
+ * away so that they can be customized, but links are only recorded until
+ * {@link #build()} is called. The builder then resolves the link ends,
+ * creating the missing nodes, sizes the link storage of every node and
+ * creates all the links in a single pass.
+ * <p>
+ * Unlike {@link Graph#createNode(String)}, adding a node whose name is
+ * already in use is handled according to a {@link DuplicatePolicy}.
+ * </p>
+ * <p>
+ * Builders are not thread safe and cannot be used while the graph is
+ * {@link GraphImpl#startConcurrentConstruction() built concurrently}.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public class GraphBuilder {
+    /**
+     * What to do when adding a node whose name is already in use.
+     */
+    public enum DuplicatePolicy {
+        /**
+         * Throw a {@link DuplicateElementException}.
+         */
+        FAIL,
+
+        /**
+         * Keep the existing node and ignore the new attributes and
+         * description.
+         */
+        KEEP_FIRST,
+
+        /**
+         * Keep the existing node, add the new attributes and set the
+         * description if the existing node has none.
+         */
+        MERGE
+    }
+
+    /**
+     * Field log.
+     */
+    private static final Log LOG = LoggerManager.getLog(GraphBuilder.class);
+
+    /**
+     * Field duplicatePolicy.
+     */
+    private DuplicatePolicy duplicatePolicy = DuplicatePolicy.FAIL;
+
+    /**
+     * Symbols of the end nodes of the pending links.
+     */
+    private int[] endSymbols = new int[16];
+
+    /**
+     * Field graph.
+     */
+    private final GraphImpl graph;
+
+    /**
+     * Kinds of the pending links, <code>null</code> for plain links.
+     */
+    private final ArrayList<LinkKind> kinds = new ArrayList<LinkKind>();
+
+    /**
+     * Names of the pending links.
+     */
+    private final ArrayList<String> linkNames = new ArrayList<String>();
+
+    /**
+     * Attributes set on the nodes created for missing link ends.
+     */
+    private int missingNodeAttributes = Node.ATTR_MISSING_NODE;
+
+    /**
+     * Field pendingLinkCount.
+     */
+    private int pendingLinkCount = 0;
+
+    /**
+     * Symbols of the start nodes of the pending links.
+     */
+    private int[] startSymbols = new int[16];
+
+    /**
+     * Creates a new builder filling a graph.
+     *
+     * @param graph
+     *            the graph to build, usually a new one.
+     */
+    public GraphBuilder(final GraphImpl graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Adds a plain link to be created by {@link #build()}.
+     *
+     * @param linkName
+     *            the link name, can be <code>null</code>.
+     * @param startNodeName
+     *            name of the start node.
+     * @param endNodeName
+     *            name of the end node.
+     */
+    public final void addLink(final String linkName, final String startNodeName,
+            final String endNodeName) {
+        addLink(linkName, startNodeName, endNodeName, null);
+    }
+
+    /**
+     * Adds a link to be created by {@link #build()}. The nodes do not need
+     * to exist yet, nodes still missing when the graph is built will be
+     * created with the {@link #setMissingNodeAttributes(int) missing node
+     * attributes}.
+     *
+     * @param linkName
+     *            the link name, can be <code>null</code>.
+     * @param startNodeName
+     *            name of the start node.
+     * @param endNodeName
+     *            name of the end node.
+     * @param kind
+     *            the kind of link to create, <code>null</code> to use the
+     *            graph's factory.
+     */
+    public final void addLink(final String linkName, final String startNodeName,
+            final String endNodeName, final LinkKind kind) {
+        final SymbolTable symbols = graph.getSymbols();
+        if (pendingLinkCount == startSymbols.length) {
+            growPendingLinks(pendingLinkCount * 2);
+        }
+        startSymbols[pendingLinkCount] = symbols.intern(startNodeName);
+        endSymbols[pendingLinkCount] = symbols.intern(endNodeName);
+        linkNames.add(linkName);
+        kinds.add(kind);
+        pendingLinkCount++;
+    }
+
+    /**
+     * Adds unnamed links of the same kind from a node to several others.
+     *
+     * @param startNodeName
+     *            name of the start node.
+     * @param endNodeNames
+     *            names of the end nodes.
+     * @param kind
+     *            the kind of link to create, <code>null</code> to use the
+     *            graph's factory.
+     */
+    public final void addLinks(final String startNodeName,
+            final Collection<String> endNodeNames, final LinkKind kind) {
+        for (final String endNodeName : endNodeNames) {
+            addLink(null, startNodeName, endNodeName, kind);
+        }
+    }
+
+    /**
+     * Adds a node to the graph.
+     *
+     * @param nodeName
+     *            the name of the node.
+     * @param attributes
+     *            attributes to set on the node.
+     * @param description
+     *            the node description, can be <code>null</code>.
+     * @return the new node or, depending on the duplicate policy, the existing
+     *         node with the same name.
+     * @throws DuplicateElementException
+     *             if there is already a node with the same name and the
+     *             duplicate policy is {@link DuplicatePolicy#FAIL}.
+     */
+    public final Node addNode(final String nodeName, final int attributes,
+            final String description) throws DuplicateElementException {
+        graph.checkNotFrozen();
+        graph.checkNotConcurrent();
+        final int symbol = graph.getSymbols().intern(nodeName);
+        Node node = graph.findNode(symbol);
+        if (node == null) {
+            node = graph.addNode(nodeName, symbol);
+        } else {
+            switch (duplicatePolicy) {
+            case KEEP_FIRST:
+                return node;
+
+            case MERGE:
+                node.setAttributes(attributes);
+                if ((description != null) && (node.getDescription() == null)) {
+                    node.setDescription(description);
+                }
+                return node;
+
+            default:
+                throw new DuplicateElementException("Creating two nodes named " + nodeName);
+            }
+        }
+        if (attributes != 0) {
+            node.setAttributes(attributes);
+        }
+        if (description != null) {
+            node.setDescription(description);
+        }
+        return node;
+    }
+
+    /**
+     * Adds several nodes sharing the same attributes.
+     *
+     * @param nodeNames
+     *            the names of the nodes.
+     * @param attributes
+     *            attributes to set on the nodes.
+     * @return the nodes, in the same order as the names.
+     * @throws DuplicateElementException
+     *             if a name is already in use and the duplicate policy is
+     *             {@link DuplicatePolicy#FAIL}.
+     */
+    public final Node[] addNodes(final String[] nodeNames, final int attributes)
+            throws DuplicateElementException {
+        graph.ensureCapacity(nodeNames.length, 0);
+        final Node[] nodes = new Node[nodeNames.length];
+        for (int i = 0; i < nodeNames.length; i++) {
+            nodes[i] = addNode(nodeNames[i], attributes, null);
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates the pending links and returns the graph. The builder can be
+     * reused to add more elements to the same graph afterwards.
+     *
+     * @return the graph.
+     */
+    public final GraphImpl build() {
+        graph.checkNotFrozen();
+        graph.checkNotConcurrent();
+        final int linkCount = pendingLinkCount;
+        final Node[] startNodes = new Node[linkCount];
+        final Node[] endNodes = new Node[linkCount];
+        for (int i = 0; i < linkCount; i++) {
+            startNodes[i] = resolve(startSymbols[i], null);
+            endNodes[i] = resolve(endSymbols[i], startNodes[i]);
+        }
+
+        final int nodeCount = graph.getNodeIndexBound();
+        final int[] outDegrees = new int[nodeCount];
+        final int[] inDegrees = new int[nodeCount];
+        for (int i = 0; i < linkCount; i++) {
+            outDegrees[graph.getNodeIndex(startNodes[i])]++;
+            inDegrees[graph.getNodeIndex(endNodes[i])]++;
+        }
+        graph.ensureCapacity(0, linkCount);
+        for (int i = 0; i < nodeCount; i++) {
+            if ((outDegrees[i] > 0) || (inDegrees[i] > 0)) {
+                ((NodeImpl) graph.getNodeByIndex(i)).ensureLinkCapacity(outDegrees[i],
+                        inDegrees[i]);
+            }
+        }
+
+        for (int i = 0; i < linkCount; i++) {
+            final LinkKind kind = kinds.get(i);
+            if (kind == null) {
+                graph.createLink(linkNames.get(i), startNodes[i], endNodes[i]);
+            } else {
+                graph.createLink(kind, linkNames.get(i), startNodes[i], endNodes[i]);
+            }
+        }
+
+        pendingLinkCount = 0;
+        linkNames.clear();
+        kinds.clear();
+        return graph;
+    }
+
+    /**
+     * Makes room for some more nodes and links.
+     *
+     * @param nodeCount
+     *            expected number of nodes to be added.
+     * @param linkCount
+     *            expected number of links to be added.
+     */
+    public final void ensureCapacity(final int nodeCount, final int linkCount) {
+        graph.ensureCapacity(nodeCount, 0);
+        if (pendingLinkCount + linkCount > startSymbols.length) {
+            growPendingLinks(pendingLinkCount + linkCount);
+        }
+        linkNames.ensureCapacity(pendingLinkCount + linkCount);
+        kinds.ensureCapacity(pendingLinkCount + linkCount);
+    }
+
+    /**
+     * Returns the graph being built.
+     *
+     * @return the graph.
+     */
+    public final GraphImpl getGraph() {
+        return graph;
+    }
+
+    /**
+     * Sets the policy used when adding a node whose name is already in use.
+     * Defaults to {@link DuplicatePolicy#FAIL}.
+     *
+     * @param policy
+     *            the new policy.
+     */
+    public final void setDuplicatePolicy(final DuplicatePolicy policy) {
+        duplicatePolicy = policy;
+    }
+
+    /**
+     * Sets the attributes of the nodes created for link ends not found in
+     * the graph. Defaults to {@link Node#ATTR_MISSING_NODE}.
+     *
+     * @param attributes
+     *            the attributes.
+     */
+    public final void setMissingNodeAttributes(final int attributes) {
+        missingNodeAttributes = attributes;
+    }
+
+    /**
+     * Grows the arrays holding the pending links.
+     *
+     * @param capacity
+     *            the new capacity.
+     */
+    private void growPendingLinks(final int capacity) {
+        final int[] newStarts = new int[capacity];
+        System.arraycopy(startSymbols, 0, newStarts, 0, pendingLinkCount);
+        startSymbols = newStarts;
+        final int[] newEnds = new int[capacity];
+        System.arraycopy(endSymbols, 0, newEnds, 0, pendingLinkCount);
+        endSymbols = newEnds;
+    }
+
+    /**
+     * Finds a link end, creating a missing node if needed.
+     *
+     * @param symbol
+     *            symbol of the node name.
+     * @param startNode
+     *            start node of the link when resolving its end,
+     *            <code>null</code> otherwise.
+     * @return the node.
+     */
+    private Node resolve(final int symbol, final Node startNode) {
+        Node node = graph.findNode(symbol);
+        if (node == null) {
+            final String nodeName = graph.getSymbols().getSymbol(symbol);
+            if (startNode != null) {
+                LOG.warn("Node " + startNode + " has a link to non existent node "
+                        + nodeName + ", creating a dummy node");
+            } else {
+                LOG.warn("Creating a dummy node for non existent node " + nodeName);
+            }
+            node = graph.addNode(nodeName, symbol);
+            node.setAttributes(missingNodeAttributes);
+        }
+        return node;
+    }
+}
@@ -31,29 +31,353 @@
 
 package net.ggtools.grand.graph;
 
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import net.ggtools.grand.log.LoggerManager;
+
+import org.apache.commons.logging.Log;
 
 /**
  * Walks a graph starting from a specific node to find all the nodes
  * accessible from it.
+ * <p>
+ * Frozen graphs and {@link FilteredGraphView}s on frozen graphs with at least
+ * {@link #setParallelThreshold(int) parallelThreshold} nodes are crawled by
+ * several threads, one breadth first level at a time. Other graphs are always
+ * crawled sequentially as their nodes and links may be lazily created.
+ * The nodes of each level are split between the threads, which claim the
+ * nodes they find in a shared visited bitmap. A parallel crawl finds the same
+ * nodes as a sequential one, but returns them level by level in index order
+ * rather than in the order they were reached. The threads come from a pool
+ * shared by all the crawlers unless another {@link #setExecutor(ExecutorService)
+ * executor} is given.
+ * </p>
  *
  * @author Christophe Labouisse
  */
 public class GraphCrawler {
+    /**
+     * Default minimal number of nodes for a graph to be crawled in parallel.
+     * (value is {@value #DEFAULT_PARALLEL_THRESHOLD})
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 100000;
+
+    /**
+     * Maximum depth value for walks without depth limit.
+     * (value is {@value #UNLIMITED_DEPTH})
+     */
+    public static final int UNLIMITED_DEPTH = -1;
+
+    /**
+     * Minimal size of a level for it to be split between threads.
+     * (value is {@value #MIN_PARALLEL_LEVEL})
+     */
+    private static final int MIN_PARALLEL_LEVEL = 256;
+
+    /**
+     * Field log.
+     */
+    private static final Log LOG = LoggerManager.getLog(GraphCrawler.class);
+
+    /**
+     * Holds the executor shared by the crawlers, created on the first
+     * parallel crawl. Its threads are daemons so that it never has to be
+     * shut down.
+     *
+     * @author Christophe Labouisse
+     */
+    private static final class SharedExecutor {
+        /**
+         * Field INSTANCE.
+         */
+        private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable,
+                                "grand-crawler-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        /**
+         * Constructor for SharedExecutor.
+         */
+        private SharedExecutor() {
+        }
+    }
+
+    /**
+     * Expands a part of a crawl level.
+     *
+     * @author Christophe Labouisse
+     */
+    private final class LevelExpander implements Callable<List<Node>>, NodeConsumer {
+        /**
+         * Field frontier.
+         */
+        private final List<Node> frontier;
+
+        /**
+         * Field visited.
+         */
+        private final AtomicIntegerArray visited;
+
+        /**
+         * Set when a node without index is found.
+         */
+        private final AtomicBoolean unindexed;
+
+        /**
+         * Nodes claimed by this expander.
+         */
+        private final List<Node> claimed = new ArrayList<Node>();
+
+        /**
+         * Creates a new expander.
+         *
+         * @param frontier
+         *            the nodes to expand.
+         * @param visited
+         *            the shared visited bitmap.
+         * @param unindexed
+         *            flag to set when a node without index is found.
+         */
+        private LevelExpander(final List<Node> frontier,
+                final AtomicIntegerArray visited, final AtomicBoolean unindexed) {
+            this.frontier = frontier;
+            this.visited = visited;
+            this.unindexed = unindexed;
+        }
+
+        /**
+         * Method call.
+         * @return List&lt;Node&gt;
+         * @see java.util.concurrent.Callable#call()
+         */
+        public List<Node> call() {
+            final StreamingLinkFinder streamingFinder =
+                    (finder instanceof StreamingLinkFinder)
+                    ? (StreamingLinkFinder) finder : null;
+            for (final Node current : frontier) {
+                if (streamingFinder != null) {
+                    if (!streamingFinder.forEachNeighbour(current, this)) {
+                        break;
+                    }
+                } else {
+                    for (final Node node : finder.getLinks(current)) {
+                        if (!accept(node)) {
+                            return claimed;
+                        }
+                    }
+                }
+            }
+            return claimed;
+        }
+
+        /**
+         * Claims a node if no other expander did it first.
+         *
+         * @param node
+         *            Node
+         * @return <code>false</code> if the node has no index.
+         * @see net.ggtools.grand.graph.NodeConsumer#accept(net.ggtools.grand.graph.Node)
+         */
+        public boolean accept(final Node node) {
+            final int nodeIndex = graph.getNodeIndex(node);
+            if (nodeIndex < 0) {
+                unindexed.set(true);
+                return false;
+            }
+            if (claim(visited, nodeIndex)) {
+                claimed.add(node);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The nodes reached by a crawl in the order they were found. The list of
+     * nodes is also the crawl's work queue: as a node is only added once, the
+     * nodes still to visit are the ones after the current position.
+     * Duplicates are detected with a bitset of node indexes, falling back to a
+     * hash set for the nodes without index.
+     * <p>
+     * As a consumer, the result stops the enumeration once it has found its
+     * target node, if any.
+     * </p>
+     *
+     * @author Christophe Labouisse
+     */
+    private final class CrawlResult extends AbstractSet<Node>
+            implements NodeConsumer {
+        /**
+         * Field nodes.
+         */
+        private final List<Node> nodes = new ArrayList<Node>();
+
+        /**
+         * Field visited.
+         */
+        private final BitSet visited;
+
+        /**
+         * Visited nodes without index, lazily created.
+         */
+        private Set<Node> visitedUnindexed;
+
+        /**
+         * Node stopping the crawl when found, can be <code>null</code>.
+         */
+        private final Node target;
+
+        /**
+         * Creates an empty result.
+         *
+         * @param target
+         *            node stopping the crawl when found, can be
+         *            <code>null</code>.
+         */
+        private CrawlResult(final Node target) {
+            this.target = target;
+            visited = new BitSet((graph == null) ? 0 : graph.getNodeIndexBound());
+        }
+
+        /**
+         * Method accept.
+         * @param node Node
+         * @return boolean
+         * @see net.ggtools.grand.graph.NodeConsumer#accept(net.ggtools.grand.graph.Node)
+         */
+        public boolean accept(final Node node) {
+            add(node);
+            return (target == null) || !target.equals(node);
+        }
+
+        /**
+         * Adds a node if it has not been reached yet.
+         *
+         * @param node
+         *            Node
+         * @return <code>true</code> if the node is new.
+         * @see java.util.AbstractCollection#add(java.lang.Object)
+         */
+        @Override
+        public boolean add(final Node node) {
+            final int nodeIndex = indexOf(node);
+            if (nodeIndex >= 0) {
+                if (visited.get(nodeIndex)) {
+                    return false;
+                }
+                visited.set(nodeIndex);
+            } else {
+                if (visitedUnindexed == null) {
+                    visitedUnindexed = new HashSet<Node>();
+                }
+                if (!visitedUnindexed.add(node)) {
+                    return false;
+                }
+            }
+            nodes.add(node);
+            return true;
+        }
+
+        /**
+         * Method contains.
+         * @param obj Object
+         * @return boolean
+         * @see java.util.AbstractCollection#contains(java.lang.Object)
+         */
+        @Override
+        public boolean contains(final Object obj) {
+            if (!(obj instanceof Node)) {
+                return false;
+            }
+            final int nodeIndex = indexOf((Node) obj);
+            if (nodeIndex >= 0) {
+                return visited.get(nodeIndex);
+            }
+            return (visitedUnindexed != null) && visitedUnindexed.contains(obj);
+        }
+
+        /**
+         * Method iterator.
+         * @return Iterator&lt;Node&gt;
+         * @see java.util.AbstractCollection#iterator()
+         */
+        @Override
+        public Iterator<Node> iterator() {
+            return Collections.unmodifiableList(nodes).iterator();
+        }
+
+        /**
+         * Method size.
+         * @return int
+         * @see java.util.AbstractCollection#size()
+         */
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+
+        /**
+         * Returns the index of a node in the crawled graph.
+         *
+         * @param node
+         *            the node.
+         * @return the index or -1 if the node has none.
+         */
+        private int indexOf(final Node node) {
+            return (graph == null) ? -1 : graph.getNodeIndex(node);
+        }
+    }
+
 
     /**
      * Field graph.
      */
-    @SuppressWarnings("unused")
     private final Graph graph;
+
+    /**
+     * Field executor, <code>null</code> to use the shared one.
+     */
+    private ExecutorService executor;
+
     /**
      * Field finder.
      */
     private final LinkFinder finder;
 
+    /**
+     * Field parallelThreshold.
+     */
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * Field threads.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
     /**
      * Creates a new crawler.
      *
@@ -69,32 +393,279 @@ public class GraphCrawler {
      * Walks the graph from <code>startNode</code> and returns the traversed
      * nodes.
      *
-     * The method maintain a list of nodes to visit initialized with
-     * <code>startNode</code> and a  LinkedHashSet of results.
+     * The walk is breadth first: the nodes are returned in the order they
+     * are reached from <code>startNode</code>, each one being returned once.
+     * Nodes are marked as visited when first found so they are only queued
+     * once. When the finder is a {@link StreamingLinkFinder} the accessible
+     * nodes are passed straight to the result, without any intermediate
+     * collection.
      *
-     * The startNode is popped from the list, added to the result set,
-     * and the finder is used to find all the accessible nodes from it.
-     * The nodes founds are added to the list of nodes to visit.
-     *
-     * This continue until there is no node to visit.
+     * The returned collection is read only.
      *
      * @param startNode node to start the crawl from.
      * @return a collection containing the traversed nodes.
      */
     public final Collection<Node> crawl(final Node startNode) {
-        final Set<Node> result = new LinkedHashSet<Node>();
-        final LinkedList<Node> nodesToVisit = new LinkedList<Node>();
-        nodesToVisit.add(startNode);
+        return crawl(Collections.singletonList(startNode), UNLIMITED_DEPTH);
+    }
+
+    /**
+     * Walks the graph from several nodes at once and returns the traversed
+     * nodes. The walk is the same as {@link #crawl(Node)}, the start nodes
+     * being the first level of the walk, and stops after
+     * <code>maxDepth</code> levels. The returned collection will contain the
+     * nodes reachable from any of the start nodes using at most
+     * <code>maxDepth</code> links.
+     *
+     * @param startNodes nodes to start the crawl from.
+     * @param maxDepth maximum number of links to follow from the start
+     *            nodes or {@link #UNLIMITED_DEPTH}.
+     * @return a collection containing the traversed nodes.
+     */
+    public final Collection<Node> crawl(final Collection<Node> startNodes,
+            final int maxDepth) {
+        if ((threads > 1) && isFrozen(graph)
+                && (graph.getNodeIndexBound() >= parallelThreshold)
+                && allIndexed(startNodes)) {
+            final Collection<Node> result = parallelCrawl(startNodes, maxDepth);
+            if (result != null) {
+                return result;
+            }
+            LOG.debug("Found nodes without index, crawling sequentially");
+        }
+        final CrawlResult result = new CrawlResult(null);
+        walk(startNodes, maxDepth, result);
+        return result;
+    }
+
+    /**
+     * Tells if a graph can be crawled by several threads: a frozen graph or
+     * a view on a frozen graph.
+     *
+     * @param graph the graph.
+     * @return <code>true</code> if the graph cannot change.
+     */
+    private static boolean isFrozen(final Graph graph) {
+        if (graph instanceof FilteredGraphView) {
+            return ((FilteredGraphView) graph).getBaseGraph().isFrozen();
+        }
+        return (graph instanceof GraphImpl) && ((GraphImpl) graph).isFrozen();
+    }
+
+    /**
+     * Sets the minimal number of nodes, as given by
+     * {@link Graph#getNodeIndexBound()}, for a graph to be crawled in
+     * parallel. Defaults to {@link #DEFAULT_PARALLEL_THRESHOLD}.
+     *
+     * @param threshold the minimal number of nodes.
+     */
+    public final void setParallelThreshold(final int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Negative parallel threshold: "
+                    + threshold);
+        }
+        parallelThreshold = threshold;
+    }
+
+    /**
+     * Sets the executor running the parallel crawls. The executor is not
+     * shut down by the crawler. By default, the crawlers share a pool with
+     * a thread per available processor.
+     *
+     * @param executor the executor or <code>null</code> to use the shared
+     *            one.
+     */
+    public final void setExecutor(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the number of threads used by parallel crawls, that is the number
+     * of parts each large level is split into. Defaults to the number of
+     * available processors, a single thread disabling parallel crawls.
+     *
+     * @param count the number of threads.
+     */
+    public final void setThreads(final int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Thread count should be at least 1: "
+                    + count);
+        }
+        threads = count;
+    }
+
+    /**
+     * Tells whether a node can be reached from another one. The walk stops
+     * as soon as <code>target</code> is found.
+     *
+     * @param startNode node to start the crawl from.
+     * @param target the node to look for.
+     * @return <code>true</code> if <code>target</code> is reachable from
+     *         <code>startNode</code>.
+     */
+    public final boolean reaches(final Node startNode, final Node target) {
+        if (startNode.equals(target)) {
+            return true;
+        }
+        return !walk(Collections.singletonList(startNode), UNLIMITED_DEPTH,
+                new CrawlResult(target));
+    }
 
-        while (!nodesToVisit.isEmpty()) {
-            final Node current = nodesToVisit.removeFirst();
+    /**
+     * Walks the graph from some nodes, adding the reached nodes to a result.
+     *
+     * @param startNodes nodes to start the crawl from.
+     * @param maxDepth maximum number of links to follow from the start
+     *            nodes or {@link #UNLIMITED_DEPTH}.
+     * @param result the result.
+     * @return <code>false</code> if the walk was stopped by the result.
+     */
+    private boolean walk(final Collection<Node> startNodes, final int maxDepth,
+            final CrawlResult result) {
+        result.addAll(startNodes);
 
-            if (!result.contains(current)) {
-                result.add(current);
-                nodesToVisit.addAll(finder.getLinks(current));
+        final StreamingLinkFinder streamingFinder =
+                (finder instanceof StreamingLinkFinder)
+                ? (StreamingLinkFinder) finder : null;
+        int depth = 0;
+        int levelEnd = result.nodes.size();
+        for (int i = 0; i < result.nodes.size(); i++) {
+            if (i == levelEnd) {
+                depth++;
+                levelEnd = result.nodes.size();
+            }
+            if (depth == maxDepth) {
+                break;
+            }
+            final Node current = result.nodes.get(i);
+            if (streamingFinder != null) {
+                if (!streamingFinder.forEachNeighbour(current, result)) {
+                    return false;
+                }
+            } else {
+                for (final Node node : finder.getLinks(current)) {
+                    if (!result.accept(node)) {
+                        return false;
+                    }
+                }
             }
         }
+        return true;
+    }
 
+    /**
+     * Crawls the graph level by level, splitting large levels between
+     * several threads.
+     *
+     * @param startNodes nodes to start the crawl from.
+     * @param maxDepth maximum number of links to follow from the start
+     *            nodes or {@link #UNLIMITED_DEPTH}.
+     * @return the traversed nodes or <code>null</code> if a node without
+     *         index has been found.
+     */
+    private Collection<Node> parallelCrawl(final Collection<Node> startNodes,
+            final int maxDepth) {
+        final AtomicIntegerArray visited =
+                new AtomicIntegerArray((graph.getNodeIndexBound() + Integer.SIZE - 1)
+                        / Integer.SIZE);
+        final AtomicBoolean unindexed = new AtomicBoolean();
+        final Comparator<Node> indexOrder = new Comparator<Node>() {
+            public int compare(final Node o1, final Node o2) {
+                final int index1 = graph.getNodeIndex(o1);
+                final int index2 = graph.getNodeIndex(o2);
+                return (index1 < index2) ? -1 : ((index1 == index2) ? 0 : 1);
+            }
+        };
+
+        LOG.debug("Crawling from " + startNodes + " using " + threads + " threads");
+        final CrawlResult result = new CrawlResult(null);
+        for (final Node startNode : startNodes) {
+            if (claim(visited, graph.getNodeIndex(startNode))) {
+                result.add(startNode);
+            }
+        }
+        List<Node> level = new ArrayList<Node>(result.nodes);
+        final ExecutorService pool = (executor == null) ? SharedExecutor.INSTANCE : executor;
+        final List<Future<List<Node>>> parts = new ArrayList<Future<List<Node>>>(threads);
+        try {
+            for (int depth = 0; !level.isEmpty() && (depth != maxDepth); depth++) {
+                final List<Node> nextLevel;
+                if (level.size() < MIN_PARALLEL_LEVEL) {
+                    nextLevel = new LevelExpander(level, visited, unindexed).call();
+                } else {
+                    final int chunkSize = (level.size() + threads - 1) / threads;
+                    parts.clear();
+                    for (int start = 0; start < level.size(); start += chunkSize) {
+                        parts.add(pool.submit(new LevelExpander(
+                                level.subList(start, Math.min(start + chunkSize,
+                                        level.size())), visited, unindexed)));
+                    }
+                    nextLevel = new ArrayList<Node>();
+                    for (final Future<List<Node>> part : parts) {
+                        nextLevel.addAll(part.get());
+                    }
+                }
+                if (unindexed.get()) {
+                    return null;
+                }
+                Collections.sort(nextLevel, indexOrder);
+                result.addAll(nextLevel);
+                level = nextLevel;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while crawling graph", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Cannot crawl graph", cause);
+        } finally {
+            // Stops the remaining parts of a failed level.
+            for (final Future<List<Node>> part : parts) {
+                part.cancel(true);
+            }
+        }
         return result;
     }
+
+    /**
+     * Tells if all the nodes of a collection have an index in the graph.
+     *
+     * @param nodes the nodes.
+     * @return <code>true</code> if all the nodes have an index.
+     */
+    private boolean allIndexed(final Collection<Node> nodes) {
+        for (final Node node : nodes) {
+            if (graph.getNodeIndex(node) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Atomically sets a bit in a bitmap.
+     *
+     * @param bitmap the bitmap.
+     * @param bit the bit to set.
+     * @return <code>true</code> if the bit was not already set.
+     */
+    private static boolean claim(final AtomicIntegerArray bitmap, final int bit) {
+        final int word = bit / Integer.SIZE;
+        final int mask = 1 << (bit % Integer.SIZE);
+        while (true) {
+            final int current = bitmap.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (bitmap.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
 }
@@ -0,0 +1,540 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ggtools.grand.ant.AntLink;
+import net.ggtools.grand.ant.AntTaskLink;
+import net.ggtools.grand.ant.SubantTaskLink;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.visit.LinkVisitor;
+
+/**
+ * Structural difference between two graphs. Nodes are matched by name and
+ * each node gets a 64 bit content hash built from its name, its attributes,
+ * its source and the end nodes, attributes and kinds of its links. Only the nodes
+ * whose hashes differ are compared in detail so the whole difference is
+ * computed in a time linear to the size of the graphs.
+ *
+ * <p>The difference is also a producer of a <i>diff graph</i> holding the
+ * union of both graphs where the added, removed and changed elements are
+ * flagged with {@link Node#ATTR_ADDED_NODE}, {@link Node#ATTR_REMOVED_NODE},
+ * {@link Node#ATTR_CHANGED_NODE}, {@link Link#ATTR_ADDED_LINK} and
+ * {@link Link#ATTR_REMOVED_LINK}. Such a graph can be rendered with the
+ * {@link net.ggtools.grand.output.DotWriter}.</p>
+ *
+ * <p>Links are compared as multisets per start node: reordering the links
+ * of a node is not reported as a difference. Two links only match if they
+ * are both dependencies or are task links of the same type and task name.
+ * The diff graph holds copies of the links with the same type, so a link
+ * created by a <code>subant</code> task keeps its rendering.</p>
+ *
+ * @author Christophe Labouisse
+ */
+public class GraphDiff implements GraphProducer {
+    /**
+     * Field FNV_OFFSET_BASIS.
+     * (value is {@value #FNV_OFFSET_BASIS})
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * Field FNV_PRIME.
+     * (value is {@value #FNV_PRIME})
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Field NULL_HASH, used in place of a missing string.
+     * (value is {@value #NULL_HASH})
+     */
+    private static final long NULL_HASH = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Field oldGraph.
+     */
+    private final Graph oldGraph;
+
+    /**
+     * Field newGraph.
+     */
+    private final Graph newGraph;
+
+    /**
+     * Field addedNodes.
+     */
+    private final List<Node> addedNodes = new ArrayList<Node>();
+
+    /**
+     * Field removedNodes.
+     */
+    private final List<Node> removedNodes = new ArrayList<Node>();
+
+    /**
+     * Field attributeChangedNodes.
+     */
+    private final List<Node> attributeChangedNodes = new ArrayList<Node>();
+
+    /**
+     * Field sourceChangedNodes.
+     */
+    private final List<Node> sourceChangedNodes = new ArrayList<Node>();
+
+    /**
+     * Field addedLinks.
+     */
+    private final List<Link> addedLinks = new ArrayList<Link>();
+
+    /**
+     * Field removedLinks.
+     */
+    private final List<Link> removedLinks = new ArrayList<Link>();
+
+    /**
+     * Computes the difference between two graphs.
+     *
+     * @param oldGraph
+     *            the older graph.
+     * @param newGraph
+     *            the newer graph.
+     */
+    public GraphDiff(final Graph oldGraph, final Graph newGraph) {
+        this.oldGraph = oldGraph;
+        this.newGraph = newGraph;
+        compute();
+    }
+
+    /**
+     * Returns the nodes of the newer graph not existing in the older one.
+     *
+     * @return the added nodes in the newer graph order.
+     */
+    public final List<Node> getAddedNodes() {
+        return Collections.unmodifiableList(addedNodes);
+    }
+
+    /**
+     * Returns the nodes of the older graph not existing in the newer one.
+     *
+     * @return the removed nodes in the older graph order.
+     */
+    public final List<Node> getRemovedNodes() {
+        return Collections.unmodifiableList(removedNodes);
+    }
+
+    /**
+     * Returns the nodes of the newer graph whose attributes differ from the
+     * ones of the older graph.
+     *
+     * @return the nodes with changed attributes.
+     */
+    public final List<Node> getAttributeChangedNodes() {
+        return Collections.unmodifiableList(attributeChangedNodes);
+    }
+
+    /**
+     * Returns the nodes of the newer graph whose source differs from the one
+     * in the older graph.
+     *
+     * @return the nodes with changed source.
+     */
+    public final List<Node> getSourceChangedNodes() {
+        return Collections.unmodifiableList(sourceChangedNodes);
+    }
+
+    /**
+     * Returns the links of the newer graph not existing in the older one.
+     *
+     * @return the added links.
+     */
+    public final List<Link> getAddedLinks() {
+        return Collections.unmodifiableList(addedLinks);
+    }
+
+    /**
+     * Returns the links of the older graph not existing in the newer one.
+     *
+     * @return the removed links.
+     */
+    public final List<Link> getRemovedLinks() {
+        return Collections.unmodifiableList(removedLinks);
+    }
+
+    /**
+     * Tells if both graphs have the same structure.
+     *
+     * @return <code>true</code> if no difference was found.
+     */
+    public final boolean isEmpty() {
+        return addedNodes.isEmpty() && removedNodes.isEmpty()
+                && attributeChangedNodes.isEmpty()
+                && sourceChangedNodes.isEmpty() && addedLinks.isEmpty()
+                && removedLinks.isEmpty();
+    }
+
+    /**
+     * Creates a new diff graph. The graph contains the nodes and links of the
+     * newer graph followed by the removed ones, the start node being the one
+     * of the newer graph.
+     *
+     * @return a new graph.
+     * @throws GrandException
+     *             if the graph cannot be created.
+     * @see net.ggtools.grand.graph.GraphProducer#getGraph()
+     */
+    public final Graph getGraph() throws GrandException {
+        final GraphImpl graph = new GraphImpl(newGraph.getName());
+        final Set<Node> added = identitySet(addedNodes);
+        final Set<Node> changed = identitySet(attributeChangedNodes);
+        changed.addAll(sourceChangedNodes);
+        final Set<Link> newLinks = identitySet(addedLinks);
+
+        for (final Iterator<Node> iter = newGraph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            int flag = GraphObject.ATTR_NONE;
+            if (added.contains(node)) {
+                flag = Node.ATTR_ADDED_NODE;
+            } else if (changed.contains(node)) {
+                flag = Node.ATTR_CHANGED_NODE;
+            }
+            copyNode(graph, node, flag);
+        }
+        for (final Node node : removedNodes) {
+            copyNode(graph, node, Node.ATTR_REMOVED_NODE);
+        }
+
+        for (final Iterator<Node> iter = newGraph.getNodes(); iter.hasNext();) {
+            for (final Link link : iter.next().getLinks()) {
+                copyLink(graph, link, newLinks.contains(link)
+                        ? Link.ATTR_ADDED_LINK : GraphObject.ATTR_NONE);
+            }
+        }
+        for (final Link link : removedLinks) {
+            copyLink(graph, link, Link.ATTR_REMOVED_LINK);
+        }
+
+        final Node startNode = newGraph.getStartNode();
+        if (startNode != null) {
+            graph.setStartNode(graph.getNode(startNode.getName()));
+        }
+        return graph;
+    }
+
+    /**
+     * Walks both graphs once, comparing in detail the nodes whose content
+     * hashes differ.
+     */
+    private void compute() {
+        final Map<String, Node> oldNodes = new LinkedHashMap<String, Node>();
+        for (final Iterator<Node> iter = oldGraph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            oldNodes.put(node.getName(), node);
+        }
+
+        for (final Iterator<Node> iter = newGraph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            final Node oldNode = oldNodes.remove(node.getName());
+            if (oldNode == null) {
+                addedNodes.add(node);
+                addedLinks.addAll(node.getLinks());
+            } else if (contentHash(oldNode) != contentHash(node)) {
+                compareNodes(oldNode, node);
+            }
+        }
+
+        for (final Node node : oldNodes.values()) {
+            removedNodes.add(node);
+            removedLinks.addAll(node.getLinks());
+        }
+    }
+
+    /**
+     * Compares two nodes with the same name.
+     *
+     * @param oldNode
+     *            the node from the older graph.
+     * @param newNode
+     *            the node from the newer graph.
+     */
+    private void compareNodes(final Node oldNode, final Node newNode) {
+        if (oldNode.getAttributes() != newNode.getAttributes()) {
+            attributeChangedNodes.add(newNode);
+        }
+        final String oldSource = oldNode.getSource();
+        if ((oldSource == null) ? (newNode.getSource() != null)
+                : !oldSource.equals(newNode.getSource())) {
+            sourceChangedNodes.add(newNode);
+        }
+
+        final Map<String, LinkedList<Link>> unmatched =
+                new HashMap<String, LinkedList<Link>>();
+        for (final Link link : oldNode.getLinks()) {
+            final String key = linkKey(link);
+            LinkedList<Link> links = unmatched.get(key);
+            if (links == null) {
+                links = new LinkedList<Link>();
+                unmatched.put(key, links);
+            }
+            links.add(link);
+        }
+
+        final Set<Link> matched = identitySet(Collections.<Link>emptyList());
+        for (final Link link : newNode.getLinks()) {
+            final LinkedList<Link> links = unmatched.get(linkKey(link));
+            if ((links == null) || links.isEmpty()) {
+                addedLinks.add(link);
+            } else {
+                matched.add(links.removeFirst());
+            }
+        }
+        for (final Link link : oldNode.getLinks()) {
+            if (!matched.contains(link)) {
+                removedLinks.add(link);
+            }
+        }
+    }
+
+    /**
+     * Computes the content hash of a node. The link part of the hash is a sum
+     * so it does not depend on the links order.
+     *
+     * @param node
+     *            the node.
+     * @return the hash.
+     */
+    private static long contentHash(final Node node) {
+        long hash = hash(FNV_OFFSET_BASIS, node.getName());
+        hash = hash(hash, node.getAttributes());
+        hash = hash(hash, node.getSource());
+        long linksHash = 0;
+        for (final Link link : node.getLinks()) {
+            linksHash += hash(FNV_OFFSET_BASIS, linkKey(link));
+        }
+        return hash(hash, linksHash);
+    }
+
+    /**
+     * Adds a string to a FNV-1a hash.
+     *
+     * @param hash
+     *            the current hash.
+     * @param str
+     *            the string, can be <code>null</code>.
+     * @return the new hash.
+     */
+    private static long hash(final long hash, final String str) {
+        if (str == null) {
+            return hash(hash, NULL_HASH);
+        }
+        long result = hash;
+        for (int i = 0; i < str.length(); i++) {
+            result = (result ^ str.charAt(i)) * FNV_PRIME;
+        }
+        // Terminator so that ("ab", "c") and ("a", "bc") differ.
+        return (result ^ 0xffff) * FNV_PRIME;
+    }
+
+    /**
+     * Adds a number to a FNV-1a hash.
+     *
+     * @param hash
+     *            the current hash.
+     * @param value
+     *            the value.
+     * @return the new hash.
+     */
+    private static long hash(final long hash, final long value) {
+        long result = hash;
+        for (int shift = 0; shift < Long.SIZE; shift += 8) {
+            result = (result ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the key identifying a link among the links of its start node:
+     * its end node, its attributes and, for task links, their type and task
+     * name. Dependency links all have the same kind whatever their class.
+     *
+     * @param link
+     *            the link.
+     * @return the key.
+     */
+    private static String linkKey(final Link link) {
+        final Link typedLink = TypedLinkFinder.find(link);
+        final StringBuilder key = new StringBuilder(link.getEndNode().getName());
+        key.append('\u0000').append(link.getAttributes());
+        if (typedLink instanceof AntTaskLink) {
+            key.append('\u0000').append(typedLink.getClass().getName());
+            key.append('\u0000').append(((AntTaskLink) typedLink).getTaskName());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Copies a node in the diff graph.
+     *
+     * @param graph
+     *            the diff graph.
+     * @param node
+     *            the node to copy.
+     * @param flag
+     *            the diff attribute to set.
+     * @throws GrandException
+     *             if the node already exists.
+     */
+    private static void copyNode(final GraphImpl graph, final Node node,
+            final int flag) throws GrandException {
+        final Node copy = graph.createNode(node.getName());
+        copy.setAttributes((node.getAttributes() & ~Node.ATTR_START_NODE)
+                | flag);
+        copy.setDescription(node.getDescription());
+        if (copy instanceof NodeImpl) {
+            ((NodeImpl) copy).setSource(node.getSource());
+        }
+    }
+
+    /**
+     * Copies a link in the diff graph.
+     *
+     * @param graph
+     *            the diff graph.
+     * @param link
+     *            the link to copy.
+     * @param flag
+     *            the diff attribute to set.
+     */
+    private static void copyLink(final GraphImpl graph, final Link link,
+            final int flag) {
+        final Node startNode = graph.getNode(link.getStartNode().getName());
+        final Node endNode = graph.getNode(link.getEndNode().getName());
+        final Link typedLink = TypedLinkFinder.find(link);
+        final Link copy;
+        if (typedLink instanceof AntLink) {
+            copy = graph.createLink(new LinkKind() {
+                public Link createLink(final String linkName, final Node start,
+                        final Node end) {
+                    return ((AntLink) typedLink).copy(graph, start, end);
+                }
+            }, link.getName(), startNode, endNode);
+        } else {
+            copy = graph.createLink(link.getName(), startNode, endNode);
+        }
+        copy.setAttributes(link.getAttributes() | flag);
+    }
+
+    /**
+     * Creates an identity based set.
+     *
+     * @param <T>
+     *            type of the elements.
+     * @param elements
+     *            the initial elements.
+     * @return a new set.
+     */
+    private static <T> Set<T> identitySet(final Collection<? extends T> elements) {
+        final Set<T> set = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+        set.addAll(elements);
+        return set;
+    }
+
+    /**
+     * Finds the typed link behind a link. The links of a
+     * {@link FilteredGraphView} are wrappers and only reveal the type of the
+     * underlying link when visited.
+     *
+     * @author Christophe Labouisse
+     */
+    private static final class TypedLinkFinder implements LinkVisitor {
+        /**
+         * Field typedLink.
+         */
+        private Link typedLink;
+
+        /**
+         * Returns the typed link behind a link.
+         *
+         * @param link
+         *            the link.
+         * @return the link itself or a typed copy of it.
+         */
+        static Link find(final Link link) {
+            final TypedLinkFinder finder = new TypedLinkFinder();
+            link.accept(finder);
+            return (finder.typedLink == null) ? link : finder.typedLink;
+        }
+
+        /**
+         * Method visitLink.
+         * @param link Link
+         * @see net.ggtools.grand.graph.visit.LinkVisitor#visitLink(net.ggtools.grand.graph.Link)
+         */
+        public void visitLink(final Link link) {
+            typedLink = link;
+        }
+
+        /**
+         * Method visitLink.
+         * @param link AntLink
+         * @see net.ggtools.grand.graph.visit.LinkVisitor#visitLink(net.ggtools.grand.ant.AntLink)
+         */
+        public void visitLink(final AntLink link) {
+            typedLink = link;
+        }
+
+        /**
+         * Method visitLink.
+         * @param link AntTaskLink
+         * @see net.ggtools.grand.graph.visit.LinkVisitor#visitLink(net.ggtools.grand.ant.AntTaskLink)
+         */
+        public void visitLink(final AntTaskLink link) {
+            typedLink = link;
+        }
+
+        /**
+         * Method visitLink.
+         * @param link SubantTaskLink
+         * @see net.ggtools.grand.graph.visit.LinkVisitor#visitLink(net.ggtools.grand.ant.SubantTaskLink)
+         */
+        public void visitLink(final SubantTaskLink link) {
+            typedLink = link;
+        }
+    }
+}
@@ -40,11 +40,12 @@ package net.ggtools.grand.graph;
 public interface GraphElementFactory {
 
     /**
-     * Creates a new Node.
+     * Creates a new Node. The nodes are {@link NodeImpl}s, or subclasses of
+     * it, as {@link GraphImpl} gives them an index and stores their links.
      * @param nodeName name of the newly created node.
      * @return a new node.
      */
-    Node createNode(String nodeName);
+    NodeImpl createNode(String nodeName);
 
     /**
      * Creates a new link between 2 nodes.
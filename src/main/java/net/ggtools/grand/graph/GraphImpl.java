@@ -28,9 +28,22 @@
 
 package net.ggtools.grand.graph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 import net.ggtools.grand.exceptions.DuplicateElementException;
 import net.ggtools.grand.log.LoggerManager;
@@ -44,37 +57,73 @@ import org.apache.commons.logging.Log;
  */
 public class GraphImpl implements Graph {
     /**
-     * An proxified iterator used for getNodes. This class ensure that on
-     * deletion the node's links are also removed.
+     * An element created during a concurrent construction along with its
+     * ordering key.
      *
+     * @param <T>
+     *            type of the element.
      * @author Christophe Labouisse
      */
-    private class NodeIterator implements Iterator<Node> {
+    private static final class PendingElement<T> implements
+            Comparable<PendingElement<T>> {
+        /**
+         * Field element.
+         */
+        private final T element;
 
         /**
-         * Field lastNode.
+         * Field key.
          */
-        private Node lastNode;
+        private long key;
 
         /**
-         * Field underlying.
+         * Creates a new pending element.
+         *
+         * @param key
+         *            the ordering key.
+         * @param element
+         *            the element.
          */
-        private final Iterator<Node> underlying;
+        private PendingElement(final long key, final T element) {
+            this.key = key;
+            this.element = element;
+        }
 
         /**
-         * @param iterator
-         *            underlying iterator.
+         * Method compareTo.
+         * @param other PendingElement
+         * @return int
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
          */
-        private NodeIterator(final Iterator<Node> iterator) {
-            underlying = iterator;
+        public int compareTo(final PendingElement<T> other) {
+            return (key < other.key) ? -1 : ((key == other.key) ? 0 : 1);
         }
+    }
+
+    /**
+     * An iterator on the nodes of the main (sub)graph. This class ensure that
+     * on deletion the node's links are also removed.
+     *
+     * @author Christophe Labouisse
+     */
+    private class NodeIterator implements Iterator<Node> {
+
+        /**
+         * Field lastIndex.
+         */
+        private int lastIndex = -1;
+
+        /**
+         * Field nextIndex.
+         */
+        private int nextIndex = nodeAttributeIndex.nextMember(0);
 
         /**
          * @return true if the iterator still has elements
          * @see java.util.Iterator#hasNext()
          */
         public boolean hasNext() {
-            return underlying.hasNext();
+            return nextIndex >= 0;
         }
 
         /**
@@ -82,8 +131,12 @@ public class GraphImpl implements Graph {
          * @see java.util.Iterator#next()
          */
         public Node next() {
-            lastNode = underlying.next();
-            return lastNode;
+            if (nextIndex < 0) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex;
+            nextIndex = nodeAttributeIndex.nextMember(nextIndex + 1);
+            return nodeTable.get(lastIndex);
         }
 
         /**
@@ -91,9 +144,16 @@ public class GraphImpl implements Graph {
          * @see java.util.Iterator#remove()
          */
         public void remove() {
-            underlying.remove();
-            // lastNode should not be null here since remove succeed.
-            unlinkNode(lastNode);
+            checkNotFrozen();
+            checkNotConcurrent();
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            final NodeImpl node = (NodeImpl) nodeTable.get(lastIndex);
+            nodeIndexBySymbol[node.getSymbol()] = -1;
+            unlinkNode(node);
+            nodeAttributeIndex.remove(lastIndex, node.getAttributes());
+            lastIndex = -1;
         }
     }
 
@@ -102,26 +162,108 @@ public class GraphImpl implements Graph {
      */
     private static final Log LOG = LoggerManager.getLog(GraphImpl.class);
 
+    /**
+     * Number of construction units completed in a row from the first one.
+     */
+    private int completedUnitCount;
+
+    /**
+     * Construction units completed during a concurrent construction.
+     */
+    private BitSet completedUnits;
+
+    /**
+     * Nodes by name while the graph is built concurrently, <code>null</code>
+     * otherwise.
+     */
+    private ConcurrentMap<String, Node> concurrentNodes;
+
+    /**
+     * Lock guarding the node creation during a concurrent construction.
+     */
+    private final Object constructionLock = new Object();
+
+    /**
+     * Ordinal and sequence number of the current construction unit of each
+     * thread.
+     */
+    private ThreadLocal<long[]> constructionUnit;
+
     /**
      * Field elementFactory.
      */
     private GraphElementFactory elementFactory;
 
+    /**
+     * Field frozen.
+     */
+    private boolean frozen = false;
+
     /**
      * Field graphStartNode.
      */
     private Node graphStartNode;
 
     /**
-     * The node storage for the main (sub)graph.
+     * Link storage shared by the nodes of the graph, <code>null</code> if each
+     * node holds its own links.
      */
-    private final SubGraph mainSubGraph;
+    private final CompactLinkStore linkStore;
 
     /**
      * Field name.
      */
     private final String name;
 
+    /**
+     * Attribute index of the links created by the graph.
+     */
+    private final AttributeIndex linkAttributeIndex = new AttributeIndex();
+
+    /**
+     * Links created by the graph, indexed by link index.
+     */
+    private final ArrayList<Link> linkTable = new ArrayList<Link>();
+
+    /**
+     * Attribute index of the nodes of the main (sub)graph.
+     */
+    private final AttributeIndex nodeAttributeIndex = new AttributeIndex();
+
+    /**
+     * Index of the main (sub)graph node for each name symbol, -1 if there is
+     * no such node.
+     */
+    private int[] nodeIndexBySymbol = new int[0];
+
+    /**
+     * Nodes created by the graph, indexed by node index. Removed nodes are
+     * kept so node sets remain valid.
+     */
+    private final ArrayList<Node> nodeTable = new ArrayList<Node>();
+
+    /**
+     * Symbol table for the node names and other strings shared by the graph
+     * elements.
+     */
+    private SymbolTable symbols = new SymbolTable();
+
+    /**
+     * Links created during a concurrent construction, waiting to be added to
+     * their nodes.
+     */
+    private Queue<PendingElement<Link>> pendingLinks;
+
+    /**
+     * Nodes created during a concurrent construction.
+     */
+    private List<PendingElement<Node>> pendingNodes;
+
+    /**
+     * Number of symbols before the concurrent construction started.
+     */
+    private int sealedSymbolCount;
+
     /**
      * Field subGraphList.
      */
@@ -135,12 +277,26 @@ public class GraphImpl implements Graph {
      *            name for the new graph.
      */
     public GraphImpl(final String graphName) {
+        this(graphName, false);
+    }
+
+    /**
+     * Creates a new named graph choosing the way links will be stored. When
+     * <code>compact</code> is <code>true</code>, the links are held in a
+     * single index shared by all the nodes rather than in per node hash sets.
+     * This lowers the memory footprint of large graphs at the expense of a
+     * slower modification of the links once the graph has been walked.
+     * Compact graphs require their factory to create {@link NodeImpl}
+     * instances.
+     *
+     * @param graphName
+     *            name for the new graph.
+     * @param compact
+     *            <code>true</code> to use a compact link storage.
+     */
+    public GraphImpl(final String graphName, final boolean compact) {
         name = graphName;
-        mainSubGraph = new SubGraphImpl(graphName, new SubGraphImpl.NodeIteratorFactory() {
-            public final Iterator<Node> createNodeIterator(final Iterator<Node> iterator) {
-                return new NodeIterator(iterator);
-            }
-        });
+        linkStore = compact ? new CompactLinkStore() : null;
     }
 
     /**
@@ -159,9 +315,45 @@ public class GraphImpl implements Graph {
      */
     public final Link createLink(final String linkName, final Node startNode,
             final Node endNode) {
-        final Link link = getFactory().createLink(linkName, startNode, endNode);
-        startNode.addLink(link);
-        endNode.addBackLink(link);
+        checkNotFrozen();
+        return addLink(getFactory().createLink(linkName, startNode, endNode));
+    }
+
+    /**
+     * Creates a new link of a specific kind between two nodes.
+     *
+     * @param kind
+     *            the kind of link to create.
+     * @param linkName
+     *            the new link name, can be <code>null</code>
+     * @param startNode
+     *            start node
+     * @param endNode
+     *            end node
+     * @return new link
+     * @see #createLink(String, Node, Node)
+     */
+    protected final Link createLink(final LinkKind kind, final String linkName,
+            final Node startNode, final Node endNode) {
+        checkNotFrozen();
+        return addLink(kind.createLink(linkName, startNode, endNode));
+    }
+
+    /**
+     * Registers a new link and adds it to its nodes.
+     *
+     * @param link
+     *            the new link.
+     * @return the link.
+     */
+    private Link addLink(final Link link) {
+        if (pendingLinks != null) {
+            pendingLinks.add(new PendingElement<Link>(nextConstructionKey(), link));
+            return link;
+        }
+        registerLink(link);
+        link.getStartNode().addLink(link);
+        link.getEndNode().addBackLink(link);
         return link;
     }
 
@@ -178,7 +370,95 @@ public class GraphImpl implements Graph {
      */
     public final Node createNode(final String nodeName)
             throws DuplicateElementException {
-        return createNode(mainSubGraph, nodeName);
+        checkNotFrozen();
+        if (concurrentNodes != null) {
+            awaitConstructionTurn();
+            synchronized (constructionLock) {
+                if (concurrentNodes.containsKey(nodeName)) {
+                    throw new DuplicateElementException("Creating two nodes named "
+                            + nodeName);
+                }
+                final Node node = addNode(nodeName, symbols.intern(nodeName));
+                pendingNodes.add(new PendingElement<Node>(nextConstructionKey(), node));
+                concurrentNodes.put(nodeName, node);
+                return node;
+            }
+        }
+        final int symbol = symbols.intern(nodeName);
+        if (findNode(symbol) != null) {
+            throw new DuplicateElementException("Creating two nodes named " + nodeName);
+        }
+        return addNode(nodeName, symbol);
+    }
+
+    /**
+     * Creates a new node in the main (sub)graph without checking whether the
+     * name is already used.
+     *
+     * @param nodeName
+     *            the name of the node.
+     * @param symbol
+     *            the symbol of the name.
+     * @return the new node.
+     */
+    final NodeImpl addNode(final String nodeName, final int symbol) {
+        final NodeImpl node = newNode(nodeName, symbol);
+        if (symbol >= nodeIndexBySymbol.length) {
+            growSymbolIndex(Math.max(symbol + 1, nodeIndexBySymbol.length * 2));
+        }
+        nodeIndexBySymbol[symbol] = node.getIndex();
+        nodeAttributeIndex.add(node.getIndex(), node.getAttributes());
+        return node;
+    }
+
+    /**
+     * Returns the node of the main (sub)graph having a specific name symbol.
+     *
+     * @param symbol
+     *            the symbol of the node name.
+     * @return the node or <code>null</code> if there is no such node.
+     */
+    final Node findNode(final int symbol) {
+        if ((symbol < 0) || (symbol >= nodeIndexBySymbol.length)
+                || (nodeIndexBySymbol[symbol] < 0)) {
+            return null;
+        }
+        return nodeTable.get(nodeIndexBySymbol[symbol]);
+    }
+
+    /**
+     * Makes room for some more nodes and links so that they can be added
+     * without growing the graph's tables several times.
+     *
+     * @param nodeCount
+     *            number of nodes to be added.
+     * @param linkCount
+     *            number of links to be added.
+     */
+    final void ensureCapacity(final int nodeCount, final int linkCount) {
+        nodeTable.ensureCapacity(nodeTable.size() + nodeCount);
+        linkTable.ensureCapacity(linkTable.size() + linkCount);
+        final int symbolBound = symbols.size() + nodeCount;
+        if (symbolBound > nodeIndexBySymbol.length) {
+            growSymbolIndex(symbolBound);
+        }
+        if (linkStore != null) {
+            linkStore.ensureCapacity(linkCount);
+        }
+    }
+
+    /**
+     * Grows the node index by symbol.
+     *
+     * @param capacity
+     *            the new capacity.
+     */
+    private void growSymbolIndex(final int capacity) {
+        final int[] newIndexes = new int[capacity];
+        System.arraycopy(nodeIndexBySymbol, 0, newIndexes, 0,
+                nodeIndexBySymbol.length);
+        Arrays.fill(newIndexes, nodeIndexBySymbol.length, newIndexes.length, -1);
+        nodeIndexBySymbol = newIndexes;
     }
 
     /**
@@ -193,15 +473,34 @@ public class GraphImpl implements Graph {
      */
     public final Node createNode(final SubGraph subGraph, final String nodeName)
             throws DuplicateElementException {
+        checkNotFrozen();
+        checkNotConcurrent();
         // We don't want to create a node if it's not gonna be inserted.
         if (subGraph.hasNode(nodeName)) {
             throw new DuplicateElementException("Creating two nodes named " + nodeName);
         }
-        final Node node = getFactory().createNode(nodeName);
+        final Node node = newNode(nodeName, symbols.intern(nodeName));
         subGraph.addNode(node);
         return node;
     }
 
+    /**
+     * Creates a new node using the factory and gives it an index.
+     *
+     * @param nodeName
+     *            the name of the node.
+     * @param symbol
+     *            the symbol of the name.
+     * @return the new node.
+     */
+    private NodeImpl newNode(final String nodeName, final int symbol) {
+        final NodeImpl node = getFactory().createNode(nodeName);
+        final int nodeIndex = nodeTable.size();
+        nodeTable.add(node);
+        node.attach(nodeIndex, symbol, linkStore);
+        return node;
+    }
+
     /**
      * Method createSubGraph.
      * @param subGraphName String
@@ -212,6 +511,8 @@ public class GraphImpl implements Graph {
      */
     public final SubGraph createSubGraph(final String subGraphName)
             throws DuplicateElementException {
+        checkNotFrozen();
+        checkNotConcurrent();
         if (subGraphList.containsKey(subGraphName)) {
             LOG.error("createSubGraph(subGraphName = " + subGraphName
                     + ") - Cannot create two subgraphs with the same name", null);
@@ -233,6 +534,25 @@ public class GraphImpl implements Graph {
         return name;
     }
 
+    /**
+     * Returns the links created by the graph having all the attributes
+     * specified by the mask set. Only links created by the factory of the
+     * graph as {@link LinkImpl} instances are indexed.
+     *
+     * @param attributeMask
+     *            a bit mask of attributes.
+     * @return a read only collection of links.
+     * @see net.ggtools.grand.graph.Graph#getLinksWithAttributes(int)
+     */
+    public final Collection<Link> getLinksWithAttributes(final int attributeMask) {
+        final BitSet bits = linkAttributeIndex.withAttributes(attributeMask);
+        final List<Link> result = new ArrayList<Link>(bits.cardinality());
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            result.add(linkTable.get(i));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
     /**
      * Method getNode.
      * @param nodeName String
@@ -240,7 +560,10 @@ public class GraphImpl implements Graph {
      * @see net.ggtools.grand.graph.NodeContainer#getNode(java.lang.String)
      */
     public final Node getNode(final String nodeName) {
-        return mainSubGraph.getNode(nodeName);
+        if (concurrentNodes != null) {
+            return (nodeName == null) ? null : concurrentNodes.get(nodeName);
+        }
+        return findNode(symbols.lookup(nodeName));
     }
 
     /**
@@ -249,7 +572,35 @@ public class GraphImpl implements Graph {
      * @see net.ggtools.grand.graph.NodeContainer#getNodes()
      */
     public final Iterator<Node> getNodes() {
-        return mainSubGraph.getNodes();
+        return new NodeIterator();
+    }
+
+    /**
+     * Returns the nodes of the graph having all the attributes specified by
+     * the mask set. Only nodes created by the factory of the graph as
+     * {@link NodeImpl} instances are indexed.
+     *
+     * @param attributeMask
+     *            a bit mask of attributes.
+     * @return a read only set of nodes.
+     * @see net.ggtools.grand.graph.Graph#getNodesWithAttributes(int)
+     */
+    public final NodeSet getNodesWithAttributes(final int attributeMask) {
+        return new NodeSet(this, nodeAttributeIndex.withAttributes(attributeMask));
+    }
+
+    /**
+     * Returns the nodes of the graph having none of the attributes specified
+     * by the mask set. Only nodes created by the factory of the graph as
+     * {@link NodeImpl} instances are indexed.
+     *
+     * @param attributeMask
+     *            a bit mask of attributes.
+     * @return a read only set of nodes.
+     * @see net.ggtools.grand.graph.Graph#getNodesWithoutAttributes(int)
+     */
+    public final NodeSet getNodesWithoutAttributes(final int attributeMask) {
+        return new NodeSet(this, nodeAttributeIndex.withoutAttributes(attributeMask));
     }
 
     /**
@@ -282,6 +633,25 @@ public class GraphImpl implements Graph {
         return subGraphList.values().iterator();
     }
 
+    /**
+     * Returns the symbol table of the graph. The table can be used to share
+     * strings between the graph elements.
+     *
+     * @return the symbol table.
+     */
+    public final SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Tells if the graph uses a compact link storage.
+     *
+     * @return <code>true</code> if the graph is compact.
+     */
+    public final boolean isCompact() {
+        return linkStore != null;
+    }
+
     /**
      * Method hasNode.
      * @param nodeName String
@@ -289,7 +659,7 @@ public class GraphImpl implements Graph {
      * @see net.ggtools.grand.graph.NodeContainer#hasNode(java.lang.String)
      */
     public final boolean hasNode(final String nodeName) {
-        return mainSubGraph.hasNode(nodeName);
+        return getNode(nodeName) != null;
     }
 
     /**
@@ -310,6 +680,8 @@ public class GraphImpl implements Graph {
      * @see net.ggtools.grand.graph.Graph#setStartNode(Node)
      */
     public final void setStartNode(final Node node) {
+        checkNotFrozen();
+        checkNotConcurrent();
         if (graphStartNode != null) {
             graphStartNode.clearAttributes(Node.ATTR_START_NODE);
         }
@@ -332,6 +704,456 @@ public class GraphImpl implements Graph {
         return elementFactory;
     }
 
+    /**
+     * Registers a link created by the graph into the link attribute index.
+     * Subclasses creating links on their own should call this method.
+     *
+     * @param link
+     *            the new link.
+     */
+    protected final void registerLink(final Link link) {
+        checkNotFrozen();
+        if (concurrentNodes != null) {
+            synchronized (constructionLock) {
+                registerLinkInternal(link);
+            }
+        } else {
+            registerLinkInternal(link);
+        }
+    }
+
+    /**
+     * Registers a link into the link attribute index.
+     *
+     * @param link
+     *            the new link.
+     */
+    private void registerLinkInternal(final Link link) {
+        if (link instanceof LinkImpl) {
+            final int linkIndex = linkTable.size();
+            linkTable.add(link);
+            ((LinkImpl) link).setIndex(linkIndex);
+            linkAttributeIndex.add(linkIndex, link.getAttributes());
+        }
+    }
+
+    /**
+     * Returns a node from its index.
+     *
+     * @param nodeIndex
+     *            the index of the node.
+     * @return the node.
+     * @see net.ggtools.grand.graph.Graph#getNodeByIndex(int)
+     */
+    public final Node getNodeByIndex(final int nodeIndex) {
+        return nodeTable.get(nodeIndex);
+    }
+
+    /**
+     * Returns the index of a node.
+     *
+     * @param node
+     *            the node.
+     * @return the node index or -1 if the node has not been created by the
+     *         graph.
+     * @see net.ggtools.grand.graph.Graph#getNodeIndex(net.ggtools.grand.graph.Node)
+     */
+    public final int getNodeIndex(final Node node) {
+        if ((node instanceof NodeImpl) && (node.getGraph() == this)) {
+            return ((NodeImpl) node).getIndex();
+        }
+        return -1;
+    }
+
+    /**
+     * Method getNodeIndexBound.
+     * @return int
+     * @see net.ggtools.grand.graph.Graph#getNodeIndexBound()
+     */
+    public final int getNodeIndexBound() {
+        return nodeTable.size();
+    }
+
+    /**
+     * Makes the graph immutable. Once frozen, any attempt to change the graph
+     * or its elements will throw an {@link IllegalStateException}. A frozen
+     * graph can be read concurrently by several threads, and filters will
+     * create lightweight {@link FilteredGraphView}s rather than altering it so
+     * the same graph can be used to produce any number of outputs.
+     *
+     * @return the graph.
+     */
+    public final GraphImpl freeze() {
+        if (!frozen) {
+            seal();
+            if (linkStore != null) {
+                linkStore.buildIndex();
+            }
+            frozen = true;
+        }
+        return this;
+    }
+
+    /**
+     * Switches the graph to the concurrent construction mode. Until
+     * {@link #seal()} is called, {@link #createNode(String)},
+     * {@link #getNode(String)}, {@link #createLink(String, Node, Node)} and
+     * the other link creation methods can be called from several threads.
+     * The new links are not added to their nodes until the graph is sealed
+     * and the other changes to the graph structure are not supported. Each
+     * node should only be altered by one thread at a time.
+     * <p>
+     * To get the same graph whatever the scheduling of the threads, the work
+     * should be split into units numbered from 0, each thread calling
+     * {@link #beginConstructionUnit(int)} before working on a unit and
+     * {@link #endConstructionUnit()} afterwards. The units should be started
+     * in ordinal order. Creating a node waits for the previous units to
+     * complete so the nodes are named and looked up as they would be by a
+     * single thread, and the elements will be put back in the order they
+     * would have been created by a single thread processing the units in
+     * ordinal order.
+     * </p>
+     */
+    public final void startConcurrentConstruction() {
+        checkNotFrozen();
+        if (concurrentNodes != null) {
+            return;
+        }
+        // Creates the factory now, lazy instantiation is not thread safe.
+        getFactory();
+        final ConcurrentMap<String, Node> nodes = new ConcurrentHashMap<String, Node>();
+        for (final Iterator<Node> iter = getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            nodes.put(node.getName(), node);
+        }
+        constructionUnit = new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                return new long[]{Integer.MAX_VALUE, 0};
+            }
+        };
+        pendingLinks = new ConcurrentLinkedQueue<PendingElement<Link>>();
+        pendingNodes = new ArrayList<PendingElement<Node>>();
+        completedUnits = new BitSet();
+        completedUnitCount = 0;
+        sealedSymbolCount = symbols.size();
+        concurrentNodes = nodes;
+    }
+
+    /**
+     * Tells the graph that the calling thread starts working on a new unit
+     * during a concurrent construction.
+     *
+     * @param ordinal
+     *            the ordinal of the unit, which should be unique.
+     * @see #startConcurrentConstruction()
+     */
+    public final void beginConstructionUnit(final int ordinal) {
+        if (constructionUnit != null) {
+            final long[] unit = constructionUnit.get();
+            unit[0] = ordinal;
+            unit[1] = 0;
+        }
+    }
+
+    /**
+     * Tells the graph that the calling thread has completed its current
+     * construction unit. This method should be called even if the unit
+     * failed.
+     *
+     * @see #beginConstructionUnit(int)
+     */
+    public final void endConstructionUnit() {
+        if (constructionUnit == null) {
+            return;
+        }
+        final long[] unit = constructionUnit.get();
+        if (unit[0] < Integer.MAX_VALUE) {
+            synchronized (constructionLock) {
+                completedUnits.set((int) unit[0]);
+                while (completedUnits.get(completedUnitCount)) {
+                    completedUnitCount++;
+                }
+                constructionLock.notifyAll();
+            }
+        }
+        unit[0] = Integer.MAX_VALUE;
+        unit[1] = 0;
+    }
+
+    /**
+     * Waits for all the construction units before the one of the calling
+     * thread to complete. Once this method returns, no other unit can create
+     * nodes until the current one completes. Threads not working on a unit
+     * do not wait. Callers looking for a node before creating it should call
+     * this method first to get the same result as with a single thread.
+     *
+     * @throws IllegalStateException
+     *             if the thread is interrupted while waiting, the interrupt
+     *             flag being restored.
+     * @see #startConcurrentConstruction()
+     */
+    public final void awaitConstructionTurn() {
+        if (constructionUnit == null) {
+            return;
+        }
+        final long ordinal = constructionUnit.get()[0];
+        if (ordinal == Integer.MAX_VALUE) {
+            return;
+        }
+        synchronized (constructionLock) {
+            while (completedUnitCount < ordinal) {
+                try {
+                    constructionLock.wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting "
+                            + "for construction unit " + ordinal, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells if the graph is being built concurrently.
+     *
+     * @return <code>true</code> between
+     *         {@link #startConcurrentConstruction()} and {@link #seal()}.
+     */
+    public final boolean isConcurrent() {
+        return concurrentNodes != null;
+    }
+
+    /**
+     * Ends a concurrent construction. The nodes created concurrently are
+     * sorted by the key of the first element referencing them, renumbered
+     * and given new symbols, and the pending links are added to their nodes
+     * in key order. This method must not be called while other threads are
+     * still altering the graph. Calling it on a graph which is not being
+     * built concurrently does nothing.
+     *
+     * @return the graph.
+     */
+    public final GraphImpl seal() {
+        if (concurrentNodes == null) {
+            return this;
+        }
+        final List<PendingElement<Link>> links =
+                new ArrayList<PendingElement<Link>>(pendingLinks);
+        Collections.sort(links);
+
+        // A node goes where it would have been created by a single thread,
+        // that is before the first link using it.
+        final Map<Node, PendingElement<Node>> nodeKeys =
+                new IdentityHashMap<Node, PendingElement<Node>>();
+        for (final PendingElement<Node> pending : pendingNodes) {
+            nodeKeys.put(pending.element, pending);
+        }
+        for (final PendingElement<Link> pending : links) {
+            lowerKey(nodeKeys.get(pending.element.getStartNode()), pending.key);
+            lowerKey(nodeKeys.get(pending.element.getEndNode()), pending.key);
+        }
+        Collections.sort(pendingNodes, new Comparator<PendingElement<Node>>() {
+            public int compare(final PendingElement<Node> o1,
+                    final PendingElement<Node> o2) {
+                final int result = o1.compareTo(o2);
+                return (result != 0) ? result
+                        : o1.element.getName().compareTo(o2.element.getName());
+            }
+        });
+
+        // Gives the nodes their final symbols, the other symbols created
+        // concurrently are sorted to keep the table deterministic.
+        final SymbolTable newSymbols = new SymbolTable();
+        for (int i = 0; i < sealedSymbolCount; i++) {
+            newSymbols.intern(symbols.getSymbol(i));
+        }
+        for (final PendingElement<Node> pending : pendingNodes) {
+            final NodeImpl node = (NodeImpl) pending.element;
+            nodeAttributeIndex.remove(node.getIndex(), node.getAttributes());
+            nodeIndexBySymbol[node.getSymbol()] = -1;
+            newSymbols.intern(node.getName());
+        }
+        final List<String> otherSymbols = new ArrayList<String>();
+        for (int i = sealedSymbolCount; i < symbols.size(); i++) {
+            if (newSymbols.lookup(symbols.getSymbol(i)) < 0) {
+                otherSymbols.add(symbols.getSymbol(i));
+            }
+        }
+        Collections.sort(otherSymbols);
+        for (final String symbol : otherSymbols) {
+            newSymbols.intern(symbol);
+        }
+        symbols = newSymbols;
+        if (symbols.size() > nodeIndexBySymbol.length) {
+            growSymbolIndex(symbols.size());
+        }
+
+        int nodeIndex = nodeTable.size() - pendingNodes.size();
+        for (final PendingElement<Node> pending : pendingNodes) {
+            final NodeImpl node = (NodeImpl) pending.element;
+            final int symbol = symbols.lookup(node.getName());
+            nodeTable.set(nodeIndex, node);
+            node.attach(nodeIndex, symbol, linkStore);
+            nodeIndexBySymbol[symbol] = nodeIndex;
+            nodeAttributeIndex.add(nodeIndex, node.getAttributes());
+            nodeIndex++;
+        }
+
+        concurrentNodes = null;
+        completedUnits = null;
+        constructionUnit = null;
+        pendingLinks = null;
+        pendingNodes = null;
+        for (final PendingElement<Link> pending : links) {
+            addLink(pending.element);
+        }
+        return this;
+    }
+
+    /**
+     * Lowers the key of a pending node.
+     *
+     * @param pending
+     *            the pending node, can be <code>null</code>.
+     * @param key
+     *            the new key.
+     */
+    private static void lowerKey(final PendingElement<Node> pending, final long key) {
+        if ((pending != null) && (key < pending.key)) {
+            pending.key = key;
+        }
+    }
+
+    /**
+     * Returns the ordering key of a new element created by the calling
+     * thread.
+     *
+     * @return the key.
+     */
+    private long nextConstructionKey() {
+        final long[] unit = constructionUnit.get();
+        return (unit[0] << Integer.SIZE) | (unit[1]++);
+    }
+
+    /**
+     * Throws an exception if the graph is being built concurrently.
+     */
+    final void checkNotConcurrent() {
+        if (concurrentNodes != null) {
+            throw new IllegalStateException("Operation not supported while graph "
+                    + name + " is built concurrently");
+        }
+    }
+
+    /**
+     * Tells if the graph has been frozen.
+     *
+     * @return <code>true</code> if the graph is frozen.
+     * @see #freeze()
+     */
+    public final boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Throws an exception if the graph is frozen.
+     */
+    final void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Graph " + name + " is frozen");
+        }
+    }
+
+    /**
+     * Returns the index of a link created by the graph.
+     *
+     * @param link
+     *            the link.
+     * @return the link index or -1 if the link is not indexed.
+     */
+    final int getLinkIndex(final Link link) {
+        if ((link instanceof LinkImpl) && (link.getGraph() == this)) {
+            return ((LinkImpl) link).getIndex();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the indexes of the nodes of the main (sub)graph.
+     *
+     * @return a new bitset.
+     */
+    final BitSet getLiveNodes() {
+        return nodeAttributeIndex.withoutAttributes(GraphObject.ATTR_NONE);
+    }
+
+    /**
+     * Tells if a node is still part of the main (sub)graph.
+     *
+     * @param nodeIndex
+     *            the index of the node.
+     * @return <code>true</code> if the node has not been removed.
+     */
+    final boolean isLiveNode(final int nodeIndex) {
+        return nodeAttributeIndex.contains(nodeIndex);
+    }
+
+    /**
+     * Updates the link attribute index.
+     *
+     * @param linkIndex
+     *            index of the link.
+     * @param oldAttributes
+     *            attributes before the change.
+     * @param newAttributes
+     *            attributes after the change.
+     */
+    final void linkAttributesChanged(final int linkIndex,
+            final int oldAttributes, final int newAttributes) {
+        if (concurrentNodes != null) {
+            synchronized (constructionLock) {
+                linkAttributeIndex.update(linkIndex, oldAttributes, newAttributes);
+            }
+        } else {
+            linkAttributeIndex.update(linkIndex, oldAttributes, newAttributes);
+        }
+    }
+
+    /**
+     * Updates the node attribute index.
+     *
+     * @param nodeIndex
+     *            index of the node.
+     * @param oldAttributes
+     *            attributes before the change.
+     * @param newAttributes
+     *            attributes after the change.
+     */
+    final void nodeAttributesChanged(final int nodeIndex,
+            final int oldAttributes, final int newAttributes) {
+        if (concurrentNodes != null) {
+            synchronized (constructionLock) {
+                nodeAttributeIndex.update(nodeIndex, oldAttributes, newAttributes);
+            }
+        } else {
+            nodeAttributeIndex.update(nodeIndex, oldAttributes, newAttributes);
+        }
+    }
+
+    /**
+     * Removes a link from the link attribute index.
+     *
+     * @param link
+     *            the removed link.
+     */
+    private void unregisterLink(final Link link) {
+        if ((link instanceof LinkImpl) && (((LinkImpl) link).getIndex() >= 0)) {
+            linkAttributeIndex.remove(((LinkImpl) link).getIndex(),
+                    link.getAttributes());
+        }
+    }
+
     /**
      * Remove all links starting from or ending to the node. This method do not
      * remove the node from nodeList.
@@ -349,6 +1171,7 @@ public class GraphImpl implements Graph {
             iter.remove();
             final Node endNode = link.getEndNode();
             endNode.removeBackLink(link);
+            unregisterLink(link);
         }
 
         for (final Iterator<Link> iter = node.getBackLinks().iterator(); iter.hasNext();) {
@@ -356,6 +1179,7 @@ public class GraphImpl implements Graph {
             iter.remove();
             final Node startNode = link.getStartNode();
             startNode.removeLink(link);
+            unregisterLink(link);
         }
 
         if (node == graphStartNode) {
@@ -0,0 +1,108 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.log.LoggerManager;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * A producer returning a frozen version of the graph of another producer. The
+ * underlying producer is only called once, allowing to render any number of
+ * filtered views of a build file with a single parsing:
+ *
+ * <pre>
+ * final GraphSnapshot snapshot = new GraphSnapshot(new AntProject(buildFile));
+ * for (final GraphFilter filter : filters) {
+ *     filter.setProducer(snapshot);
+ *     writer.setProducer(filter);
+ *     writer.write(output);
+ * }
+ * </pre>
+ *
+ * The filters will create {@link FilteredGraphView}s on the frozen graph
+ * rather than altering it.
+ *
+ * @author Christophe Labouisse
+ * @see GraphImpl#freeze()
+ */
+public class GraphSnapshot implements GraphProducer {
+    /**
+     * Field log.
+     */
+    private static final Log LOG = LoggerManager.getLog(GraphSnapshot.class);
+
+    /**
+     * Field graph.
+     */
+    private Graph graph;
+
+    /**
+     * Field producer.
+     */
+    private final GraphProducer producer;
+
+    /**
+     * Creates a new snapshot.
+     *
+     * @param producer
+     *            the producer of the graph to freeze.
+     */
+    public GraphSnapshot(final GraphProducer producer) {
+        this.producer = producer;
+    }
+
+    /**
+     * Returns the frozen graph, getting it from the underlying producer on the
+     * first call.
+     *
+     * @return the frozen graph.
+     * @throws GrandException
+     *             if the underlying producer fails or if its graph cannot be
+     *             frozen.
+     * @see net.ggtools.grand.graph.GraphProducer#getGraph()
+     */
+    public final synchronized Graph getGraph() throws GrandException {
+        if (graph == null) {
+            LOG.debug("Taking graph snapshot");
+            final Graph producersGraph = producer.getGraph();
+            if (producersGraph instanceof GraphImpl) {
+                graph = ((GraphImpl) producersGraph).freeze();
+            } else if (producersGraph instanceof FilteredGraphView) {
+                graph = producersGraph;
+            } else {
+                throw new GrandException("Cannot freeze graph "
+                        + ((producersGraph == null) ? "null"
+                                : producersGraph.getClass().getName()));
+            }
+        }
+        return graph;
+    }
+}
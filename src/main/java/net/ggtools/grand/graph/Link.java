@@ -50,6 +50,32 @@ public interface Link extends GraphObject {
      */
     int ATTR_CONDITIONAL_LINK = 1 << 1;
 
+    /**
+     * Attribute bit to be set on links only existing in the newer graph of a
+     * {@link GraphDiff}.
+     */
+    int ATTR_ADDED_LINK = 1 << 2;
+
+    /**
+     * Attribute bit to be set on links only existing in the older graph of a
+     * {@link GraphDiff}.
+     */
+    int ATTR_REMOVED_LINK = 1 << 3;
+
+    /**
+     * Attribute bit to be set on links between the nodes of a dependency
+     * cycle.
+     * @see StronglyConnectedComponents#markCycles()
+     */
+    int ATTR_CYCLIC_LINK = 1 << 4;
+
+    /**
+     * Attribute bit to be set on links between the nodes of the critical
+     * path of a build.
+     * @see CriticalPathAnalysis#markCriticalPath()
+     */
+    int ATTR_CRITICAL_LINK = 1 << 5;
+
     /**
      * Return the node located at the start of the link.
      *
@@ -59,6 +59,17 @@ public class LinkImpl extends AttributeManager implements Link {
      */
     private final String name;
 
+    /**
+     * Index of the link in its owner graph, -1 if the link is not registered.
+     */
+    private int index = -1;
+
+    /**
+     * Slot of the link in the owner graph's link store, -1 if the link is not
+     * stored in a link store.
+     */
+    private int storeSlot = -1;
+
     /**
      * Creates a new Link.
      *
@@ -122,6 +133,74 @@ public class LinkImpl extends AttributeManager implements Link {
         return name;
     }
 
+    /**
+     * Returns the index of the link in its owner graph.
+     *
+     * @return the link index or -1.
+     */
+    final int getIndex() {
+        return index;
+    }
+
+    /**
+     * Sets the index of the link in its owner graph.
+     *
+     * @param linkIndex
+     *            the new index.
+     */
+    final void setIndex(final int linkIndex) {
+        index = linkIndex;
+    }
+
+    /**
+     * Returns the slot of the link in its link store.
+     *
+     * @return the slot or -1.
+     */
+    final int getStoreSlot() {
+        return storeSlot;
+    }
+
+    /**
+     * Sets the slot of the link in its link store.
+     *
+     * @param slot
+     *            the new slot.
+     */
+    final void setStoreSlot(final int slot) {
+        storeSlot = slot;
+    }
+
+    /**
+     * Prevents changes when the owner graph is frozen.
+     *
+     * @see net.ggtools.grand.graph.AttributeManager#checkWritable()
+     */
+    @Override
+    protected final void checkWritable() {
+        if (graph instanceof GraphImpl) {
+            ((GraphImpl) graph).checkNotFrozen();
+        }
+    }
+
+    /**
+     * Keeps the owner graph's attribute index up to date.
+     *
+     * @param oldAttributes
+     *            attributes before the change.
+     * @param newAttributes
+     *            attributes after the change.
+     * @see net.ggtools.grand.graph.AttributeManager#attributesChanged(int, int)
+     */
+    @Override
+    protected final void attributesChanged(final int oldAttributes,
+            final int newAttributes) {
+        if ((index >= 0) && (graph instanceof GraphImpl)) {
+            ((GraphImpl) graph).linkAttributesChanged(index, oldAttributes,
+                    newAttributes);
+        }
+    }
+
     /**
      * Method accept.
      * @param visitor LinkVisitor
@@ -0,0 +1,335 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+
+/**
+ * Insertion ordered set of links adapting its representation to its size.
+ * Most nodes only have a handful of links so the set starts as a small array
+ * searched linearly and is only promoted to a {@link LinkedHashSet} once it
+ * grows beyond {@link #HASH_THRESHOLD} links. An empty set does not allocate
+ * anything besides itself.
+ *
+ * @author Christophe Labouisse
+ */
+final class LinkSet extends AbstractSet<Link> {
+    /**
+     * Iterator on a small set.
+     *
+     * @author Christophe Labouisse
+     */
+    private final class SmallSetIterator implements Iterator<Link> {
+        /**
+         * Index of the next link.
+         */
+        private int cursor;
+
+        /**
+         * Index of the last returned link, -1 if there is none.
+         */
+        private int lastReturned = -1;
+
+        /**
+         * Field expectedModCount.
+         */
+        private int expectedModCount = modCount;
+
+        /**
+         * Tells if there is a next link. After a modification outside of the
+         * iterator, for instance a promotion or a clear leaving no link,
+         * there is always one so that {@link #next()} fails rather than the
+         * iteration silently ending.
+         * @return boolean
+         * @see java.util.Iterator#hasNext()
+         */
+        public boolean hasNext() {
+            return (cursor < count) || (modCount != expectedModCount);
+        }
+
+        /**
+         * Method next.
+         * @return Link
+         * @see java.util.Iterator#next()
+         */
+        public Link next() {
+            checkForComodification();
+            if (cursor >= count) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = cursor;
+            return elements[cursor++];
+        }
+
+        /**
+         * Method remove.
+         * @see java.util.Iterator#remove()
+         */
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeAt(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Fails if the set has been modified outside of the iterator.
+         */
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Number of links above which the set is backed by a hash set.
+     * (value is {@value #HASH_THRESHOLD})
+     */
+    static final int HASH_THRESHOLD = 8;
+
+    /**
+     * Field EMPTY.
+     */
+    private static final Link[] EMPTY = new Link[0];
+
+    /**
+     * Field INITIAL_CAPACITY.
+     * (value is {@value #INITIAL_CAPACITY})
+     */
+    private static final int INITIAL_CAPACITY = 2;
+
+    /**
+     * Links of a small set, <code>null</code> once the set has been promoted.
+     */
+    private Link[] elements = EMPTY;
+
+    /**
+     * Number of links in {@link #elements}.
+     */
+    private int count;
+
+    /**
+     * Links of a promoted set.
+     */
+    private LinkedHashSet<Link> hashed;
+
+    /**
+     * Structural modification counter of the small set.
+     */
+    private int modCount;
+
+    /**
+     * Creates an empty set.
+     */
+    LinkSet() {
+    }
+
+    /**
+     * Creates an empty set sized for a number of links.
+     *
+     * @param expectedSize
+     *            the expected number of links.
+     */
+    LinkSet(final int expectedSize) {
+        if (expectedSize > HASH_THRESHOLD) {
+            hashed = new LinkedHashSet<Link>(Math.max(expectedSize * 4 / 3 + 1, 4));
+            elements = null;
+        } else if (expectedSize > 0) {
+            elements = new Link[expectedSize];
+        }
+    }
+
+    /**
+     * Tells whether the set is backed by a hash set.
+     *
+     * @return <code>true</code> if the set has been promoted.
+     */
+    boolean isHashed() {
+        return hashed != null;
+    }
+
+    /**
+     * Method add.
+     * @param link Link
+     * @return boolean
+     * @see java.util.AbstractCollection#add(java.lang.Object)
+     */
+    @Override
+    public boolean add(final Link link) {
+        if (hashed != null) {
+            return hashed.add(link);
+        }
+        if (indexOf(link) >= 0) {
+            return false;
+        }
+        if (count == HASH_THRESHOLD) {
+            promote();
+            return hashed.add(link);
+        }
+        if (count == elements.length) {
+            final Link[] newElements = new Link[Math.min(
+                    Math.max(count * 2, INITIAL_CAPACITY), HASH_THRESHOLD)];
+            System.arraycopy(elements, 0, newElements, 0, count);
+            elements = newElements;
+        }
+        elements[count++] = link;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Method contains.
+     * @param obj Object
+     * @return boolean
+     * @see java.util.AbstractCollection#contains(java.lang.Object)
+     */
+    @Override
+    public boolean contains(final Object obj) {
+        if (hashed != null) {
+            return hashed.contains(obj);
+        }
+        return indexOf(obj) >= 0;
+    }
+
+    /**
+     * Method remove.
+     * @param obj Object
+     * @return boolean
+     * @see java.util.AbstractCollection#remove(java.lang.Object)
+     */
+    @Override
+    public boolean remove(final Object obj) {
+        if (hashed != null) {
+            return hashed.remove(obj);
+        }
+        final int index = indexOf(obj);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Method clear.
+     * @see java.util.AbstractCollection#clear()
+     */
+    @Override
+    public void clear() {
+        if (hashed != null) {
+            hashed.clear();
+        } else {
+            for (int i = 0; i < count; i++) {
+                elements[i] = null;
+            }
+            count = 0;
+            modCount++;
+        }
+    }
+
+    /**
+     * Method size.
+     * @return int
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+        return (hashed != null) ? hashed.size() : count;
+    }
+
+    /**
+     * Method iterator.
+     * @return Iterator&lt;Link&gt;
+     * @see java.util.AbstractCollection#iterator()
+     */
+    @Override
+    public Iterator<Link> iterator() {
+        if (hashed != null) {
+            return hashed.iterator();
+        }
+        return new SmallSetIterator();
+    }
+
+    /**
+     * Looks for a link in the small set.
+     *
+     * @param obj
+     *            the object to look for.
+     * @return the index of the link or -1 if it is not in the set.
+     */
+    private int indexOf(final Object obj) {
+        for (int i = 0; i < count; i++) {
+            if (elements[i] == obj) {
+                return i;
+            }
+        }
+        if (obj != null) {
+            for (int i = 0; i < count; i++) {
+                if (obj.equals(elements[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a link from the small set keeping the other links order.
+     *
+     * @param index
+     *            the index of the link.
+     */
+    private void removeAt(final int index) {
+        System.arraycopy(elements, index + 1, elements, index, count - index - 1);
+        elements[--count] = null;
+        modCount++;
+    }
+
+    /**
+     * Moves the links to a hash set.
+     */
+    private void promote() {
+        hashed = new LinkedHashSet<Link>(HASH_THRESHOLD * 4);
+        for (int i = 0; i < count; i++) {
+            hashed.add(elements[i]);
+        }
+        elements = null;
+        count = 0;
+        modCount++;
+    }
+}
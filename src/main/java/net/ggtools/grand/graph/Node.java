@@ -75,6 +75,42 @@ public interface Node extends GraphObject {
      */
     int ATTR_PREFIXED_NODE = 1 << 4;
 
+    /**
+     * Attribute bit to be set on nodes only existing in the newer graph of a
+     * {@link GraphDiff}.
+     */
+    int ATTR_ADDED_NODE = 1 << 5;
+
+    /**
+     * Attribute bit to be set on nodes only existing in the older graph of a
+     * {@link GraphDiff}.
+     */
+    int ATTR_REMOVED_NODE = 1 << 6;
+
+    /**
+     * Attribute bit to be set on nodes whose attributes or source differ
+     * between the two graphs of a {@link GraphDiff}.
+     */
+    int ATTR_CHANGED_NODE = 1 << 7;
+
+    /**
+     * Attribute bit to be set on nodes part of a dependency cycle.
+     * @see StronglyConnectedComponents#markCycles()
+     */
+    int ATTR_CYCLIC_NODE = 1 << 8;
+
+    /**
+     * Attribute bit to be set on nodes part of the critical path of a build.
+     * @see CriticalPathAnalysis#markCriticalPath()
+     */
+    int ATTR_CRITICAL_NODE = 1 << 9;
+
+    /**
+     * Attribute bit to be set on nodes dominating other nodes.
+     * @see DominatorTree#markDominators(Node)
+     */
+    int ATTR_DOMINATOR_NODE = 1 << 10;
+
     /**
      * Returns links originating from the node. The implementing class should
      * ensure that the returned list only contains objects implementing the
@@ -0,0 +1,66 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.Collection;
+
+/**
+ * A consumer adding the nodes to a collection. This is used to implement
+ * {@link LinkFinder#getLinks(Node)} on top of
+ * {@link StreamingLinkFinder#forEachNeighbour(Node, NodeConsumer)}.
+ *
+ * @author Christophe Labouisse
+ */
+final class NodeCollector implements NodeConsumer {
+    /**
+     * Field result.
+     */
+    private final Collection<Node> result;
+
+    /**
+     * Creates a new collector.
+     *
+     * @param result
+     *            the collection receiving the nodes.
+     */
+    NodeCollector(final Collection<Node> result) {
+        this.result = result;
+    }
+
+    /**
+     * Method accept.
+     * @param node Node
+     * @return boolean
+     * @see net.ggtools.grand.graph.NodeConsumer#accept(net.ggtools.grand.graph.Node)
+     */
+    public boolean accept(final Node node) {
+        result.add(node);
+        return true;
+    }
+}
@@ -29,8 +29,7 @@
 package net.ggtools.grand.graph;
 
 import java.util.Collection;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.Collections;
 
 import org.apache.commons.logging.Log;
 
@@ -64,14 +63,31 @@ public class NodeImpl extends AttributeManager implements Node {
     private String description;
 
     /**
-     * Field links.
+     * Field links, lazily created when the node is not using a link store.
      */
-    private final Set<Link> links;
+    private LinkSet links;
 
     /**
-     * Field backLinks.
+     * Field backLinks, lazily created when the node is not using a link store.
      */
-    private final Set<Link> backLinks;
+    private LinkSet backLinks;
+
+    /**
+     * Index of the node in its owner graph, -1 if the node is not attached.
+     */
+    private int index = -1;
+
+    /**
+     * Symbol of the name in the owner graph's symbol table, -1 if the node is
+     * not attached.
+     */
+    private int symbol = -1;
+
+    /**
+     * Link store shared with the owner graph, <code>null</code> if the node
+     * holds its own links.
+     */
+    private CompactLinkStore linkStore;
 
     /**
      * Field source.
@@ -89,14 +105,72 @@ public class NodeImpl extends AttributeManager implements Node {
     public NodeImpl(final String name, final Graph graph) {
         this.name = name;
         this.graph = graph;
-        links = new LinkedHashSet<Link>();
-        backLinks = new LinkedHashSet<Link>();
+    }
+
+    /**
+     * Attaches the node to its owner graph.
+     *
+     * @param nodeIndex
+     *            index of the node in the graph.
+     * @param nameSymbol
+     *            symbol of the node name in the graph's symbol table.
+     * @param store
+     *            link store shared by the graph's nodes, <code>null</code>
+     *            if the node should hold its own links.
+     */
+    final void attach(final int nodeIndex, final int nameSymbol,
+            final CompactLinkStore store) {
+        index = nodeIndex;
+        symbol = nameSymbol;
+        linkStore = store;
+        if (store != null) {
+            store.registerNode(nodeIndex);
+        }
+    }
+
+    /**
+     * Sizes the link sets of the node before adding links. This is a no-op
+     * for nodes using a shared link store or already holding links.
+     *
+     * @param linkCount
+     *            expected number of links starting from the node.
+     * @param backLinkCount
+     *            expected number of links ending to the node.
+     */
+    final void ensureLinkCapacity(final int linkCount, final int backLinkCount) {
+        if (linkStore != null) {
+            return;
+        }
+        if ((links == null) && (linkCount > 0)) {
+            links = new LinkSet(linkCount);
+        }
+        if ((backLinks == null) && (backLinkCount > 0)) {
+            backLinks = new LinkSet(backLinkCount);
+        }
+    }
+
+    /**
+     * Returns the symbol of the node name in its owner graph.
+     *
+     * @return the symbol or -1 if the node is not attached.
+     */
+    final int getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Returns the index of the node in its owner graph.
+     *
+     * @return the node index or -1 if the node is not attached.
+     */
+    final int getIndex() {
+        return index;
     }
 
     /**
      * Returns true of the current object and <code>obj</code> are equals. Two
      * Nodes are equals when they belong to the same graph and they have the
-     * same name.
+     * same name. Nodes created by a graph are compared using their name symbol.
      *
      * @param obj
      *            object to compare the node to.
@@ -105,13 +179,27 @@ public class NodeImpl extends AttributeManager implements Node {
      */
     @Override
     public final boolean equals(final Object obj) {
-        return this == obj || obj instanceof Node && graph == ((Node) obj).getGraph()
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof NodeImpl) {
+            final NodeImpl other = (NodeImpl) obj;
+            if (graph != other.graph) {
+                return false;
+            }
+            if ((symbol >= 0) && (other.symbol >= 0)) {
+                return symbol == other.symbol;
+            }
+            return name.equals(other.name);
+        }
+        return obj instanceof Node && graph == ((Node) obj).getGraph()
                 && name.equals(((Node) obj).getName());
     }
 
     /**
      * Compute a hash code for the current node. A Node's hash will be his
-     * name's hashcode.
+     * name's hashcode, so equal nodes of any implementation have the same
+     * hash.
      *
      * @return hash code for the current node.
      * @see java.lang.Object#hashCode()
@@ -137,7 +225,20 @@ public class NodeImpl extends AttributeManager implements Node {
      * @see net.ggtools.grand.graph.Node#getLinks()
      */
     public final Collection<Link> getLinks() {
-        return links;
+        final Collection<Link> result;
+        if (linkStore != null) {
+            result = linkStore.getLinks(index);
+        } else {
+            if (links == null) {
+                if (isFrozen()) {
+                    // Frozen graphs may be read by several threads.
+                    return Collections.emptySet();
+                }
+                links = new LinkSet();
+            }
+            result = links;
+        }
+        return isFrozen() ? Collections.unmodifiableCollection(result) : result;
     }
 
     /**
@@ -146,7 +247,20 @@ public class NodeImpl extends AttributeManager implements Node {
      * @see net.ggtools.grand.graph.Node#getBackLinks()
      */
     public final Collection<Link> getBackLinks() {
-        return backLinks;
+        final Collection<Link> result;
+        if (linkStore != null) {
+            result = linkStore.getBackLinks(index);
+        } else {
+            if (backLinks == null) {
+                if (isFrozen()) {
+                    // Frozen graphs may be read by several threads.
+                    return Collections.emptySet();
+                }
+                backLinks = new LinkSet();
+            }
+            result = backLinks;
+        }
+        return isFrozen() ? Collections.unmodifiableCollection(result) : result;
     }
 
     /**
@@ -164,6 +278,7 @@ public class NodeImpl extends AttributeManager implements Node {
      * @see net.ggtools.grand.graph.Node#setDescription(java.lang.String)
      */
     public final void setDescription(final String desc) {
+        checkWritable();
         description = desc;
     }
 
@@ -191,7 +306,8 @@ public class NodeImpl extends AttributeManager implements Node {
      * @see net.ggtools.grand.graph.Node#addLink(net.ggtools.grand.graph.Link)
      */
     public final void addLink(final Link link) {
-        links.add(link);
+        checkWritable();
+        getLinks().add(link);
     }
 
     /**
@@ -200,7 +316,8 @@ public class NodeImpl extends AttributeManager implements Node {
      * @see net.ggtools.grand.graph.Node#addBackLink(net.ggtools.grand.graph.Link)
      */
     public final void addBackLink(final Link link) {
-        backLinks.add(link);
+        checkWritable();
+        getBackLinks().add(link);
     }
 
     /**
@@ -209,10 +326,15 @@ public class NodeImpl extends AttributeManager implements Node {
      * @see net.ggtools.grand.graph.Node#removeLink(net.ggtools.grand.graph.Link)
      */
     public final void removeLink(final Link link) {
+        checkWritable();
         if (LOG.isTraceEnabled()) {
             LOG.trace(name + ": removing link " + link);
         }
-        links.remove(link);
+        if (linkStore != null) {
+            linkStore.removeLink(link);
+        } else if (links != null) {
+            links.remove(link);
+        }
     }
 
     /**
@@ -221,10 +343,54 @@ public class NodeImpl extends AttributeManager implements Node {
      * @see net.ggtools.grand.graph.Node#removeBackLink(net.ggtools.grand.graph.Link)
      */
     public final void removeBackLink(final Link link) {
+        checkWritable();
         if (LOG.isTraceEnabled()) {
             LOG.trace(name + ": removing back link " + link);
         }
-        backLinks.remove(link);
+        if (linkStore != null) {
+            linkStore.removeLink(link);
+        } else if (backLinks != null) {
+            backLinks.remove(link);
+        }
+    }
+
+    /**
+     * Tells if the owner graph is frozen.
+     *
+     * @return <code>true</code> if the node cannot be changed anymore.
+     */
+    private boolean isFrozen() {
+        return (graph instanceof GraphImpl) && ((GraphImpl) graph).isFrozen();
+    }
+
+    /**
+     * Prevents changes when the owner graph is frozen.
+     *
+     * @see net.ggtools.grand.graph.AttributeManager#checkWritable()
+     */
+    @Override
+    protected final void checkWritable() {
+        if (graph instanceof GraphImpl) {
+            ((GraphImpl) graph).checkNotFrozen();
+        }
+    }
+
+    /**
+     * Keeps the owner graph's attribute index up to date.
+     *
+     * @param oldAttributes
+     *            attributes before the change.
+     * @param newAttributes
+     *            attributes after the change.
+     * @see net.ggtools.grand.graph.AttributeManager#attributesChanged(int, int)
+     */
+    @Override
+    protected final void attributesChanged(final int oldAttributes,
+            final int newAttributes) {
+        if ((index >= 0) && (graph instanceof GraphImpl)) {
+            ((GraphImpl) graph).nodeAttributesChanged(index, oldAttributes,
+                    newAttributes);
+        }
     }
 
     /**
@@ -251,6 +417,7 @@ public class NodeImpl extends AttributeManager implements Node {
      * @param newSource String
      */
     public final void setSource(final String newSource) {
+        checkWritable();
         source = newSource;
     }
 }
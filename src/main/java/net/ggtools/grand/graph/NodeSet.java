@@ -0,0 +1,203 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read only set of nodes from a single graph backed by a bitset of node
+ * indexes. Membership tests are done in constant time and sets from the same
+ * graph can be combined using word parallel operations. The set is a snapshot:
+ * it will not reflect later changes in the graph.
+ *
+ * @author Christophe Labouisse
+ */
+public final class NodeSet extends AbstractSet<Node> {
+    /**
+     * Field bits.
+     */
+    private final BitSet bits;
+
+    /**
+     * Field graph.
+     */
+    private final Graph graph;
+
+    /**
+     * Field size, computed on first use.
+     */
+    private int size = -1;
+
+    /**
+     * Creates a new set. The set takes ownership of the bitset.
+     *
+     * @param graph
+     *            graph owning the nodes.
+     * @param bits
+     *            indexes of the nodes in the set.
+     */
+    NodeSet(final Graph graph, final BitSet bits) {
+        this.graph = graph;
+        this.bits = bits;
+    }
+
+    /**
+     * Returns the nodes belonging to both this set and <code>other</code>.
+     *
+     * @param other
+     *            a set from the same graph.
+     * @return a new set.
+     */
+    public NodeSet and(final NodeSet other) {
+        final BitSet result = copyBits(other);
+        result.and(other.bits);
+        return new NodeSet(graph, result);
+    }
+
+    /**
+     * Returns the nodes belonging to this set but not to <code>other</code>.
+     *
+     * @param other
+     *            a set from the same graph.
+     * @return a new set.
+     */
+    public NodeSet andNot(final NodeSet other) {
+        final BitSet result = copyBits(other);
+        result.andNot(other.bits);
+        return new NodeSet(graph, result);
+    }
+
+    /**
+     * Returns the nodes belonging to this set or to <code>other</code>.
+     *
+     * @param other
+     *            a set from the same graph.
+     * @return a new set.
+     */
+    public NodeSet or(final NodeSet other) {
+        final BitSet result = copyBits(other);
+        result.or(other.bits);
+        return new NodeSet(graph, result);
+    }
+
+    /**
+     * Returns a copy of the bits representing the set. The bits are the
+     * indexes of the nodes in the graph.
+     *
+     * @return a new bitset.
+     * @see Graph#getNodeIndex(Node)
+     */
+    public BitSet toBitSet() {
+        return (BitSet) bits.clone();
+    }
+
+    /**
+     * Returns the graph owning the nodes.
+     *
+     * @return the graph.
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Method contains.
+     * @param obj Object
+     * @return boolean
+     * @see java.util.AbstractCollection#contains(java.lang.Object)
+     */
+    @Override
+    public boolean contains(final Object obj) {
+        if (!(obj instanceof Node)) {
+            return false;
+        }
+        final int nodeIndex = graph.getNodeIndex((Node) obj);
+        return (nodeIndex >= 0) && bits.get(nodeIndex);
+    }
+
+    /**
+     * Method iterator.
+     * @return Iterator&lt;Node&gt;
+     * @see java.util.AbstractCollection#iterator()
+     */
+    @Override
+    public Iterator<Node> iterator() {
+        return new Iterator<Node>() {
+            private int next = bits.nextSetBit(0);
+
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            public Node next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                final Node node = graph.getNodeByIndex(next);
+                next = bits.nextSetBit(next + 1);
+                return node;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException("NodeSet is read only");
+            }
+        };
+    }
+
+    /**
+     * Method size.
+     * @return int
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+        if (size < 0) {
+            size = bits.cardinality();
+        }
+        return size;
+    }
+
+    /**
+     * Checks that another set comes from the same graph and returns a copy of
+     * the current bits.
+     *
+     * @param other
+     *            the other set.
+     * @return a copy of the bits.
+     */
+    private BitSet copyBits(final NodeSet other) {
+        if (other.graph != graph) {
+            throw new IllegalArgumentException("Cannot combine node sets from different graphs");
+        }
+        return (BitSet) bits.clone();
+    }
+}
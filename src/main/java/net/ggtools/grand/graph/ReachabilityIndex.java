@@ -0,0 +1,182 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.BitSet;
+
+/**
+ * A precomputed index answering reachability queries on a graph without
+ * walking it. The graph is condensed into its
+ * {@link StronglyConnectedComponents strongly connected components} and,
+ * for each component of the resulting acyclic condensation, the index keeps
+ * a bitset of the components reachable from it. <code>reaches(a, b)</code> is then a single bit test.
+ * <p>
+ * The index follows the forward links of the nodes: a node reaches the nodes
+ * it depends upon. It is a snapshot of the graph at construction time and
+ * should be built on graphs that will not change anymore, like frozen ones.
+ * The memory used is quadratic in the number of components at worst.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ * @see GraphImpl#freeze()
+ */
+public final class ReachabilityIndex {
+    /**
+     * Field components.
+     */
+    private final StronglyConnectedComponents components;
+
+    /**
+     * Components reachable from each component, including itself.
+     */
+    private final BitSet[] descendants;
+
+    /**
+     * Builds the index of a graph.
+     *
+     * @param graph
+     *            the graph to index.
+     */
+    public ReachabilityIndex(final Graph graph) {
+        components = new StronglyConnectedComponents(graph, true);
+        descendants = new BitSet[components.getComponentCount()];
+        computeDescendants();
+    }
+
+    /**
+     * Returns the indexed graph.
+     *
+     * @return the graph.
+     */
+    public Graph getGraph() {
+        return components.getGraph();
+    }
+
+    /**
+     * Returns the number of strongly connected components in the graph.
+     *
+     * @return the number of components.
+     */
+    public int getComponentCount() {
+        return descendants.length;
+    }
+
+    /**
+     * Tells whether a node reaches another one, that is if <code>from</code>
+     * transitively depends upon <code>to</code>. A node always reaches itself.
+     *
+     * @param from
+     *            the start node.
+     * @param to
+     *            the end node.
+     * @return <code>true</code> if there is a path from <code>from</code>
+     *         to <code>to</code>.
+     * @throws IllegalArgumentException
+     *             if one of the nodes is not in the index.
+     */
+    public boolean reaches(final Node from, final Node to) {
+        return descendants[components.getComponentIndex(from)]
+                .get(components.getComponentIndex(to));
+    }
+
+    /**
+     * Returns the nodes reachable from a node, including the node itself.
+     *
+     * @param node
+     *            the node.
+     * @return the reachable nodes.
+     * @throws IllegalArgumentException
+     *             if the node is not in the index.
+     */
+    public NodeSet getDescendants(final Node node) {
+        final BitSet result = new BitSet(getGraph().getNodeIndexBound());
+        final BitSet reachable = descendants[components.getComponentIndex(node)];
+        for (int c = reachable.nextSetBit(0); c >= 0; c = reachable.nextSetBit(c + 1)) {
+            components.addMembers(result, c);
+        }
+        return new NodeSet(getGraph(), result);
+    }
+
+    /**
+     * Returns the nodes reaching a node, including the node itself.
+     *
+     * @param node
+     *            the node.
+     * @return the nodes reaching <code>node</code>.
+     * @throws IllegalArgumentException
+     *             if the node is not in the index.
+     */
+    public NodeSet getAncestors(final Node node) {
+        final BitSet result = new BitSet(getGraph().getNodeIndexBound());
+        final int component = components.getComponentIndex(node);
+        // Components only reach components found before them.
+        for (int c = component; c < descendants.length; c++) {
+            if (descendants[c].get(component)) {
+                components.addMembers(result, c);
+            }
+        }
+        return new NodeSet(getGraph(), result);
+    }
+
+    /**
+     * Returns the nodes belonging to the same strongly connected component
+     * as a node. Those are the nodes in a dependency cycle with it.
+     *
+     * @param node
+     *            the node.
+     * @return the nodes of the component, including <code>node</code>.
+     * @throws IllegalArgumentException
+     *             if the node is not in the index.
+     */
+    public NodeSet getComponent(final Node node) {
+        return components.getComponent(node);
+    }
+
+    /**
+     * Computes the components reachable from each component. As components
+     * only reach lower numbered ones, a single pass in increasing order is
+     * enough.
+     */
+    private void computeDescendants() {
+        final Graph graph = getGraph();
+        for (int c = 0; c < descendants.length; c++) {
+            final BitSet reachable = new BitSet(c + 1);
+            reachable.set(c);
+            for (int i = components.getMemberStart(c); i < components.getMemberEnd(c); i++) {
+                for (final Link link : graph.getNodeByIndex(components.getMember(i)).getLinks()) {
+                    final int target = components.getComponentOf(link.getEndNode());
+                    if ((target >= 0) && !reachable.get(target)) {
+                        reachable.or(descendants[target]);
+                    }
+                }
+            }
+            descendants[c] = reachable;
+        }
+    }
+}
@@ -57,10 +57,10 @@ class SimpleGraphElementFactory implements GraphElementFactory {
     /**
      * Method createNode.
      * @param nodeName String
-     * @return Node
+     * @return NodeImpl
      * @see net.ggtools.grand.graph.GraphElementFactory#createNode(java.lang.String)
      */
-    public Node createNode(final String nodeName) {
+    public NodeImpl createNode(final String nodeName) {
         return new NodeImpl(nodeName, graph);
     }
 
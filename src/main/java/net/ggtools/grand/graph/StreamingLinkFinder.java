@@ -0,0 +1,52 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+/**
+ * A link finder enumerating the accessible nodes through a callback rather
+ * than returning them in a new collection. {@link GraphCrawler} uses this to
+ * walk graphs without allocating anything for each visited node.
+ *
+ * @author Christophe Labouisse
+ */
+public interface StreamingLinkFinder extends LinkFinder {
+    /**
+     * Passes all the accessible nodes from a specific one to a consumer. The
+     * nodes are passed in the same order as in {@link LinkFinder#getLinks(Node)}
+     * but the same node may be passed several times. The enumeration stops as
+     * soon as the consumer returns <code>false</code>.
+     *
+     * @param node
+     *            node to consider.
+     * @param consumer
+     *            the consumer receiving the accessible nodes.
+     * @return <code>false</code> if the consumer stopped the enumeration.
+     */
+    boolean forEachNeighbour(Node node, NodeConsumer consumer);
+}
@@ -0,0 +1,433 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The strongly connected components of a graph, found with an iterative
+ * version of Tarjan's algorithm. The computation runs in time linear in the
+ * number of nodes and links and does not recurse so it is safe on very deep
+ * graphs.
+ * <p>
+ * A component is cyclic when it has more than one node or when its single
+ * node links to itself. Weak links, like the ones created by
+ * <code>antcall</code> or <code>subant</code>, can be included or ignored:
+ * Ant only fails on cycles made of regular dependencies but cycles going
+ * through weak links usually denote a broken build file too.
+ * </p>
+ * <p>
+ * Components are numbered in the order they are completed, so a node can
+ * only depend upon nodes of its own component or of lower numbered ones.
+ * Like {@link ReachabilityIndex}, the result is a snapshot of the graph at
+ * construction time.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public final class StronglyConnectedComponents {
+    /**
+     * Field graph.
+     */
+    private final Graph graph;
+
+    /**
+     * Field includeWeakLinks.
+     */
+    private final boolean includeWeakLinks;
+
+    /**
+     * Component of each node index, -1 for unused indexes.
+     */
+    private final int[] componentOf;
+
+    /**
+     * Node indexes grouped by component.
+     */
+    private final int[] members;
+
+    /**
+     * Start of each component in {@link #members}, with an extra end entry.
+     */
+    private final int[] memberOffsets;
+
+    /**
+     * Components part of a cycle.
+     */
+    private final BitSet cyclicComponents = new BitSet();
+
+    /**
+     * Computes the strongly connected components of a graph.
+     *
+     * @param graph
+     *            the graph.
+     * @param includeWeakLinks
+     *            <code>true</code> to follow links having the
+     *            {@link Link#ATTR_WEAK_LINK} attribute.
+     */
+    public StronglyConnectedComponents(final Graph graph, final boolean includeWeakLinks) {
+        this.graph = graph;
+        this.includeWeakLinks = includeWeakLinks;
+        final int bound = graph.getNodeIndexBound();
+        componentOf = new int[bound];
+        Arrays.fill(componentOf, -1);
+        members = new int[bound];
+        memberOffsets = findComponents(bound);
+        for (int c = 0; c < getComponentCount(); c++) {
+            if (memberOffsets[c + 1] - memberOffsets[c] > 1) {
+                cyclicComponents.set(c);
+            }
+        }
+    }
+
+    /**
+     * Returns the graph.
+     *
+     * @return the graph.
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Tells if weak links are followed.
+     *
+     * @return <code>true</code> if weak links are followed.
+     */
+    public boolean isIncludingWeakLinks() {
+        return includeWeakLinks;
+    }
+
+    /**
+     * Returns the number of components.
+     *
+     * @return the number of components.
+     */
+    public int getComponentCount() {
+        return memberOffsets.length - 1;
+    }
+
+    /**
+     * Returns the component of a node.
+     *
+     * @param node
+     *            the node.
+     * @return the component number.
+     * @throws IllegalArgumentException
+     *             if the node was not in the graph.
+     */
+    public int getComponentIndex(final Node node) {
+        final int nodeIndex = graph.getNodeIndex(node);
+        if ((nodeIndex < 0) || (nodeIndex >= componentOf.length)
+                || (componentOf[nodeIndex] < 0)) {
+            throw new IllegalArgumentException("Node " + node + " is not indexed");
+        }
+        return componentOf[nodeIndex];
+    }
+
+    /**
+     * Returns the nodes belonging to the same component as a node.
+     *
+     * @param node
+     *            the node.
+     * @return the nodes of the component, including <code>node</code>.
+     * @throws IllegalArgumentException
+     *             if the node was not in the graph.
+     */
+    public NodeSet getComponent(final Node node) {
+        final BitSet result = new BitSet(componentOf.length);
+        addMembers(result, getComponentIndex(node));
+        return new NodeSet(graph, result);
+    }
+
+    /**
+     * Tells if a node is part of a cycle.
+     *
+     * @param node
+     *            the node.
+     * @return <code>true</code> if the node is part of a cycle.
+     * @throws IllegalArgumentException
+     *             if the node was not in the graph.
+     */
+    public boolean isCyclic(final Node node) {
+        return cyclicComponents.get(getComponentIndex(node));
+    }
+
+    /**
+     * Returns all the nodes part of a cycle.
+     *
+     * @return the cyclic nodes.
+     */
+    public NodeSet getCyclicNodes() {
+        final BitSet result = new BitSet(componentOf.length);
+        for (int c = cyclicComponents.nextSetBit(0); c >= 0;
+                c = cyclicComponents.nextSetBit(c + 1)) {
+            addMembers(result, c);
+        }
+        return new NodeSet(graph, result);
+    }
+
+    /**
+     * Returns the cyclic components.
+     *
+     * @return a list of node sets, one for each cyclic component.
+     */
+    public List<NodeSet> getCycles() {
+        final List<NodeSet> result = new ArrayList<NodeSet>();
+        for (int c = cyclicComponents.nextSetBit(0); c >= 0;
+                c = cyclicComponents.nextSetBit(c + 1)) {
+            final BitSet nodes = new BitSet(componentOf.length);
+            addMembers(nodes, c);
+            result.add(new NodeSet(graph, nodes));
+        }
+        return result;
+    }
+
+    /**
+     * Sets the {@link Node#ATTR_CYCLIC_NODE} attribute on the nodes part of a
+     * cycle and the {@link Link#ATTR_CYCLIC_LINK} attribute on the followed
+     * links between them.
+     */
+    public void markCycles() {
+        markCycles(graph);
+    }
+
+    /**
+     * Sets the cycle attributes on the nodes and links of another graph
+     * having the same names as the ones part of a cycle, typically a
+     * {@link FilteredGraphView} on the analysed graph. The nodes missing
+     * from the other graph are skipped.
+     *
+     * @param target
+     *            the graph to mark.
+     * @see #markCycles()
+     */
+    public void markCycles(final Graph target) {
+        for (int c = cyclicComponents.nextSetBit(0); c >= 0;
+                c = cyclicComponents.nextSetBit(c + 1)) {
+            for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++) {
+                final Node node = target.getNode(graph.getNodeByIndex(members[i]).getName());
+                if (node == null) {
+                    continue;
+                }
+                node.setAttributes(Node.ATTR_CYCLIC_NODE);
+                for (final Link link : node.getLinks()) {
+                    if (isFollowed(link) && (getComponentOf(
+                            graph.getNode(link.getEndNode().getName())) == c)) {
+                        link.setAttributes(Link.ATTR_CYCLIC_LINK);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells if a component is part of a cycle.
+     *
+     * @param component
+     *            the component.
+     * @return <code>true</code> if the component is cyclic.
+     */
+    boolean isCyclicComponent(final int component) {
+        return cyclicComponents.get(component);
+    }
+
+    /**
+     * Tells if a link is taken into account.
+     *
+     * @param link
+     *            the link.
+     * @return <code>true</code> if the link is followed.
+     */
+    boolean isFollowed(final Link link) {
+        return includeWeakLinks || !link.hasAttributes(Link.ATTR_WEAK_LINK);
+    }
+
+    /**
+     * Returns the component of a node or -1 if the node is unknown.
+     *
+     * @param node
+     *            the node.
+     * @return the component or -1.
+     */
+    int getComponentOf(final Node node) {
+        final int nodeIndex = graph.getNodeIndex(node);
+        if ((nodeIndex < 0) || (nodeIndex >= componentOf.length)) {
+            return -1;
+        }
+        return componentOf[nodeIndex];
+    }
+
+    /**
+     * Returns the first position of a component in the member list.
+     *
+     * @param component
+     *            the component.
+     * @return the position of the first node of the component.
+     * @see #getMember(int)
+     */
+    int getMemberStart(final int component) {
+        return memberOffsets[component];
+    }
+
+    /**
+     * Returns the position following the last node of a component in the
+     * member list.
+     *
+     * @param component
+     *            the component.
+     * @return the end position of the component.
+     * @see #getMember(int)
+     */
+    int getMemberEnd(final int component) {
+        return memberOffsets[component + 1];
+    }
+
+    /**
+     * Returns the index of a node in the member list.
+     *
+     * @param position
+     *            the position in the member list.
+     * @return the node index.
+     */
+    int getMember(final int position) {
+        return members[position];
+    }
+
+    /**
+     * Adds the nodes of a component to a bitset.
+     *
+     * @param result
+     *            the bitset.
+     * @param component
+     *            the component.
+     */
+    void addMembers(final BitSet result, final int component) {
+        for (int i = memberOffsets[component]; i < memberOffsets[component + 1]; i++) {
+            result.set(members[i]);
+        }
+    }
+
+    /**
+     * Runs Tarjan's algorithm using an explicit stack.
+     *
+     * @param bound
+     *            the node index bound of the graph.
+     * @return the start of each component in {@link #members}, with an
+     *         extra end entry.
+     */
+    private int[] findComponents(final int bound) {
+        final int[] order = new int[bound];
+        Arrays.fill(order, -1);
+        final int[] lowLink = new int[bound];
+        final int[] stack = new int[bound];
+        final int[] callStack = new int[bound];
+        @SuppressWarnings("unchecked")
+        final Iterator<Link>[] iterators = (Iterator<Link>[]) new Iterator<?>[bound];
+        final int[] offsets = new int[bound + 1];
+        final BitSet selfLinked = new BitSet(bound);
+        int stackSize = 0;
+        int counter = 0;
+        int componentCount = 0;
+        int memberCount = 0;
+
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            final int root = graph.getNodeIndex(iter.next());
+            if ((root < 0) || (order[root] >= 0)) {
+                continue;
+            }
+            int depth = 0;
+            callStack[depth] = root;
+            iterators[depth] = graph.getNodeByIndex(root).getLinks().iterator();
+            order[root] = counter;
+            lowLink[root] = counter++;
+            stack[stackSize++] = root;
+
+            while (depth >= 0) {
+                final int current = callStack[depth];
+                final Iterator<Link> links = iterators[depth];
+                boolean descended = false;
+                while (links.hasNext()) {
+                    final Link link = links.next();
+                    if (!isFollowed(link)) {
+                        continue;
+                    }
+                    final int next = graph.getNodeIndex(link.getEndNode());
+                    if (next < 0) {
+                        continue;
+                    }
+                    if (next == current) {
+                        selfLinked.set(current);
+                    } else if (order[next] < 0) {
+                        depth++;
+                        callStack[depth] = next;
+                        iterators[depth] = graph.getNodeByIndex(next).getLinks().iterator();
+                        order[next] = counter;
+                        lowLink[next] = counter++;
+                        stack[stackSize++] = next;
+                        descended = true;
+                        break;
+                    } else if (componentOf[next] < 0) {
+                        // Still on the stack.
+                        lowLink[current] = Math.min(lowLink[current], order[next]);
+                    }
+                }
+                if (descended) {
+                    continue;
+                }
+
+                iterators[depth] = null;
+                depth--;
+                if (depth >= 0) {
+                    final int parent = callStack[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[current]);
+                }
+                if (lowLink[current] == order[current]) {
+                    offsets[componentCount] = memberCount;
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        componentOf[member] = componentCount;
+                        members[memberCount++] = member;
+                    } while (member != current);
+                    if (selfLinked.get(current)) {
+                        cyclicComponents.set(componentCount);
+                    }
+                    componentCount++;
+                }
+            }
+        }
+        offsets[componentCount] = memberCount;
+        return Arrays.copyOf(offsets, componentCount + 1);
+    }
+}
@@ -0,0 +1,196 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+/**
+ * Interns strings into small integer handles. Each distinct string is stored
+ * once and gets the next free handle, starting from 0. Graphs use a symbol
+ * table to resolve node names and to share strings like build file paths
+ * between nodes.
+ * <p>
+ * The table uses open addressing with linear probing on the cached string
+ * hash codes so looking up a symbol does not allocate anything. Symbol
+ * tables are thread safe.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public final class SymbolTable {
+    /**
+     * Field INITIAL_CAPACITY.
+     * (value is {@value #INITIAL_CAPACITY})
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Field hashes, indexed by handle.
+     */
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    /**
+     * Field size.
+     */
+    private int size = 0;
+
+    /**
+     * Field symbols, indexed by handle.
+     */
+    private String[] symbols = new String[INITIAL_CAPACITY];
+
+    /**
+     * Hash table slots holding handle + 1, 0 meaning an empty slot.
+     */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * Returns the canonical instance of a string, interning it if needed.
+     *
+     * @param symbol
+     *            the string.
+     * @return the string from the table equal to <code>symbol</code>.
+     */
+    public synchronized String canonical(final String symbol) {
+        return symbols[intern(symbol)];
+    }
+
+    /**
+     * Returns the string for a handle.
+     *
+     * @param handle
+     *            a handle returned by {@link #intern(String)}.
+     * @return the string.
+     */
+    public synchronized String getSymbol(final int handle) {
+        if ((handle < 0) || (handle >= size)) {
+            throw new IndexOutOfBoundsException("Invalid symbol handle " + handle);
+        }
+        return symbols[handle];
+    }
+
+    /**
+     * Returns the handle for a string, adding it to the table if needed.
+     *
+     * @param symbol
+     *            the string to intern, must not be <code>null</code>.
+     * @return the handle.
+     */
+    public synchronized int intern(final String symbol) {
+        final int hash = symbol.hashCode();
+        final int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        while (slots[slot] != 0) {
+            final int handle = slots[slot] - 1;
+            if ((hashes[handle] == hash) && symbols[handle].equals(symbol)) {
+                return handle;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == symbols.length) {
+            final String[] newSymbols = new String[size * 2];
+            System.arraycopy(symbols, 0, newSymbols, 0, size);
+            symbols = newSymbols;
+            final int[] newHashes = new int[size * 2];
+            System.arraycopy(hashes, 0, newHashes, 0, size);
+            hashes = newHashes;
+        }
+        final int handle = size++;
+        symbols[handle] = symbol;
+        hashes[handle] = hash;
+        slots[slot] = handle + 1;
+
+        // Keep the load factor under 1/2.
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return handle;
+    }
+
+    /**
+     * Returns the handle for a string without adding it to the table.
+     *
+     * @param symbol
+     *            the string to look for.
+     * @return the handle or -1 if the string has not been interned.
+     */
+    public synchronized int lookup(final String symbol) {
+        if (symbol == null) {
+            return -1;
+        }
+        final int hash = symbol.hashCode();
+        final int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        while (slots[slot] != 0) {
+            final int handle = slots[slot] - 1;
+            if ((hashes[handle] == hash) && symbols[handle].equals(symbol)) {
+                return handle;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of symbols in the table.
+     *
+     * @return the number of symbols, which is also the next handle.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Doubles the number of slots.
+     */
+    private void rehash() {
+        final int[] newSlots = new int[slots.length * 2];
+        final int mask = newSlots.length - 1;
+        for (int handle = 0; handle < size; handle++) {
+            int slot = mix(hashes[handle]) & mask;
+            while (newSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = handle + 1;
+        }
+        slots = newSlots;
+    }
+
+    /**
+     * Spreads the bits of a hash code so that strings with close hash codes
+     * do not cluster.
+     *
+     * @param hash
+     *            the hash code.
+     * @return the mixed hash code.
+     */
+    private static int mix(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,191 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the links of a graph implied by other paths. A link from
+ * <code>a</code> to <code>c</code> is redundant when <code>c</code> can also
+ * be reached through another dependency of <code>a</code>: removing it keeps
+ * the same reachability while leaving less edges to lay out.
+ * <p>
+ * The reduction works on the {@link StronglyConnectedComponents condensation}
+ * of the graph: the links inside a cycle are kept and only one link is kept
+ * between two components. Each component gets a bitset of the components it
+ * reaches, computed from its dependencies from the closest to the farthest,
+ * so the reduction takes <i>O(V&nbsp;E&nbsp;/&nbsp;w)</i> time where
+ * <i>w</i> is the word size.
+ * </p>
+ * <p>
+ * When weak links are not included, they are neither removed nor used to
+ * imply other links.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public final class TransitiveReduction {
+    /**
+     * Field graph.
+     */
+    private final Graph graph;
+
+    /**
+     * Field includeWeakLinks.
+     */
+    private final boolean includeWeakLinks;
+
+    /**
+     * Field redundantLinks.
+     */
+    private final List<Link> redundantLinks;
+
+    /**
+     * Computes the reduction of a graph.
+     *
+     * @param graph
+     *            the graph.
+     * @param includeWeakLinks
+     *            <code>true</code> to reduce weak links as well.
+     */
+    public TransitiveReduction(final Graph graph, final boolean includeWeakLinks) {
+        this.graph = graph;
+        this.includeWeakLinks = includeWeakLinks;
+        redundantLinks = Collections.unmodifiableList(findRedundantLinks());
+    }
+
+    /**
+     * Returns the reduced graph.
+     *
+     * @return the graph.
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Tells if weak links are reduced.
+     *
+     * @return <code>true</code> if weak links are reduced.
+     */
+    public boolean isIncludingWeakLinks() {
+        return includeWeakLinks;
+    }
+
+    /**
+     * Returns the links implied by other paths.
+     *
+     * @return an unmodifiable list of links.
+     */
+    public List<Link> getRedundantLinks() {
+        return redundantLinks;
+    }
+
+    /**
+     * Walks the components in dependency order, keeping for each component
+     * the links to the dependencies not reached through another one.
+     *
+     * @return the redundant links.
+     */
+    private List<Link> findRedundantLinks() {
+        final StronglyConnectedComponents components =
+                new StronglyConnectedComponents(graph, includeWeakLinks);
+        final int count = components.getComponentCount();
+        final BitSet[] reached = new BitSet[count];
+        final List<Link> result = new ArrayList<Link>();
+        final BitSet direct = new BitSet(count);
+        final BitSet kept = new BitSet(count);
+        for (int c = 0; c < count; c++) {
+            direct.clear();
+            for (int i = components.getMemberStart(c); i < components.getMemberEnd(c); i++) {
+                for (final Link link : graph.getNodeByIndex(components.getMember(i)).getLinks()) {
+                    final int dependency = getDependency(components, link);
+                    if ((dependency >= 0) && (dependency != c)) {
+                        direct.set(dependency);
+                    }
+                }
+            }
+
+            // A dependency can only reach lower numbered components: the
+            // closest ones are checked first.
+            final int[] dependencies = new int[direct.cardinality()];
+            int n = 0;
+            for (int d = direct.nextSetBit(0); d >= 0; d = direct.nextSetBit(d + 1)) {
+                dependencies[n++] = d;
+            }
+            final BitSet reach = new BitSet(count);
+            kept.clear();
+            while (n > 0) {
+                final int d = dependencies[--n];
+                if (!reach.get(d)) {
+                    kept.set(d);
+                    reach.set(d);
+                    reach.or(reached[d]);
+                }
+            }
+            reached[c] = reach;
+
+            for (int i = components.getMemberStart(c); i < components.getMemberEnd(c); i++) {
+                for (final Link link : graph.getNodeByIndex(components.getMember(i)).getLinks()) {
+                    final int dependency = getDependency(components, link);
+                    if ((dependency < 0) || (dependency == c)) {
+                        continue;
+                    }
+                    if (kept.get(dependency)) {
+                        // Only one link is kept between two components.
+                        kept.clear(dependency);
+                    } else {
+                        result.add(link);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the component a link leads to.
+     *
+     * @param components
+     *            the components of the graph.
+     * @param link
+     *            the link.
+     * @return the component or -1 if the link is not followed.
+     */
+    private static int getDependency(final StronglyConnectedComponents components,
+            final Link link) {
+        if (!components.isFollowed(link)) {
+            return -1;
+        }
+        return components.getComponentOf(link.getEndNode());
+    }
+}
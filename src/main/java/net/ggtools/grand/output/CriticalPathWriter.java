@@ -0,0 +1,93 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.output;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+
+import net.ggtools.grand.graph.CriticalPathAnalysis;
+import net.ggtools.grand.graph.Node;
+
+/**
+ * Writes a {@link CriticalPathAnalysis} as plain text: the length of the
+ * build, its critical path and the targets ranked by the time saved if they
+ * took no time.
+ *
+ * @author Christophe Labouisse
+ */
+public class CriticalPathWriter {
+    /**
+     * Field analysis.
+     */
+    private final CriticalPathAnalysis analysis;
+
+    /**
+     * Creates a new writer.
+     *
+     * @param analysis the analysis to write.
+     */
+    public CriticalPathWriter(final CriticalPathAnalysis analysis) {
+        this.analysis = analysis;
+    }
+
+    /**
+     * Writes the analysis as text.
+     *
+     * @param output the writer to write to, flushed but not closed.
+     */
+    public final void writeText(final Writer output) {
+        final PrintWriter writer = new PrintWriter(output);
+        writer.println("Critical path for " + analysis.getGraph().getName() + ": "
+                + analysis.getLength() + " ms");
+        final List<Node> path = analysis.getCriticalPath();
+        for (int i = 0; i < path.size(); i++) {
+            if (i > 0) {
+                writer.print(" -> ");
+            }
+            writer.print(path.get(i).getName() + " (" + analysis.getDuration(path.get(i)) + " ms)");
+        }
+        writer.println();
+        final List<Node> bottlenecks = analysis.getBottlenecks();
+        if (bottlenecks.isEmpty()) {
+            writer.println("No target would shorten the build");
+        } else {
+            writer.println("Savings:");
+            int rank = 1;
+            for (final Node node : bottlenecks) {
+                writer.println("  " + rank++ + ". " + node.getName() + ": "
+                        + analysis.getSaving(node) + " ms");
+            }
+        }
+        writer.flush();
+    }
+}
@@ -37,10 +37,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 
 import net.ggtools.grand.Configuration;
 import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.ExecutionPlanner;
 import net.ggtools.grand.graph.Graph;
 import net.ggtools.grand.graph.GraphProducer;
 import net.ggtools.grand.graph.GraphWriter;
@@ -211,6 +213,11 @@ public class DotWriter implements GraphWriter {
      */
     private boolean showGraphName;
 
+    /**
+     * Field rankByLevel.
+     */
+    private boolean rankByLevel;
+
     /**
      * Creates a new DotWriter using default configuration.
      * @throws IOException when the default configuration cannot be loaded.
@@ -287,11 +294,37 @@ public class DotWriter implements GraphWriter {
             node.accept(visitor);
         }
 
+        if (rankByLevel) {
+            writeLevelRanks(output, graph);
+        }
+
         output.append("}").newLine();
 
         output.close();
     }
 
+    /**
+     * Groups the nodes of each execution level on the same rank.
+     *
+     * @param output where to write.
+     * @param graph the written graph.
+     * @see ExecutionPlanner
+     */
+    private void writeLevelRanks(final DotWriterOutput output, final Graph graph) {
+        for (final List<Node> level : new ExecutionPlanner(graph).planAll().getLevels()) {
+            if (level.size() < 2) {
+                continue;
+            }
+            output.append("{ rank=same;");
+            for (final Node node : level) {
+                if (!node.getName().isEmpty()) {
+                    output.append(" \"").appendEscaped(node.getName()).append("\";");
+                }
+            }
+            output.append(" }").newLine();
+        }
+    }
+
     /**
      * Method setProducer.
      * @param producer GraphProducer
@@ -310,4 +343,15 @@ public class DotWriter implements GraphWriter {
         showGraphName = show;
     }
 
+    /**
+     * Sets whether the nodes of each execution level should be drawn on the
+     * same rank. Defaults to <code>false</code>.
+     *
+     * @param rank <code>true</code> to rank the nodes by level.
+     * @see ExecutionPlanner
+     */
+    public final void setRankByLevel(final boolean rank) {
+        rankByLevel = rank;
+    }
+
 }
@@ -141,7 +141,20 @@ class DotWriterVisitor implements NodeVisitor {
          * @param attributes String
          * @param visits int
          */
-        private void outputOneLink(final Link link, final String attributes, final int visits) {
+        private void outputOneLink(final Link link, final String linkAttributes,
+                final int visits) {
+            String attributes = linkAttributes;
+            if (link.hasAttributes(Link.ATTR_ADDED_LINK)) {
+                attributes = appendAttributes(attributes, addedLinkAttributes);
+            } else if (link.hasAttributes(Link.ATTR_REMOVED_LINK)) {
+                attributes = appendAttributes(attributes, removedLinkAttributes);
+            }
+            if (link.hasAttributes(Link.ATTR_CYCLIC_LINK)) {
+                attributes = appendAttributes(attributes, cyclicLinkAttributes);
+            }
+            if (link.hasAttributes(Link.ATTR_CRITICAL_LINK)) {
+                attributes = appendAttributes(attributes, criticalLinkAttributes);
+            }
             visitedLinks++;
             final Node depNode = link.getEndNode();
 
@@ -173,6 +186,41 @@ class DotWriterVisitor implements NodeVisitor {
 
     }
 
+    /**
+     * Field DOT_CRITICALLINK_ATTRIBUTES.
+     * (value is {@value #DOT_CRITICALLINK_ATTRIBUTES})
+     */
+    private static final String DOT_CRITICALLINK_ATTRIBUTES =
+            "dot.criticallink.attributes";
+
+    /**
+     * Field DOT_CRITICALNODE_ATTRIBUTES.
+     * (value is {@value #DOT_CRITICALNODE_ATTRIBUTES})
+     */
+    private static final String DOT_CRITICALNODE_ATTRIBUTES =
+            "dot.criticalnode.attributes";
+
+    /**
+     * Field DOT_DOMINATORNODE_ATTRIBUTES.
+     * (value is {@value #DOT_DOMINATORNODE_ATTRIBUTES})
+     */
+    private static final String DOT_DOMINATORNODE_ATTRIBUTES =
+            "dot.dominatornode.attributes";
+
+    /**
+     * Field DOT_CYCLICLINK_ATTRIBUTES.
+     * (value is {@value #DOT_CYCLICLINK_ATTRIBUTES})
+     */
+    private static final String DOT_CYCLICLINK_ATTRIBUTES =
+            "dot.cycliclink.attributes";
+
+    /**
+     * Field DOT_CYCLICNODE_ATTRIBUTES.
+     * (value is {@value #DOT_CYCLICNODE_ATTRIBUTES})
+     */
+    private static final String DOT_CYCLICNODE_ATTRIBUTES =
+            "dot.cyclicnode.attributes";
+
     /**
      * Field DOT_GRAPH_ATTRIBUTES.
      * (value is {@value #DOT_GRAPH_ATTRIBUTES})
@@ -180,6 +228,27 @@ class DotWriterVisitor implements NodeVisitor {
     private static final String DOT_GRAPH_ATTRIBUTES =
             "dot.graph.attributes";
 
+    /**
+     * Field DOT_ADDEDLINK_ATTRIBUTES.
+     * (value is {@value #DOT_ADDEDLINK_ATTRIBUTES})
+     */
+    private static final String DOT_ADDEDLINK_ATTRIBUTES =
+            "dot.addedlink.attributes";
+
+    /**
+     * Field DOT_ADDEDNODE_ATTRIBUTES.
+     * (value is {@value #DOT_ADDEDNODE_ATTRIBUTES})
+     */
+    private static final String DOT_ADDEDNODE_ATTRIBUTES =
+            "dot.addednode.attributes";
+
+    /**
+     * Field DOT_CHANGEDNODE_ATTRIBUTES.
+     * (value is {@value #DOT_CHANGEDNODE_ATTRIBUTES})
+     */
+    private static final String DOT_CHANGEDNODE_ATTRIBUTES =
+            "dot.changednode.attributes";
+
     /**
      * Field DOT_LINK_ATTRIBUTES.
      * (value is {@value #DOT_LINK_ATTRIBUTES})
@@ -208,6 +277,20 @@ class DotWriterVisitor implements NodeVisitor {
     private static final String DOT_NODE_ATTRIBUTES =
             "dot.node.attributes";
 
+    /**
+     * Field DOT_REMOVEDLINK_ATTRIBUTES.
+     * (value is {@value #DOT_REMOVEDLINK_ATTRIBUTES})
+     */
+    private static final String DOT_REMOVEDLINK_ATTRIBUTES =
+            "dot.removedlink.attributes";
+
+    /**
+     * Field DOT_REMOVEDNODE_ATTRIBUTES.
+     * (value is {@value #DOT_REMOVEDNODE_ATTRIBUTES})
+     */
+    private static final String DOT_REMOVEDNODE_ATTRIBUTES =
+            "dot.removednode.attributes";
+
     /**
      * Field DOT_STARTNODE_ATTRIBUTES.
      * (value is {@value #DOT_STARTNODE_ATTRIBUTES})
@@ -236,6 +319,46 @@ class DotWriterVisitor implements NodeVisitor {
     private static final String DOT_SHOW_DESCRIPTION =
             "dot.node.show.description";
 
+    /**
+     * Field addedLinkAttributes.
+     */
+    private final String addedLinkAttributes;
+
+    /**
+     * Field addedNodeAttributes.
+     */
+    private final String addedNodeAttributes;
+
+    /**
+     * Field changedNodeAttributes.
+     */
+    private final String changedNodeAttributes;
+
+    /**
+     * Field criticalLinkAttributes.
+     */
+    private final String criticalLinkAttributes;
+
+    /**
+     * Field criticalNodeAttributes.
+     */
+    private final String criticalNodeAttributes;
+
+    /**
+     * Field dominatorNodeAttributes.
+     */
+    private final String dominatorNodeAttributes;
+
+    /**
+     * Field cyclicLinkAttributes.
+     */
+    private final String cyclicLinkAttributes;
+
+    /**
+     * Field cyclicNodeAttributes.
+     */
+    private final String cyclicNodeAttributes;
+
     /**
      * Field config.
      */
@@ -275,6 +398,16 @@ class DotWriterVisitor implements NodeVisitor {
      */
     private final DotWriterOutput output;
 
+    /**
+     * Field removedLinkAttributes.
+     */
+    private final String removedLinkAttributes;
+
+    /**
+     * Field removedNodeAttributes.
+     */
+    private final String removedNodeAttributes;
+
     /**
      * Field startNodeAttributes.
      */
@@ -311,6 +444,16 @@ class DotWriterVisitor implements NodeVisitor {
         missingNodeAttributes = config.get(DOT_MISSINGNODE_ATTRIBUTES);
         nodeAttributes = config.get(DOT_NODE_ATTRIBUTES);
         startNodeAttributes = config.get(DOT_STARTNODE_ATTRIBUTES);
+        addedNodeAttributes = config.get(DOT_ADDEDNODE_ATTRIBUTES);
+        removedNodeAttributes = config.get(DOT_REMOVEDNODE_ATTRIBUTES);
+        changedNodeAttributes = config.get(DOT_CHANGEDNODE_ATTRIBUTES);
+        addedLinkAttributes = config.get(DOT_ADDEDLINK_ATTRIBUTES);
+        removedLinkAttributes = config.get(DOT_REMOVEDLINK_ATTRIBUTES);
+        cyclicNodeAttributes = config.get(DOT_CYCLICNODE_ATTRIBUTES);
+        cyclicLinkAttributes = config.get(DOT_CYCLICLINK_ATTRIBUTES);
+        criticalNodeAttributes = config.get(DOT_CRITICALNODE_ATTRIBUTES);
+        criticalLinkAttributes = config.get(DOT_CRITICALLINK_ATTRIBUTES);
+        dominatorNodeAttributes = config.get(DOT_DOMINATORNODE_ATTRIBUTES);
         showDescription = Boolean.parseBoolean(config.get(DOT_SHOW_DESCRIPTION));
     }
 
@@ -342,6 +485,26 @@ class DotWriterVisitor implements NodeVisitor {
             attributes = missingNodeAttributes;
         }
 
+        if (node.hasAttributes(Node.ATTR_ADDED_NODE)) {
+            attributes = appendAttributes(attributes, addedNodeAttributes);
+        } else if (node.hasAttributes(Node.ATTR_REMOVED_NODE)) {
+            attributes = appendAttributes(attributes, removedNodeAttributes);
+        } else if (node.hasAttributes(Node.ATTR_CHANGED_NODE)) {
+            attributes = appendAttributes(attributes, changedNodeAttributes);
+        }
+
+        if (node.hasAttributes(Node.ATTR_CYCLIC_NODE)) {
+            attributes = appendAttributes(attributes, cyclicNodeAttributes);
+        }
+
+        if (node.hasAttributes(Node.ATTR_CRITICAL_NODE)) {
+            attributes = appendAttributes(attributes, criticalNodeAttributes);
+        }
+
+        if (node.hasAttributes(Node.ATTR_DOMINATOR_NODE)) {
+            attributes = appendAttributes(attributes, dominatorNodeAttributes);
+        }
+
         final String description = node.getDescription();
         if ((attributes != null) || (description != null)) {
             output.append(" [");
@@ -376,4 +539,24 @@ class DotWriterVisitor implements NodeVisitor {
         output.newLine();
     }
 
+    /**
+     * Appends attributes to an attribute list. As dot keeps the last value
+     * of an attribute, the appended attributes override the existing ones.
+     *
+     * @param attributes
+     *            the current attributes, can be <code>null</code>.
+     * @param extraAttributes
+     *            the attributes to append, can be <code>null</code>.
+     * @return the resulting attributes.
+     */
+    private static String appendAttributes(final String attributes,
+            final String extraAttributes) {
+        if (attributes == null) {
+            return extraAttributes;
+        }
+        if (extraAttributes == null) {
+            return attributes;
+        }
+        return attributes + "," + extraAttributes;
+    }
 }
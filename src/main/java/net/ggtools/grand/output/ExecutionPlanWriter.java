@@ -0,0 +1,177 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.output;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+
+import net.ggtools.grand.graph.ExecutionPlan;
+import net.ggtools.grand.graph.Node;
+
+/**
+ * Writes an {@link ExecutionPlan} either as plain text or as JSON. The JSON
+ * document has the following members: <code>targets</code>,
+ * <code>levels</code> (an array of arrays of node names),
+ * <code>width</code>, <code>longestChain</code> and <code>cyclic</code>.
+ *
+ * @author Christophe Labouisse
+ */
+public class ExecutionPlanWriter {
+    /**
+     * Field plan.
+     */
+    private final ExecutionPlan plan;
+
+    /**
+     * Creates a new writer.
+     *
+     * @param plan the plan to write.
+     */
+    public ExecutionPlanWriter(final ExecutionPlan plan) {
+        this.plan = plan;
+    }
+
+    /**
+     * Writes the plan as text, one line per level.
+     *
+     * @param output the writer to write to, flushed but not closed.
+     */
+    public final void writeText(final Writer output) {
+        final PrintWriter writer = new PrintWriter(output);
+        if (plan.getTargets().isEmpty()) {
+            writer.print("Plan for " + plan.getGraph().getName());
+        } else {
+            writer.print("Plan for ");
+            writeNames(writer, plan.getTargets(), ", ", false);
+        }
+        writer.println(": " + plan.getNodeCount() + " nodes, " + plan.getLevelCount()
+                + " levels, width " + plan.getWidth());
+        if (plan.hasCycles()) {
+            writer.println("Warning: the plan contains dependency cycles");
+        }
+        int index = 0;
+        for (final List<Node> level : plan.getLevels()) {
+            writer.print("Level " + index++ + ": ");
+            writeNames(writer, level, ", ", false);
+            writer.println();
+        }
+        writer.print("Longest chain: ");
+        writeNames(writer, plan.getLongestChain(), " -> ", false);
+        writer.println();
+        writer.flush();
+    }
+
+    /**
+     * Writes the plan as a JSON document.
+     *
+     * @param output the writer to write to, flushed but not closed.
+     */
+    public final void writeJson(final Writer output) {
+        final PrintWriter writer = new PrintWriter(output);
+        writer.println("{");
+        writer.print("  \"targets\": [");
+        writeNames(writer, plan.getTargets(), ", ", true);
+        writer.println("],");
+        writer.println("  \"levels\": [");
+        int index = 0;
+        for (final List<Node> level : plan.getLevels()) {
+            writer.print("    [");
+            writeNames(writer, level, ", ", true);
+            writer.println((++index < plan.getLevelCount()) ? "]," : "]");
+        }
+        writer.println("  ],");
+        writer.println("  \"width\": " + plan.getWidth() + ",");
+        writer.print("  \"longestChain\": [");
+        writeNames(writer, plan.getLongestChain(), ", ", true);
+        writer.println("],");
+        writer.println("  \"cyclic\": " + plan.hasCycles());
+        writer.println("}");
+        writer.flush();
+    }
+
+    /**
+     * Writes a list of node names.
+     *
+     * @param writer the writer.
+     * @param nodes the nodes.
+     * @param separator the separator between names.
+     * @param json <code>true</code> to write the names as JSON strings.
+     */
+    private static void writeNames(final PrintWriter writer, final List<Node> nodes,
+            final String separator, final boolean json) {
+        boolean first = true;
+        for (final Node node : nodes) {
+            if (!first) {
+                writer.print(separator);
+            }
+            first = false;
+            writer.print(json ? quote(node.getName()) : node.getName());
+        }
+    }
+
+    /**
+     * Returns a string as a JSON string literal.
+     *
+     * @param str the string.
+     * @return the quoted string.
+     */
+    private static String quote(final String str) {
+        final StringBuilder result = new StringBuilder(str.length() + 2);
+        result.append('"');
+        for (int i = 0; i < str.length(); i++) {
+            final char c = str.charAt(i);
+            switch (c) {
+            case '"':
+            case '\\':
+                result.append('\\').append(c);
+                break;
+            case '\n':
+                result.append("\\n");
+                break;
+            case '\r':
+                result.append("\\r");
+                break;
+            case '\t':
+                result.append("\\t");
+                break;
+            default:
+                if (c < ' ') {
+                    result.append(String.format("\\u%04x", (int) c));
+                } else {
+                    result.append(c);
+                }
+            }
+        }
+        return result.append('"').toString();
+    }
+}
@@ -0,0 +1,208 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.tasks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.ant.TargetTimings;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.CriticalPathAnalysis;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.log.AntLog;
+import net.ggtools.grand.output.CriticalPathWriter;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+
+/**
+ * A task reporting the critical path of a build from the target execution
+ * times recorded by {@link net.ggtools.grand.ant.TimingListener}. The
+ * report ranks the targets by the time the whole build would save if they
+ * were run concurrently with the rest of the build or made faster.
+ *
+ * @author Christophe Labouisse
+ * @see CriticalPathAnalysis
+ */
+public class CriticalPathTask extends Task {
+
+    /**
+     * Field buildFile.
+     */
+    private File buildFile;
+
+    /**
+     * Field output.
+     */
+    private File output;
+
+    /**
+     * Field timingFile.
+     */
+    private File timingFile;
+
+    /**
+     * Field targets.
+     */
+    private final List<String> targets = new ArrayList<String>();
+
+    /**
+     * Method execute.
+     * @see org.apache.tools.ant.Task#execute()
+     */
+    @Override
+    public final void execute() {
+        if (timingFile == null) {
+            throw new BuildException("timingfile attribute is required");
+        }
+
+        final TargetTimings timings = new TargetTimings();
+        try {
+            timings.load(timingFile);
+        } catch (final IOException e) {
+            log("Cannot read timing file " + timingFile, Project.MSG_ERR);
+            throw new BuildException("Cannot read timing file " + timingFile, e);
+        }
+
+        final Graph graph;
+        try {
+            if (buildFile == null) {
+                log("Using current project");
+                graph = new AntProject(getProject()).getGraph();
+            } else {
+                log("Loading project " + buildFile);
+                graph = new AntProject(buildFile).getGraph();
+            }
+        } catch (final GrandException e) {
+            log("Cannot process graph", Project.MSG_ERR);
+            throw new BuildException("Cannot process graph", e);
+        }
+
+        final List<Node> nodes = new ArrayList<Node>();
+        for (final String target : targets) {
+            final Node node = graph.getNode(target);
+            if (node == null) {
+                throw new BuildException("Target " + target + " does not exist");
+            }
+            nodes.add(node);
+        }
+        if (nodes.isEmpty() && (graph.getStartNode() != null)) {
+            nodes.add(graph.getStartNode());
+        }
+
+        final CriticalPathAnalysis analysis =
+                new CriticalPathAnalysis(graph, timings.getDurations(graph), nodes);
+        log("Critical path takes " + analysis.getLength() + " ms");
+        final CriticalPathWriter writer = new CriticalPathWriter(analysis);
+        try {
+            if (output == null) {
+                final StringWriter result = new StringWriter();
+                writer.writeText(result);
+                log(result.toString());
+            } else {
+                log("Writing report to " + output);
+                final Writer result = new OutputStreamWriter(new FileOutputStream(output), "UTF-8");
+                try {
+                    writer.writeText(result);
+                } finally {
+                    result.close();
+                }
+            }
+        } catch (final IOException e) {
+            log("Cannot write report", Project.MSG_ERR);
+            throw new BuildException("Cannot write report", e);
+        }
+    }
+
+    /**
+     * Method setProject.
+     * @param project Project
+     * @see org.apache.tools.ant.ProjectComponent#setProject(org.apache.tools.ant.Project)
+     */
+    @Override
+    public final void setProject(final Project project) {
+        super.setProject(project);
+        AntLog.setCurrentProject(project);
+        AntLog.setCurrentTask(this);
+    }
+
+    /**
+     * Sets the build file to analyse, defaults to the current project.
+     *
+     * @param file File
+     */
+    public final void setBuildFile(final File file) {
+        buildFile = file;
+    }
+
+    /**
+     * Sets the file to write the report to. The report is logged if not set.
+     *
+     * @param file File
+     */
+    public final void setOutput(final File file) {
+        output = file;
+    }
+
+    /**
+     * Sets the file holding the recorded target execution times.
+     *
+     * @param file File
+     */
+    public final void setTimingFile(final File file) {
+        timingFile = file;
+    }
+
+    /**
+     * Sets the targets to analyse as a comma separated list. Defaults to the
+     * project's default target or the whole project if there is none.
+     *
+     * @param names String
+     */
+    public final void setTargets(final String names) {
+        for (final String name : names.split(",")) {
+            final String trimmed = name.trim();
+            if (trimmed.length() > 0) {
+                targets.add(trimmed);
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.tasks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.graph.ReachabilityIndex;
+import net.ggtools.grand.log.AntLog;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+
+/**
+ * A task checking dependencies between targets. Each nested
+ * <code>depends</code> element asserts that a target transitively depends
+ * on another one and each <code>notdepends</code> element asserts it does
+ * not. The dependency graph is indexed once so the number of assertions
+ * does not matter much.
+ *
+ * @author Christophe Labouisse
+ * @see ReachabilityIndex
+ */
+public class DependencyAssertTask extends Task {
+
+    /**
+     * A dependency assertion between two targets.
+     *
+     * @author Christophe Labouisse
+     */
+    public static class Assertion {
+        /**
+         * Field expected.
+         */
+        private final boolean expected;
+
+        /**
+         * Field target.
+         */
+        private String target;
+
+        /**
+         * Field on.
+         */
+        private String on;
+
+        /**
+         * Creates a new assertion.
+         *
+         * @param expected
+         *            <code>true</code> if the dependency should exist.
+         */
+        Assertion(final boolean expected) {
+            this.expected = expected;
+        }
+
+        /**
+         * Sets the depending target.
+         *
+         * @param name
+         *            the target name.
+         */
+        public final void setTarget(final String name) {
+            target = name;
+        }
+
+        /**
+         * Sets the target depended on.
+         *
+         * @param name
+         *            the target name.
+         */
+        public final void setOn(final String name) {
+            on = name;
+        }
+
+        /**
+         * Method toString.
+         * @return String
+         */
+        @Override
+        public final String toString() {
+            return target + (expected ? " depends on " : " does not depend on ") + on;
+        }
+    }
+
+    /**
+     * Field buildFile.
+     */
+    private File buildFile;
+
+    /**
+     * Field failOnError.
+     */
+    private boolean failOnError = true;
+
+    /**
+     * Field assertions.
+     */
+    private final List<Assertion> assertions = new ArrayList<Assertion>();
+
+    /**
+     * Method execute.
+     * @see org.apache.tools.ant.Task#execute()
+     */
+    @Override
+    public final void execute() {
+        for (final Assertion assertion : assertions) {
+            if ((assertion.target == null) || (assertion.on == null)) {
+                throw new BuildException("target and on attributes are required");
+            }
+        }
+
+        final Graph graph;
+        try {
+            if (buildFile == null) {
+                log("Using current project");
+                graph = new AntProject(getProject()).getGraph();
+            } else {
+                log("Loading project " + buildFile);
+                graph = new AntProject(buildFile).getGraph();
+            }
+        } catch (final GrandException e) {
+            log("Cannot process graph", Project.MSG_ERR);
+            throw new BuildException("Cannot process graph", e);
+        }
+
+        final ReachabilityIndex index = new ReachabilityIndex(graph);
+        int failures = 0;
+        for (final Assertion assertion : assertions) {
+            final boolean actual = index.reaches(getNode(graph, assertion.target),
+                    getNode(graph, assertion.on));
+            if (actual == assertion.expected) {
+                log("Checked: " + assertion, Project.MSG_VERBOSE);
+            } else {
+                log("Failed: " + assertion, Project.MSG_ERR);
+                failures++;
+            }
+        }
+
+        if (failures > 0) {
+            final String message = failures + " dependency assertion"
+                    + ((failures > 1) ? "s" : "") + " failed";
+            if (failOnError) {
+                throw new BuildException(message);
+            }
+            log(message, Project.MSG_WARN);
+        } else {
+            log("Checked " + assertions.size() + " dependency assertion"
+                    + ((assertions.size() > 1) ? "s" : ""));
+        }
+    }
+
+    /**
+     * Returns a node from the graph.
+     *
+     * @param graph
+     *            the graph.
+     * @param name
+     *            the node name.
+     * @return the node.
+     */
+    private Node getNode(final Graph graph, final String name) {
+        final Node node = graph.getNode(name);
+        if (node == null) {
+            throw new BuildException("Target " + name + " does not exist");
+        }
+        return node;
+    }
+
+    /**
+     * Method setProject.
+     * @param project Project
+     * @see org.apache.tools.ant.ProjectComponent#setProject(org.apache.tools.ant.Project)
+     */
+    @Override
+    public final void setProject(final Project project) {
+        super.setProject(project);
+        AntLog.setCurrentProject(project);
+        AntLog.setCurrentTask(this);
+    }
+
+    /**
+     * Sets the build file to check, defaults to the current project.
+     *
+     * @param file File
+     */
+    public final void setBuildFile(final File file) {
+        buildFile = file;
+    }
+
+    /**
+     * Sets whether a failed assertion should fail the build. Defaults to
+     * <code>true</code>.
+     *
+     * @param fail boolean
+     */
+    public final void setFailOnError(final boolean fail) {
+        failOnError = fail;
+    }
+
+    /**
+     * Creates an assertion that a target depends on another one.
+     *
+     * @return a new assertion.
+     */
+    public final Assertion createDepends() {
+        final Assertion assertion = new Assertion(true);
+        assertions.add(assertion);
+        return assertion;
+    }
+
+    /**
+     * Creates an assertion that a target does not depend on another one.
+     *
+     * @return a new assertion.
+     */
+    public final Assertion createNotDepends() {
+        final Assertion assertion = new Assertion(false);
+        assertions.add(assertion);
+        return assertion;
+    }
+}
@@ -0,0 +1,124 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.tasks;
+
+import net.ggtools.grand.filters.DominatorFilter;
+import net.ggtools.grand.filters.GraphFilter;
+
+import org.apache.tools.ant.Project;
+
+/**
+ * Ant frontend to {@link net.ggtools.grand.filters.DominatorFilter}. The
+ * <code>node</code> attribute names the node to keep the dominators of, the
+ * whole dominator tree is kept if not set. The <code>root</code> attribute
+ * defaults to the project's default target and the <code>weaklinks</code>
+ * attribute, telling whether weak links are followed, to <code>false</code>.
+ *
+ * @author Christophe Labouisse
+ */
+public class DominatorFilterType implements GraphFilterType {
+
+    /**
+     * Field project.
+     */
+    private final Project project;
+
+    /**
+     * Field nodeName.
+     */
+    private String nodeName;
+
+    /**
+     * Field rootName.
+     */
+    private String rootName;
+
+    /**
+     * Field weakLinks.
+     */
+    private boolean weakLinks = false;
+
+    /**
+     * Creates a new object.
+     *
+     * @param antProject project within which the filter will run.
+     */
+    public DominatorFilterType(final Project antProject) {
+        project = antProject;
+    }
+
+    /**
+     * Method checkParameters.
+     * @see net.ggtools.grand.tasks.GraphFilterType#checkParameters()
+     */
+    public final void checkParameters() {
+        // Do nothing.
+    }
+
+    /**
+     * Method getFilter.
+     * @return GraphFilter
+     * @see net.ggtools.grand.tasks.GraphFilterType#getFilter()
+     */
+    public final GraphFilter getFilter() {
+        project.log("Dominators rooted at "
+                + ((rootName == null) ? "the default target" : rootName), Project.MSG_VERBOSE);
+        return new DominatorFilter(rootName, nodeName, weakLinks);
+    }
+
+    /**
+     * Method setNodeName.
+     * @param name String
+     * @see net.ggtools.grand.tasks.GraphFilterType#setNodeName(java.lang.String)
+     */
+    public final void setNodeName(final String name) {
+        nodeName = name;
+    }
+
+    /**
+     * Sets the root of the dominator tree.
+     *
+     * @param name the root node name.
+     */
+    public final void setRoot(final String name) {
+        rootName = name;
+    }
+
+    /**
+     * Sets whether weak links are followed.
+     *
+     * @param follow <code>true</code> to follow weak links.
+     */
+    public final void setWeakLinks(final boolean follow) {
+        weakLinks = follow;
+    }
+}
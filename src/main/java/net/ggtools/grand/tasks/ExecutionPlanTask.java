@@ -0,0 +1,240 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.tasks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.ExecutionPlan;
+import net.ggtools.grand.graph.ExecutionPlanner;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.log.AntLog;
+import net.ggtools.grand.output.ExecutionPlanWriter;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+
+/**
+ * A task computing which targets can be run concurrently. The targets are
+ * grouped by execution level: the targets of a level only depend on targets
+ * of the previous levels. The plan is written as text or JSON either to a
+ * file or to the build log.
+ *
+ * @author Christophe Labouisse
+ * @see ExecutionPlanner
+ */
+public class ExecutionPlanTask extends Task {
+
+    /**
+     * Field buildFile.
+     */
+    private File buildFile;
+
+    /**
+     * Field output.
+     */
+    private File output;
+
+    /**
+     * Field format.
+     */
+    private String format = "text";
+
+    /**
+     * Field targets.
+     */
+    private final List<String> targets = new ArrayList<String>();
+
+    /**
+     * Field weakLinks.
+     */
+    private boolean weakLinks = false;
+
+    /**
+     * Method execute.
+     * @see org.apache.tools.ant.Task#execute()
+     */
+    @Override
+    public final void execute() {
+        if (!"text".equals(format) && !"json".equals(format)) {
+            throw new BuildException("format should be text or json");
+        }
+
+        final Graph graph;
+        try {
+            if (buildFile == null) {
+                log("Using current project");
+                graph = new AntProject(getProject()).getGraph();
+            } else {
+                log("Loading project " + buildFile);
+                graph = new AntProject(buildFile).getGraph();
+            }
+        } catch (final GrandException e) {
+            log("Cannot process graph", Project.MSG_ERR);
+            throw new BuildException("Cannot process graph", e);
+        }
+
+        final ExecutionPlanner planner = new ExecutionPlanner(graph);
+        planner.setIncludeWeakLinks(weakLinks);
+        final ExecutionPlan plan;
+        if (!targets.isEmpty()) {
+            final List<Node> nodes = new ArrayList<Node>();
+            for (final String target : targets) {
+                final Node node = graph.getNode(target);
+                if (node == null) {
+                    throw new BuildException("Target " + target + " does not exist");
+                }
+                nodes.add(node);
+            }
+            plan = planner.plan(nodes);
+        } else if (graph.getStartNode() != null) {
+            plan = planner.plan(graph.getStartNode());
+        } else {
+            plan = planner.planAll();
+        }
+
+        if (plan.hasCycles()) {
+            throw new BuildException("Cannot plan a graph with dependency cycles");
+        }
+
+        log("Planned " + plan.getNodeCount() + " targets in " + plan.getLevelCount()
+                + " levels");
+        final ExecutionPlanWriter writer = new ExecutionPlanWriter(plan);
+        try {
+            if (output == null) {
+                final StringWriter result = new StringWriter();
+                write(writer, result);
+                log(result.toString());
+            } else {
+                log("Writing plan to " + output);
+                final Writer result = new OutputStreamWriter(new FileOutputStream(output), "UTF-8");
+                try {
+                    write(writer, result);
+                } finally {
+                    result.close();
+                }
+            }
+        } catch (final IOException e) {
+            log("Cannot write plan", Project.MSG_ERR);
+            throw new BuildException("Cannot write plan", e);
+        }
+    }
+
+    /**
+     * Writes the plan in the selected format.
+     *
+     * @param writer the plan writer.
+     * @param result where to write the plan.
+     */
+    private void write(final ExecutionPlanWriter writer, final Writer result) {
+        if ("json".equals(format)) {
+            writer.writeJson(result);
+        } else {
+            writer.writeText(result);
+        }
+    }
+
+    /**
+     * Method setProject.
+     * @param project Project
+     * @see org.apache.tools.ant.ProjectComponent#setProject(org.apache.tools.ant.Project)
+     */
+    @Override
+    public final void setProject(final Project project) {
+        super.setProject(project);
+        AntLog.setCurrentProject(project);
+        AntLog.setCurrentTask(this);
+    }
+
+    /**
+     * Sets the build file to plan, defaults to the current project.
+     *
+     * @param file File
+     */
+    public final void setBuildFile(final File file) {
+        buildFile = file;
+    }
+
+    /**
+     * Sets the file to write the plan to. The plan is logged if not set.
+     *
+     * @param file File
+     */
+    public final void setOutput(final File file) {
+        output = file;
+    }
+
+    /**
+     * Sets the output format, <code>text</code> (the default) or
+     * <code>json</code>.
+     *
+     * @param value String
+     */
+    public final void setFormat(final String value) {
+        format = value;
+    }
+
+    /**
+     * Sets the targets to plan as a comma separated list. Defaults to the
+     * project's default target or the whole project if there is none.
+     *
+     * @param names String
+     */
+    public final void setTargets(final String names) {
+        for (final String name : names.split(",")) {
+            final String trimmed = name.trim();
+            if (trimmed.length() > 0) {
+                targets.add(trimmed);
+            }
+        }
+    }
+
+    /**
+     * Sets whether the targets called by tasks like <code>antcall</code>
+     * should be planned like dependencies. Defaults to <code>false</code>.
+     *
+     * @param follow boolean
+     */
+    public final void setWeakLinks(final boolean follow) {
+        weakLinks = follow;
+    }
+}
@@ -31,9 +31,16 @@
 
 package net.ggtools.grand.tasks;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
 import net.ggtools.grand.filters.GraphFilter;
 
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DynamicAttribute;
+import org.apache.tools.ant.IntrospectionHelper;
 import org.apache.tools.ant.Project;
 
 /**
@@ -42,10 +49,16 @@ import org.apache.tools.ant.Project;
  * enclosing task need to call the {@link #checkParameters()} method
  * to check if the filter is properly configured and {@link #getFilter()}
  * to get the actual graph filter.
+ * <p>
+ * Besides <code>name</code> and <code>node</code>, a filter may accept extra
+ * attributes. These are listed in the <code><i>name</i>.attributes</code>
+ * entry of <code>GraphFilterFactory.properties</code> and are passed to the
+ * matching setters of the filter type.
+ * </p>
  *
  * @author Christophe Labouisse
  */
-public class FilterType {
+public class FilterType implements DynamicAttribute {
     /**
      * Field filterFactory.
      */
@@ -72,6 +85,11 @@ public class FilterType {
      */
     private final Project project;
 
+    /**
+     * Extra attributes of the filter.
+     */
+    private final Map<String, String> attributes = new LinkedHashMap<String, String>();
+
     /**
      * Creates a new filter type.
      *
@@ -90,8 +108,21 @@ public class FilterType {
             if (nodeName != null) {
                 filter.setNodeName(nodeName);
             }
-            // Use an HashMap for parameters?
-            // Pb: type conversion check Ant's utility classes
+            if (!attributes.isEmpty()) {
+                final String supported = GraphFilterFactory.CONFIGURATION
+                        .getProperty(filterName + ".attributes", "");
+                final IntrospectionHelper helper =
+                        IntrospectionHelper.getHelper(project, filter.getClass());
+                for (final Map.Entry<String, String> entry : attributes.entrySet()) {
+                    if (!Arrays.asList(supported.split(",")).contains(entry.getKey())) {
+                        throw new BuildException("Filter " + filterName
+                                + " does not support the " + entry.getKey()
+                                + " attribute");
+                    }
+                    helper.setAttribute(project, filter, entry.getKey(),
+                            entry.getValue());
+                }
+            }
         }
     }
 
@@ -136,6 +167,17 @@ public class FilterType {
         nodeName = node;
     }
 
+    /**
+     * Sets an extra attribute of the filter.
+     *
+     * @param name attribute's name.
+     * @param value attribute's value.
+     * @see org.apache.tools.ant.DynamicAttribute#setDynamicAttribute(java.lang.String, java.lang.String)
+     */
+    public final void setDynamicAttribute(final String name, final String value) {
+        attributes.put(name.toLowerCase(Locale.ENGLISH), value);
+    }
+
     /**
      * @return Returns the filterName.
      */
@@ -31,10 +31,11 @@
 
 package net.ggtools.grand.tasks;
 
+import java.util.Collection;
+
 import net.ggtools.grand.filters.FromNodeFilter;
-import net.ggtools.grand.filters.GraphFilter;
+import net.ggtools.grand.filters.GraphWalkFilter;
 
-import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 
 /**
@@ -42,16 +43,7 @@ import org.apache.tools.ant.Project;
  *
  * @author Christophe Labouisse
  */
-public class FromNodeFilterType implements GraphFilterType {
-
-    /**
-     * Field nodeName.
-     */
-    private String nodeName;
-    /**
-     * Field project.
-     */
-    private final Project project;
+public class FromNodeFilterType extends GraphWalkFilterType {
 
     /**
      * Creates a new filter.
@@ -59,37 +51,28 @@ public class FromNodeFilterType implements GraphFilterType {
      * @param antProject owner's project.
      */
     public FromNodeFilterType(final Project antProject) {
-        project = antProject;
+        super(antProject);
     }
 
     /**
-     * Method checkParameters.
-     * @see net.ggtools.grand.tasks.GraphFilterType#checkParameters()
-     */
-    public final void checkParameters() {
-        if (nodeName == null) {
-            final String message = "required attribute missing";
-            project.log(message, Project.MSG_ERR);
-            throw new BuildException(message);
-        }
-    }
-
-    /**
-     * Method getFilter.
-     * @return GraphFilter
-     * @see net.ggtools.grand.tasks.GraphFilterType#getFilter()
+     * Method createFilter.
+     * @param name String
+     * @return GraphWalkFilter
+     * @see net.ggtools.grand.tasks.GraphWalkFilterType#createFilter(java.lang.String)
      */
-    public final GraphFilter getFilter() {
-        return new FromNodeFilter(nodeName);
+    @Override
+    protected final GraphWalkFilter createFilter(final String name) {
+        return new FromNodeFilter(name);
     }
 
     /**
-     * Method setNodeName.
-     * @param name String
-     * @see net.ggtools.grand.tasks.GraphFilterType#setNodeName(java.lang.String)
+     * Method createFilter.
+     * @param names Collection&lt;String&gt;
+     * @return GraphWalkFilter
+     * @see net.ggtools.grand.tasks.GraphWalkFilterType#createFilter(java.util.Collection)
      */
-    public final void setNodeName(final String name) {
-        nodeName = name;
+    @Override
+    protected final GraphWalkFilter createFilter(final Collection<String> names) {
+        return new FromNodeFilter(names);
     }
-
 }
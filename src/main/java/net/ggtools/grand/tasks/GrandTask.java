@@ -34,17 +34,38 @@ package net.ggtools.grand.tasks;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
 
 import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.ant.BinaryGraphProducer;
+import net.ggtools.grand.ant.BinaryGraphWriter;
+import net.ggtools.grand.ant.TargetTimings;
 import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.filters.FilterChain;
+import net.ggtools.grand.filters.FilterPlanner;
+import net.ggtools.grand.filters.FilterResultCache;
 import net.ggtools.grand.filters.GraphFilter;
+import net.ggtools.grand.filters.GraphWalkFilter;
+import net.ggtools.grand.graph.CriticalPathAnalysis;
+import net.ggtools.grand.graph.FilteredGraphView;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphCrawler;
+import net.ggtools.grand.graph.GraphImpl;
 import net.ggtools.grand.graph.GraphProducer;
-import net.ggtools.grand.graph.GraphWriter;
+import net.ggtools.grand.graph.GraphSnapshot;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.graph.StronglyConnectedComponents;
 import net.ggtools.grand.log.AntLog;
 import net.ggtools.grand.output.DotWriter;
 
@@ -63,6 +84,67 @@ import org.apache.tools.ant.types.PropertySet;
  */
 public class GrandTask extends Task {
 
+    /**
+     * A filter logging the number of nodes of its producer's graph and
+     * passing it unchanged.
+     *
+     * @author Christophe Labouisse
+     */
+    private final class NodeCountLogger implements GraphFilter {
+        /**
+         * Field label.
+         */
+        private final String label;
+
+        /**
+         * Field producer.
+         */
+        private GraphProducer producer;
+
+        /**
+         * Creates a new logger.
+         * @param label the label of the logged count.
+         */
+        private NodeCountLogger(final String label) {
+            this.label = label;
+        }
+
+        /**
+         * Method getGraph.
+         * @return Graph
+         * @throws GrandException if {@link GraphProducer#getGraph()} fails
+         * @see net.ggtools.grand.graph.GraphProducer#getGraph()
+         */
+        public Graph getGraph() throws GrandException {
+            final Graph graph = producer.getGraph();
+            int count = 0;
+            for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+                iter.next();
+                count++;
+            }
+            log(label + ": " + count + " node" + ((count != 1) ? "s" : ""));
+            return graph;
+        }
+
+        /**
+         * Method setProducer.
+         * @param producer GraphProducer
+         * @see net.ggtools.grand.graph.GraphConsumer#setProducer(GraphProducer)
+         */
+        public void setProducer(final GraphProducer producer) {
+            this.producer = producer;
+        }
+
+        /**
+         * Method getName.
+         * @return String
+         * @see net.ggtools.grand.filters.GraphFilter#getName()
+         */
+        public String getName() {
+            return "Node count: " + label;
+        }
+    }
+
     /**
      * Field DEFAULT_OUTCONFIG_PREFIX.
      */
@@ -73,6 +155,11 @@ public class GrandTask extends Task {
      */
     private File buildFile;
 
+    /**
+     * Field cacheFile.
+     */
+    private File cacheFile;
+
     /**
      * Field output.
      */
@@ -108,6 +195,46 @@ public class GrandTask extends Task {
      */
     private boolean inheritAll = false;
 
+    /**
+     * Field compactGraph.
+     */
+    private boolean compactGraph = false;
+
+    /**
+     * Field threads.
+     */
+    private int threads = 1;
+
+    /**
+     * Field parallelCrawlThreshold.
+     */
+    private int parallelCrawlThreshold = GraphCrawler.DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * Field markCycles.
+     */
+    private boolean markCycles = false;
+
+    /**
+     * Field timingFile.
+     */
+    private File timingFile;
+
+    /**
+     * Field rankLevels.
+     */
+    private boolean rankLevels = false;
+
+    /**
+     * Field explainFilters.
+     */
+    private boolean explainFilters = false;
+
+    /**
+     * Field filterCache.
+     */
+    private boolean filterCache = false;
+
     /**
      * Field properties.
      */
@@ -143,25 +270,81 @@ public class GrandTask extends Task {
     public final void execute() {
         checkParams();
 
-        final GraphProducer graphProject = initAntProject();
+        final GraphProducer graphProject = initGraphProducer();
 
         log("Done loading project ", Project.MSG_VERBOSE);
 
         log("Setting up filter chain");
         GraphProducer producer = graphProject;
+        final FilterPlanner planner = new FilterPlanner();
         int numFilters = 0;
+        boolean walks = false;
 
         for (FilterType f : filters) {
             log("Adding filter " + f.getFilterName(), Project.MSG_VERBOSE);
             final GraphFilter filter = f.getFilter();
-            filter.setProducer(producer);
-            producer = filter;
+            if (filter instanceof GraphWalkFilter) {
+                ((GraphWalkFilter) filter).setParallelThreshold(parallelCrawlThreshold);
+                walks = true;
+            }
+            planner.addFilter(filter, f.getFilterName());
             numFilters++;
         }
 
         if (numFilters > 0) {
             log("Loaded " + numFilters + " filter"
                     + ((numFilters > 1) ? "s" : ""));
+            final boolean parallelWalks = walks;
+            producer = new GraphProducer() {
+                public Graph getGraph() throws GrandException {
+                    Graph graph = graphProject.getGraph();
+                    if ((graph instanceof GraphImpl) && (filterCache || (parallelWalks
+                            && (graph.getNodeIndexBound() >= parallelCrawlThreshold)))) {
+                        // Only frozen graphs can be walked by several threads
+                        // and the version of a frozen graph is only computed once.
+                        graph = ((GraphImpl) graph).freeze();
+                    }
+                    return createFilterChain(planner, graph).getGraph();
+                }
+            };
+        }
+
+        if (markCycles) {
+            final GraphProducer unmarked = producer;
+            producer = new GraphProducer() {
+                public Graph getGraph() throws GrandException {
+                    final Graph graph = getMarkableGraph(unmarked.getGraph());
+                    final StronglyConnectedComponents components =
+                            new StronglyConnectedComponents(graph, true);
+                    components.markCycles();
+                    final int numCycles = components.getCycles().size();
+                    log("Found " + numCycles + " dependency cycle"
+                            + ((numCycles > 1) ? "s" : ""));
+                    return graph;
+                }
+            };
+        }
+
+        if (timingFile != null) {
+            final TargetTimings timings = new TargetTimings();
+            try {
+                log("Loading target timings from " + timingFile, Project.MSG_VERBOSE);
+                timings.load(timingFile);
+            } catch (final IOException e) {
+                log("Cannot read timing file " + timingFile, Project.MSG_ERR);
+                throw new BuildException("Cannot read timing file " + timingFile, e);
+            }
+            final GraphProducer unmarked = producer;
+            producer = new GraphProducer() {
+                public Graph getGraph() throws GrandException {
+                    final Graph graph = getMarkableGraph(unmarked.getGraph());
+                    final CriticalPathAnalysis analysis =
+                            new CriticalPathAnalysis(graph, timings.getDurations(graph));
+                    analysis.markCriticalPath();
+                    log("Critical path takes " + analysis.getLength() + " ms");
+                    return graph;
+                }
+            };
         }
 
         try {
@@ -184,9 +367,10 @@ public class GrandTask extends Task {
                 }
             }
 
-            final GraphWriter writer = new DotWriter(override);
+            final DotWriter writer = new DotWriter(override);
             writer.setProducer(producer);
             writer.setShowGraphName(showGraphName);
+            writer.setRankByLevel(rankLevels);
 
             log("Writing output to " + output);
             writer.write(output);
@@ -200,12 +384,188 @@ public class GrandTask extends Task {
     }
 
     /**
-     * Create and initialize a GraphProducer according to the
-     * task parameters.
+     * Returns a graph whose attributes can be set without changing the
+     * loaded graph, which may be frozen or cached: a view showing all the
+     * nodes of a {@link GraphImpl}. Views returned by the filters belong to
+     * the task and are returned as is.
+     *
+     * @param graph the graph to mark.
+     * @return the graph to set the attributes on.
+     */
+    private static Graph getMarkableGraph(final Graph graph) {
+        if (graph instanceof GraphImpl) {
+            return new FilteredGraphView((GraphImpl) graph);
+        }
+        return graph;
+    }
+
+    /**
+     * Creates the chain running the planned filters on a graph. When
+     * explaining the filters, the plan is logged and the number of nodes is
+     * logged after each filter.
+     *
+     * @param planner the filter planner.
+     * @param graph the graph to filter.
+     * @return the filter chain.
+     */
+    private FilterChain createFilterChain(final FilterPlanner planner,
+            final Graph graph) {
+        final FilterChain chain = new FilterChain("Grand task");
+        if (filterCache) {
+            chain.setResultCache(FilterResultCache.getSharedCache());
+        }
+        chain.setProducer(new GraphProducer() {
+            public Graph getGraph() {
+                return graph;
+            }
+        });
+
+        final List<GraphFilter> plannedFilters = planner.plan(graph);
+        if (explainFilters) {
+            for (final String note : planner.getNotes()) {
+                log(note);
+            }
+            final StringBuilder order = new StringBuilder("Filter order:");
+            for (final GraphFilter filter : plannedFilters) {
+                order.append(' ').append(planner.getLabel(filter));
+            }
+            log(order.toString());
+            chain.addFilterLast(new NodeCountLogger("Unfiltered graph"));
+        }
+
+        for (final GraphFilter filter : plannedFilters) {
+            chain.addFilterLast(filter);
+            if (explainFilters) {
+                chain.addFilterLast(new NodeCountLogger("After "
+                        + planner.getLabel(filter)));
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * Create a GraphProducer according to the task parameters, using the
+     * graph cache if possible. With a graph cache, the producer returns a
+     * frozen graph whether the cache is up to date or not.
      *
      * @return an initialized GraphProducer.
      */
-    private GraphProducer initAntProject() {
+    private GraphProducer initGraphProducer() {
+        if (cacheFile == null) {
+            return initAntProject();
+        }
+
+        final String cacheKey = getCacheKey();
+        if (cacheFile.isFile()) {
+            try {
+                final BinaryGraphProducer cached = new BinaryGraphProducer(cacheFile);
+                cached.setCompactGraph(compactGraph);
+                if (buildFile == null) {
+                    cached.setProject(getProject());
+                }
+                if (cached.isUpToDate(cacheKey)) {
+                    log("Using graph cache " + cacheFile);
+                    // Frozen as the graph written to the cache on a miss.
+                    return new GraphSnapshot(cached);
+                }
+                log("Graph cache " + cacheFile + " is out of date", Project.MSG_VERBOSE);
+            } catch (final GrandException e) {
+                log("Cannot read graph cache " + cacheFile + ": " + e.getMessage(),
+                        Project.MSG_WARN);
+            }
+        }
+
+        final AntProject graphProject = initAntProject();
+        final GraphSnapshot snapshot = new GraphSnapshot(graphProject);
+        try {
+            // The input files are only all known once the graph is created.
+            snapshot.getGraph();
+            final Set<File> inputFiles = graphProject.getInputFiles();
+            for (Property prop : properties) {
+                if (prop.getFile() != null) {
+                    inputFiles.add(prop.getFile());
+                }
+            }
+            final BinaryGraphWriter writer = new BinaryGraphWriter(cacheKey, inputFiles);
+            writer.setProducer(snapshot);
+            log("Writing graph cache to " + cacheFile);
+            writer.write(cacheFile);
+        } catch (final IOException e) {
+            log("Cannot write graph cache " + cacheFile + ": " + e.getMessage(),
+                    Project.MSG_WARN);
+        } catch (final GrandException e) {
+            log("Cannot process graph", Project.MSG_ERR);
+            throw new BuildException("Cannot write graph cache", e);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Computes a key describing the parameters used to load the project.
+     * The build files are checked separately by the cached graph.
+     *
+     * @return a digest of the parameters.
+     */
+    private String getCacheKey() {
+        final Map<String, String> parameters = new TreeMap<String, String>();
+        parameters.put("buildfile", (buildFile == null)
+                ? getProject().getProperty("ant.file") : buildFile.getAbsolutePath());
+        parameters.put("inheritall", Boolean.toString(inheritAll));
+        parameters.put("compactgraph", Boolean.toString(compactGraph));
+        if (inheritAll || (buildFile == null)) {
+            for (Map.Entry<String, Object> entry : getProject().getProperties().entrySet()) {
+                parameters.put("project." + entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        int index = 0;
+        for (PropertySet ps : propertySets) {
+            for (Map.Entry<Object, Object> entry : ps.getProperties().entrySet()) {
+                parameters.put("set" + index + "." + entry.getKey(),
+                        String.valueOf(entry.getValue()));
+            }
+            index++;
+        }
+        index = 0;
+        for (Property prop : properties) {
+            final String prefix = "property" + index + ".";
+            parameters.put(prefix + "name", prop.getName());
+            parameters.put(prefix + "value", prop.getValue());
+            parameters.put(prefix + "prefix", prop.getPrefix());
+            parameters.put(prefix + "resource", prop.getResource());
+            parameters.put(prefix + "environment", prop.getEnvironment());
+            final File file = prop.getFile();
+            if (file != null) {
+                parameters.put(prefix + "file", file.getAbsolutePath() + "@"
+                        + file.lastModified());
+            }
+            index++;
+        }
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("MD5");
+            for (Map.Entry<String, String> entry : parameters.entrySet()) {
+                digest.update(entry.getKey().getBytes("UTF-8"));
+                digest.update((byte) '=');
+                if (entry.getValue() != null) {
+                    digest.update(entry.getValue().getBytes("UTF-8"));
+                }
+                digest.update((byte) '\n');
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new BuildException("Cannot compute graph cache key", e);
+        } catch (final UnsupportedEncodingException e) {
+            throw new BuildException("Cannot compute graph cache key", e);
+        }
+    }
+
+    /**
+     * Create and initialize an AntProject according to the
+     * task parameters.
+     *
+     * @return an initialized AntProject.
+     */
+    private AntProject initAntProject() {
 
         Project antProject;
 
@@ -232,7 +592,10 @@ public class GrandTask extends Task {
             }
         }
 
-        return new AntProject(antProject);
+        final AntProject graphProject = new AntProject(antProject);
+        graphProject.setCompactGraph(compactGraph);
+        graphProject.setThreads(threads);
+        return graphProject;
     }
 
     /**
@@ -297,6 +660,16 @@ public class GrandTask extends Task {
         buildFile = file;
     }
 
+    /**
+     * Sets a file used to cache the graph between runs. When the file is up
+     * to date, the build files are not parsed at all.
+     *
+     * @param file File
+     */
+    public final void setCacheFile(final File file) {
+        cacheFile = file;
+    }
+
     /**
      * Sets the output file.
      *
@@ -358,6 +731,85 @@ public class GrandTask extends Task {
         inheritAll = value;
     }
 
+    /**
+     * If true, use a compact link storage for the graph. This lowers the
+     * memory used for large build files. Defaults to false.
+     * @param compact if true use a compact graph.
+     */
+    public final void setCompactGraph(final boolean compact) {
+        compactGraph = compact;
+    }
+
+    /**
+     * Sets the number of threads used to look for the links created by
+     * tasks like <code>antcall</code>. Defaults to 1.
+     * @param count the number of threads.
+     */
+    public final void setThreads(final int count) {
+        if (count < 1) {
+            throw new BuildException("threads should be at least 1");
+        }
+        threads = count;
+    }
+
+    /**
+     * Sets the minimal number of nodes for the graph to be walked by
+     * several threads in filters like <code>fromnode</code>. Defaults to
+     * {@link GraphCrawler#DEFAULT_PARALLEL_THRESHOLD}.
+     * @param threshold the minimal number of nodes.
+     */
+    public final void setParallelCrawlThreshold(final int threshold) {
+        if (threshold < 0) {
+            throw new BuildException("parallelcrawlthreshold should not be negative");
+        }
+        parallelCrawlThreshold = threshold;
+    }
+
+    /**
+     * If true, highlight the nodes and links part of a dependency cycle,
+     * including cycles going through weak links. Defaults to false.
+     * @param mark if true mark the cycles.
+     */
+    public final void setMarkCycles(final boolean mark) {
+        markCycles = mark;
+    }
+
+    /**
+     * Highlight the critical path of the build using target execution times
+     * recorded by {@link net.ggtools.grand.ant.TimingListener}.
+     * @param file the timing file.
+     */
+    public final void setTimingFile(final File file) {
+        timingFile = file;
+    }
+
+    /**
+     * If true, draw the targets which can be run concurrently on the same
+     * rank. Defaults to false.
+     * @param rank if true rank the targets by execution level.
+     */
+    public final void setRankLevels(final boolean rank) {
+        rankLevels = rank;
+    }
+
+    /**
+     * If true, log the order the filters are run in and the number of nodes
+     * left after each of them. Defaults to false.
+     * @param explain if true explain the filters.
+     */
+    public final void setExplainFilters(final boolean explain) {
+        explainFilters = explain;
+    }
+
+    /**
+     * If true, cache the nodes kept by the filters for the duration of the
+     * build. Defaults to false.
+     * @param cache if true cache the filtered nodes.
+     */
+    public final void setFilterCache(final boolean cache) {
+        filterCache = cache;
+    }
+
     /**
      * Add a filter to the task.
      * @param filter FilterType
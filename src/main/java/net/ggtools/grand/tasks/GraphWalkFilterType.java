@@ -0,0 +1,168 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.tasks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.ggtools.grand.filters.GraphFilter;
+import net.ggtools.grand.filters.GraphWalkFilter;
+import net.ggtools.grand.graph.GraphCrawler;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+/**
+ * Base class for the Ant frontends to
+ * {@link net.ggtools.grand.filters.GraphWalkFilter}s. Besides the
+ * <code>node</code> attribute, the walk can start from a comma separated list
+ * of <code>nodes</code> and can be limited to a <code>maxdepth</code>.
+ *
+ * @author Christophe Labouisse
+ */
+public abstract class GraphWalkFilterType implements GraphFilterType {
+
+    /**
+     * Field nodeName.
+     */
+    private String nodeName;
+
+    /**
+     * Field nodeNames.
+     */
+    private final List<String> nodeNames = new ArrayList<String>();
+
+    /**
+     * Field maxDepth.
+     */
+    private int maxDepth = GraphCrawler.UNLIMITED_DEPTH;
+
+    /**
+     * Field project.
+     */
+    private final Project project;
+
+    /**
+     * Creates a new filter type.
+     *
+     * @param antProject owner's project.
+     */
+    protected GraphWalkFilterType(final Project antProject) {
+        project = antProject;
+    }
+
+    /**
+     * Method checkParameters.
+     * @see net.ggtools.grand.tasks.GraphFilterType#checkParameters()
+     */
+    public final void checkParameters() {
+        if ((nodeName == null) && nodeNames.isEmpty()) {
+            final String message = "required attribute missing";
+            project.log(message, Project.MSG_ERR);
+            throw new BuildException(message);
+        }
+    }
+
+    /**
+     * Method getFilter.
+     * @return GraphFilter
+     * @see net.ggtools.grand.tasks.GraphFilterType#getFilter()
+     */
+    public final GraphFilter getFilter() {
+        final GraphWalkFilter filter;
+        if (nodeNames.isEmpty()) {
+            filter = createFilter(nodeName);
+        } else {
+            final List<String> startNodes = new ArrayList<String>();
+            if (nodeName != null) {
+                startNodes.add(nodeName);
+            }
+            startNodes.addAll(nodeNames);
+            filter = createFilter(startNodes);
+        }
+        filter.setMaxDepth(maxDepth);
+        return filter;
+    }
+
+    /**
+     * Method setNodeName.
+     * @param name String
+     * @see net.ggtools.grand.tasks.GraphFilterType#setNodeName(java.lang.String)
+     */
+    public final void setNodeName(final String name) {
+        nodeName = name;
+    }
+
+    /**
+     * Sets the nodes to start the walk from.
+     *
+     * @param names comma separated list of node names.
+     */
+    public final void setNodes(final String names) {
+        for (final String name : names.split(",")) {
+            final String trimmed = name.trim();
+            if (trimmed.length() > 0) {
+                nodeNames.add(trimmed);
+            }
+        }
+    }
+
+    /**
+     * Limits the walk to the nodes at most <code>depth</code> links away from
+     * the start nodes.
+     *
+     * @param depth the maximum number of links to follow.
+     */
+    public final void setMaxDepth(final int depth) {
+        if (depth < 0) {
+            throw new BuildException("maxdepth should not be negative");
+        }
+        maxDepth = depth;
+    }
+
+    /**
+     * Creates the filter for a single start node.
+     *
+     * @param name the start node.
+     * @return a new filter.
+     */
+    protected abstract GraphWalkFilter createFilter(String name);
+
+    /**
+     * Creates the filter for several start nodes.
+     *
+     * @param names the start nodes.
+     * @return a new filter.
+     */
+    protected abstract GraphWalkFilter createFilter(Collection<String> names);
+}
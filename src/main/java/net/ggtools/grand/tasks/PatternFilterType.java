@@ -0,0 +1,249 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.tasks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import net.ggtools.grand.filters.GraphFilter;
+import net.ggtools.grand.filters.NodePatternFilter;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+/**
+ * Ant frontend to {@link net.ggtools.grand.filters.NodePatternFilter}. The
+ * <code>includes</code> and <code>excludes</code> attributes take comma
+ * separated patterns, the <code>includesfile</code> and
+ * <code>excludesfile</code> attributes files with one pattern per line.
+ * Blank lines and lines starting with <code>#</code> are ignored in pattern
+ * files.
+ * <p>
+ * The commas inside the braces, parentheses or character classes of a
+ * regular expression do not separate patterns, so
+ * <code>includes="regex:a{1,3},b*"</code> holds two patterns. Other commas
+ * of a regular expression have to be escaped as <code>\,</code>, or the
+ * pattern written in a file.
+ * </p>
+ *
+ * @author Christophe Labouisse
+ */
+public class PatternFilterType implements GraphFilterType {
+
+    /**
+     * Field project.
+     */
+    private final Project project;
+
+    /**
+     * Field includes.
+     */
+    private final List<String> includes = new ArrayList<String>();
+
+    /**
+     * Field excludes.
+     */
+    private final List<String> excludes = new ArrayList<String>();
+
+    /**
+     * Creates a new object.
+     *
+     * @param antProject project within which the filter will run.
+     */
+    public PatternFilterType(final Project antProject) {
+        project = antProject;
+    }
+
+    /**
+     * Method checkParameters.
+     * @see net.ggtools.grand.tasks.GraphFilterType#checkParameters()
+     */
+    public final void checkParameters() {
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            final String message = "required attribute missing";
+            project.log(message, Project.MSG_ERR);
+            throw new BuildException(message);
+        }
+    }
+
+    /**
+     * Method getFilter.
+     * @return GraphFilter
+     * @see net.ggtools.grand.tasks.GraphFilterType#getFilter()
+     */
+    public final GraphFilter getFilter() {
+        project.log("Including " + includes + ", excluding " + excludes,
+                Project.MSG_VERBOSE);
+        try {
+            return new NodePatternFilter(includes, excludes);
+        } catch (final PatternSyntaxException e) {
+            throw new BuildException("Invalid pattern: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Method setNodeName.
+     * @param name String
+     * @see net.ggtools.grand.tasks.GraphFilterType#setNodeName(java.lang.String)
+     */
+    public final void setNodeName(final String name) {
+        project.log("Node parameter useless for pattern", Project.MSG_WARN);
+    }
+
+    /**
+     * Adds comma separated include patterns. The commas within a regular
+     * expression's groups, quantifiers or character classes are kept.
+     *
+     * @param patterns the patterns.
+     */
+    public final void setIncludes(final String patterns) {
+        split(patterns, includes);
+    }
+
+    /**
+     * Adds comma separated exclude patterns. The commas within a regular
+     * expression's groups, quantifiers or character classes are kept.
+     *
+     * @param patterns the patterns.
+     */
+    public final void setExcludes(final String patterns) {
+        split(patterns, excludes);
+    }
+
+    /**
+     * Adds the include patterns read from a file.
+     *
+     * @param file the pattern file.
+     */
+    public final void setIncludesFile(final File file) {
+        load(file, includes);
+    }
+
+    /**
+     * Adds the exclude patterns read from a file.
+     *
+     * @param file the pattern file.
+     */
+    public final void setExcludesFile(final File file) {
+        load(file, excludes);
+    }
+
+    /**
+     * Adds the non empty elements of a comma separated list to patterns.
+     *
+     * @param list the comma separated list.
+     * @param patterns the list to add to.
+     */
+    private void split(final String list, final List<String> patterns) {
+        int start = 0;
+        while (start <= list.length()) {
+            final int end = findSeparator(list, start);
+            final String trimmed = list.substring(start, end).trim();
+            if (trimmed.length() > 0) {
+                patterns.add(trimmed);
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Finds the comma ending the pattern starting at some position. The
+     * commas inside the groups, quantifiers or character classes of a
+     * regular expression, as well as the escaped ones, are skipped.
+     *
+     * @param list the comma separated list.
+     * @param start the start of the pattern.
+     * @return the position of the comma or the length of the list if the
+     *         pattern is the last one.
+     */
+    private static int findSeparator(final String list, final int start) {
+        final String pattern = list.substring(start).trim();
+        if (!pattern.startsWith(NodePatternFilter.REGEX_PREFIX)
+                && !pattern.startsWith(NodePatternFilter.FILE_PREFIX
+                        + NodePatternFilter.REGEX_PREFIX)) {
+            final int comma = list.indexOf(',', start);
+            return (comma < 0) ? list.length() : comma;
+        }
+
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = start; i < list.length(); i++) {
+            final char c = list.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                inClass = (c != ']');
+            } else if (c == '[') {
+                inClass = true;
+            } else if ((c == '{') || (c == '(')) {
+                depth++;
+            } else if (((c == '}') || (c == ')')) && (depth > 0)) {
+                depth--;
+            } else if ((c == ',') && (depth == 0)) {
+                return i;
+            }
+        }
+        return list.length();
+    }
+
+    /**
+     * Adds the patterns read from a file to a list.
+     *
+     * @param file the pattern file.
+     * @param patterns the list to add to.
+     */
+    private void load(final File file, final List<String> patterns) {
+        try {
+            final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if ((line.length() > 0) && !line.startsWith("#")) {
+                        patterns.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException e) {
+            throw new BuildException("Cannot read pattern file " + file, e);
+        }
+    }
+}
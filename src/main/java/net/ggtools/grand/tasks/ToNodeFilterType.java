@@ -31,10 +31,11 @@
 
 package net.ggtools.grand.tasks;
 
-import net.ggtools.grand.filters.GraphFilter;
+import java.util.Collection;
+
+import net.ggtools.grand.filters.GraphWalkFilter;
 import net.ggtools.grand.filters.ToNodeFilter;
 
-import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 
 /**
@@ -42,53 +43,35 @@ import org.apache.tools.ant.Project;
  *
  * @author Christophe Labouisse
  */
-public class ToNodeFilterType implements GraphFilterType {
-
-    /**
-     * Field nodeName.
-     */
-    private String nodeName;
-    /**
-     * Field project.
-     */
-    private final Project project;
+public class ToNodeFilterType extends GraphWalkFilterType {
 
     /**
      * Constructor.
      * @param antProject Project
      */
     public ToNodeFilterType(final Project antProject) {
-        project = antProject;
+        super(antProject);
     }
 
     /**
-     * Method checkParameters.
-     * @see net.ggtools.grand.tasks.GraphFilterType#checkParameters()
-     */
-    public final void checkParameters() {
-        if (nodeName == null) {
-            final String message = "required attribute missing";
-            project.log(message, Project.MSG_ERR);
-            throw new BuildException(message);
-        }
-    }
-
-    /**
-     * Method getFilter.
-     * @return GraphFilter
-     * @see net.ggtools.grand.tasks.GraphFilterType#getFilter()
+     * Method createFilter.
+     * @param name String
+     * @return GraphWalkFilter
+     * @see net.ggtools.grand.tasks.GraphWalkFilterType#createFilter(java.lang.String)
      */
-    public final GraphFilter getFilter() {
-        return new ToNodeFilter(nodeName);
+    @Override
+    protected final GraphWalkFilter createFilter(final String name) {
+        return new ToNodeFilter(name);
     }
 
     /**
-     * Method setNodeName.
-     * @param name String
-     * @see net.ggtools.grand.tasks.GraphFilterType#setNodeName(java.lang.String)
+     * Method createFilter.
+     * @param names Collection&lt;String&gt;
+     * @return GraphWalkFilter
+     * @see net.ggtools.grand.tasks.GraphWalkFilterType#createFilter(java.util.Collection)
      */
-    public final void setNodeName(final String name) {
-        nodeName = name;
+    @Override
+    protected final GraphWalkFilter createFilter(final Collection<String> names) {
+        return new ToNodeFilter(names);
     }
-
 }
@@ -42,7 +42,11 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     AntProjectTest.class,
-    AntProjectFromFileTest.class
+    AntProjectFromFileTest.class,
+    CompactAntProjectTest.class,
+    ConcurrentAntProjectTest.class,
+    BinaryGraphTest.class,
+    TargetTimingsTest.class
     })
 public final class AllTests {
 }
@@ -0,0 +1,361 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.ant;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.GraphSnapshot;
+import net.ggtools.grand.graph.Link;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.output.DotWriter;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests {@link BinaryGraphWriter} and {@link BinaryGraphProducer}.
+ *
+ * @author Christophe Labouisse
+ */
+public class BinaryGraphTest extends AbstractAntTester {
+
+    /**
+     * Field CACHE_KEY.
+     * (value is {@value #CACHE_KEY})
+     */
+    private static final String CACHE_KEY = "key";
+
+    /**
+     * Field antProject.
+     */
+    private AntProject antProject;
+
+    /**
+     * Field binaryFile.
+     */
+    private File binaryFile;
+
+    /**
+     * Method setUp.
+     * @throws IOException if the binary file cannot be created
+     */
+    @Before
+    public final void setUp() throws IOException {
+        configureProject(TESTCASES_DIR + "ant-project-test.xml");
+        project.setBasedir(TESTCASES_DIR);
+        antProject = new AntProject(project);
+        binaryFile = File.createTempFile("grand-binary-", ".bin");
+    }
+
+    /**
+     * Method tearDown.
+     */
+    @After
+    public final void tearDown() {
+        binaryFile.delete();
+    }
+
+    /**
+     * Method testSameOutput.
+     * @throws GrandException if a graph cannot be created
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public final void testSameOutput() throws GrandException, IOException {
+        write(antProject, Collections.<File>emptySet());
+        assertEquals("Output for loaded graph", render(antProject),
+                render(new BinaryGraphProducer(binaryFile)));
+    }
+
+    /**
+     * Method testTaskLinks.
+     * @throws GrandException if a graph cannot be created
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public final void testTaskLinks() throws GrandException, IOException {
+        final Graph expected = antProject.getGraph();
+        write(antProject, Collections.<File>emptySet());
+        final Graph actual = new BinaryGraphProducer(binaryFile).getGraph();
+
+        assertEquals("Start node", expected.getStartNode().getName(),
+                actual.getStartNode().getName());
+        for (final Iterator<Node> iter = expected.getNodes(); iter.hasNext();) {
+            final AntTargetNode node = (AntTargetNode) iter.next();
+            final AntTargetNode loaded = (AntTargetNode) actual.getNode(node.getName());
+            assertEquals("Attributes", node.getAttributes(), loaded.getAttributes());
+            assertEquals("Build file", node.getBuildFile(), loaded.getBuildFile());
+            assertEquals("If condition", node.getIfCondition(), loaded.getIfCondition());
+            assertEquals("Unless condition", node.getUnlessCondition(),
+                    loaded.getUnlessCondition());
+            assertEquals("Links of " + node, node.getLinks().size(),
+                    loaded.getLinks().size());
+            final Iterator<Link> loadedLinks = loaded.getLinks().iterator();
+            for (final Link link : node.getLinks()) {
+                final Link loadedLink = loadedLinks.next();
+                assertEquals("Link class", link.getClass(), loadedLink.getClass());
+                assertEquals("End node", link.getEndNode().getName(),
+                        loadedLink.getEndNode().getName());
+                if (link instanceof AntTaskLink) {
+                    final AntTaskLink taskLink = (AntTaskLink) link;
+                    final AntTaskLink loadedTaskLink = (AntTaskLink) loadedLink;
+                    assertEquals("Task name", taskLink.getTaskName(),
+                            loadedTaskLink.getTaskName());
+                    assertEquals("Parameters", taskLink.getParameterMap(),
+                            loadedTaskLink.getParameterMap());
+                    assertArrayEquals("Property files", taskLink.getPropertyFiles(),
+                            loadedTaskLink.getPropertyFiles());
+                }
+                if (link instanceof SubantTaskLink) {
+                    assertEquals("Directories",
+                            ((SubantTaskLink) link).getDirectories().toString(),
+                            ((SubantTaskLink) loadedLink).getDirectories().toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Method testUpToDate.
+     * @throws GrandException if a graph cannot be created
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public final void testUpToDate() throws GrandException, IOException {
+        final File buildFile = File.createTempFile("grand-build-", ".xml");
+        try {
+            copy(new File(TESTCASES_DIR + "build-simple.xml"), buildFile);
+            final AntProject simpleProject = new AntProject(buildFile);
+            write(simpleProject, simpleProject.getBuildFiles());
+
+            final BinaryGraphProducer producer = new BinaryGraphProducer(binaryFile);
+            assertTrue("Graph should be up to date", producer.isUpToDate(CACHE_KEY));
+            assertFalse("Graph should not match another key",
+                    producer.isUpToDate("other"));
+
+            assertTrue(buildFile.setLastModified(buildFile.lastModified() - 10000));
+            assertFalse("Graph should be out of date", producer.isUpToDate(CACHE_KEY));
+        } finally {
+            buildFile.delete();
+        }
+    }
+
+    /**
+     * Method testNotABinaryGraph.
+     * @throws GrandException expected
+     */
+    @Test(expected = GrandException.class)
+    public final void testNotABinaryGraph() throws GrandException {
+        new BinaryGraphProducer(new File(TESTCASES_DIR + "build-simple.xml"));
+    }
+
+    /**
+     * Method testCompactGraph.
+     * @throws GrandException if a graph cannot be created
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public final void testCompactGraph() throws GrandException, IOException {
+        write(antProject, Collections.<File>emptySet());
+        final BinaryGraphProducer producer = new BinaryGraphProducer(binaryFile);
+        assertFalse("Graph should not be compact",
+                ((AntGraph) producer.getGraph()).isCompact());
+        producer.setCompactGraph(true);
+        final Graph graph = producer.getGraph();
+        assertTrue("Graph should be compact", ((AntGraph) graph).isCompact());
+        assertEquals("Output for compact graph", render(antProject), render(producer));
+    }
+
+    /**
+     * Method testProject.
+     * @throws GrandException if a graph cannot be created
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public final void testProject() throws GrandException, IOException {
+        write(antProject, Collections.<File>emptySet());
+        final BinaryGraphProducer producer = new BinaryGraphProducer(binaryFile);
+        producer.setProject(project);
+        assertSame("Graph project", project,
+                ((AntGraph) producer.getGraph()).getProject());
+    }
+
+    /**
+     * Method testInputFiles.
+     * @throws GrandException if a graph cannot be created
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public final void testInputFiles() throws GrandException, IOException {
+        final File dir = File.createTempFile("grand-inputs-", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        final File buildFile = new File(dir, "build.xml");
+        final File propertyFile = new File(dir, "build.properties");
+        final File otherFile = new File(dir, "other.xml");
+        try {
+            writeFile(buildFile, "<project name=\"inputs\" default=\"main\">"
+                    + "<property file=\"" + propertyFile.getAbsolutePath() + "\"/>"
+                    + "<target name=\"main\"><ant antfile=\""
+                    + otherFile.getAbsolutePath() + "\"/></target></project>");
+            writeFile(propertyFile, "foo=bar\n");
+            writeFile(otherFile, "<project name=\"other\" default=\"all\">"
+                    + "<target name=\"all\"/></project>");
+
+            final AntProject inputsProject = new AntProject(buildFile);
+            final GraphProducer snapshot = new GraphSnapshot(inputsProject);
+            snapshot.getGraph();
+            final Set<File> inputFiles = inputsProject.getInputFiles();
+            assertTrue("Build file should be an input", inputFiles.contains(buildFile));
+            assertTrue("Property file should be an input",
+                    inputFiles.contains(propertyFile));
+            assertTrue("External build file should be an input",
+                    inputFiles.contains(otherFile));
+
+            write(snapshot, inputFiles);
+            final BinaryGraphProducer producer = new BinaryGraphProducer(binaryFile);
+            assertTrue("Graph should be up to date", producer.isUpToDate(CACHE_KEY));
+            assertTrue(propertyFile.setLastModified(propertyFile.lastModified() - 10000));
+            assertFalse("Graph should be out of date", producer.isUpToDate(CACHE_KEY));
+        } finally {
+            buildFile.delete();
+            propertyFile.delete();
+            otherFile.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Method testRewrite.
+     * @throws GrandException if a graph cannot be created
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public final void testRewrite() throws GrandException, IOException {
+        write(antProject, Collections.<File>emptySet());
+        final BinaryGraphProducer producer = new BinaryGraphProducer(binaryFile);
+        final String expected = render(producer);
+        write(antProject, Collections.<File>emptySet());
+        assertEquals("Output after rewriting the file", expected, render(producer));
+        assertEquals("Output of rewritten file", expected,
+                render(new BinaryGraphProducer(binaryFile)));
+    }
+
+    /**
+     * Writes the graph of a producer to the binary file.
+     *
+     * @param producer the producer.
+     * @param inputFiles the input files.
+     * @throws GrandException if the graph cannot be created
+     * @throws IOException if the file cannot be written
+     */
+    private void write(final GraphProducer producer, final Set<File> inputFiles)
+            throws GrandException, IOException {
+        final BinaryGraphWriter writer = new BinaryGraphWriter(CACHE_KEY, inputFiles);
+        writer.setProducer(producer);
+        writer.write(binaryFile);
+    }
+
+    /**
+     * Renders a graph as dot.
+     *
+     * @param producer the graph producer.
+     * @return the dot output.
+     * @throws GrandException if the graph cannot be written
+     * @throws IOException if the writer cannot be created
+     */
+    private static String render(final GraphProducer producer)
+            throws GrandException, IOException {
+        final DotWriter writer = new DotWriter();
+        writer.setProducer(producer);
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.write(stream);
+        return stream.toString();
+    }
+
+    /**
+     * Writes a file.
+     *
+     * @param file the file.
+     * @param content the content.
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFile(final File file, final String content)
+            throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Copies a file.
+     *
+     * @param from the source.
+     * @param to the destination.
+     * @throws IOException if the copy fails
+     */
+    private static void copy(final File from, final File to) throws IOException {
+        final FileInputStream in = new FileInputStream(from);
+        try {
+            final FileOutputStream out = new FileOutputStream(to);
+            try {
+                final byte[] buffer = new byte[4096];
+                int count;
+                while ((count = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, count);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.ant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.output.DotWriter;
+
+/**
+ * Runs the {@link AntProjectTest} tests on a graph built using several
+ * threads and checks the graph does not depend on the thread count.
+ *
+ * @author Christophe Labouisse
+ */
+public class ConcurrentAntProjectTest extends AntProjectTest {
+
+    /**
+     * Field THREADS.
+     * (value is {@value #THREADS})
+     */
+    private static final int THREADS = 4;
+
+    /**
+     * Method testSealed.
+     */
+    @Test
+    public final void testSealed() {
+        assertFalse("Graph should be sealed", ((AntGraph) graph).isConcurrent());
+    }
+
+    /**
+     * Checks that an interrupted construction unit fails instead of running
+     * out of order.
+     */
+    @Test
+    public final void testInterruptedTurn() {
+        final AntGraph concurrentGraph = new AntGraph(project);
+        concurrentGraph.startConcurrentConstruction();
+        concurrentGraph.beginConstructionUnit(1);
+        Thread.currentThread().interrupt();
+        try {
+            concurrentGraph.awaitConstructionTurn();
+            fail("Should have raised an IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertTrue("Interrupt flag restored", Thread.interrupted());
+        } finally {
+            concurrentGraph.endConstructionUnit();
+            concurrentGraph.seal();
+        }
+    }
+
+    /**
+     * Method testSameOutput.
+     * @throws GrandException if a graph cannot be created
+     * @throws IOException if a graph cannot be written
+     */
+    @Test
+    public final void testSameOutput() throws GrandException, IOException {
+        for (final String buildFile : new String[]{"ant-project-test.xml",
+                "build-complex.xml", "log4j-build.xml"}) {
+            final String expected = render(buildFile, 1);
+            for (int i = 0; i < 3; i++) {
+                assertEquals("Output for " + buildFile, expected,
+                        render(buildFile, THREADS));
+            }
+        }
+    }
+
+    /**
+     * Method createGraph.
+     */
+    @Override
+    protected final void createGraph() {
+        antProject = new AntProject(project);
+        antProject.setThreads(THREADS);
+        try {
+            graph = antProject.getGraph();
+        } catch (final GrandException e) {
+            fail("Got exception while creating graph: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Renders the graph of a build file as dot.
+     *
+     * @param buildFile
+     *            name of the build file in the test cases directory.
+     * @param threads
+     *            number of threads used to build the graph.
+     * @return the dot output.
+     * @throws GrandException if the graph cannot be created
+     * @throws IOException if the graph cannot be written
+     */
+    private String render(final String buildFile, final int threads)
+            throws GrandException, IOException {
+        final AntProject producer = new AntProject(new File(TESTCASES_DIR + buildFile));
+        producer.setThreads(threads);
+        final DotWriter writer = new DotWriter();
+        writer.setProducer(producer);
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.write(stream);
+        return stream.toString();
+    }
+}
@@ -0,0 +1,180 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ggtools.grand.ant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.filters.GraphFilter;
+import net.ggtools.grand.filters.NodeRemoverFilter;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphSnapshot;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests {@link TargetTimings} and {@link TimingListener}.
+ *
+ * @author Christophe Labouisse
+ */
+public class TargetTimingsTest extends AbstractAntTester {
+
+    /**
+     * Field timingFile.
+     */
+    private File timingFile;
+
+    /**
+     * Method setUp.
+     * @throws IOException if the timing file cannot be created
+     */
+    @Before
+    public final void setUp() throws IOException {
+        configureProject(TESTCASES_DIR + "critical-path-build.xml");
+        project.setBasedir(TESTCASES_DIR);
+        timingFile = File.createTempFile("grand-timings-", ".txt");
+    }
+
+    /**
+     * Method tearDown.
+     */
+    @After
+    public final void tearDown() {
+        timingFile.delete();
+    }
+
+    /**
+     * Checks that timings are read and written back.
+     * @throws IOException if a timing file cannot be read or written
+     */
+    @Test
+    public final void testLoadStore() throws IOException {
+        final TargetTimings timings = new TargetTimings();
+        timings.load(new File(TESTCASES_DIR + "critical-path-timings.txt"));
+        assertEquals(6, timings.getDurations().size());
+        assertEquals(50, timings.getDuration("compile"));
+        assertEquals(-1, timings.getDuration("gruik"));
+
+        timings.record("compile", 40);
+        assertEquals(50, timings.getDuration("compile"));
+        timings.record("target with spaces", 12);
+        timings.store(timingFile);
+
+        final TargetTimings loaded = new TargetTimings();
+        loaded.load(timingFile);
+        assertEquals(timings.getDurations(), loaded.getDurations());
+    }
+
+    /**
+     * Checks the durations of the graph nodes.
+     * @throws IOException if the timing file cannot be read
+     * @throws GrandException if the graph cannot be created
+     */
+    @Test
+    public final void testGetDurations() throws IOException, GrandException {
+        final TargetTimings timings = new TargetTimings();
+        timings.load(new File(TESTCASES_DIR + "critical-path-timings.txt"));
+        timings.record("gruik", 1);
+        final Graph graph = new AntProject(project).getGraph();
+        final Map<Node, Long> durations = timings.getDurations(graph);
+        assertEquals(6, durations.size());
+        assertEquals(Long.valueOf(20), durations.get(graph.getNode("jar")));
+    }
+
+    /**
+     * Checks the durations of the nodes of a filtered frozen graph.
+     * @throws IOException if the timing file cannot be read
+     * @throws GrandException if the graph cannot be filtered
+     */
+    @Test
+    public final void testGetDurationsFilteredGraph()
+            throws IOException, GrandException {
+        final TargetTimings timings = new TargetTimings();
+        timings.load(new File(TESTCASES_DIR + "critical-path-timings.txt"));
+        final GraphFilter filter =
+                new NodeRemoverFilter(Collections.singletonList("init"));
+        filter.setProducer(new GraphSnapshot(new AntProject(project)));
+        final Graph graph = filter.getGraph();
+        final Map<Node, Long> durations = timings.getDurations(graph);
+        assertEquals(5, durations.size());
+        assertEquals(Long.valueOf(20), durations.get(graph.getNode("jar")));
+    }
+
+    /**
+     * Checks that the listener merges the timings of a build into the timing
+     * file.
+     * @throws IOException if the timing file cannot be read
+     */
+    @Test
+    public final void testListener() throws IOException {
+        final TargetTimings previous = new TargetTimings();
+        previous.record("dist", 1000);
+        previous.record("removed", 10);
+        previous.store(timingFile);
+
+        final TimingListener listener = new TimingListener(timingFile);
+        project.addBuildListener(listener);
+        executeTarget("jar");
+        project.fireBuildFinished(null);
+        assertEquals(4, listener.getTimings().getDurations().size());
+
+        final TargetTimings timings = new TargetTimings();
+        timings.load(timingFile);
+        assertEquals(6, timings.getDurations().size());
+        assertEquals(1000, timings.getDuration("dist"));
+        assertTrue(timings.getDuration("compile") >= 0);
+        assertEquals(10, timings.getDuration("removed"));
+    }
+
+    /**
+     * Checks that the listener uses the timing file property.
+     * @throws IOException if the timing file cannot be read
+     */
+    @Test
+    public final void testListenerProperty() throws IOException {
+        project.setProperty(TimingListener.TIMINGS_FILE_PROPERTY, timingFile.getAbsolutePath());
+        project.addBuildListener(new TimingListener());
+        executeTarget("init");
+        project.fireBuildFinished(null);
+
+        final TargetTimings timings = new TargetTimings();
+        timings.load(timingFile);
+        assertEquals(1, timings.getDurations().size());
+        assertTrue(timings.getDuration("init") >= 0);
+    }
+}
@@ -48,7 +48,17 @@ import org.junit.runners.Suite;
     IsolatedNodeFilterTest.class,
     MissingNodeFilterTest.class,
     NodeRemoverFilterTest.class,
-    PrefixedNodeFilterTest.class
+    PrefixedNodeFilterTest.class,
+    GraphSnapshotTest.class,
+    CycleFilterTest.class,
+    TransitiveReductionFilterTest.class,
+    DominatorFilterTest.class,
+    FusedFilterTest.class,
+    FilterPlannerTest.class,
+    FilterResultCacheTest.class,
+    PathBetweenNodesFilterTest.class,
+    GlobAutomatonTest.class,
+    NodePatternFilterTest.class
     })
 public final class AllTests {
 }
@@ -0,0 +1,160 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.GraphSnapshot;
+import net.ggtools.grand.graph.Link;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests for CycleFilter.
+ *
+ * @author Christophe Labouisse
+ */
+public class CycleFilterTest extends AbstractAntTester {
+    /**
+     * Field producer.
+     */
+    private GraphProducer producer;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "cycles.xml");
+        project.setBasedir(TESTCASES_DIR);
+        producer = new AntProject(project);
+    }
+
+    /**
+     * Checks the cycles found when following weak links.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testWeakLinks() throws GrandException {
+        final GraphFilter filter = new CycleFilter();
+        filter.setProducer(producer);
+        final Graph graph = filter.getGraph();
+
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b", "dist", "package")),
+                getNodeNames(graph));
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            assertTrue("Node " + node + " should be marked",
+                    node.hasAttributes(Node.ATTR_CYCLIC_NODE));
+            for (final Link link : node.getLinks()) {
+                assertTrue("Link " + link + " should be marked",
+                        link.hasAttributes(Link.ATTR_CYCLIC_LINK));
+            }
+        }
+        for (final Link link : graph.getNode("dist").getLinks()) {
+            if (link.getEndNode().getName().equals("package")) {
+                assertTrue(link.hasAttributes(Link.ATTR_WEAK_LINK));
+            }
+        }
+    }
+
+    /**
+     * Checks that cycles through weak links are ignored on request.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testStrongLinksOnly() throws GrandException {
+        final Graph fullGraph = producer.getGraph();
+        final GraphFilter filter = new CycleFilter(false);
+        filter.setProducer(new GraphProducer() {
+            public Graph getGraph() {
+                return fullGraph;
+            }
+        });
+        final Graph graph = filter.getGraph();
+
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b")), getNodeNames(graph));
+        assertTrue("Node a should be marked",
+                graph.getNode("a").hasAttributes(Node.ATTR_CYCLIC_NODE));
+        assertFalse("Producer's graph should not be marked",
+                fullGraph.getNode("a").hasAttributes(Node.ATTR_CYCLIC_NODE));
+    }
+
+    /**
+     * Checks that the cycles of a frozen graph are marked on the filtered
+     * graph.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testFrozenGraph() throws GrandException {
+        final GraphSnapshot snapshot = new GraphSnapshot(producer);
+        final GraphFilter filter = new CycleFilter();
+        filter.setProducer(snapshot);
+        final Graph graph = filter.getGraph();
+
+        assertTrue("Node a should be marked",
+                graph.getNode("a").hasAttributes(Node.ATTR_CYCLIC_NODE));
+        assertFalse("Frozen graph should not be marked",
+                snapshot.getGraph().getNode("a").hasAttributes(Node.ATTR_CYCLIC_NODE));
+    }
+
+    /**
+     * Returns the names of the nodes of a graph.
+     *
+     * @param graph the graph.
+     * @return the node names.
+     */
+    private static Set<String> getNodeNames(final Graph graph) {
+        final Set<String> names = new HashSet<String>();
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            names.add(iter.next().getName());
+        }
+        return names;
+    }
+}
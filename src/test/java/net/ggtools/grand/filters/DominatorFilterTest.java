@@ -0,0 +1,173 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.exceptions.NonExistentNodeException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.GraphSnapshot;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests for DominatorFilter.
+ *
+ * @author Christophe Labouisse
+ */
+public class DominatorFilterTest extends AbstractAntTester {
+    /**
+     * Field producer.
+     */
+    private GraphProducer producer;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "dominators.xml");
+        project.setBasedir(TESTCASES_DIR);
+        producer = new AntProject(project);
+    }
+
+    /**
+     * Checks the dominators of a node from the default target.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testNodeDominators() throws GrandException {
+        final GraphFilter filter = new DominatorFilter(null, "init");
+        filter.setProducer(producer);
+        final Graph graph = filter.getGraph();
+
+        assertEquals(new HashSet<String>(Arrays.asList("dist", "compile-core", "init")),
+                getNodeNames(graph));
+        assertTrue(graph.getNode("compile-core").hasAttributes(Node.ATTR_DOMINATOR_NODE));
+        assertFalse(graph.getNode("init").hasAttributes(Node.ATTR_DOMINATOR_NODE));
+    }
+
+    /**
+     * Checks that the dominators of a frozen graph are marked on the
+     * filtered graph.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testFrozenGraph() throws GrandException {
+        final GraphSnapshot snapshot = new GraphSnapshot(producer);
+        final GraphFilter filter = new DominatorFilter(null, "init");
+        filter.setProducer(snapshot);
+        final Graph graph = filter.getGraph();
+
+        assertTrue(graph.getNode("compile-core").hasAttributes(Node.ATTR_DOMINATOR_NODE));
+        assertFalse("Frozen graph should not be marked", snapshot.getGraph()
+                .getNode("compile-core").hasAttributes(Node.ATTR_DOMINATOR_NODE));
+    }
+
+    /**
+     * Checks the whole dominator tree with and without weak links.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testTree() throws GrandException {
+        GraphFilter filter = new DominatorFilter("dist", null);
+        filter.setProducer(producer);
+        Graph graph = filter.getGraph();
+        assertEquals(7, getNodeNames(graph).size());
+        assertEquals(new HashSet<String>(Arrays.asList("dist", "jar", "compile-core")),
+                getNodeNames(graph.getNodesWithAttributes(Node.ATTR_DOMINATOR_NODE).iterator()));
+
+        filter = new DominatorFilter("dist", null, true);
+        filter.setProducer(producer);
+        graph = filter.getGraph();
+        assertTrue(graph.hasNode("clean"));
+        assertTrue(graph.getNode("docs").hasAttributes(Node.ATTR_DOMINATOR_NODE));
+    }
+
+    /**
+     * Checks the error raised for an unknown node.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testNonExistentNode() throws GrandException {
+        final GraphFilter filter = new DominatorFilter("gruik", null);
+        filter.setProducer(producer);
+        try {
+            filter.getGraph();
+            fail("Should have raised an exception");
+        } catch (final NonExistentNodeException e) {
+            assertEquals("Node gruik does not exist", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the names of the nodes of a graph.
+     *
+     * @param graph the graph.
+     * @return the node names.
+     */
+    private static Set<String> getNodeNames(final Graph graph) {
+        return getNodeNames(graph.getNodes());
+    }
+
+    /**
+     * Returns the names of nodes.
+     *
+     * @param nodes the nodes.
+     * @return the node names.
+     */
+    private static Set<String> getNodeNames(final Iterator<Node> nodes) {
+        final Set<String> names = new HashSet<String>();
+        while (nodes.hasNext()) {
+            names.add(nodes.next().getName());
+        }
+        return names;
+    }
+}
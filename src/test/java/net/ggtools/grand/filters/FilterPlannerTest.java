@@ -0,0 +1,255 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.exceptions.NonExistentNodeException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Checks that the planned filters give the same graph as the original ones.
+ *
+ * @author Christophe Labouisse
+ */
+public class FilterPlannerTest extends AbstractAntTester {
+    /**
+     * Field producer.
+     */
+    private GraphProducer producer;
+
+    /**
+     * Field planner.
+     */
+    private FilterPlanner planner;
+
+    /**
+     * Field filters.
+     */
+    private List<GraphFilter> filters;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "filter-planner.xml");
+        project.setBasedir(TESTCASES_DIR);
+        producer = new AntProject(project);
+        planner = new FilterPlanner();
+        filters = new ArrayList<GraphFilter>();
+    }
+
+    /**
+     * An isolated node filter in front of a walk is dropped.
+     *
+     * @throws GrandException if the filters fail
+     */
+    @Test
+    public final void testIsolatedNodeFilterBeforeWalk() throws GrandException {
+        final GraphFilter walk = new FromNodeFilter("compile");
+        addFilter(new IsolatedNodeFilter(), "isolatednode");
+        addFilter(walk, "fromnode");
+
+        final List<GraphFilter> plan = planner.plan(producer.getGraph());
+        assertEquals("Wrong number of planned filters", 3, plan.size());
+        assertSame("Walk should be last", walk, plan.get(2));
+        assertEquals("Wrong number of notes", 1, planner.getNotes().size());
+        assertEquals("Wrong filtered nodes",
+                Arrays.asList("compile", "init", "generate"),
+                run(plan));
+        assertEquals("Planned filters should give the same nodes",
+                run(filters), run(plan));
+    }
+
+    /**
+     * A walk starting from a node removed by a dropped isolated node filter
+     * fails.
+     *
+     * @throws GrandException if the graph cannot be created
+     */
+    @Test
+    public final void testIsolatedStartNode() throws GrandException {
+        addFilter(new IsolatedNodeFilter(), "isolatednode");
+        addFilter(new FromNodeFilter("lonely"), "fromnode");
+
+        assertEquals("Node lonely does not exist", getFailure(filters));
+        assertEquals("Node lonely does not exist",
+                getFailure(planner.plan(producer.getGraph())));
+    }
+
+    /**
+     * A start node becoming isolated after removing its neighbours is
+     * removed by a dropped isolated node filter.
+     *
+     * @throws GrandException if the graph cannot be created
+     */
+    @Test
+    public final void testStartNodeIsolatedByRemover() throws GrandException {
+        addFilter(new NodeRemoverFilter(Arrays.asList("compile", "docs")),
+                "removenode");
+        addFilter(new IsolatedNodeFilter(), "isolatednode");
+        addFilter(new FromNodeFilter("init"), "fromnode");
+
+        assertEquals("Node init does not exist", getFailure(filters));
+        final List<GraphFilter> plan = planner.plan(producer.getGraph());
+        assertEquals("Wrong number of planned filters", 4, plan.size());
+        assertEquals("Node init does not exist", getFailure(plan));
+    }
+
+    /**
+     * Node removal filters are ordered by the number of nodes they remove.
+     *
+     * @throws GrandException if the filters fail
+     */
+    @Test
+    public final void testOrderRemovers() throws GrandException {
+        final GraphFilter remover =
+                new NodeRemoverFilter(Arrays.asList("docs", "unknown"));
+        final GraphFilter missing = new MissingNodeFilter();
+        addFilter(remover, "removenode");
+        addFilter(missing, "missing");
+        addFilter(new IsolatedNodeFilter(), "isolatednode");
+        addFilter(new ToNodeFilter("init"), "tonode");
+
+        final List<GraphFilter> plan = planner.plan(producer.getGraph());
+        assertSame("Missing node filter should be first", missing, plan.get(0));
+        assertSame("Node remover should be second", remover, plan.get(1));
+        assertEquals("Wrong number of planned filters", 5, plan.size());
+        assertEquals("Wrong number of notes", 2, planner.getNotes().size());
+        assertEquals("Wrong filtered nodes",
+                Arrays.asList("compile", "dist", "init", "test"),
+                run(plan));
+        assertEquals("Planned filters should give the same nodes",
+                run(filters), run(plan));
+    }
+
+    /**
+     * A repeated isolated node filter is dropped.
+     *
+     * @throws GrandException if the filters fail
+     */
+    @Test
+    public final void testRepeatedIsolatedNodeFilter() throws GrandException {
+        addFilter(new IsolatedNodeFilter(), "isolatednode");
+        addFilter(new IsolatedNodeFilter(), "isolatednode");
+
+        final List<GraphFilter> plan = planner.plan(producer.getGraph());
+        assertEquals("Wrong number of planned filters", 1, plan.size());
+        assertEquals("Planned filters should give the same nodes",
+                run(filters), run(plan));
+    }
+
+    /**
+     * Filters depending on the links are not moved.
+     *
+     * @throws GrandException if the filters fail
+     */
+    @Test
+    public final void testKeepOrder() throws GrandException {
+        addFilter(new FromNodeFilter("test"), "fromnode");
+        addFilter(new NodeRemoverFilter(Arrays.asList("compile")),
+                "removenode");
+        addFilter(new IsolatedNodeFilter(), "isolatednode");
+        addFilter(new MissingNodeFilter(), "missing");
+
+        final List<GraphFilter> plan = planner.plan(producer.getGraph());
+        assertEquals("Filters should not have been changed", filters, plan);
+        assertTrue("No notes expected", planner.getNotes().isEmpty());
+    }
+
+    /**
+     * Adds a filter to the planner and to the original filters.
+     *
+     * @param filter the filter.
+     * @param label the label of the filter.
+     */
+    private void addFilter(final GraphFilter filter, final String label) {
+        filters.add(filter);
+        planner.addFilter(filter, label);
+    }
+
+    /**
+     * Runs filters in a chain.
+     *
+     * @param chainFilters the filters.
+     * @return the names of the remaining nodes.
+     * @throws GrandException if the filters fail
+     */
+    private List<String> run(final List<GraphFilter> chainFilters)
+            throws GrandException {
+        final FilterChain chain = new FilterChain();
+        chain.setProducer(producer);
+        for (final GraphFilter filter : chainFilters) {
+            chain.addFilterLast(filter);
+        }
+        final List<String> result = new ArrayList<String>();
+        for (final Iterator<Node> iter = chain.getGraph().getNodes(); iter.hasNext();) {
+            result.add(iter.next().getName());
+        }
+        return result;
+    }
+
+    /**
+     * Runs filters expected to fail on a missing node.
+     *
+     * @param chainFilters the filters.
+     * @return the message of the exception.
+     * @throws GrandException if the filters fail for another reason
+     */
+    private String getFailure(final List<GraphFilter> chainFilters)
+            throws GrandException {
+        try {
+            run(chainFilters);
+            fail("Filters should have failed");
+        } catch (final NonExistentNodeException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+}
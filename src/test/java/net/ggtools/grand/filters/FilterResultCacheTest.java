@@ -0,0 +1,319 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.ant.AntTargetNode;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphImpl;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests for {@link FilterResultCache}.
+ *
+ * @author Christophe Labouisse
+ */
+public class FilterResultCacheTest extends AbstractAntTester {
+    /**
+     * Field producer.
+     */
+    private GraphProducer producer;
+
+    /**
+     * Field cache.
+     */
+    private FilterResultCache cache;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "filter-planner.xml");
+        project.setBasedir(TESTCASES_DIR);
+        producer = new AntProject(project);
+        cache = new FilterResultCache(1024 * 1024);
+    }
+
+    /**
+     * Filtering a new graph of the same build file uses the cached result.
+     *
+     * @throws GrandException if the filter fails
+     */
+    @Test
+    public final void testSameGraph() throws GrandException {
+        final List<String> expected = run(new FromNodeFilter("compile"));
+        assertEquals("Wrong number of misses", 1, cache.getMissCount());
+        assertEquals("Wrong number of hits", 0, cache.getHitCount());
+
+        assertEquals("Cached result should be the same", expected,
+                run(new FromNodeFilter("compile")));
+        assertEquals("Wrong number of misses", 1, cache.getMissCount());
+        assertEquals("Wrong number of hits", 1, cache.getHitCount());
+    }
+
+    /**
+     * Filters with other parameters are not mixed up.
+     *
+     * @throws GrandException if the filter fails
+     */
+    @Test
+    public final void testOtherParameters() throws GrandException {
+        final FromNodeFilter filter = new FromNodeFilter("compile");
+        filter.setMaxDepth(0);
+        assertEquals("Wrong filtered nodes", Arrays.asList("compile"),
+                run(filter));
+        assertEquals("Wrong filtered nodes",
+                Arrays.asList("compile", "init", "generate"),
+                run(new FromNodeFilter("compile")));
+        assertEquals("Wrong filtered nodes",
+                Arrays.asList("compile", "init", "generate"),
+                run(new FromNodeFilter(Arrays.asList("compile", "init"))));
+        assertEquals("Wrong number of misses", 3, cache.getMissCount());
+        assertEquals("Wrong number of hits", 0, cache.getHitCount());
+    }
+
+    /**
+     * Filtering another graph does not use the cached results.
+     *
+     * @throws GrandException if the filter fails
+     */
+    @Test
+    public final void testOtherGraph() throws GrandException {
+        run(new NodeRemoverFilter(Arrays.asList("compile")));
+        final GraphFilter filter = new NodeRemoverFilter(Arrays.asList("compile"));
+        final Graph graph = producer.getGraph();
+        graph.getNode("docs").setAttributes(Node.ATTR_CONDITIONAL_NODE);
+        filter.setProducer(new GraphProducer() {
+            public Graph getGraph() {
+                return graph;
+            }
+        });
+        ((AbstractGraphFilter) filter).setResultCache(cache);
+        filter.getGraph();
+        assertEquals("Wrong number of misses", 2, cache.getMissCount());
+        assertEquals("Wrong number of hits", 0, cache.getHitCount());
+    }
+
+    /**
+     * Graphs whose nodes come from other build files have other versions.
+     *
+     * @throws Exception if the filter fails
+     */
+    @Test
+    public final void testOtherBuildFile() throws Exception {
+        final Graph graph = producer.getGraph();
+        final String version = cache.getVersion(graph);
+        final Field buildFile = AntTargetNode.class.getDeclaredField("buildFile");
+        buildFile.setAccessible(true);
+        buildFile.set(graph.getNode("docs"), "other.xml");
+        assertTrue("Build file should change the version",
+                !version.equals(cache.getVersion(graph)));
+    }
+
+    /**
+     * The version of a frozen graph is only computed once.
+     *
+     * @throws GrandException if the graph cannot be created
+     */
+    @Test
+    public final void testFrozenGraphVersion() throws GrandException {
+        final Graph graph = ((GraphImpl) producer.getGraph()).freeze();
+        assertSame("Version should be memoized", cache.getVersion(graph),
+                cache.getVersion(graph));
+    }
+
+    /**
+     * Filters do not use a cache unless given one.
+     *
+     * @throws GrandException if the filter fails
+     */
+    @Test
+    public final void testNoCacheByDefault() throws GrandException {
+        final FilterResultCache shared = FilterResultCache.getSharedCache();
+        final int misses = shared.getMissCount();
+        final int hits = shared.getHitCount();
+        final GraphFilter filter = new FromNodeFilter("compile");
+        filter.setProducer(producer);
+        filter.getGraph();
+        final FilterChain chain = new FilterChain();
+        chain.setProducer(producer);
+        chain.addFilterLast(new FromNodeFilter("compile"));
+        chain.getGraph();
+        assertEquals("Wrong number of misses", misses, shared.getMissCount());
+        assertEquals("Wrong number of hits", hits, shared.getHitCount());
+    }
+
+    /**
+     * Filters marking the graph are run again, even after cached filters, and
+     * only mark the filtered graph.
+     *
+     * @throws GrandException if the filters fail
+     */
+    @Test
+    public final void testMarkingFilter() throws GrandException {
+        final GraphImpl graph = new GraphImpl("marks");
+        final Node a = graph.createNode("a");
+        final Node b = graph.createNode("b");
+        final Node c = graph.createNode("c");
+        graph.createLink(null, a, b);
+        graph.createLink(null, b, a);
+        graph.createLink(null, c, a);
+        graph.freeze();
+
+        for (int i = 0; i < 2; i++) {
+            final FilterChain chain = new FilterChain();
+            chain.setResultCache(cache);
+            chain.setProducer(new GraphProducer() {
+                public Graph getGraph() {
+                    return graph;
+                }
+            });
+            chain.addFilterLast(new NodeRemoverFilter(Arrays.asList("c")));
+            chain.addFilterLast(new CycleFilter());
+            final Graph filtered = chain.getGraph();
+            assertTrue("Node a should be marked",
+                    filtered.getNode("a").hasAttributes(Node.ATTR_CYCLIC_NODE));
+        }
+        assertEquals("Wrong number of hits", 1, cache.getHitCount());
+        assertTrue("Frozen graph should not be marked",
+                !a.hasAttributes(Node.ATTR_CYCLIC_NODE));
+    }
+
+    /**
+     * The results of the filters of a chain are all cached.
+     *
+     * @throws GrandException if the filters fail
+     */
+    @Test
+    public final void testChain() throws GrandException {
+        final List<String> expected = runChain();
+        assertEquals("Wrong number of misses", 2, cache.getMissCount());
+        assertEquals("Cached result should be the same", expected, runChain());
+        assertEquals("Wrong number of misses", 2, cache.getMissCount());
+        assertEquals("Wrong number of hits", 2, cache.getHitCount());
+    }
+
+    /**
+     * Filters setting attributes are not cached.
+     *
+     * @throws GrandException if the filter fails
+     */
+    @Test
+    public final void testNotCached() throws GrandException {
+        run(new CycleFilter());
+        run(new DominatorFilter("dist", null));
+        assertEquals("Wrong number of misses", 0, cache.getMissCount());
+        assertEquals("Wrong number of hits", 0, cache.getHitCount());
+    }
+
+    /**
+     * The least recently used results are dropped.
+     *
+     * @throws GrandException if the filter fails
+     */
+    @Test
+    public final void testEviction() throws GrandException {
+        run(new FromNodeFilter("compile"));
+        run(new FromNodeFilter("test"));
+        final long size = cache.getSize();
+        assertTrue("Results should be cached", size > 0);
+        cache.setMaxSize(size - 1);
+        assertTrue("Cache should have shrunk", cache.getSize() < size);
+
+        run(new FromNodeFilter("test"));
+        assertEquals("Most recent result should be kept", 1, cache.getHitCount());
+        run(new FromNodeFilter("compile"));
+        assertEquals("Least recent result should be dropped", 1,
+                cache.getHitCount());
+    }
+
+    /**
+     * Runs a filter with the test cache.
+     *
+     * @param filter the filter.
+     * @return the names of the filtered nodes.
+     * @throws GrandException if the filter fails
+     */
+    private List<String> run(final AbstractGraphFilter filter)
+            throws GrandException {
+        filter.setResultCache(cache);
+        filter.setProducer(producer);
+        return getNodeNames(filter.getGraph());
+    }
+
+    /**
+     * Runs a filter chain with the test cache.
+     *
+     * @return the names of the filtered nodes.
+     * @throws GrandException if the filters fail
+     */
+    private List<String> runChain() throws GrandException {
+        final FilterChain chain = new FilterChain();
+        chain.setResultCache(cache);
+        chain.setProducer(producer);
+        chain.addFilterLast(new MissingNodeFilter());
+        chain.addFilterLast(new IsolatedNodeFilter());
+        chain.addFilterLast(new ToNodeFilter("init"));
+        return getNodeNames(chain.getGraph());
+    }
+
+    /**
+     * Returns the names of the nodes of a graph.
+     *
+     * @param graph Graph
+     * @return List&lt;String&gt;
+     */
+    private static List<String> getNodeNames(final Graph graph) {
+        final List<String> names = new ArrayList<String>();
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            names.add(iter.next().getName());
+        }
+        return names;
+    }
+}
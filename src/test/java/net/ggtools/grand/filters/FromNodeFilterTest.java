@@ -49,7 +49,9 @@ import net.ggtools.grand.exceptions.GrandException;
 import net.ggtools.grand.exceptions.NonExistentNodeException;
 import net.ggtools.grand.graph.Graph;
 import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.Link;
 import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.graph.ReachabilityIndex;
 import net.ggtools.grand.utils.AbstractAntTester;
 
 /**
@@ -160,4 +162,82 @@ public class FromNodeFilterTest extends AbstractAntTester {
         filter.getGraph();
     }
 
+    /**
+     * Checks that a walk from several nodes finds the nodes found by a walk
+     * from each node.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testMultipleStartNodes() throws GrandException {
+        final Set<String> expected = new HashSet<String>();
+        for (final String nodeName : new String[] {"build.jms", "build.jmx", "javadoc"}) {
+            final GraphFilter filter = new FromNodeFilter(nodeName);
+            filter.setProducer(producer);
+            expected.addAll(getNodeNames(filter.getGraph()));
+        }
+
+        final GraphFilter filter = new FromNodeFilter(
+                Arrays.asList("build.jms", "build.jmx", "javadoc"));
+        filter.setProducer(producer);
+        assertEquals(expected, getNodeNames(filter.getGraph()));
+    }
+
+    /**
+     * Checks that the walk stops after the maximum depth.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testMaxDepth() throws GrandException {
+        final Set<String> expected = new HashSet<String>();
+        expected.add("build");
+        for (final Link link : producer.getGraph().getNode("build").getLinks()) {
+            expected.add(link.getEndNode().getName());
+        }
+
+        final FromNodeFilter filter = new FromNodeFilter("build");
+        filter.setMaxDepth(1);
+        filter.setProducer(producer);
+        final Set<String> actual = getNodeNames(filter.getGraph());
+        assertEquals(expected, actual);
+        assertTrue("Depth should limit the walk",
+                actual.size() < NODES_AFTER_FILTERING.size());
+    }
+
+    /**
+     * Checks that a filter using a reachability index finds the nodes found
+     * by a walk.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testReachabilityIndex() throws GrandException {
+        final Graph graph = producer.getGraph();
+        final FromNodeFilter filter = new FromNodeFilter(Arrays.asList("build", "javadoc"));
+        filter.setReachabilityIndex(new ReachabilityIndex(graph));
+        filter.setProducer(new GraphProducer() {
+            public Graph getGraph() {
+                return graph;
+            }
+        });
+
+        final GraphFilter reference = new FromNodeFilter(Arrays.asList("build", "javadoc"));
+        reference.setProducer(producer);
+        assertEquals(getNodeNames(reference.getGraph()), getNodeNames(filter.getGraph()));
+    }
+
+    /**
+     * Returns the names of the nodes of a graph.
+     *
+     * @param graph the graph.
+     * @return the node names.
+     */
+    private static Set<String> getNodeNames(final Graph graph) {
+        final Set<String> names = new HashSet<String>();
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            names.add(iter.next().getName());
+        }
+        return names;
+    }
 }
@@ -0,0 +1,251 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests for {@link FusedFilter} and the fused mode of {@link FilterChain}.
+ *
+ * @author Christophe Labouisse
+ */
+public class FusedFilterTest extends AbstractAntTester {
+    /**
+     * A filter accepting all the nodes and counting how many times its
+     * test is called.
+     *
+     * @author Christophe Labouisse
+     */
+    private static final class CountingFilter implements NodePredicateFilter {
+        /**
+         * Field calls.
+         */
+        private int calls = 0;
+
+        /**
+         * Method getPredicate.
+         * @param previous NodePredicate
+         * @return NodePredicate
+         * @see net.ggtools.grand.filters.NodePredicateFilter#getPredicate(NodePredicate)
+         */
+        public NodePredicate getPredicate(final NodePredicate previous) {
+            return new NodePredicate() {
+                public boolean accept(final Node node) {
+                    calls++;
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * Method getGraph.
+         * @return Graph
+         * @see net.ggtools.grand.graph.GraphProducer#getGraph()
+         */
+        public Graph getGraph() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Method setProducer.
+         * @param producer GraphProducer
+         * @see net.ggtools.grand.graph.GraphConsumer#setProducer(GraphProducer)
+         */
+        public void setProducer(final GraphProducer producer) {
+        }
+
+        /**
+         * Method getName.
+         * @return String
+         * @see net.ggtools.grand.filters.GraphFilter#getName()
+         */
+        public String getName() {
+            return "counting";
+        }
+    }
+
+    /**
+     * Field producer.
+     */
+    private GraphProducer producer;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "isolated-node-filter.xml");
+        project.setBasedir(TESTCASES_DIR);
+        producer = new AntProject(project);
+    }
+
+    /**
+     * An isolated node filter following a node remover should drop the
+     * nodes only linked to removed nodes.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testRemoverThenIsolated() throws GrandException {
+        final List<NodePredicateFilter> filters =
+                new ArrayList<NodePredicateFilter>();
+        filters.add(new NodeRemoverFilter(Arrays.asList("init", "depend-2")));
+        filters.add(new IsolatedNodeFilter());
+        final GraphFilter filter = new FusedFilter(filters);
+        filter.setProducer(producer);
+        final Graph graph = filter.getGraph();
+
+        assertNull("Removed node should not have been found",
+                graph.getNode("init"));
+        assertNull("Removed node should not have been found",
+                graph.getNode("depend-2"));
+        assertNull("Node linked to removed nodes only should be isolated",
+                graph.getNode("depend-1"));
+        assertNull("Isolated node should not have been found",
+                graph.getNode("isolated"));
+    }
+
+    /**
+     * An isolated node filter preceding a node remover sees the unfiltered
+     * graph.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testIsolatedThenRemover() throws GrandException {
+        final List<NodePredicateFilter> filters =
+                new ArrayList<NodePredicateFilter>();
+        filters.add(new IsolatedNodeFilter());
+        filters.add(new NodeRemoverFilter(Arrays.asList("init", "depend-2")));
+        final GraphFilter filter = new FusedFilter(filters);
+        filter.setProducer(producer);
+        final Graph graph = filter.getGraph();
+
+        assertNotNull("Node should have been kept", graph.getNode("depend-1"));
+        assertNull("Removed node should not have been found",
+                graph.getNode("init"));
+        assertNull("Isolated node should not have been found",
+                graph.getNode("isolated"));
+    }
+
+    /**
+     * Fused and unfused chains should give the same graphs, including when
+     * a graph walking filter stands between node predicate filters.
+     *
+     * @throws GrandException if {@link FilterChain#getGraph()} fails
+     */
+    @Test
+    public final void testFusedChainMatchesUnfused() throws GrandException {
+        final FilterChain fused = createChain();
+        final FilterChain unfused = createChain();
+        unfused.setFused(false);
+
+        assertEquals("Fused chain should match the unfused one",
+                getNodeNames(unfused.getGraph()),
+                getNodeNames(fused.getGraph()));
+        assertEquals("Fused chain should be used by default",
+                true, fused.isFused());
+    }
+
+    /**
+     * Each filter should be evaluated once per node, even when followed by
+     * filters looking at the neighbours of the nodes.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testStagesEvaluatedOnce() throws GrandException {
+        final CountingFilter counting = new CountingFilter();
+        final List<NodePredicateFilter> filters =
+                new ArrayList<NodePredicateFilter>();
+        filters.add(counting);
+        for (int i = 0; i < 4; i++) {
+            filters.add(new IsolatedNodeFilter());
+        }
+        final GraphFilter filter = new FusedFilter(filters);
+        filter.setProducer(producer);
+        final Graph graph = filter.getGraph();
+
+        assertNull("Isolated node should not have been found",
+                graph.getNode("isolated"));
+        assertEquals("Counting filter should be called once per node",
+                getNodeNames(producer.getGraph()).size(), counting.calls);
+    }
+
+    /**
+     * Creates a chain mixing node predicate filters and a barrier.
+     *
+     * @return FilterChain
+     */
+    private FilterChain createChain() {
+        final FilterChain chain = new FilterChain();
+        chain.setProducer(producer);
+        chain.addFilterLast(new MissingNodeFilter());
+        chain.addFilterLast(new NodeRemoverFilter(Arrays.asList("depend-2")));
+        chain.addFilterLast(new IsolatedNodeFilter());
+        chain.addFilterLast(new ToNodeFilter("depend-1"));
+        chain.addFilterLast(new NodeRemoverFilter(Arrays.asList("init")));
+        chain.addFilterLast(new IsolatedNodeFilter());
+        return chain;
+    }
+
+    /**
+     * Returns the names of the nodes of a graph.
+     *
+     * @param graph Graph
+     * @return List&lt;String&gt;
+     */
+    private static List<String> getNodeNames(final Graph graph) {
+        final List<String> names = new ArrayList<String>();
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            names.add(iter.next().getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,119 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests for GlobAutomaton.
+ *
+ * @author Christophe Labouisse
+ */
+public class GlobAutomatonTest {
+    /**
+     * Checks the flags returned for each kind of pattern.
+     */
+    @Test
+    public final void testMatch() {
+        final GlobAutomaton automaton = new GlobAutomaton(
+                Arrays.asList("compile", "comp*", "*test*", "?ar", ""),
+                Arrays.asList(1, 2, 4, 8, 16));
+
+        assertEquals(3, automaton.match("compile"));
+        assertEquals(2, automaton.match("compile-all"));
+        assertEquals(6, automaton.match("comptest"));
+        assertEquals(4, automaton.match("unit-test"));
+        assertEquals(8, automaton.match("jar"));
+        assertEquals(0, automaton.match("jars"));
+        assertEquals(16, automaton.match(""));
+        assertEquals(0, automaton.match("init"));
+        assertEquals(8, automaton.match("éar"));
+    }
+
+    /**
+     * Checks the automaton against regular expressions on enough strings to
+     * flush the state cache.
+     */
+    @Test
+    public final void testSameAsRegexes() {
+        final List<String> globs = Arrays.asList("a*b?", "*ab*", "b*a*b",
+                "??", "a?*?b");
+        final List<Integer> flags = new ArrayList<Integer>();
+        final List<Pattern> regexes = new ArrayList<Pattern>();
+        for (int i = 0; i < globs.size(); i++) {
+            flags.add(1 << i);
+            regexes.add(Pattern.compile(globs.get(i).replace("?", ".")
+                    .replace("*", ".*")));
+        }
+        final GlobAutomaton automaton = new GlobAutomaton(globs, flags);
+
+        for (int i = 0; i < 50000; i++) {
+            final String text = Integer.toString(i, 3).replace('0', 'a')
+                    .replace('1', 'b').replace('2', 'c');
+            int expected = 0;
+            for (int j = 0; j < regexes.size(); j++) {
+                if (regexes.get(j).matcher(text).matches()) {
+                    expected |= flags.get(j);
+                }
+            }
+            assertEquals(text, expected, automaton.match(text));
+        }
+    }
+
+    /**
+     * Checks that the estimated size of the cached states stays within its
+     * bound.
+     */
+    @Test
+    public final void testCacheSize() {
+        final long maxSize = 16 * 1024;
+        final GlobAutomaton automaton = new GlobAutomaton(
+                Arrays.asList("*a*b*c*", "??*é"), Arrays.asList(1, 2), maxSize);
+
+        for (int i = 0; i < 10000; i++) {
+            final String text = Integer.toString(i, 4).replace('0', 'a')
+                    .replace('1', 'b').replace('2', 'c').replace('3', 'é');
+            final int expected = (text.matches(".*a.*b.*c.*") ? 1 : 0)
+                    | (text.matches("...*é") ? 2 : 0);
+            assertEquals(text, expected, automaton.match(text));
+            assertTrue("Cache too big", automaton.getCacheSize() <= maxSize);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.FilteredGraphView;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.GraphSnapshot;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.output.DotWriter;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Checks that filtering a frozen snapshot gives the same results as filtering
+ * a freshly parsed graph.
+ *
+ * @author Christophe Labouisse
+ */
+public class GraphSnapshotTest extends AbstractAntTester {
+    /**
+     * A producer counting the calls to {@link #getGraph()}.
+     *
+     * @author Christophe Labouisse
+     */
+    private static final class CountingProducer implements GraphProducer {
+        /**
+         * Field calls.
+         */
+        private int calls = 0;
+
+        /**
+         * Field producer.
+         */
+        private final GraphProducer producer;
+
+        /**
+         * Constructor for CountingProducer.
+         * @param producer GraphProducer
+         */
+        private CountingProducer(final GraphProducer producer) {
+            this.producer = producer;
+        }
+
+        /**
+         * Method getGraph.
+         * @return Graph
+         * @throws GrandException if the underlying producer fails
+         * @see net.ggtools.grand.graph.GraphProducer#getGraph()
+         */
+        public Graph getGraph() throws GrandException {
+            calls++;
+            return producer.getGraph();
+        }
+    }
+
+    /**
+     * Field snapshot.
+     */
+    private GraphSnapshot snapshot;
+
+    /**
+     * Field counter.
+     */
+    private CountingProducer counter;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "log4j-build.xml");
+        project.setBasedir(TESTCASES_DIR);
+        counter = new CountingProducer(new AntProject(project));
+        snapshot = new GraphSnapshot(counter);
+    }
+
+    /**
+     * Method testSeveralViews.
+     * @throws GrandException if the filtering fails
+     * @throws IOException if the writer cannot be created
+     */
+    @Test
+    public final void testSeveralViews() throws GrandException, IOException {
+        final int nodeCount = countNodes(snapshot.getGraph());
+
+        checkFilters(new FromNodeFilter("build"));
+        checkFilters(new ToNodeFilter("jndiCheck"));
+        checkFilters(new ConnectedToNodeFilter("jar"));
+        checkFilters(new IsolatedNodeFilter());
+        checkFilters(new FromNodeFilter("dist"), new MissingNodeFilter(),
+                new ToNodeFilter("prejar"));
+        checkFilters(new ToNodeFilter("build"), new IsolatedNodeFilter());
+
+        assertEquals("Build file should have been parsed once", 1, counter.calls);
+        assertEquals("Snapshot should not have been altered", nodeCount,
+                countNodes(snapshot.getGraph()));
+    }
+
+    /**
+     * Method testViewOfView.
+     * @throws GrandException if the filtering fails
+     */
+    @Test
+    public final void testViewOfView() throws GrandException {
+        final GraphFilter first = new FromNodeFilter("dist");
+        first.setProducer(snapshot);
+        final GraphFilter second = new ToNodeFilter("prejar");
+        second.setProducer(first);
+        final Graph graph = second.getGraph();
+        assertTrue("Result should be a view", graph instanceof FilteredGraphView);
+        assertTrue("View should be built on the snapshot",
+                ((FilteredGraphView) graph).getBaseGraph() == snapshot.getGraph());
+    }
+
+    /**
+     * Applies filters both on the snapshot and on a freshly parsed graph and
+     * compares the outputs.
+     *
+     * @param filters the filters to apply in order.
+     * @throws GrandException if the filtering fails
+     * @throws IOException if the writer cannot be created
+     */
+    private void checkFilters(final GraphFilter... filters)
+            throws GrandException, IOException {
+        final String expected = render(chain(new AntProject(project), filters));
+        final String actual = render(chain(snapshot, filters));
+        assertEquals("Output for filtered snapshot", expected, actual);
+    }
+
+    /**
+     * Chains filters to a producer.
+     *
+     * @param producer the first producer.
+     * @param filters the filters.
+     * @return the last producer.
+     */
+    private static GraphProducer chain(final GraphProducer producer,
+            final GraphFilter... filters) {
+        GraphProducer last = producer;
+        for (final GraphFilter filter : filters) {
+            filter.setProducer(last);
+            last = filter;
+        }
+        return last;
+    }
+
+    /**
+     * Renders a graph as dot.
+     *
+     * @param producer the graph producer.
+     * @return the dot output.
+     * @throws GrandException if the graph cannot be written
+     * @throws IOException if the writer cannot be created
+     */
+    private static String render(final GraphProducer producer)
+            throws GrandException, IOException {
+        final DotWriter writer = new DotWriter();
+        writer.setProducer(producer);
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.write(stream);
+        return stream.toString();
+    }
+
+    /**
+     * Counts the nodes of a graph.
+     *
+     * @param graph the graph.
+     * @return the node count.
+     */
+    private static int countNodes(final Graph graph) {
+        int count = 0;
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext(); iter.next()) {
+            count++;
+        }
+        return count;
+    }
+}
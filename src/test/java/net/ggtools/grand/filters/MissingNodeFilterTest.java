@@ -33,12 +33,15 @@ package net.ggtools.grand.filters;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import net.ggtools.grand.ant.AntProject;
 import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.FilteredGraphView;
 import net.ggtools.grand.graph.Graph;
 import net.ggtools.grand.graph.GraphProducer;
 import net.ggtools.grand.utils.AbstractAntTester;
@@ -111,4 +114,29 @@ public class MissingNodeFilterTest extends AbstractAntTester {
         assertNull("Missing node should have been found",
                 graph.getNode("missing"));
     }
+
+    /**
+     * Checks that the filter leaves the producer's graph untouched.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testProducerGraphUnchanged() throws GrandException {
+        final Graph fullGraph = producer.getGraph();
+        final GraphFilter filter = new MissingNodeFilter();
+        filter.setProducer(new GraphProducer() {
+            public Graph getGraph() {
+                return fullGraph;
+            }
+        });
+        final Graph graph = filter.getGraph();
+
+        assertTrue("Filter should return a view", graph instanceof FilteredGraphView);
+        assertSame("View should be built on the producer's graph", fullGraph,
+                ((FilteredGraphView) graph).getBaseGraph());
+        assertNull("Missing node should have been filtered out",
+                graph.getNode("missing"));
+        assertNotNull("Missing node should still be in the producer's graph",
+                fullGraph.getNode("missing"));
+    }
 }
@@ -0,0 +1,191 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests for NodePatternFilter.
+ *
+ * @author Christophe Labouisse
+ */
+public class NodePatternFilterTest extends AbstractAntTester {
+    /**
+     * Field producer.
+     */
+    private GraphProducer producer;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "path-between.xml");
+        project.setBasedir(TESTCASES_DIR);
+        producer = new AntProject(project);
+    }
+
+    /**
+     * Checks literal names and globs.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testGlobs() throws GrandException {
+        assertEquals(names("init", "jar", "javadoc", "generate-sources"),
+                filter(Arrays.asList("init", "j*", "*-sources"), null));
+        assertEquals(names("jar", "dist"),
+                filter(Arrays.asList("???", "d?st"), null));
+        assertEquals(names("generate-sources", "resources"),
+                filter(Arrays.asList("*sour*"), null));
+    }
+
+    /**
+     * Checks regular expressions.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testRegexes() throws GrandException {
+        assertEquals(names("compile", "clean"),
+                filter(Arrays.asList("regex:c.*"), null));
+        assertEquals(names("compile", "clean", "jar", "javadoc"),
+                filter(Arrays.asList("regex:c.*", "j*"), null));
+    }
+
+    /**
+     * Checks that excludes win over includes and that all the nodes are
+     * included without include pattern.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testExcludes() throws GrandException {
+        assertEquals(names("javadoc"),
+                filter(Arrays.asList("j*"), Arrays.asList("jar")));
+        assertEquals(names("init", "compile", "test", "dist"),
+                filter(null, Arrays.asList("*a*", "regex:.*sources")));
+    }
+
+    /**
+     * Checks the patterns on build files.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testBuildFiles() throws GrandException {
+        configureProject(TESTCASES_DIR + "subant.xml");
+        project.setBasedir(TESTCASES_DIR);
+        producer = new AntProject(project);
+
+        assertEquals(names("init", "generic", "multitarget", "antfile"),
+                filter(null, Arrays.asList("file:*")));
+        assertEquals(names("[target]"),
+                filter(Arrays.asList("file:regex:.*subant-2.build\\.xml"),
+                        null));
+    }
+
+    /**
+     * Checks the filter in a fused chain.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testFused() throws GrandException {
+        final FilterChain chain = new FilterChain();
+        chain.setFused(true);
+        chain.addFilterLast(new NodePatternFilter(Arrays.asList("*e*"),
+                Collections.<String>emptyList()));
+        chain.addFilterLast(new NodeRemoverFilter(
+                Arrays.asList("generate-sources")));
+        chain.setProducer(producer);
+
+        assertEquals(names("compile", "resources", "test", "clean"),
+                getNodeNames(chain.getGraph()));
+    }
+
+    /**
+     * Runs a pattern filter on the producer.
+     * @param includes List&lt;String&gt;
+     * @param excludes List&lt;String&gt;
+     * @return Set&lt;String&gt;
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    private Set<String> filter(final List<String> includes,
+            final List<String> excludes) throws GrandException {
+        final GraphFilter filter = new NodePatternFilter(
+                includes == null ? new ArrayList<String>() : includes,
+                excludes == null ? new ArrayList<String>() : excludes);
+        filter.setProducer(producer);
+        return getNodeNames(filter.getGraph());
+    }
+
+    /**
+     * Method names.
+     * @param names String[]
+     * @return Set&lt;String&gt;
+     */
+    private static Set<String> names(final String... names) {
+        return new HashSet<String>(Arrays.asList(names));
+    }
+
+    /**
+     * Method getNodeNames.
+     * @param graph Graph
+     * @return Set&lt;String&gt;
+     */
+    private static Set<String> getNodeNames(final Graph graph) {
+        final Set<String> names = new HashSet<String>();
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            names.add(iter.next().getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,166 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.exceptions.NonExistentNodeException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests for PathBetweenNodesFilter.
+ *
+ * @author Christophe Labouisse
+ */
+public class PathBetweenNodesFilterTest extends AbstractAntTester {
+    /**
+     * Field producer.
+     */
+    private GraphProducer producer;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "path-between.xml");
+        project.setBasedir(TESTCASES_DIR);
+        producer = new AntProject(project);
+    }
+
+    /**
+     * Checks the nodes on all the paths.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testAllPaths() throws GrandException {
+        final GraphFilter filter =
+                new PathBetweenNodesFilter("dist", "generate-sources");
+        filter.setProducer(producer);
+
+        assertEquals(new HashSet<String>(Arrays.asList("dist", "jar", "compile",
+                "javadoc", "generate-sources")), getNodeNames(filter.getGraph()));
+    }
+
+    /**
+     * Checks the nodes on the shortest paths.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testShortestPaths() throws GrandException {
+        final GraphFilter filter =
+                new PathBetweenNodesFilter("dist", "generate-sources", true);
+        filter.setProducer(producer);
+
+        assertEquals(new HashSet<String>(Arrays.asList("dist", "javadoc",
+                "generate-sources")), getNodeNames(filter.getGraph()));
+    }
+
+    /**
+     * Checks that the filter gives the same nodes as intersecting a
+     * fromnode and a tonode filter.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testSameAsWalks() throws GrandException {
+        final GraphFilter fromFilter = new FromNodeFilter("jar");
+        fromFilter.setProducer(producer);
+        final GraphFilter toFilter = new ToNodeFilter("init");
+        toFilter.setProducer(fromFilter);
+        final GraphFilter filter = new PathBetweenNodesFilter("jar", "init");
+        filter.setProducer(producer);
+
+        assertEquals(getNodeNames(toFilter.getGraph()),
+                getNodeNames(filter.getGraph()));
+    }
+
+    /**
+     * Checks that no node is kept when there is no path.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testNoPath() throws GrandException {
+        final GraphFilter filter = new PathBetweenNodesFilter("init", "dist", true);
+        filter.setProducer(producer);
+
+        assertTrue(getNodeNames(filter.getGraph()).isEmpty());
+    }
+
+    /**
+     * Checks the error raised for an unknown node.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testNonExistentNode() throws GrandException {
+        final GraphFilter filter = new PathBetweenNodesFilter("dist", "gabuzo");
+        filter.setProducer(producer);
+        try {
+            filter.getGraph();
+            fail("Should have raised a NonExistentNodeException");
+        } catch (final NonExistentNodeException e) {
+            assertEquals("Node gabuzo does not exist", e.getMessage());
+        }
+    }
+
+    /**
+     * Method getNodeNames.
+     * @param graph Graph
+     * @return Set&lt;String&gt;
+     */
+    private static Set<String> getNodeNames(final Graph graph) {
+        final Set<String> names = new HashSet<String>();
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            names.add(iter.next().getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,147 @@
+// $Id$
+/* ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.graph.Graph;
+import net.ggtools.grand.graph.GraphProducer;
+import net.ggtools.grand.graph.Link;
+import net.ggtools.grand.graph.Node;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests for TransitiveReductionFilter.
+ *
+ * @author Christophe Labouisse
+ */
+public class TransitiveReductionFilterTest extends AbstractAntTester {
+    /**
+     * Field producer.
+     */
+    private GraphProducer producer;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "transitive-reduction.xml");
+        project.setBasedir(TESTCASES_DIR);
+        producer = new AntProject(project);
+    }
+
+    /**
+     * Checks that only regular links are reduced by default.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testStrongLinksOnly() throws GrandException {
+        final Graph fullGraph = producer.getGraph();
+        final GraphFilter filter = new TransitiveReductionFilter();
+        filter.setProducer(new GraphProducer() {
+            public Graph getGraph() {
+                return fullGraph;
+            }
+        });
+        final Graph graph = filter.getGraph();
+
+        assertEquals(new TreeSet<String>(Arrays.asList("a->b", "a->init", "b->a", "c->a",
+                "compile->init", "dist->compile (weak)", "dist->jar", "jar->compile")),
+                getLinkNames(graph));
+        assertEquals("Producer's graph should not be modified", 13,
+                getLinkNames(fullGraph).size());
+    }
+
+    /**
+     * Checks that weak links are reduced on request.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testWeakLinks() throws GrandException {
+        final GraphFilter filter = new TransitiveReductionFilter(true);
+        filter.setProducer(producer);
+
+        assertEquals(new TreeSet<String>(Arrays.asList("a->b", "a->init", "b->a", "c->a",
+                "compile->init", "dist->jar", "jar->compile")),
+                getLinkNames(filter.getGraph()));
+    }
+
+    /**
+     * Checks the reduction after a node filter.
+     *
+     * @throws GrandException if {@link GraphFilter#getGraph()} fails
+     */
+    @Test
+    public final void testFilterChain() throws GrandException {
+        final FilterChain chain = new FilterChain();
+        chain.addFilterLast(new NodeRemoverFilter(Arrays.asList("compile")));
+        chain.addFilterLast(new TransitiveReductionFilter());
+        chain.setProducer(producer);
+        final Graph graph = chain.getGraph();
+
+        assertEquals(new TreeSet<String>(Arrays.asList("a->b", "a->init", "b->a", "c->a",
+                "dist->jar", "jar->init")), getLinkNames(graph));
+        assertEquals(2, graph.getNode("init").getBackLinks().size());
+        assertTrue(graph.getLinksWithAttributes(Link.ATTR_WEAK_LINK).isEmpty());
+    }
+
+    /**
+     * Returns the links of a graph as <code>start-&gt;end</code> strings.
+     *
+     * @param graph the graph.
+     * @return the link names.
+     */
+    private static Set<String> getLinkNames(final Graph graph) {
+        final Set<String> names = new TreeSet<String>();
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            for (final Link link : iter.next().getLinks()) {
+                names.add(link.getStartNode().getName() + "->" + link.getEndNode().getName()
+                        + (link.hasAttributes(Link.ATTR_WEAK_LINK) ? " (weak)" : ""));
+            }
+        }
+        return names;
+    }
+}
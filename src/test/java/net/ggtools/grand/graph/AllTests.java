@@ -42,7 +42,20 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     GraphCrawlerTest.class,
-    SubGraphImplTest.class
+    SubGraphImplTest.class,
+    CompactGraphTest.class,
+    AttributeIndexTest.class,
+    FilteredGraphViewTest.class,
+    SymbolTableTest.class,
+    GraphBuilderTest.class,
+    GraphDiffTest.class,
+    LinkSetTest.class,
+    ReachabilityIndexTest.class,
+    StronglyConnectedComponentsTest.class,
+    ExecutionPlannerTest.class,
+    CriticalPathAnalysisTest.class,
+    TransitiveReductionTest.class,
+    DominatorTreeTest.class
     })
 public final class AllTests {
 }
@@ -0,0 +1,170 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.DuplicateElementException;
+
+/**
+ * Tests the attribute indexes of {@link GraphImpl}.
+ *
+ * @author Christophe Labouisse
+ */
+public class AttributeIndexTest {
+
+    /**
+     * Field graph.
+     */
+    private GraphImpl graph;
+
+    /**
+     * Field nodeA.
+     */
+    private Node nodeA;
+
+    /**
+     * Field nodeB.
+     */
+    private Node nodeB;
+
+    /**
+     * Field nodeC.
+     */
+    private Node nodeC;
+
+    /**
+     * Method setUp.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Before
+    public final void setUp() throws DuplicateElementException {
+        graph = new GraphImpl("attributes");
+        nodeA = graph.createNode("A");
+        nodeB = graph.createNode("B");
+        nodeC = graph.createNode("C");
+        nodeA.setAttributes(Node.ATTR_MAIN_NODE);
+        nodeB.setAttributes(Node.ATTR_MAIN_NODE | Node.ATTR_MISSING_NODE);
+    }
+
+    /**
+     * Method testNodesWithAttributes.
+     */
+    @Test
+    public final void testNodesWithAttributes() {
+        assertNodes(graph.getNodesWithAttributes(Node.ATTR_MAIN_NODE), nodeA, nodeB);
+        assertNodes(graph.getNodesWithAttributes(Node.ATTR_MAIN_NODE
+                | Node.ATTR_MISSING_NODE), nodeB);
+        assertNodes(graph.getNodesWithAttributes(Node.ATTR_PREFIXED_NODE));
+        assertNodes(graph.getNodesWithAttributes(Node.ATTR_NONE), nodeA, nodeB, nodeC);
+    }
+
+    /**
+     * Method testNodesWithoutAttributes.
+     */
+    @Test
+    public final void testNodesWithoutAttributes() {
+        assertNodes(graph.getNodesWithoutAttributes(Node.ATTR_MISSING_NODE), nodeA, nodeC);
+        assertNodes(graph.getNodesWithoutAttributes(Node.ATTR_MAIN_NODE
+                | Node.ATTR_MISSING_NODE), nodeC);
+        assertNodes(graph.getNodesWithoutAttributes(Node.ATTR_PREFIXED_NODE),
+                nodeA, nodeB, nodeC);
+    }
+
+    /**
+     * Method testAttributeChanges.
+     */
+    @Test
+    public final void testAttributeChanges() {
+        nodeB.clearAttributes(Node.ATTR_MAIN_NODE);
+        nodeC.setAttributes(Node.ATTR_MAIN_NODE);
+        graph.setStartNode(nodeC);
+        assertNodes(graph.getNodesWithAttributes(Node.ATTR_MAIN_NODE), nodeA, nodeC);
+        assertNodes(graph.getNodesWithAttributes(Node.ATTR_START_NODE), nodeC);
+        graph.setStartNode(nodeA);
+        assertNodes(graph.getNodesWithAttributes(Node.ATTR_START_NODE), nodeA);
+    }
+
+    /**
+     * Method testRemovedNode.
+     */
+    @Test
+    public final void testRemovedNode() {
+        final Link link = graph.createLink(null, nodeA, nodeB);
+        link.setAttributes(Link.ATTR_WEAK_LINK);
+        assertEquals("Weak links", Arrays.asList(link),
+                graph.getLinksWithAttributes(Link.ATTR_WEAK_LINK));
+
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            if (iter.next() == nodeB) {
+                iter.remove();
+            }
+        }
+        nodeB.setAttributes(Node.ATTR_PREFIXED_NODE);
+        assertNodes(graph.getNodesWithAttributes(Node.ATTR_MAIN_NODE), nodeA);
+        assertNodes(graph.getNodesWithAttributes(Node.ATTR_PREFIXED_NODE));
+        assertTrue("Weak links", graph.getLinksWithAttributes(Link.ATTR_WEAK_LINK).isEmpty());
+    }
+
+    /**
+     * Method testNodeSetOperations.
+     */
+    @Test
+    public final void testNodeSetOperations() {
+        final NodeSet main = graph.getNodesWithAttributes(Node.ATTR_MAIN_NODE);
+        final NodeSet missing = graph.getNodesWithAttributes(Node.ATTR_MISSING_NODE);
+        assertNodes(main.and(missing), nodeB);
+        assertNodes(main.andNot(missing), nodeA);
+        assertNodes(missing.or(graph.getNodesWithoutAttributes(Node.ATTR_MAIN_NODE)),
+                nodeB, nodeC);
+        assertFalse("Foreign node", main.contains(new NodeImpl("A", graph)));
+    }
+
+    /**
+     * Checks the content of a node collection.
+     *
+     * @param nodes the collection to check.
+     * @param expected the expected nodes in iteration order.
+     */
+    private static void assertNodes(final Collection<Node> nodes, final Node... expected) {
+        assertEquals("Nodes", Arrays.asList(expected), Arrays.asList(nodes.toArray()));
+        for (final Node node : expected) {
+            assertTrue("Contains " + node, nodes.contains(node));
+        }
+    }
+}
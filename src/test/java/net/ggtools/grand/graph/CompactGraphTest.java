@@ -0,0 +1,366 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.DuplicateElementException;
+import net.ggtools.grand.graph.visit.LinkVisitor;
+
+/**
+ * Tests the link storage of compact graphs.
+ *
+ * @author Christophe Labouisse
+ */
+public class CompactGraphTest {
+
+    /**
+     * Field graph.
+     */
+    private GraphImpl graph;
+
+    /**
+     * Field nodeA.
+     */
+    private Node nodeA;
+
+    /**
+     * Field nodeB.
+     */
+    private Node nodeB;
+
+    /**
+     * Field nodeC.
+     */
+    private Node nodeC;
+
+    /**
+     * Field linkAB.
+     */
+    private Link linkAB;
+
+    /**
+     * Field linkAC.
+     */
+    private Link linkAC;
+
+    /**
+     * Field linkBC.
+     */
+    private Link linkBC;
+
+    /**
+     * Method setUp.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Before
+    public final void setUp() throws DuplicateElementException {
+        graph = new GraphImpl("compact", true);
+        nodeA = graph.createNode("A");
+        nodeB = graph.createNode("B");
+        nodeC = graph.createNode("C");
+        linkAB = graph.createLink("ab", nodeA, nodeB);
+        linkAC = graph.createLink("ac", nodeA, nodeC);
+        linkBC = graph.createLink("bc", nodeB, nodeC);
+    }
+
+    /**
+     * Method testIsCompact.
+     */
+    @Test
+    public final void testIsCompact() {
+        assertTrue("Graph should be compact", graph.isCompact());
+        assertFalse("Graph should not be compact", new GraphImpl("hash").isCompact());
+    }
+
+    /**
+     * Method testLinks.
+     */
+    @Test
+    public final void testLinks() {
+        assertLinks(nodeA.getLinks(), linkAB, linkAC);
+        assertLinks(nodeB.getLinks(), linkBC);
+        assertLinks(nodeC.getLinks());
+        assertLinks(nodeA.getBackLinks());
+        assertLinks(nodeB.getBackLinks(), linkAB);
+        assertLinks(nodeC.getBackLinks(), linkAC, linkBC);
+    }
+
+    /**
+     * Method testAddLinkTwice.
+     */
+    @Test
+    public final void testAddLinkTwice() {
+        nodeA.addLink(linkAB);
+        nodeB.addBackLink(linkAB);
+        assertLinks(nodeA.getLinks(), linkAB, linkAC);
+        assertLinks(nodeB.getBackLinks(), linkAB);
+    }
+
+    /**
+     * Method testLinksAfterGrowth.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Test
+    public final void testLinksAfterGrowth() throws DuplicateElementException {
+        final int count = 100;
+        final List<Link> expected = new ArrayList<Link>();
+        expected.add(linkAB);
+        expected.add(linkAC);
+        for (int i = 0; i < count; i++) {
+            final Node node = graph.createNode("N" + i);
+            expected.add(graph.createLink(null, nodeA, node));
+            graph.createLink(null, node, nodeC);
+        }
+        assertLinks(nodeA.getLinks(), expected.toArray(new Link[expected.size()]));
+        assertEquals("C back links", count + 2, nodeC.getBackLinks().size());
+    }
+
+    /**
+     * Method testRemoveLink.
+     */
+    @Test
+    public final void testRemoveLink() {
+        nodeA.removeLink(linkAB);
+        assertLinks(nodeA.getLinks(), linkAC);
+        assertLinks(nodeB.getBackLinks());
+        nodeB.removeBackLink(linkAB);
+        assertLinks(nodeB.getBackLinks());
+    }
+
+    /**
+     * Method testIteratorRemove.
+     */
+    @Test
+    public final void testIteratorRemove() {
+        final Iterator<Link> iter = nodeC.getBackLinks().iterator();
+        assertSame("First back link", linkAC, iter.next());
+        iter.remove();
+        assertSame("Second back link", linkBC, iter.next());
+        assertFalse("No more links", iter.hasNext());
+        assertLinks(nodeC.getBackLinks(), linkBC);
+        assertLinks(nodeA.getLinks(), linkAB);
+    }
+
+    /**
+     * Method testRemoveNode.
+     */
+    @Test
+    public final void testRemoveNode() {
+        graph.setStartNode(nodeB);
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            if (iter.next() == nodeB) {
+                iter.remove();
+            }
+        }
+        assertNull("Start node", graph.getStartNode());
+        assertLinks(nodeA.getLinks(), linkAC);
+        assertLinks(nodeC.getBackLinks(), linkAC);
+        assertLinks(nodeB.getLinks());
+        assertLinks(nodeB.getBackLinks());
+
+        final Link linkCA = graph.createLink("ca", nodeC, nodeA);
+        assertLinks(nodeC.getLinks(), linkCA);
+        assertLinks(nodeA.getBackLinks(), linkCA);
+        assertLinks(nodeA.getLinks(), linkAC);
+    }
+
+    /**
+     * Method testSelfLink.
+     */
+    @Test
+    public final void testSelfLink() {
+        final Link loop = graph.createLink("loop", nodeB, nodeB);
+        assertLinks(nodeB.getLinks(), linkBC, loop);
+        assertLinks(nodeB.getBackLinks(), linkAB, loop);
+        nodeB.getLinks().remove(loop);
+        assertLinks(nodeB.getLinks(), linkBC);
+        assertLinks(nodeB.getBackLinks(), linkAB);
+    }
+
+    /**
+     * Method testInterleavedAddAndRead.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Test
+    public final void testInterleavedAddAndRead() throws DuplicateElementException {
+        final List<Link> expected = new ArrayList<Link>();
+        expected.add(linkAB);
+        expected.add(linkAC);
+        assertLinks(nodeA.getLinks(), linkAB, linkAC);
+        for (int i = 0; i < 50; i++) {
+            final Node node = graph.createNode("N" + i);
+            final Link link = graph.createLink(null, nodeA, node);
+            expected.add(link);
+            assertLinks(nodeA.getLinks(), expected.toArray(new Link[expected.size()]));
+            assertLinks(node.getBackLinks(), link);
+            if (i % 10 == 0) {
+                nodeA.removeLink(link);
+                expected.remove(link);
+            }
+        }
+        assertLinks(nodeC.getBackLinks(), linkAC, linkBC);
+
+        graph.freeze();
+        assertLinks(nodeA.getLinks(), expected.toArray(new Link[expected.size()]));
+        assertLinks(nodeC.getBackLinks(), linkAC, linkBC);
+    }
+
+    /**
+     * Method testIteratorAfterAdd.
+     */
+    @Test
+    public final void testIteratorAfterAdd() {
+        final Iterator<Link> iter = nodeA.getLinks().iterator();
+        final Link loop = graph.createLink("loop", nodeA, nodeA);
+        assertSame("First link", linkAB, iter.next());
+        assertSame("Second link", linkAC, iter.next());
+        assertFalse("No more links", iter.hasNext());
+        assertLinks(nodeA.getLinks(), linkAB, linkAC, loop);
+    }
+
+    /**
+     * Method testForeignLink.
+     */
+    @Test
+    public final void testForeignLink() {
+        final Link foreign = new ForeignLink(nodeA, nodeB);
+        nodeA.addLink(foreign);
+        nodeB.addBackLink(foreign);
+        assertLinks(nodeA.getLinks(), linkAB, linkAC, foreign);
+        assertLinks(nodeB.getBackLinks(), linkAB, foreign);
+        assertFalse("Not a back link of A", nodeA.getBackLinks().contains(foreign));
+
+        graph.freeze();
+        assertLinks(nodeA.getLinks(), linkAB, linkAC, foreign);
+        assertLinks(nodeB.getBackLinks(), linkAB, foreign);
+    }
+
+    /**
+     * Method testRemoveForeignLink.
+     */
+    @Test
+    public final void testRemoveForeignLink() {
+        final Link foreign = new ForeignLink(nodeB, nodeC);
+        nodeB.addLink(foreign);
+        nodeB.removeLink(foreign);
+        assertLinks(nodeB.getLinks(), linkBC);
+        assertLinks(nodeC.getBackLinks(), linkAC, linkBC);
+        nodeB.addLink(foreign);
+        assertLinks(nodeB.getLinks(), linkBC, foreign);
+    }
+
+    /**
+     * Checks the content and order of a link collection.
+     *
+     * @param links the collection to check.
+     * @param expected the expected links.
+     */
+    private static void assertLinks(final Collection<Link> links, final Link... expected) {
+        assertEquals("Link count", expected.length, links.size());
+        final Iterator<Link> iter = links.iterator();
+        for (final Link link : expected) {
+            assertTrue("Missing link " + link, iter.hasNext());
+            assertSame("Link", link, iter.next());
+            assertTrue("Contains " + link, links.contains(link));
+        }
+        assertFalse("Extra link", iter.hasNext());
+    }
+
+    /**
+     * A link not based on {@link LinkImpl}.
+     */
+    private static final class ForeignLink implements Link {
+        /**
+         * Field startNode.
+         */
+        private final Node startNode;
+
+        /**
+         * Field endNode.
+         */
+        private final Node endNode;
+
+        /**
+         * Creates a new link.
+         *
+         * @param startNode the start node.
+         * @param endNode the end node.
+         */
+        private ForeignLink(final Node startNode, final Node endNode) {
+            this.startNode = startNode;
+            this.endNode = endNode;
+        }
+
+        public Node getStartNode() {
+            return startNode;
+        }
+
+        public Node getEndNode() {
+            return endNode;
+        }
+
+        public void accept(final LinkVisitor visitor) {
+        }
+
+        public Graph getGraph() {
+            return startNode.getGraph();
+        }
+
+        public String getName() {
+            return "foreign";
+        }
+
+        public void setAttributes(final int attributeMask) {
+        }
+
+        public int getAttributes() {
+            return 0;
+        }
+
+        public void clearAttributes(final int attributeMask) {
+        }
+
+        public boolean hasAttributes(final int attributeMask) {
+            return false;
+        }
+    }
+}
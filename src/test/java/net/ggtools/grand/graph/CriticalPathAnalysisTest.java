@@ -0,0 +1,196 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.GrandException;
+
+/**
+ * Tests for CriticalPathAnalysis.
+ *
+ * @author Christophe Labouisse
+ */
+public class CriticalPathAnalysisTest {
+
+    /**
+     * Checks the critical path, slacks and savings of a small graph.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testCriticalPath() throws GrandException {
+        final GraphImpl graph = new GraphImpl("critical");
+        final Node init = graph.createNode("init");
+        final Node compile = graph.createNode("compile");
+        final Node resources = graph.createNode("resources");
+        final Node javadoc = graph.createNode("javadoc");
+        final Node jar = graph.createNode("jar");
+        final Node dist = graph.createNode("dist");
+        final Node unrelated = graph.createNode("unrelated");
+        graph.createLink(null, compile, init);
+        graph.createLink(null, resources, init);
+        graph.createLink(null, javadoc, init);
+        graph.createLink(null, jar, compile);
+        graph.createLink(null, jar, resources);
+        graph.createLink(null, dist, jar);
+        graph.createLink(null, dist, javadoc);
+        final Map<Node, Long> durations = new HashMap<Node, Long>();
+        durations.put(init, 10L);
+        durations.put(compile, 50L);
+        durations.put(resources, 5L);
+        durations.put(javadoc, 30L);
+        durations.put(jar, 20L);
+        durations.put(dist, 5L);
+
+        final CriticalPathAnalysis analysis =
+                new CriticalPathAnalysis(graph, durations, Arrays.asList(dist));
+        assertEquals(85, analysis.getLength());
+        assertEquals(Arrays.asList(init, compile, jar, dist), analysis.getCriticalPath());
+        assertEquals(0, analysis.getSlack(compile));
+        assertEquals(45, analysis.getSlack(resources));
+        assertEquals(40, analysis.getSlack(javadoc));
+        assertEquals(-1, analysis.getSlack(unrelated));
+        assertEquals(40, analysis.getEarliestFinish(javadoc));
+        assertTrue(analysis.isCritical(jar));
+        assertFalse(analysis.isCritical(resources));
+        assertEquals(40, analysis.getSaving(compile));
+        assertEquals(0, analysis.getSaving(javadoc));
+        assertEquals(Arrays.asList(compile, jar, init, dist), analysis.getBottlenecks());
+        assertEquals(85, analysis.getLength());
+
+        final CriticalPathAnalysis jarOnly =
+                new CriticalPathAnalysis(graph, durations, Arrays.asList(jar));
+        assertEquals(80, jarOnly.getLength());
+        assertEquals(-1, jarOnly.getSlack(javadoc));
+
+        jarOnly.markCriticalPath();
+        assertTrue(compile.hasAttributes(Node.ATTR_CRITICAL_NODE));
+        assertFalse(dist.hasAttributes(Node.ATTR_CRITICAL_NODE));
+        assertEquals(2, graph.getLinksWithAttributes(Link.ATTR_CRITICAL_LINK).size());
+    }
+
+    /**
+     * Checks that the nodes of a cycle are handled as a single node and that
+     * weak links are not followed.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testCycleAndWeakLinks() throws GrandException {
+        final GraphImpl graph = new GraphImpl("cycle");
+        final Node a = graph.createNode("a");
+        final Node b = graph.createNode("b");
+        final Node c = graph.createNode("c");
+        final Node called = graph.createNode("called");
+        graph.createLink(null, a, b);
+        graph.createLink(null, b, a);
+        graph.createLink(null, c, a);
+        graph.createLink(null, c, called).setAttributes(Link.ATTR_WEAK_LINK);
+        final Map<Node, Long> durations = new HashMap<Node, Long>();
+        durations.put(a, 10L);
+        durations.put(b, 20L);
+        durations.put(c, 5L);
+        durations.put(called, 100L);
+
+        final CriticalPathAnalysis analysis = new CriticalPathAnalysis(graph, durations);
+        assertEquals(100, analysis.getLength());
+        assertEquals(35, analysis.getEarliestFinish(c));
+        assertEquals(65, analysis.getSlack(a));
+        assertEquals(0, analysis.getSlack(called));
+    }
+
+    /**
+     * Compares the results on a random graph with a quadratic reference
+     * implementation.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testRandomGraph() throws GrandException {
+        final int nodeCount = 300;
+        final GraphImpl graph = new GraphImpl("random");
+        final Node[] nodes = new Node[nodeCount];
+        final Map<Node, Long> durations = new HashMap<Node, Long>();
+        final Random random = new Random(1);
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("node" + i);
+            durations.put(nodes[i], (long) random.nextInt(100));
+        }
+        for (int i = 1; i < nodeCount; i++) {
+            for (int j = random.nextInt(4); j > 0; j--) {
+                graph.createLink(null, nodes[i], nodes[random.nextInt(i)]);
+            }
+        }
+
+        final CriticalPathAnalysis analysis = new CriticalPathAnalysis(graph, durations);
+        final long length = referenceLength(nodes, durations);
+        assertEquals(length, analysis.getLength());
+        long pathLength = 0;
+        for (final Node node : analysis.getCriticalPath()) {
+            assertEquals(0, analysis.getSlack(node));
+            pathLength += durations.get(node);
+        }
+        assertEquals(length, pathLength);
+        for (final Node node : nodes) {
+            final Long duration = durations.put(node, 0L);
+            final long saving = length - referenceLength(nodes, durations);
+            durations.put(node, duration);
+            assertEquals(node.getName(), saving, analysis.getSaving(node));
+            assertEquals(node.getName(), saving > 0, analysis.getBottlenecks().contains(node));
+        }
+    }
+
+    /**
+     * Computes the length of a build whose nodes are sorted in dependency
+     * order.
+     * @param nodes the nodes.
+     * @param durations the node durations.
+     * @return the build length.
+     */
+    private static long referenceLength(final Node[] nodes, final Map<Node, Long> durations) {
+        final Map<Node, Long> finish = new HashMap<Node, Long>();
+        long result = 0;
+        for (final Node node : nodes) {
+            long start = 0;
+            for (final Link link : node.getLinks()) {
+                start = Math.max(start, finish.get(link.getEndNode()));
+            }
+            finish.put(node, start + durations.get(node));
+            result = Math.max(result, start + durations.get(node));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.GrandException;
+
+/**
+ * Tests for DominatorTree.
+ *
+ * @author Christophe Labouisse
+ */
+public class DominatorTreeTest {
+
+    /**
+     * Checks the tree of a small graph with a cycle.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testSmallGraph() throws GrandException {
+        final GraphImpl graph = new GraphImpl("dominators");
+        final Node dist = graph.createNode("dist");
+        final Node jar = graph.createNode("jar");
+        final Node docs = graph.createNode("docs");
+        final Node core = graph.createNode("core");
+        final Node a = graph.createNode("a");
+        final Node b = graph.createNode("b");
+        final Node init = graph.createNode("init");
+        final Node called = graph.createNode("called");
+        graph.createLink(null, dist, jar);
+        graph.createLink(null, dist, docs);
+        graph.createLink(null, jar, core);
+        graph.createLink(null, docs, core);
+        graph.createLink(null, core, a);
+        graph.createLink(null, a, b);
+        graph.createLink(null, b, a);
+        graph.createLink(null, b, init);
+        graph.createLink(null, jar, init);
+        graph.createLink(null, docs, called).setAttributes(Link.ATTR_WEAK_LINK);
+        graph.setStartNode(dist);
+
+        final DominatorTree tree = new DominatorTree(graph, dist, false);
+        assertSame(dist, tree.getRoot());
+        assertNull(tree.getImmediateDominator(dist));
+        assertSame(dist, tree.getImmediateDominator(core));
+        assertSame(core, tree.getImmediateDominator(a));
+        assertSame(a, tree.getImmediateDominator(b));
+        assertSame(dist, tree.getImmediateDominator(init));
+        assertFalse(tree.isReachable(called));
+        assertNull(tree.getImmediateDominator(called));
+        assertEquals(Arrays.asList(dist, core, a, b), tree.getDominators(b));
+        assertTrue(tree.dominates(core, b));
+        assertTrue(tree.dominates(b, b));
+        assertFalse(tree.dominates(jar, core));
+        assertFalse(tree.dominates(dist, called));
+        assertEquals(6, tree.getDominatedCount(dist));
+        assertEquals(2, tree.getDominatedCount(core));
+        assertEquals(7, tree.getReachableNodes().size());
+
+        tree.markDominators(b);
+        assertTrue(a.hasAttributes(Node.ATTR_DOMINATOR_NODE));
+        assertFalse(b.hasAttributes(Node.ATTR_DOMINATOR_NODE));
+        assertFalse(jar.hasAttributes(Node.ATTR_DOMINATOR_NODE));
+
+        final DominatorTree weak = new DominatorTree(graph, docs, true);
+        assertSame(docs, weak.getImmediateDominator(called));
+        assertFalse(weak.isReachable(jar));
+    }
+
+    /**
+     * Compares the immediate dominators of a random graph with a quadratic
+     * reference implementation.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testRandomGraph() throws GrandException {
+        final int nodeCount = 200;
+        final GraphImpl graph = new GraphImpl("random");
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("node" + i);
+        }
+        final Random random = new Random(1);
+        for (int i = 0; i < nodeCount * 2; i++) {
+            graph.createLink(null, nodes[random.nextInt(nodeCount)],
+                    nodes[random.nextInt(nodeCount)]);
+        }
+
+        final DominatorTree tree = new DominatorTree(graph, nodes[0], false);
+        final Set<Node> reachable = reach(nodes[0], null);
+        for (final Node node : nodes) {
+            assertEquals(node.getName(), reachable.contains(node), tree.isReachable(node));
+            if (!reachable.contains(node)) {
+                continue;
+            }
+            for (final Node other : nodes) {
+                final boolean dominates = (other == node) || (other == nodes[0])
+                        || (reachable.contains(other) && !reach(nodes[0], other).contains(node));
+                assertEquals(other + " dominates " + node, dominates,
+                        tree.dominates(other, node));
+            }
+        }
+    }
+
+    /**
+     * Returns the nodes reachable from a node.
+     * @param start the start node.
+     * @param removed a node not to go through, may be <code>null</code>.
+     * @return the reachable nodes.
+     */
+    private static Set<Node> reach(final Node start, final Node removed) {
+        final Set<Node> visited = new HashSet<Node>();
+        final LinkedList<Node> queue = new LinkedList<Node>();
+        visited.add(start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            for (final Link link : queue.removeFirst().getLinks()) {
+                if ((link.getEndNode() != removed) && visited.add(link.getEndNode())) {
+                    queue.add(link.getEndNode());
+                }
+            }
+        }
+        return visited;
+    }
+}
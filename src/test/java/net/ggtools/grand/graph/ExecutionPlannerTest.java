@@ -0,0 +1,205 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.GrandException;
+
+/**
+ * Tests for ExecutionPlanner.
+ *
+ * @author Christophe Labouisse
+ */
+public class ExecutionPlannerTest {
+
+    /**
+     * Checks the levels of a small graph.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testLevels() throws GrandException {
+        final GraphImpl graph = new GraphImpl("levels");
+        final Node init = graph.createNode("init");
+        final Node compile = graph.createNode("compile");
+        final Node resources = graph.createNode("resources");
+        final Node jar = graph.createNode("jar");
+        final Node javadoc = graph.createNode("javadoc");
+        final Node dist = graph.createNode("dist");
+        final Node unrelated = graph.createNode("unrelated");
+        graph.createLink(null, compile, init);
+        graph.createLink(null, resources, init);
+        graph.createLink(null, jar, compile);
+        graph.createLink(null, jar, resources);
+        graph.createLink(null, javadoc, init);
+        graph.createLink(null, dist, jar);
+        graph.createLink(null, dist, javadoc);
+
+        final ExecutionPlan plan = new ExecutionPlanner(graph).plan(dist);
+        assertEquals(4, plan.getLevelCount());
+        assertEquals(Arrays.asList(init), plan.getLevels().get(0));
+        assertEquals(Arrays.asList(compile, resources, javadoc), plan.getLevels().get(1));
+        assertEquals(Arrays.asList(jar), plan.getLevels().get(2));
+        assertEquals(Arrays.asList(dist), plan.getLevels().get(3));
+        assertEquals(3, plan.getWidth());
+        assertEquals(6, plan.getNodeCount());
+        assertEquals(-1, plan.getLevel(unrelated));
+        assertEquals(4, plan.getLongestChain().size());
+        assertEquals(init, plan.getLongestChain().get(0));
+        assertEquals(dist, plan.getLongestChain().get(3));
+        assertFalse(plan.hasCycles());
+        assertEquals(Arrays.asList(dist), plan.getTargets());
+
+        final ExecutionPlan all = new ExecutionPlanner(graph).planAll();
+        assertEquals(7, all.getNodeCount());
+        assertEquals(0, all.getLevel(unrelated));
+    }
+
+    /**
+     * Compares the levels of a random acyclic graph with a reference
+     * implementation.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testRandomGraph() throws GrandException {
+        final int nodeCount = 2000;
+        final GraphImpl graph = new GraphImpl("random");
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("node" + i);
+        }
+        final Random random = new Random(1);
+        for (int i = 1; i < nodeCount; i++) {
+            for (int j = random.nextInt(4); j > 0; j--) {
+                graph.createLink(null, nodes[i], nodes[random.nextInt(i)]);
+            }
+        }
+
+        final ExecutionPlan plan = new ExecutionPlanner(graph).plan(nodes[nodeCount - 1]);
+        final Map<Node, Integer> reference = new HashMap<Node, Integer>();
+        for (final Node node : nodes) {
+            int level = 0;
+            for (final Link link : node.getLinks()) {
+                level = Math.max(level, reference.get(link.getEndNode()) + 1);
+            }
+            reference.put(node, level);
+        }
+        for (int l = 0; l < plan.getLevelCount(); l++) {
+            for (final Node node : plan.getLevels().get(l)) {
+                assertEquals(reference.get(node).intValue(), l);
+                assertEquals(l, plan.getLevel(node));
+            }
+        }
+        assertEquals(reference.get(nodes[nodeCount - 1]) + 1, plan.getLevelCount());
+
+        final List<Node> chain = plan.getLongestChain();
+        assertEquals(plan.getLevelCount(), chain.size());
+        for (int i = 1; i < chain.size(); i++) {
+            boolean linked = false;
+            for (final Link link : chain.get(i).getLinks()) {
+                linked |= link.getEndNode() == chain.get(i - 1);
+            }
+            assertTrue("Chain should follow links", linked);
+        }
+    }
+
+    /**
+     * Checks cycles and weak links.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testWeakLinksAndCycles() throws GrandException {
+        final GraphImpl graph = new GraphImpl("weak");
+        final Node init = graph.createNode("init");
+        final Node dist = graph.createNode("dist");
+        final Node pack = graph.createNode("package");
+        final Node docs = graph.createNode("docs");
+        graph.createLink(null, dist, init);
+        graph.createLink(null, pack, init);
+        graph.createLink(null, dist, pack).setAttributes(Link.ATTR_WEAK_LINK);
+        graph.createLink(null, docs, dist).setAttributes(Link.ATTR_WEAK_LINK);
+
+        final ExecutionPlanner planner = new ExecutionPlanner(graph);
+        ExecutionPlan plan = planner.plan(dist);
+        assertEquals(2, plan.getNodeCount());
+        assertEquals(-1, plan.getLevel(pack));
+
+        planner.setIncludeWeakLinks(true);
+        plan = planner.plan(dist);
+        assertEquals(3, plan.getNodeCount());
+        assertEquals(1, plan.getLevel(pack));
+        assertEquals(2, plan.getLevel(dist));
+        assertFalse(plan.hasCycles());
+
+        graph.createLink(null, pack, docs);
+        plan = new ExecutionPlanner(graph).planAll();
+        assertFalse(plan.hasCycles());
+        final ExecutionPlanner weakPlanner = new ExecutionPlanner(graph);
+        weakPlanner.setIncludeWeakLinks(true);
+        plan = weakPlanner.planAll();
+        assertTrue(plan.hasCycles());
+        assertEquals(plan.getLevel(dist), plan.getLevel(pack));
+        assertEquals(plan.getLevel(dist), plan.getLevel(docs));
+    }
+
+    /**
+     * Plans a large graph.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testLargeGraph() throws GrandException {
+        final int nodeCount = 200000;
+        final GraphImpl graph = new GraphImpl("large");
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("node" + i);
+            if (i > 0) {
+                graph.createLink(null, nodes[i], nodes[i - 1]);
+            }
+            if (i > 1) {
+                graph.createLink(null, nodes[i], nodes[i / 2]);
+            }
+        }
+
+        final ExecutionPlan plan = new ExecutionPlanner(graph).plan(nodes[nodeCount - 1]);
+        assertEquals(nodeCount, plan.getLevelCount());
+        assertEquals(1, plan.getWidth());
+        assertEquals(nodeCount, plan.getLongestChain().size());
+    }
+}
@@ -0,0 +1,335 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.tools.ant.Project;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntGraph;
+import net.ggtools.grand.ant.AntLink;
+import net.ggtools.grand.ant.AntTargetNode;
+import net.ggtools.grand.ant.AntTaskLink;
+import net.ggtools.grand.ant.SubantTaskLink;
+import net.ggtools.grand.exceptions.DuplicateElementException;
+import net.ggtools.grand.graph.visit.LinkVisitor;
+import net.ggtools.grand.graph.visit.NodeVisitor;
+
+/**
+ * Tests frozen graphs and {@link FilteredGraphView}.
+ *
+ * @author Christophe Labouisse
+ */
+public class FilteredGraphViewTest {
+
+    /**
+     * Field graph.
+     */
+    private GraphImpl graph;
+
+    /**
+     * Field nodeA.
+     */
+    private Node nodeA;
+
+    /**
+     * Field nodeB.
+     */
+    private Node nodeB;
+
+    /**
+     * Field nodeC.
+     */
+    private Node nodeC;
+
+    /**
+     * Field nodeD.
+     */
+    private Node nodeD;
+
+    /**
+     * Method setUp.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Before
+    public final void setUp() throws DuplicateElementException {
+        graph = new GraphImpl("view");
+        nodeA = graph.createNode("A");
+        nodeB = graph.createNode("B");
+        nodeC = graph.createNode("C");
+        nodeD = graph.createNode("D");
+        graph.createLink("ab", nodeA, nodeB);
+        graph.createLink("ac", nodeA, nodeC);
+        graph.createLink("bd", nodeB, nodeD);
+        graph.createLink("cd", nodeC, nodeD);
+        nodeB.setAttributes(Node.ATTR_MAIN_NODE);
+        graph.setStartNode(nodeA);
+        graph.freeze();
+    }
+
+    /**
+     * Method testFrozenNode.
+     */
+    @Test(expected = IllegalStateException.class)
+    public final void testFrozenNode() {
+        nodeA.setAttributes(Node.ATTR_MISSING_NODE);
+    }
+
+    /**
+     * Method testFrozenLinks.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public final void testFrozenLinks() {
+        nodeA.getLinks().clear();
+    }
+
+    /**
+     * Method testFrozenGraph.
+     */
+    @Test(expected = IllegalStateException.class)
+    public final void testFrozenGraph() {
+        final Iterator<Node> iter = graph.getNodes();
+        iter.next();
+        iter.remove();
+    }
+
+    /**
+     * Method testView.
+     */
+    @Test
+    public final void testView() {
+        final Graph view = FilteredGraphView.restrict(graph, Arrays.asList(nodeA, nodeB, nodeD));
+        assertEquals("Nodes", "[A, B, D]", names(view.getNodes()));
+        assertNull("Hidden node", view.getNode("C"));
+        assertFalse("Hidden node", view.hasNode("C"));
+
+        final Node viewA = view.getNode("A");
+        assertSame("Start node", viewA, view.getStartNode());
+        assertSame("Owner graph", view, viewA.getGraph());
+        assertEquals("A links", "[ab (A -> B)]", viewA.getLinks().toString());
+        assertEquals("D back links", 1, view.getNode("D").getBackLinks().size());
+        final Link link = viewA.getLinks().iterator().next();
+        assertSame("End node", view.getNode("B"), link.getEndNode());
+        assertSame("Start node", viewA, link.getStartNode());
+
+        assertEquals("Base graph nodes", "[A, B, C, D]", names(graph.getNodes()));
+        assertEquals("Base graph links", 2, nodeA.getLinks().size());
+    }
+
+    /**
+     * Method testViewOfView.
+     */
+    @Test
+    public final void testViewOfView() {
+        final Graph view = FilteredGraphView.restrict(graph, Arrays.asList(nodeB, nodeC, nodeD));
+        assertNull("Start node", view.getStartNode());
+        final Collection<Node> nodes = new ArrayList<Node>();
+        nodes.add(view.getNode("C"));
+        nodes.add(view.getNode("D"));
+        nodes.add(nodeA);
+        final FilteredGraphView subView = FilteredGraphView.restrict(view, nodes);
+        assertSame("Base graph", graph, subView.getBaseGraph());
+        assertEquals("Nodes", "[C, D]", names(subView.getNodes()));
+        assertEquals("C links", "[cd (C -> D)]", subView.getNode("C").getLinks().toString());
+        assertSame("Base node", nodeC, subView.getBaseNode(subView.getNode("C")));
+    }
+
+    /**
+     * Method testHideLinks.
+     */
+    @Test
+    public final void testHideLinks() {
+        final Graph view = FilteredGraphView.restrict(graph, Arrays.asList(nodeA, nodeB, nodeC));
+        final Link ab = view.getNode("A").getLinks().iterator().next();
+        final FilteredGraphView hidden = FilteredGraphView.hideLinks(view, Arrays.asList(ab));
+        assertEquals("Nodes", "[A, B, C]", names(hidden.getNodes()));
+        assertEquals("A links", "[ac (A -> C)]", hidden.getNode("A").getLinks().toString());
+        assertEquals("B back links", 0, hidden.getNode("B").getBackLinks().size());
+        assertEquals("Base graph links", 2, nodeA.getLinks().size());
+
+        final FilteredGraphView subView = FilteredGraphView.restrict(hidden,
+                Arrays.asList(hidden.getNode("A"), hidden.getNode("B")));
+        assertEquals("Links stay hidden", 0, subView.getNode("A").getLinks().size());
+    }
+
+    /**
+     * Method testRemoveFromView.
+     */
+    @Test
+    public final void testRemoveFromView() {
+        final Graph view = new FilteredGraphView(graph);
+        for (final Iterator<Node> iter = view.getNodes(); iter.hasNext();) {
+            if ("B".equals(iter.next().getName())) {
+                iter.remove();
+            }
+        }
+        assertEquals("Nodes", "[A, C, D]", names(view.getNodes()));
+        assertEquals("A links", 1, view.getNode("A").getLinks().size());
+        assertEquals("Base nodes", "[A, B, C, D]", names(graph.getNodes()));
+    }
+
+    /**
+     * Method testViewAttributes.
+     */
+    @Test
+    public final void testViewAttributes() {
+        final FilteredGraphView view = new FilteredGraphView(graph);
+        final Node viewC = view.getNode("C");
+        viewC.setAttributes(Node.ATTR_MAIN_NODE);
+        view.getNode("B").clearAttributes(Node.ATTR_MAIN_NODE);
+        assertEquals("Main nodes", "[C]",
+                names(view.getNodesWithAttributes(Node.ATTR_MAIN_NODE).iterator()));
+        assertEquals("Other nodes", "[A, B, D]",
+                names(view.getNodesWithoutAttributes(Node.ATTR_MAIN_NODE).iterator()));
+        assertTrue("View set contains", view.getNodesWithAttributes(Node.ATTR_MAIN_NODE)
+                .contains(viewC));
+        assertFalse("Base node not changed", nodeC.hasAttributes(Node.ATTR_MAIN_NODE));
+
+        final FilteredGraphView subView = FilteredGraphView.restrict(view,
+                view.getNodesWithoutAttributes(Node.ATTR_START_NODE));
+        assertTrue("Attributes kept", subView.getNode("C").hasAttributes(Node.ATTR_MAIN_NODE));
+        assertEquals("Nodes", "[B, C, D]", names(subView.getNodes()));
+    }
+
+    /**
+     * Checks that the nodes of a view on an Ant graph are visited as
+     * {@link AntTargetNode}s with the view's links and attributes.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Test
+    public final void testVisitAntNode() throws DuplicateElementException {
+        final AntGraph antGraph = new AntGraph(new Project());
+        final Node compile = antGraph.createNode("compile");
+        antGraph.createLink(null, compile, antGraph.createNode("init"));
+        antGraph.createTaskLink(null, compile, antGraph.createNode("clean"),
+                "antcall");
+        final FilteredGraphView view = FilteredGraphView.restrict(antGraph,
+                Arrays.asList(compile, antGraph.getNode("clean")));
+        view.getNode("compile").setAttributes(Node.ATTR_CYCLIC_NODE);
+        view.getNode("compile").getLinks().iterator().next()
+                .setAttributes(Link.ATTR_CYCLIC_LINK);
+
+        final List<String> visited = new ArrayList<String>();
+        view.getNode("compile").accept(new NodeVisitor() {
+            public void visitNode(final Node node) {
+                visited.add("node " + node);
+            }
+
+            public void visitNode(final AntTargetNode node) {
+                visited.add("ant node " + node + " "
+                        + node.hasAttributes(Node.ATTR_CYCLIC_NODE));
+                for (final Link link : node.getLinks()) {
+                    link.accept(new LinkVisitor() {
+                        public void visitLink(final Link l) {
+                            visited.add("link " + l);
+                        }
+
+                        public void visitLink(final AntLink l) {
+                            visited.add("ant link " + l);
+                        }
+
+                        public void visitLink(final AntTaskLink l) {
+                            visited.add("task link " + l.getTaskName() + " "
+                                    + l.getEndNode() + " "
+                                    + l.hasAttributes(Link.ATTR_CYCLIC_LINK));
+                        }
+
+                        public void visitLink(final SubantTaskLink l) {
+                            visited.add("subant link " + l);
+                        }
+                    });
+                }
+            }
+        });
+        assertEquals("[ant node compile true, task link antcall clean true]",
+                visited.toString());
+        assertFalse("Base node not changed",
+                compile.hasAttributes(Node.ATTR_CYCLIC_NODE));
+        assertSame("Unwrapped node", compile,
+                FilteredGraphView.unwrap(view.getNode("compile")));
+    }
+
+    /**
+     * Checks that view nodes and other nodes of the view with the same name
+     * are equal and have the same hash.
+     */
+    @Test
+    public final void testNodeEquality() {
+        final FilteredGraphView view = new FilteredGraphView(graph);
+        final Node viewA = view.getNode("A");
+        final Node detached = new NodeImpl("A", view);
+        assertEquals("Node equals wrapper", detached, viewA);
+        assertEquals("Wrapper equals node", viewA, detached);
+        assertEquals("Hash codes", viewA.hashCode(), detached.hashCode());
+        assertEquals("Base hash code", nodeA.hashCode(), viewA.hashCode());
+        assertFalse("Different graphs", viewA.equals(nodeA));
+    }
+
+    /**
+     * Method testSnapshot.
+     * @throws Exception if the snapshot fails
+     */
+    @Test
+    public final void testSnapshot() throws Exception {
+        final GraphImpl other = new GraphImpl("other");
+        final GraphSnapshot snapshot = new GraphSnapshot(new GraphProducer() {
+            public Graph getGraph() {
+                return other;
+            }
+        });
+        assertSame("Snapshot graph", other, snapshot.getGraph());
+        assertTrue("Graph should be frozen", other.isFrozen());
+    }
+
+    /**
+     * Returns the names of nodes as a string.
+     *
+     * @param iter an iterator on the nodes.
+     * @return the names.
+     */
+    private static String names(final Iterator<Node> iter) {
+        final List<String> names = new ArrayList<String>();
+        while (iter.hasNext()) {
+            names.add(iter.next().getName());
+        }
+        return names.toString();
+    }
+}
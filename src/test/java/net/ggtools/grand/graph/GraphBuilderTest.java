@@ -0,0 +1,152 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.DuplicateElementException;
+
+/**
+ * Tests {@link GraphBuilder}.
+ *
+ * @author Christophe Labouisse
+ */
+public class GraphBuilderTest {
+
+    /**
+     * Field builder.
+     */
+    private GraphBuilder builder;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        builder = new GraphBuilder(new GraphImpl("builder"));
+    }
+
+    /**
+     * Method testDuplicateFail.
+     * @throws DuplicateElementException expected
+     */
+    @Test(expected = DuplicateElementException.class)
+    public final void testDuplicateFail() throws DuplicateElementException {
+        builder.addNode("A", Node.ATTR_NONE, null);
+        builder.addNode("A", Node.ATTR_NONE, null);
+    }
+
+    /**
+     * Method testDuplicateKeepFirst.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Test
+    public final void testDuplicateKeepFirst() throws DuplicateElementException {
+        builder.setDuplicatePolicy(GraphBuilder.DuplicatePolicy.KEEP_FIRST);
+        final Node first = builder.addNode("A", Node.ATTR_NONE, "first");
+        final Node second = builder.addNode("A", Node.ATTR_MAIN_NODE, "second");
+        assertSame(first, second);
+        assertEquals("first", first.getDescription());
+        assertEquals(Node.ATTR_NONE, first.getAttributes());
+    }
+
+    /**
+     * Method testDuplicateMerge.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Test
+    public final void testDuplicateMerge() throws DuplicateElementException {
+        builder.setDuplicatePolicy(GraphBuilder.DuplicatePolicy.MERGE);
+        final Node first = builder.addNode("A", Node.ATTR_NONE, null);
+        final Node second = builder.addNode("A", Node.ATTR_MAIN_NODE, "second");
+        assertSame(first, second);
+        assertEquals("second", first.getDescription());
+        assertTrue(first.hasAttributes(Node.ATTR_MAIN_NODE));
+        assertEquals(1, builder.getGraph().getNodesWithAttributes(Node.ATTR_MAIN_NODE).size());
+    }
+
+    /**
+     * Method testBuildCreatesLinksAndMissingNodes.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Test
+    public final void testBuildCreatesLinksAndMissingNodes()
+            throws DuplicateElementException {
+        final Node[] nodes = builder.addNodes(new String[]{"A", "B", "C"}, Node.ATTR_NONE);
+        builder.addLinks("A", Arrays.asList("C", "B", "D"), null);
+        builder.addLink("named", "B", "C");
+        assertTrue(nodes[0].getLinks().isEmpty());
+
+        final GraphImpl graph = builder.build();
+        final Node nodeD = graph.getNode("D");
+        assertTrue(nodeD.hasAttributes(Node.ATTR_MISSING_NODE));
+
+        final Iterator<Link> iter = nodes[0].getLinks().iterator();
+        assertSame(nodes[2], iter.next().getEndNode());
+        assertSame(nodes[1], iter.next().getEndNode());
+        assertSame(nodeD, iter.next().getEndNode());
+        assertEquals(2, nodes[2].getBackLinks().size());
+        assertEquals("named", nodes[1].getLinks().iterator().next().getName());
+        assertEquals(4, graph.getLinksWithAttributes(Link.ATTR_NONE).size());
+    }
+
+    /**
+     * Method testLinkKind.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Test
+    public final void testLinkKind() throws DuplicateElementException {
+        final GraphImpl graph = new GraphImpl("compact", true);
+        builder = new GraphBuilder(graph);
+        builder.ensureCapacity(2, 1);
+        builder.addNode("A", Node.ATTR_NONE, null);
+        builder.addNode("B", Node.ATTR_NONE, null);
+        builder.addLink(null, "A", "B", new LinkKind() {
+            public Link createLink(final String linkName, final Node startNode,
+                    final Node endNode) {
+                final Link link = new LinkImpl(linkName, graph, startNode, endNode);
+                link.setAttributes(Link.ATTR_WEAK_LINK);
+                return link;
+            }
+        });
+        builder.build();
+        final Link link = graph.getNode("A").getLinks().iterator().next();
+        assertSame(graph.getNode("B"), link.getEndNode());
+        assertTrue(link.hasAttributes(Link.ATTR_WEAK_LINK));
+        assertEquals(1, graph.getLinksWithAttributes(Link.ATTR_WEAK_LINK).size());
+    }
+}
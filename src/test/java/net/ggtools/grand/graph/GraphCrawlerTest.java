@@ -32,12 +32,23 @@
 package net.ggtools.grand.graph;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -105,4 +116,241 @@ public class GraphCrawlerTest extends AbstractAntTester {
         }
 
     }
+
+    /**
+     * Method testCrawlOrder.
+     * @throws GrandException if {@link GraphProducer#getGraph()} fails
+     */
+    @Test
+    public final void testCrawlOrder() throws GrandException {
+        final Graph graph = producer.getGraph();
+        final LinkFinder[] finders = {new ForwardLinkFinder(),
+                new BackwardLinkFinder(), new ConnectedNodesFinder()};
+        for (final LinkFinder finder : finders) {
+            for (final String nodeName : new String[] {"build", "init", "jmx"}) {
+                final Node startNode = graph.getNode(nodeName);
+                final Collection<Node> expected = referenceCrawl(finder, startNode);
+                assertEquals("Crawl order from " + nodeName,
+                        new ArrayList<Node>(expected),
+                        new ArrayList<Node>(new GraphCrawler(graph, finder).crawl(startNode)));
+            }
+        }
+    }
+
+    /**
+     * Method testPlainLinkFinder.
+     * @throws GrandException if {@link GraphProducer#getGraph()} fails
+     */
+    @Test
+    public final void testPlainLinkFinder() throws GrandException {
+        final Graph graph = producer.getGraph();
+        final LinkFinder forward = new ForwardLinkFinder();
+        final LinkFinder plainFinder = new LinkFinder() {
+            public Collection<Node> getLinks(final Node node) {
+                return forward.getLinks(node);
+            }
+        };
+        final Node startNode = graph.getNode("build");
+        final Collection<Node> result = new GraphCrawler(graph, plainFinder).crawl(startNode);
+        assertEquals(new ArrayList<Node>(referenceCrawl(forward, startNode)),
+                new ArrayList<Node>(result));
+        assertTrue(result.contains(graph.getNode("jmxCheck")));
+        assertFalse(result.contains(graph.getNode("dist")));
+    }
+
+    /**
+     * Method testReaches.
+     * @throws GrandException if {@link GraphProducer#getGraph()} fails
+     */
+    @Test
+    public final void testReaches() throws GrandException {
+        final Graph graph = producer.getGraph();
+        final GraphCrawler crawler = new GraphCrawler(graph, new ForwardLinkFinder());
+        assertTrue(crawler.reaches(graph.getNode("build"), graph.getNode("jmxCheck")));
+        assertTrue(crawler.reaches(graph.getNode("build"), graph.getNode("build")));
+        assertFalse(crawler.reaches(graph.getNode("init"), graph.getNode("build")));
+    }
+
+    /**
+     * Method testEarlyTermination.
+     * @throws GrandException if {@link GraphProducer#getGraph()} fails
+     */
+    @Test
+    public final void testEarlyTermination() throws GrandException {
+        final Graph graph = producer.getGraph();
+        final Node build = graph.getNode("build");
+        final List<Node> received = new ArrayList<Node>();
+        final boolean completed = new ForwardLinkFinder().forEachNeighbour(build,
+                new NodeConsumer() {
+                    public boolean accept(final Node node) {
+                        received.add(node);
+                        return received.size() < 2;
+                    }
+                });
+        assertFalse("Enumeration should have been stopped", completed);
+        assertEquals(2, received.size());
+        assertEquals(new ArrayList<Node>(new ForwardLinkFinder().getLinks(build))
+                .subList(0, 2), received);
+    }
+
+    /**
+     * Method testParallelCrawl.
+     * @throws GrandException if {@link GraphProducer#getGraph()} fails
+     */
+    @Test
+    public final void testParallelCrawl() throws GrandException {
+        final Graph graph = ((GraphImpl) producer.getGraph()).freeze();
+        final LinkFinder[] finders = {new ForwardLinkFinder(),
+                new BackwardLinkFinder(), new ConnectedNodesFinder()};
+        for (final LinkFinder finder : finders) {
+            final GraphCrawler crawler = new GraphCrawler(graph, finder);
+            crawler.setParallelThreshold(0);
+            crawler.setThreads(4);
+            for (final String nodeName : new String[] {"build", "init", "jmx"}) {
+                final Node startNode = graph.getNode(nodeName);
+                assertEquals("Crawl from " + nodeName,
+                        new HashSet<Node>(referenceCrawl(finder, startNode)),
+                        new HashSet<Node>(crawler.crawl(startNode)));
+            }
+        }
+    }
+
+    /**
+     * Method testParallelCrawlLargeGraph.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testParallelCrawlLargeGraph() throws GrandException {
+        final int nodeCount = 20000;
+        final Node[] nodes = createLargeGraph(nodeCount, true);
+        final Graph graph = nodes[0].getGraph();
+
+        final LinkFinder finder = new ConnectedNodesFinder();
+        final GraphCrawler crawler = new GraphCrawler(graph, finder);
+        crawler.setParallelThreshold(nodeCount);
+        crawler.setThreads(4);
+        final Collection<Node> result = crawler.crawl(nodes[0]);
+        final Collection<Node> expected = referenceCrawl(finder, nodes[0]);
+        assertTrue("Crawl should reach most nodes", expected.size() > nodeCount / 2);
+        assertEquals(expected.size(), result.size());
+        assertEquals(expected, new HashSet<Node>(result));
+        for (final Node node : expected) {
+            assertTrue(result.contains(node));
+        }
+
+        final List<Node> startNodes = Arrays.asList(nodes[0], nodes[1]);
+        final GraphCrawler sequentialCrawler = new GraphCrawler(graph, finder);
+        sequentialCrawler.setThreads(1);
+        final Collection<Node> bounded = sequentialCrawler.crawl(startNodes, 3);
+        assertTrue("Depth should limit the walk", bounded.size() < expected.size());
+        assertEquals(new HashSet<Node>(bounded),
+                new HashSet<Node>(crawler.crawl(startNodes, 3)));
+    }
+
+    /**
+     * Method testExecutor.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testExecutor() throws GrandException {
+        final AtomicInteger executed = new AtomicInteger();
+        final ExecutorService executor = new ThreadPoolExecutor(2, 2, 0,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>()) {
+            @Override
+            protected void beforeExecute(final Thread thread, final Runnable runnable) {
+                executed.incrementAndGet();
+                super.beforeExecute(thread, runnable);
+            }
+        };
+        try {
+            final LinkFinder finder = new ConnectedNodesFinder();
+            final Node[] frozenNodes = createLargeGraph(20000, true);
+            final GraphCrawler crawler =
+                    new GraphCrawler(frozenNodes[0].getGraph(), finder);
+            crawler.setParallelThreshold(0);
+            crawler.setThreads(4);
+            crawler.setExecutor(executor);
+            final Collection<Node> result = crawler.crawl(frozenNodes[0]);
+            assertTrue("Crawl should use the executor", executed.get() > 0);
+            assertFalse("Executor should not be shut down", executor.isShutdown());
+            assertEquals(result.size(), crawler.crawl(frozenNodes[0]).size());
+
+            final FilteredGraphView view =
+                    new FilteredGraphView((GraphImpl) frozenNodes[0].getGraph());
+            final GraphCrawler viewCrawler = new GraphCrawler(view, finder);
+            viewCrawler.setParallelThreshold(0);
+            viewCrawler.setThreads(4);
+            viewCrawler.setExecutor(executor);
+            int executedBefore = executed.get();
+            final Collection<Node> viewResult =
+                    viewCrawler.crawl(view.getNode(frozenNodes[0].getName()));
+            assertTrue("Views on frozen graphs should be crawled in parallel",
+                    executed.get() > executedBefore);
+            assertEquals(result.size(), viewResult.size());
+            assertEquals(new HashSet<Node>(viewResult),
+                    new HashSet<Node>(referenceCrawl(finder,
+                            view.getNode(frozenNodes[0].getName()))));
+
+            final Node[] nodes = createLargeGraph(20000, false);
+            final GraphCrawler unfrozenCrawler = new GraphCrawler(nodes[0].getGraph(),
+                    finder);
+            unfrozenCrawler.setParallelThreshold(0);
+            unfrozenCrawler.setThreads(4);
+            unfrozenCrawler.setExecutor(executor);
+            executedBefore = executed.get();
+            assertEquals(result.size(), unfrozenCrawler.crawl(nodes[0]).size());
+            assertEquals("Unfrozen graphs should be crawled sequentially",
+                    executedBefore, executed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a graph where each node has up to 3 links to random nodes.
+     *
+     * @param nodeCount the number of nodes.
+     * @param frozen <code>true</code> to freeze the graph.
+     * @return the nodes.
+     * @throws GrandException if a node is created twice
+     */
+    private static Node[] createLargeGraph(final int nodeCount, final boolean frozen)
+            throws GrandException {
+        final GraphImpl graph = new GraphImpl("large");
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("node" + i);
+        }
+        final Random random = new Random(1);
+        for (int i = 0; i < nodeCount; i++) {
+            for (int j = random.nextInt(4); j > 0; j--) {
+                graph.createLink(null, nodes[i], nodes[random.nextInt(nodeCount)]);
+            }
+        }
+        if (frozen) {
+            graph.freeze();
+        }
+        return nodes;
+    }
+
+    /**
+     * Crawls a graph keeping every found node in the work queue.
+     *
+     * @param finder the link finder.
+     * @param startNode the node to start from.
+     * @return the visited nodes.
+     */
+    private static Collection<Node> referenceCrawl(final LinkFinder finder,
+            final Node startNode) {
+        final Set<Node> result = new LinkedHashSet<Node>();
+        final LinkedList<Node> nodesToVisit = new LinkedList<Node>();
+        nodesToVisit.add(startNode);
+        while (!nodesToVisit.isEmpty()) {
+            final Node current = nodesToVisit.removeFirst();
+            if (result.add(current)) {
+                nodesToVisit.addAll(finder.getLinks(current));
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,239 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.tools.ant.Project;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntGraph;
+import net.ggtools.grand.ant.AntTaskLink;
+import net.ggtools.grand.ant.SubantTaskLink;
+import net.ggtools.grand.exceptions.GrandException;
+
+/**
+ * Tests {@link GraphDiff}.
+ *
+ * @author Christophe Labouisse
+ */
+public class GraphDiffTest {
+
+    /**
+     * Field oldGraph.
+     */
+    private GraphImpl oldGraph;
+
+    /**
+     * Field newGraph.
+     */
+    private GraphImpl newGraph;
+
+    /**
+     * Method setUp.
+     * @throws GrandException if a node is created twice
+     */
+    @Before
+    public final void setUp() throws GrandException {
+        oldGraph = createGraph();
+        newGraph = createGraph();
+    }
+
+    /**
+     * Method testSameGraph.
+     */
+    @Test
+    public final void testSameGraph() {
+        assertTrue("No difference expected",
+                new GraphDiff(oldGraph, newGraph).isEmpty());
+    }
+
+    /**
+     * Method testLinkOrder.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testLinkOrder() throws GrandException {
+        final GraphImpl reordered = new GraphImpl("test");
+        final Node a = reordered.createNode("A");
+        final Node b = reordered.createNode("B");
+        final Node c = reordered.createNode("C");
+        reordered.createLink(null, a, c);
+        reordered.createLink(null, a, b);
+        reordered.createLink(null, b, c);
+        reordered.setStartNode(a);
+        assertTrue("Link order should not matter",
+                new GraphDiff(oldGraph, reordered).isEmpty());
+    }
+
+    /**
+     * Method testAddedAndRemovedNodes.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testAddedAndRemovedNodes() throws GrandException {
+        final Node d = newGraph.createNode("D");
+        final Link link = newGraph.createLink(null, d, newGraph.getNode("A"));
+        final Node e = oldGraph.createNode("E");
+        final Link oldLink = oldGraph.createLink(null, oldGraph.getNode("B"), e);
+
+        final GraphDiff diff = new GraphDiff(oldGraph, newGraph);
+        assertEquals(Arrays.asList(d), diff.getAddedNodes());
+        assertEquals(Arrays.asList(e), diff.getRemovedNodes());
+        assertEquals(Arrays.asList(link), diff.getAddedLinks());
+        assertEquals(Arrays.asList(oldLink), diff.getRemovedLinks());
+        assertTrue(diff.getAttributeChangedNodes().isEmpty());
+        assertTrue(diff.getSourceChangedNodes().isEmpty());
+    }
+
+    /**
+     * Method testChangedNodes.
+     */
+    @Test
+    public final void testChangedNodes() {
+        final Node b = newGraph.getNode("B");
+        final Node c = newGraph.getNode("C");
+        b.setAttributes(Node.ATTR_MAIN_NODE);
+        ((NodeImpl) c).setSource("<target name=\"C\"/>");
+
+        final GraphDiff diff = new GraphDiff(oldGraph, newGraph);
+        assertEquals(Arrays.asList(b), diff.getAttributeChangedNodes());
+        assertEquals(Arrays.asList(c), diff.getSourceChangedNodes());
+        assertTrue(diff.getAddedNodes().isEmpty());
+        assertTrue(diff.getAddedLinks().isEmpty());
+    }
+
+    /**
+     * Method testChangedLinks.
+     */
+    @Test
+    public final void testChangedLinks() {
+        final Node a = newGraph.getNode("A");
+        final Link weak = a.getLinks().iterator().next();
+        weak.setAttributes(Link.ATTR_WEAK_LINK);
+        final Link duplicate = newGraph.createLink(null, a, newGraph.getNode("C"));
+
+        final GraphDiff diff = new GraphDiff(oldGraph, newGraph);
+        assertEquals(Arrays.asList(weak, duplicate), diff.getAddedLinks());
+        final List<Link> removed = diff.getRemovedLinks();
+        assertEquals(1, removed.size());
+        assertEquals("A", removed.get(0).getStartNode().getName());
+        assertEquals("B", removed.get(0).getEndNode().getName());
+        assertFalse(removed.get(0).hasAttributes(Link.ATTR_WEAK_LINK));
+    }
+
+    /**
+     * Method testDiffGraph.
+     * @throws GrandException if the diff graph cannot be created
+     */
+    @Test
+    public final void testDiffGraph() throws GrandException {
+        newGraph.createLink(null, newGraph.createNode("D"), newGraph.getNode("A"));
+        oldGraph.createNode("E");
+        newGraph.getNode("B").setAttributes(Node.ATTR_MAIN_NODE);
+        newGraph.setStartNode(newGraph.getNode("D"));
+
+        final Graph graph = new GraphDiff(oldGraph, newGraph).getGraph();
+        assertTrue(graph.getNode("D").hasAttributes(Node.ATTR_ADDED_NODE));
+        assertTrue(graph.getNode("D").hasAttributes(Node.ATTR_START_NODE));
+        assertTrue(graph.getNode("E").hasAttributes(Node.ATTR_REMOVED_NODE));
+        assertTrue(graph.getNode("B").hasAttributes(Node.ATTR_CHANGED_NODE
+                | Node.ATTR_MAIN_NODE));
+        assertFalse(graph.getNode("A").hasAttributes(Node.ATTR_START_NODE));
+        assertEquals(Node.ATTR_NONE, graph.getNode("C").getAttributes());
+        assertEquals(1, graph.getLinksWithAttributes(Link.ATTR_ADDED_LINK).size());
+        assertEquals(4, graph.getLinksWithAttributes(Link.ATTR_NONE).size());
+    }
+
+    /**
+     * Method testTaskLinks.
+     * @throws GrandException if the diff graph cannot be created
+     */
+    @Test
+    public final void testTaskLinks() throws GrandException {
+        final AntGraph oldAntGraph = new AntGraph(new Project());
+        oldAntGraph.createTaskLink(null, oldAntGraph.createNode("A"),
+                oldAntGraph.createNode("B"), "antcall");
+        oldAntGraph.createSubantTaskLink(null, oldAntGraph.getNode("A"),
+                oldAntGraph.createNode("C"), "subant");
+        final AntGraph newAntGraph = new AntGraph(new Project());
+        final AntTaskLink antLink = newAntGraph.createTaskLink(null,
+                newAntGraph.createNode("A"), newAntGraph.createNode("B"), "ant");
+        newAntGraph.createSubantTaskLink(null, newAntGraph.getNode("A"),
+                newAntGraph.createNode("C"), "subant");
+
+        final GraphDiff diff = new GraphDiff(oldAntGraph, newAntGraph);
+        assertEquals(Arrays.asList(antLink), diff.getAddedLinks());
+        assertEquals(1, diff.getRemovedLinks().size());
+        assertEquals("antcall",
+                ((AntTaskLink) diff.getRemovedLinks().get(0)).getTaskName());
+
+        final Graph graph = diff.getGraph();
+        int subantLinks = 0;
+        for (final Link link : graph.getNode("A").getLinks()) {
+            assertTrue("Link should be a task link", link instanceof AntTaskLink);
+            if (link instanceof SubantTaskLink) {
+                subantLinks++;
+                assertFalse(link.hasAttributes(Link.ATTR_ADDED_LINK));
+                assertFalse(link.hasAttributes(Link.ATTR_REMOVED_LINK));
+            } else if (link.hasAttributes(Link.ATTR_ADDED_LINK)) {
+                assertEquals("ant", ((AntTaskLink) link).getTaskName());
+            } else {
+                assertTrue(link.hasAttributes(Link.ATTR_REMOVED_LINK));
+                assertEquals("antcall", ((AntTaskLink) link).getTaskName());
+            }
+        }
+        assertEquals(1, subantLinks);
+        assertEquals(3, graph.getNode("A").getLinks().size());
+    }
+
+    /**
+     * Creates a graph with three nodes A -&gt; B -&gt; C and A -&gt; C.
+     *
+     * @return the graph.
+     * @throws GrandException if a node is created twice
+     */
+    private static GraphImpl createGraph() throws GrandException {
+        final GraphImpl graph = new GraphImpl("test");
+        final Node a = graph.createNode("A");
+        final Node b = graph.createNode("B");
+        final Node c = graph.createNode("C");
+        graph.createLink(null, a, b);
+        graph.createLink(null, a, c);
+        graph.createLink(null, b, c);
+        graph.setStartNode(a);
+        return graph;
+    }
+}
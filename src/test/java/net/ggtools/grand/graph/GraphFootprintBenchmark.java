@@ -0,0 +1,146 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.Random;
+
+import net.ggtools.grand.exceptions.DuplicateElementException;
+
+/**
+ * Measures the heap retained by graphs using the hash based and the compact
+ * link storage. This is not part of the test suite, run it after
+ * <code>mvn test-compile</code> with:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes \
+ *     net.ggtools.grand.graph.GraphFootprintBenchmark [nodes] [links]
+ * </pre>
+ *
+ * The graph defaults to 100000 nodes and 300000 random links, the random
+ * seed being fixed so every run builds the same graph.
+ *
+ * @author Christophe Labouisse
+ */
+public final class GraphFootprintBenchmark {
+    /**
+     * Field SEED.
+     * (value is {@value #SEED})
+     */
+    static final long SEED = 42L;
+
+    /**
+     * Field MEGABYTE.
+     * (value is {@value #MEGABYTE})
+     */
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    /**
+     * Constructor for GraphFootprintBenchmark.
+     */
+    private GraphFootprintBenchmark() {
+    }
+
+    /**
+     * Method main.
+     * @param args optional node and link counts.
+     * @throws DuplicateElementException never, node names are unique.
+     */
+    public static void main(final String[] args)
+            throws DuplicateElementException {
+        final int nodeCount = args.length > 0 ? Integer.parseInt(args[0])
+                : 100000;
+        final int linkCount = args.length > 1 ? Integer.parseInt(args[1])
+                : 300000;
+
+        // Warm up so class loading does not end in the first measure.
+        buildGraph(false, 1000, 3000);
+        buildGraph(true, 1000, 3000);
+
+        for (final boolean compact : new boolean[] {false, true}) {
+            final long before = usedHeap();
+            Graph graph = buildGraph(compact, nodeCount, linkCount);
+            final long retained = usedHeap() - before;
+            System.out.println((compact ? "compact storage " : "hash storage    ")
+                    + String.format("%6.1f MB", retained / MEGABYTE));
+            if (graph.getNode("n0") == null) {
+                throw new IllegalStateException("Graph lost");
+            }
+            graph = null;
+        }
+    }
+
+    /**
+     * Builds a graph with random links.
+     * @param compact <code>true</code> to use the compact link storage.
+     * @param nodeCount number of nodes.
+     * @param linkCount number of links.
+     * @return Graph
+     * @throws DuplicateElementException never, node names are unique.
+     */
+    private static Graph buildGraph(final boolean compact,
+            final int nodeCount, final int linkCount)
+            throws DuplicateElementException {
+        final Random random = new Random(SEED);
+        final GraphImpl graph = new GraphImpl("benchmark", compact);
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("n" + i);
+        }
+        for (int i = 0; i < linkCount; i++) {
+            graph.createLink(null, nodes[random.nextInt(nodeCount)],
+                    nodes[random.nextInt(nodeCount)]);
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the heap used after forcing garbage collections until it
+     * stops shrinking.
+     * @return long
+     */
+    static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            final long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                return current;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,182 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import net.ggtools.grand.exceptions.DuplicateElementException;
+
+/**
+ * Measures the heap retained by the link sets of the nodes, comparing
+ * {@link LinkSet} with the {@link LinkedHashSet} it replaced. This is not
+ * part of the test suite, run it after <code>mvn test-compile</code> with:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes \
+ *     net.ggtools.grand.graph.LinkSetFootprintBenchmark [nodes]
+ * </pre>
+ *
+ * The graph defaults to 100000 targets each depending on 0 to 3 random
+ * earlier targets, like a typical build file. The links and back links of
+ * every node are then copied in both kinds of sets and the retained heap
+ * is reported per node.
+ *
+ * @author Christophe Labouisse
+ */
+public final class LinkSetFootprintBenchmark {
+    /**
+     * Field MAX_DEPENDENCIES.
+     * (value is {@value #MAX_DEPENDENCIES})
+     */
+    private static final int MAX_DEPENDENCIES = 3;
+
+    /**
+     * Constructor for LinkSetFootprintBenchmark.
+     */
+    private LinkSetFootprintBenchmark() {
+    }
+
+    /**
+     * Method main.
+     * @param args optional node count.
+     * @throws DuplicateElementException never, node names are unique.
+     */
+    public static void main(final String[] args)
+            throws DuplicateElementException {
+        final int nodeCount = args.length > 0 ? Integer.parseInt(args[0])
+                : 100000;
+
+        final long beforeGraph = GraphFootprintBenchmark.usedHeap();
+        final Graph graph = buildGraph(nodeCount);
+        final long graphSize = GraphFootprintBenchmark.usedHeap() - beforeGraph;
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.getNode("n" + i);
+        }
+
+        // Warm up so class loading does not end in the first measure.
+        copyLinks(nodes, false);
+        copyLinks(nodes, true);
+
+        final long hashSize = measureCopy(nodes, true);
+        final long arraySize = measureCopy(nodes, false);
+
+        System.out.println("LinkedHashSet sets        " + perNode(hashSize, nodeCount));
+        System.out.println("LinkSet sets              " + perNode(arraySize, nodeCount));
+        System.out.println("graph with LinkSet        " + perNode(graphSize, nodeCount));
+        System.out.println("graph with LinkedHashSet  "
+                + perNode(graphSize - arraySize + hashSize, nodeCount)
+                + " (estimated)");
+    }
+
+    /**
+     * Builds a graph where each node depends on up to
+     * {@link #MAX_DEPENDENCIES} random earlier nodes.
+     * @param nodeCount number of nodes.
+     * @return Graph
+     * @throws DuplicateElementException never, node names are unique.
+     */
+    private static Graph buildGraph(final int nodeCount)
+            throws DuplicateElementException {
+        final Random random = new Random(GraphFootprintBenchmark.SEED);
+        final GraphImpl graph = new GraphImpl("benchmark");
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("n" + i);
+            if (i > 0) {
+                final int dependencies = random.nextInt(MAX_DEPENDENCIES + 1);
+                for (int j = 0; j < dependencies; j++) {
+                    graph.createLink(null, nodes[i], nodes[random.nextInt(i)]);
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Copies the links and back links of the nodes in new sets, the way
+     * {@link NodeImpl} fills them.
+     * @param nodes the nodes.
+     * @param hash <code>true</code> to use {@link LinkedHashSet}s.
+     * @return the sets, links and back links of each node.
+     */
+    private static Set<?>[] copyLinks(final Node[] nodes, final boolean hash) {
+        final Set<?>[] sets = new Set<?>[2 * nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            sets[2 * i] = copy(nodes[i].getLinks(), hash);
+            sets[2 * i + 1] = copy(nodes[i].getBackLinks(), hash);
+        }
+        return sets;
+    }
+
+    /**
+     * Copies some links in a new set.
+     * @param links the links.
+     * @param hash <code>true</code> to use a {@link LinkedHashSet}.
+     * @return Set&lt;Link&gt;
+     */
+    private static Set<Link> copy(final Collection<Link> links,
+            final boolean hash) {
+        final Set<Link> set = hash ? new LinkedHashSet<Link>() : new LinkSet();
+        for (final Link link : links) {
+            set.add(link);
+        }
+        return set;
+    }
+
+    /**
+     * Returns the heap retained by copies of the links of the nodes.
+     * @param nodes the nodes.
+     * @param hash <code>true</code> to use {@link LinkedHashSet}s.
+     * @return long
+     */
+    private static long measureCopy(final Node[] nodes, final boolean hash) {
+        final long before = GraphFootprintBenchmark.usedHeap();
+        final Set<?>[] sets = copyLinks(nodes, hash);
+        final long retained = GraphFootprintBenchmark.usedHeap() - before;
+        // Keeps the sets reachable until they are measured.
+        if (sets[sets.length - 1] == null) {
+            throw new IllegalStateException("Sets lost");
+        }
+        return retained;
+    }
+
+    /**
+     * Formats a size per node.
+     * @param size the total size in bytes.
+     * @param nodeCount number of nodes.
+     * @return String
+     */
+    private static String perNode(final long size, final int nodeCount) {
+        return String.format("%5d bytes/node", size / nodeCount);
+    }
+}
@@ -0,0 +1,157 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.GrandException;
+
+/**
+ * Tests {@link LinkSet}.
+ *
+ * @author Christophe Labouisse
+ */
+public class LinkSetTest {
+
+    /**
+     * Field links.
+     */
+    private final List<Link> links = new ArrayList<Link>();
+
+    /**
+     * Method setUp.
+     * @throws GrandException if a node is created twice
+     */
+    @Before
+    public final void setUp() throws GrandException {
+        final GraphImpl graph = new GraphImpl("test");
+        final Node start = graph.createNode("start");
+        for (int i = 0; i < LinkSet.HASH_THRESHOLD * 2; i++) {
+            links.add(new LinkImpl("link" + i, graph, start,
+                    graph.createNode("node" + i)));
+        }
+    }
+
+    /**
+     * Method testSmallSet.
+     */
+    @Test
+    public final void testSmallSet() {
+        final LinkSet set = new LinkSet();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(set.add(links.get(i)));
+        }
+        assertFalse("Duplicates should be rejected", set.add(links.get(1)));
+        assertFalse(set.isHashed());
+        assertEquals(links.subList(0, 3), new ArrayList<Link>(set));
+        assertTrue(set.contains(links.get(2)));
+        assertFalse(set.contains(links.get(3)));
+    }
+
+    /**
+     * Method testPromotion.
+     */
+    @Test
+    public final void testPromotion() {
+        final LinkSet set = new LinkSet();
+        set.addAll(links);
+        set.addAll(links);
+        assertTrue(set.isHashed());
+        assertEquals(links, new ArrayList<Link>(set));
+    }
+
+    /**
+     * Method testRemove.
+     */
+    @Test
+    public final void testRemove() {
+        final LinkSet set = new LinkSet();
+        set.addAll(links.subList(0, 4));
+        assertTrue(set.remove(links.get(1)));
+        assertFalse(set.remove(links.get(1)));
+
+        final Iterator<Link> iter = set.iterator();
+        iter.next();
+        iter.next();
+        iter.remove();
+        assertEquals(links.get(3), iter.next());
+        assertFalse(iter.hasNext());
+
+        final List<Link> expected = new ArrayList<Link>();
+        expected.add(links.get(0));
+        expected.add(links.get(3));
+        assertEquals(expected, new ArrayList<Link>(set));
+    }
+
+    /**
+     * Method testConcurrentModification.
+     */
+    @Test(expected = ConcurrentModificationException.class)
+    public final void testConcurrentModification() {
+        final LinkSet set = new LinkSet();
+        set.addAll(links.subList(0, 3));
+        for (final Link link : set) {
+            set.remove(link);
+        }
+    }
+
+    /**
+     * Checks that promoting the set while iterating on it fails.
+     */
+    @Test(expected = ConcurrentModificationException.class)
+    public final void testPromotionWhileIterating() {
+        final LinkSet set = new LinkSet();
+        set.addAll(links.subList(0, LinkSet.HASH_THRESHOLD));
+        for (final Link link : set) {
+            set.add(links.get(LinkSet.HASH_THRESHOLD));
+        }
+    }
+
+    /**
+     * Checks that clearing the set while iterating on it fails.
+     */
+    @Test(expected = ConcurrentModificationException.class)
+    public final void testClearWhileIterating() {
+        final LinkSet set = new LinkSet();
+        set.addAll(links.subList(0, 3));
+        for (final Link link : set) {
+            set.clear();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.ant.AntProject;
+import net.ggtools.grand.exceptions.GrandException;
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Checks the reachability index against graph walks.
+ *
+ * @author Christophe Labouisse
+ */
+public class ReachabilityIndexTest extends AbstractAntTester {
+    /**
+     * Field producer.
+     */
+    private GraphProducer producer;
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "log4j-build.xml");
+        project.setBasedir(TESTCASES_DIR);
+        producer = new AntProject(project);
+    }
+
+    /**
+     * Compares the index with forward and backward walks on a build file.
+     * @throws GrandException if {@link GraphProducer#getGraph()} fails
+     */
+    @Test
+    public final void testBuildFile() throws GrandException {
+        final Graph graph = producer.getGraph();
+        final ReachabilityIndex index = new ReachabilityIndex(graph);
+
+        assertTrue(index.reaches(graph.getNode("build"), graph.getNode("jmxCheck")));
+        assertFalse(index.reaches(graph.getNode("jmxCheck"), graph.getNode("build")));
+        checkAgainstWalks(graph, index);
+    }
+
+    /**
+     * Checks the index on a random graph with cycles.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testCycles() throws GrandException {
+        final int nodeCount = 300;
+        final GraphImpl graph = new GraphImpl("random");
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("node" + i);
+        }
+        final Random random = new Random(1);
+        for (int i = 0; i < nodeCount; i++) {
+            for (int j = random.nextInt(3); j > 0; j--) {
+                graph.createLink(null, nodes[i], nodes[random.nextInt(nodeCount)]);
+            }
+        }
+        graph.createLink(null, nodes[0], nodes[1]);
+        graph.createLink(null, nodes[1], nodes[0]);
+
+        final ReachabilityIndex index = new ReachabilityIndex(graph);
+        assertTrue(index.getComponentCount() < nodeCount);
+        assertTrue(index.getComponent(nodes[0]).contains(nodes[1]));
+        assertTrue(index.reaches(nodes[0], nodes[1]));
+        assertTrue(index.reaches(nodes[1], nodes[0]));
+        checkAgainstWalks(graph, index);
+    }
+
+    /**
+     * Checks that nodes from another graph are rejected.
+     * @throws GrandException if a node is created twice
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void testForeignNode() throws GrandException {
+        final GraphImpl graph = new GraphImpl("graph");
+        final Node node = graph.createNode("node");
+        final ReachabilityIndex index = new ReachabilityIndex(new GraphImpl("empty"));
+        index.reaches(node, node);
+    }
+
+    /**
+     * Compares the descendants and ancestors of each node with the result
+     * of a walk.
+     *
+     * @param graph the indexed graph.
+     * @param index the index.
+     */
+    private static void checkAgainstWalks(final Graph graph, final ReachabilityIndex index) {
+        final GraphCrawler forward = new GraphCrawler(graph, new ForwardLinkFinder());
+        final GraphCrawler backward = new GraphCrawler(graph, new BackwardLinkFinder());
+        for (final Iterator<Node> iter = graph.getNodes(); iter.hasNext();) {
+            final Node node = iter.next();
+            final Collection<Node> descendants = forward.crawl(node);
+            assertEquals("Wrong descendants for " + node, new HashSet<Node>(descendants),
+                    new HashSet<Node>(index.getDescendants(node)));
+            assertEquals("Wrong ancestors for " + node,
+                    new HashSet<Node>(backward.crawl(node)),
+                    new HashSet<Node>(index.getAncestors(node)));
+            for (final Iterator<Node> other = graph.getNodes(); other.hasNext();) {
+                final Node target = other.next();
+                assertEquals(descendants.contains(target), index.reaches(node, target));
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.GrandException;
+
+/**
+ * Tests for StronglyConnectedComponents.
+ *
+ * @author Christophe Labouisse
+ */
+public class StronglyConnectedComponentsTest {
+
+    /**
+     * Compares the components with forward walks on a random graph.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testRandomGraph() throws GrandException {
+        final int nodeCount = 300;
+        final GraphImpl graph = new GraphImpl("random");
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("node" + i);
+        }
+        final Random random = new Random(1);
+        for (int i = 0; i < nodeCount; i++) {
+            for (int j = random.nextInt(3); j > 0; j--) {
+                graph.createLink(null, nodes[i], nodes[random.nextInt(nodeCount)]);
+            }
+        }
+
+        final StronglyConnectedComponents components =
+                new StronglyConnectedComponents(graph, true);
+        final GraphCrawler crawler = new GraphCrawler(graph, new ForwardLinkFinder());
+        final Map<Node, Collection<Node>> descendants = new HashMap<Node, Collection<Node>>();
+        for (final Node node : nodes) {
+            descendants.put(node, crawler.crawl(node));
+        }
+        for (final Node node : nodes) {
+            for (final Node other : nodes) {
+                final boolean sameComponent = descendants.get(node).contains(other)
+                        && descendants.get(other).contains(node);
+                assertEquals(sameComponent, components.getComponentIndex(node)
+                        == components.getComponentIndex(other));
+                if (components.getComponentIndex(node) < components.getComponentIndex(other)) {
+                    assertFalse("Components should be in reverse topological order",
+                            descendants.get(node).contains(other));
+                }
+            }
+            assertEquals(components.getComponent(node).size() > 1
+                    || hasLinkTo(node, node), components.isCyclic(node));
+        }
+        assertTrue(components.getCycles().size() > 0);
+    }
+
+    /**
+     * Checks cycles going through weak links and self links.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testWeakLinks() throws GrandException {
+        final GraphImpl graph = new GraphImpl("weak");
+        final Node init = graph.createNode("init");
+        final Node dist = graph.createNode("dist");
+        final Node pack = graph.createNode("package");
+        final Node self = graph.createNode("self");
+        graph.createLink(null, dist, init);
+        graph.createLink(null, pack, dist);
+        graph.createLink(null, dist, pack).setAttributes(Link.ATTR_WEAK_LINK);
+        graph.createLink(null, self, self);
+
+        final StronglyConnectedComponents strong = new StronglyConnectedComponents(graph, false);
+        assertEquals(4, strong.getComponentCount());
+        assertFalse(strong.isCyclic(dist));
+        assertTrue(strong.isCyclic(self));
+        assertEquals(1, strong.getCycles().size());
+
+        final StronglyConnectedComponents all = new StronglyConnectedComponents(graph, true);
+        assertEquals(3, all.getComponentCount());
+        assertTrue(all.isCyclic(dist));
+        assertTrue(all.isCyclic(pack));
+        assertFalse(all.isCyclic(init));
+        assertEquals(2, all.getCycles().size());
+        assertEquals(3, all.getCyclicNodes().size());
+
+        all.markCycles();
+        assertTrue(pack.hasAttributes(Node.ATTR_CYCLIC_NODE));
+        assertFalse(init.hasAttributes(Node.ATTR_CYCLIC_NODE));
+        for (final Link link : dist.getLinks()) {
+            assertEquals(link.getEndNode() == pack, link.hasAttributes(Link.ATTR_CYCLIC_LINK));
+        }
+    }
+
+    /**
+     * Checks that the cycles of a frozen graph can be marked on a view.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testMarkView() throws GrandException {
+        final GraphImpl graph = new GraphImpl("view");
+        final Node init = graph.createNode("init");
+        final Node dist = graph.createNode("dist");
+        final Node pack = graph.createNode("package");
+        graph.createLink(null, dist, init);
+        graph.createLink(null, pack, dist);
+        graph.createLink(null, dist, pack);
+        graph.freeze();
+
+        final StronglyConnectedComponents components =
+                new StronglyConnectedComponents(graph, true);
+        final Graph view = new FilteredGraphView(graph);
+        components.markCycles(view);
+        assertTrue(view.getNode("package").hasAttributes(Node.ATTR_CYCLIC_NODE));
+        assertFalse(view.getNode("init").hasAttributes(Node.ATTR_CYCLIC_NODE));
+        for (final Link link : view.getNode("dist").getLinks()) {
+            assertEquals(link.getEndNode().getName().equals("package"),
+                    link.hasAttributes(Link.ATTR_CYCLIC_LINK));
+        }
+        assertFalse(pack.hasAttributes(Node.ATTR_CYCLIC_NODE));
+    }
+
+    /**
+     * Checks that very long dependency chains do not overflow the stack.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testLongChain() throws GrandException {
+        final int nodeCount = 200000;
+        final GraphImpl graph = new GraphImpl("chain");
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("node" + i);
+        }
+        for (int i = 1; i < nodeCount; i++) {
+            graph.createLink(null, nodes[i - 1], nodes[i]);
+        }
+        graph.createLink(null, nodes[nodeCount / 2], nodes[0]);
+
+        final StronglyConnectedComponents components =
+                new StronglyConnectedComponents(graph, true);
+        assertEquals(nodeCount / 2 + 1, components.getComponent(nodes[0]).size());
+        assertFalse(components.isCyclic(nodes[nodeCount - 1]));
+        assertEquals(nodeCount / 2, components.getComponentCount());
+    }
+
+    /**
+     * Tells if a node links to another one.
+     *
+     * @param from the start node.
+     * @param to the end node.
+     * @return <code>true</code> if there is a link.
+     */
+    private static boolean hasLinkTo(final Node from, final Node to) {
+        for (final Link link : from.getLinks()) {
+            if (link.getEndNode() == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,122 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.DuplicateElementException;
+
+/**
+ * Tests {@link SymbolTable} and name resolution in {@link GraphImpl}.
+ *
+ * @author Christophe Labouisse
+ */
+public class SymbolTableTest {
+
+    /**
+     * Method testInternReturnsStableHandles.
+     */
+    @Test
+    public final void testInternReturnsStableHandles() {
+        final SymbolTable table = new SymbolTable();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, table.intern("symbol" + i));
+        }
+        assertEquals(1000, table.size());
+        for (int i = 0; i < 1000; i++) {
+            final String symbol = "symbol" + i;
+            assertEquals(i, table.intern(symbol));
+            assertEquals(i, table.lookup(symbol));
+            assertEquals(symbol, table.getSymbol(i));
+        }
+        assertEquals(1000, table.size());
+        assertEquals(-1, table.lookup("missing"));
+        assertEquals(-1, table.lookup(null));
+    }
+
+    /**
+     * Method testCanonical.
+     */
+    @Test
+    public final void testCanonical() {
+        final SymbolTable table = new SymbolTable();
+        final String first = new String("build.xml");
+        final String second = new String("build.xml");
+        assertNotSame(first, second);
+        assertSame(first, table.canonical(first));
+        assertSame(first, table.canonical(second));
+    }
+
+    /**
+     * Method testInvalidHandle.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public final void testInvalidHandle() {
+        new SymbolTable().getSymbol(0);
+    }
+
+    /**
+     * Method testGraphNodeResolution.
+     * @throws DuplicateElementException if a node is created twice
+     */
+    @Test
+    public final void testGraphNodeResolution() throws DuplicateElementException {
+        final GraphImpl graph = new GraphImpl("symbols");
+        final Node node = graph.createNode("target");
+        assertSame(node, graph.getNode(new String("target")));
+        assertTrue(graph.hasNode("target"));
+        assertEquals("target".hashCode(), node.hashCode());
+
+        final Iterator<Node> iter = graph.getNodes();
+        iter.next();
+        iter.remove();
+        assertEquals(null, graph.getNode("target"));
+
+        final Node recreated = graph.createNode("target");
+        assertSame(recreated, graph.getNode("target"));
+    }
+
+    /**
+     * Method testDuplicateNode.
+     * @throws DuplicateElementException expected
+     */
+    @Test(expected = DuplicateElementException.class)
+    public final void testDuplicateNode() throws DuplicateElementException {
+        final GraphImpl graph = new GraphImpl("symbols");
+        graph.createNode("target");
+        graph.createNode(new String("target"));
+    }
+}
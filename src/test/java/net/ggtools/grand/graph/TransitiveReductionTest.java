@@ -0,0 +1,139 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import net.ggtools.grand.exceptions.GrandException;
+
+/**
+ * Tests for TransitiveReduction.
+ *
+ * @author Christophe Labouisse
+ */
+public class TransitiveReductionTest {
+
+    /**
+     * Checks the reduction of a small graph with a cycle and weak links.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testCycleAndWeakLinks() throws GrandException {
+        final GraphImpl graph = new GraphImpl("reduction");
+        final Node init = graph.createNode("init");
+        final Node a = graph.createNode("a");
+        final Node b = graph.createNode("b");
+        final Node c = graph.createNode("c");
+        final Link aToB = graph.createLink(null, a, b);
+        final Link bToA = graph.createLink(null, b, a);
+        final Link bToInit = graph.createLink(null, b, init);
+        final Link cToA = graph.createLink(null, c, a);
+        final Link cToB = graph.createLink(null, c, b);
+        final Link cToInit = graph.createLink(null, c, init);
+        final Link weak = graph.createLink(null, c, init);
+        weak.setAttributes(Link.ATTR_WEAK_LINK);
+
+        final TransitiveReduction strong = new TransitiveReduction(graph, false);
+        assertFalse(strong.isIncludingWeakLinks());
+        assertEquals(Arrays.asList(cToB, cToInit), strong.getRedundantLinks());
+
+        final List<Link> all = new TransitiveReduction(graph, true).getRedundantLinks();
+        assertEquals(3, all.size());
+        assertTrue(all.contains(weak));
+        assertFalse(all.contains(aToB) || all.contains(bToA) || all.contains(bToInit)
+                || all.contains(cToA));
+    }
+
+    /**
+     * Compares the reduction of a random acyclic graph with a quadratic
+     * reference implementation.
+     * @throws GrandException if a node is created twice
+     */
+    @Test
+    public final void testRandomGraph() throws GrandException {
+        final int nodeCount = 300;
+        final GraphImpl graph = new GraphImpl("random");
+        final Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graph.createNode("node" + i);
+        }
+        final Random random = new Random(1);
+        final List<Link> links = new ArrayList<Link>();
+        for (int i = 1; i < nodeCount; i++) {
+            final Set<Integer> dependencies = new HashSet<Integer>();
+            for (int j = random.nextInt(6); j > 0; j--) {
+                dependencies.add(random.nextInt(i));
+            }
+            for (final Integer dependency : dependencies) {
+                links.add(graph.createLink(null, nodes[i], nodes[dependency]));
+            }
+        }
+
+        final Set<Link> redundant =
+                new HashSet<Link>(new TransitiveReduction(graph, false).getRedundantLinks());
+        for (final Link link : links) {
+            assertEquals(link.toString(), isImplied(link), redundant.contains(link));
+        }
+    }
+
+    /**
+     * Tells if the end of a link can be reached from its start through
+     * other links.
+     * @param link the link.
+     * @return <code>true</code> if the link is implied by another path.
+     */
+    private static boolean isImplied(final Link link) {
+        final Set<Node> visited = new HashSet<Node>();
+        final LinkedList<Node> queue = new LinkedList<Node>();
+        queue.add(link.getStartNode());
+        while (!queue.isEmpty()) {
+            for (final Link next : queue.removeFirst().getLinks()) {
+                if ((next != link) && visited.add(next.getEndNode())) {
+                    if (next.getEndNode() == link.getEndNode()) {
+                        return true;
+                    }
+                    queue.add(next.getEndNode());
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -44,7 +44,10 @@ import org.junit.runners.Suite;
     GraphFilterTypeTest.class,
     GrandTaskTest.class,
     GraphFilterFactoryTest.class,
-    GrandTaskPropertyTest.class
+    GrandTaskPropertyTest.class,
+    DependencyAssertTaskTest.class,
+    ExecutionPlanTaskTest.class,
+    CriticalPathTaskTest.class
     })
 public final class AllTests {
 }
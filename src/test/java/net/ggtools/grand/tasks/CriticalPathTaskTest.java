@@ -0,0 +1,95 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.tasks;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests for CriticalPathTask.
+ *
+ * @author Christophe Labouisse
+ */
+public class CriticalPathTaskTest extends AbstractAntTester {
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "critical-path.xml");
+        project.setBasedir(TESTCASES_DIR);
+    }
+
+    /**
+     * Method testDefaultTarget.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testDefaultTarget() throws IOException {
+        expectLogContaining("default-target", "Critical path takes 85 ms");
+        assertTempFileMatchExpected(TESTCASES_DIR + "critical-path-report.txt");
+    }
+
+    /**
+     * Method testTargets.
+     */
+    @Test
+    public final void testTargets() {
+        expectLogContaining("targets", "init (10 ms) -> javadoc (30 ms)");
+    }
+
+    /**
+     * Method testNoTimingFile.
+     */
+    @Test
+    public final void testNoTimingFile() {
+        expectSpecificBuildException("no-timing-file", "missing attribute",
+                "timingfile attribute is required");
+    }
+
+    /**
+     * Method testMissingTimingFile.
+     */
+    @Test
+    public final void testMissingTimingFile() {
+        expectBuildException("missing-timing-file", "unreadable timing file");
+    }
+
+    /**
+     * Method testNonExistentTarget.
+     */
+    @Test
+    public final void testNonExistentTarget() {
+        expectSpecificBuildException("non-existent-target", "unknown target",
+                "Target gruik does not exist");
+    }
+}
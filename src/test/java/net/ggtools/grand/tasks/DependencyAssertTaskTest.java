@@ -0,0 +1,117 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests for DependencyAssertTask.
+ *
+ * @author Christophe Labouisse
+ */
+public class DependencyAssertTaskTest extends AbstractAntTester {
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "dependency-assert.xml");
+        project.setBasedir(TESTCASES_DIR);
+    }
+
+    /**
+     * Test if the antlib.xml resource defines the task.
+     */
+    @Test
+    public final void testAntLib() {
+        executeTarget("init");
+        final Class<?> taskClass = project.getTaskDefinitions().get("grandassert");
+        assertNotNull("grandassert task class not found", taskClass);
+        assertEquals("Wrong class found for task", DependencyAssertTask.class, taskClass);
+    }
+
+    /**
+     * Method testPassing.
+     */
+    @Test
+    public final void testPassing() {
+        expectLogContaining("passing", "Checked 4 dependency assertions");
+    }
+
+    /**
+     * Method testFailing.
+     */
+    @Test
+    public final void testFailing() {
+        expectSpecificBuildException("failing", "two assertions are false",
+                "2 dependency assertions failed");
+        assertLogContaining("Failed: clean depends on init");
+        assertLogContaining("Failed: dist does not depend on compile");
+    }
+
+    /**
+     * Method testNoFail.
+     */
+    @Test
+    public final void testNoFail() {
+        expectLogContaining("no-fail", "1 dependency assertion failed");
+    }
+
+    /**
+     * Method testCurrentProject.
+     */
+    @Test
+    public final void testCurrentProject() {
+        expectLogContaining("current-project", "Using current project");
+        assertLogContaining("Checked 2 dependency assertions");
+    }
+
+    /**
+     * Method testNonExistentTarget.
+     */
+    @Test
+    public final void testNonExistentTarget() {
+        expectSpecificBuildException("non-existent-target", "unknown target",
+                "Target gruik does not exist");
+    }
+
+    /**
+     * Method testMissingAttribute.
+     */
+    @Test
+    public final void testMissingAttribute() {
+        expectSpecificBuildException("missing-attribute", "on attribute is missing",
+                "target and on attributes are required");
+    }
+}
@@ -0,0 +1,106 @@
+// $Id$
+/*
+ * ====================================================================
+ * Copyright (c) 2002-2003, Christophe Labouisse All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.ggtools.grand.tasks;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ggtools.grand.utils.AbstractAntTester;
+
+/**
+ * Tests for ExecutionPlanTask.
+ *
+ * @author Christophe Labouisse
+ */
+public class ExecutionPlanTaskTest extends AbstractAntTester {
+
+    /**
+     * Method setUp.
+     */
+    @Before
+    public final void setUp() {
+        configureProject(TESTCASES_DIR + "execution-plan.xml");
+        project.setBasedir(TESTCASES_DIR);
+    }
+
+    /**
+     * Method testDefaultTarget.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testDefaultTarget() throws IOException {
+        expectLogContaining("default-target", "Planned 7 targets in 7 levels");
+        assertTempFileMatchExpected(TESTCASES_DIR + "build-simple-plan.txt");
+    }
+
+    /**
+     * Method testJson.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testJson() throws IOException {
+        expectLogContaining("json", "Planned 3 targets in 3 levels");
+        assertTempFileMatchExpected(TESTCASES_DIR + "cycles-plan.json");
+    }
+
+    /**
+     * Method testLog.
+     */
+    @Test
+    public final void testLog() {
+        expectLogContaining("log", "Longest chain: init -> compile -> dist");
+    }
+
+    /**
+     * Method testCycles.
+     */
+    @Test
+    public final void testCycles() {
+        expectSpecificBuildException("cycles", "antcall cycle",
+                "Cannot plan a graph with dependency cycles");
+    }
+
+    /**
+     * Method testBadFormat.
+     */
+    @Test
+    public final void testBadFormat() {
+        expectSpecificBuildException("bad-format", "unknown format",
+                "format should be text or json");
+    }
+
+    /**
+     * Method testNonExistentTarget.
+     */
+    @Test
+    public final void testNonExistentTarget() {
+        expectSpecificBuildException("non-existent-target", "unknown target",
+                "Target gruik does not exist");
+    }
+}
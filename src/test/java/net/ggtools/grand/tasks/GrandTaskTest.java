@@ -36,6 +36,7 @@ import org.apache.tools.ant.BuildException;
 import org.junit.Before;
 import org.junit.Test;
 
+import net.ggtools.grand.filters.FilterResultCache;
 import net.ggtools.grand.utils.AbstractAntTester;
 
 /**
@@ -202,6 +203,157 @@ public class GrandTaskTest extends AbstractAntTester {
         assertTempFileMatchExpected(TESTCASES_DIR + "build-complex.dot");
     }
 
+    /**
+     * Method testMarkCycles.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testMarkCycles() throws IOException {
+        expectLogContaining("mark-cycles", "Found 2 dependency cycles");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "cycles.dot");
+    }
+
+    /**
+     * Checks that the cycles are still highlighted on a filtered graph.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testMarkCyclesWithFilter() throws IOException {
+        expectLogContaining("mark-cycles-filtered", "Found 2 dependency cycles");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "cycles-filtered.dot");
+    }
+
+    /**
+     * Checks that the cycles are highlighted on a graph read from the graph
+     * cache.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testMarkCyclesWithCache() throws IOException {
+        expectLogContaining("mark-cycles-cache", "Using graph cache ");
+        assertLogContaining("Found 2 dependency cycles");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "cycles.dot");
+    }
+
+    /**
+     * Checks the cycle filter on a graph read from the graph cache.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testCycleFilterWithCache() throws IOException {
+        expectLogContaining("cycle-filter-cache", "Using graph cache ");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "cycles-only.dot");
+    }
+
+    /**
+     * Checks the dominator filter on a graph read from the graph cache.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testDominatorFilterWithCache() throws IOException {
+        expectLogContaining("dominator-filter-cache", "Using graph cache ");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "dominators.dot");
+    }
+
+    /**
+     * Method testTimingFile.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testTimingFile() throws IOException {
+        expectLogContaining("timing-file", "Critical path takes 85 ms");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "critical-path.dot");
+    }
+
+    /**
+     * Checks the critical path of a graph read from the graph cache.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testTimingFileWithCache() throws IOException {
+        expectLogContaining("timing-file-cache", "Using graph cache ");
+        assertLogContaining("Critical path takes 85 ms");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "critical-path.dot");
+    }
+
+    /**
+     * Method testExplainFilters.
+     */
+    @Test
+    public final void testExplainFilters() {
+        expectLogContaining("explain-filters",
+                "Dropped isolatednode: the nodes walked by fromnode are not isolated");
+        assertLogContaining("Unfiltered graph: 9 nodes");
+        assertLogContaining("After fromnode: 3 nodes");
+    }
+
+    /**
+     * Method testRankLevels.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testRankLevels() throws IOException {
+        executeTarget("rank-levels");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "cycles-ranked.dot");
+    }
+
+    /**
+     * Method testParallelCrawl.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testParallelCrawl() throws IOException {
+        executeTarget("parallel-crawl");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "parallel-crawl.dot");
+    }
+
+    /**
+     * Method testFilterCache.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testFilterCache() throws IOException {
+        final int hits = FilterResultCache.getSharedCache().getHitCount();
+        executeTarget("filter-cache");
+
+        assertTrue("Second graph should use the cached filter result",
+                FilterResultCache.getSharedCache().getHitCount() > hits);
+        assertTempFileMatchExpected(TESTCASES_DIR + "parallel-crawl.dot");
+    }
+
+    /**
+     * Checks that the cycles are still highlighted when the filters are
+     * cached.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testFilterCacheWithCycles() throws IOException {
+        expectLogContaining("filter-cache-cycles", "Found 2 dependency cycles");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "cycles-only.dot");
+    }
+
+    /**
+     * Method testCache.
+     * @throws IOException if file comparator fails
+     */
+    @Test
+    public final void testCache() throws IOException {
+        expectLogContaining("cache", "Writing graph cache to ");
+        assertLogContaining("Using graph cache ");
+
+        assertTempFileMatchExpected(TESTCASES_DIR + "build-complex.dot");
+    }
+
     /**
      * Method testSubant.
      * @throws IOException if file comparator fails
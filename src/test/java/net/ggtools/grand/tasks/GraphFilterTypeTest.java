@@ -73,4 +73,95 @@ public class GraphFilterTypeTest extends AbstractAntTester {
         expectBuildException("noname", "required attribute missing");
     }
 
+    /**
+     * Method testMultipleNodes.
+     */
+    @Test
+    public final void testMultipleNodes() {
+        expectLogContaining("multiple", "Loaded 1 filter");
+    }
+
+    /**
+     * Method testCycles.
+     */
+    @Test
+    public final void testCycles() {
+        expectLogContaining("cycles", "Loaded 1 filter");
+    }
+
+    /**
+     * Method testTransitiveReduction.
+     */
+    @Test
+    public final void testTransitiveReduction() {
+        expectLogContaining("transitive-reduction", "Loaded 1 filter");
+    }
+
+    /**
+     * Method testDominators.
+     */
+    @Test
+    public final void testDominators() {
+        expectLogContaining("dominators", "Loaded 1 filter");
+    }
+
+    /**
+     * Method testPath.
+     */
+    @Test
+    public final void testPath() {
+        expectLogContaining("path", "Loaded 1 filter");
+    }
+
+    /**
+     * Method testPathWithoutTarget.
+     */
+    @Test
+    public final void testPathWithoutTarget() {
+        expectBuildException("path-no-target", "required attribute missing");
+    }
+
+    /**
+     * Method testPattern.
+     */
+    @Test
+    public final void testPattern() {
+        expectLogContaining("pattern", "Loaded 1 filter");
+    }
+
+    /**
+     * Method testPatternWithoutPattern.
+     */
+    @Test
+    public final void testPatternWithoutPattern() {
+        expectBuildException("pattern-no-pattern",
+                "required attribute missing");
+    }
+
+    /**
+     * Method testPatternWithRegexQuantifier.
+     */
+    @Test
+    public final void testPatternWithRegexQuantifier() {
+        expectFullLogContaining("pattern-regex-quantifier",
+                "Including [regex:a{1,3}, regex:[,;]x, dist]");
+    }
+
+    /**
+     * Method testPatternWithInvalidRegex.
+     */
+    @Test
+    public final void testPatternWithInvalidRegex() {
+        expectBuildExceptionContaining("pattern-invalid-regex",
+                "invalid regular expression", "Invalid pattern");
+    }
+
+    /**
+     * Method testUnsupportedAttribute.
+     */
+    @Test
+    public final void testUnsupportedAttribute() {
+        expectBuildException("unsupported",
+                "Filter isolatednode does not support the maxdepth attribute");
+    }
 }